@@ -78,5 +78,19 @@ public interface Plugin {
     default String getDisplayName(Locale locale) {
         return this.getClass().getSimpleName();
     }
+
+    /**
+     * Tells whether the output of this plugin may be cached along with the HTML of the page it's on, that is, if it depends only on
+     * its parameters, the page, and the user's permissions and preferences. Plugins showing changing data, like counters or dates,
+     * must not be cached. Plugins showing other pages may be cached as long as they register them as dependencies of the page being
+     * rendered, so it's flushed from the caches whenever they change. Defaults to {@code false}, override it to allow caching the
+     * pages using the plugin.
+     *
+     * @return {@code true} if the output of the plugin may be cached, {@code false} otherwise.
+     * @since 3.0.1
+     */
+    default boolean isCacheable() {
+        return false;
+    }
     
 }
@@ -105,6 +105,19 @@ public interface PageProvider extends WikiProvider {
      */
     Collection< Page > getAllChangedSince( Date date );
 
+    /**
+     *  Tells whether {@link #getAllChangedSince(Date)} returns every page changed since the given date. Providers which don't keep track
+     *  of their changes, and may return nothing at all from it, keep the default, so the pages changed since a date are picked out of all
+     *  the pages instead.
+     *
+     *  @return {@code true} if the pages changed since a date can be listed through {@link #getAllChangedSince(Date)}, {@code false}
+     *          otherwise.
+     *  @since 3.0.1
+     */
+    default boolean tracksChanges() {
+        return false;
+    }
+
     /**
      *  Gets the number of pages.
      *  
@@ -0,0 +1,131 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.engine.Initializable;
+import org.apache.wiki.api.exceptions.WikiException;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+
+/**
+ * Base of the {@link CachingManager}s, which sets up the parts shared by all of them: the disk tier, the tracking of the most requested
+ * keys, the broadcasting of invalidations to peer nodes and the coordination of loads, leaving to subclasses the caches themselves.
+ *
+ * @since 3.0.1
+ */
+abstract class AbstractCachingManager implements CachingManager, Initializable {
+
+    final Map< String, Double > refreshAheads = new ConcurrentHashMap<>();
+    final CacheLoads loads = new CacheLoads();
+    DiskTier diskTier;
+    HotKeys hotKeys = new HotKeys( new Properties() );
+    final InvalidationBus invalidations = new InvalidationBus();
+    Properties properties = new Properties();
+
+    /** {@inheritDoc} */
+    @Override
+    public void initialize( final Engine engine, final Properties props ) throws WikiException {
+        properties = props;
+        diskTier = new DiskTier( engine, props );
+        hotKeys = new HotKeys( props );
+        invalidations.start( engine, props );
+        final String cacheEnabled = TextUtil.getStringProperty( props, PROP_CACHE_ENABLE, PROP_USECACHE_DEPRECATED, "true" );
+        if( "true".equalsIgnoreCase( cacheEnabled ) ) {
+            startCaches();
+            registerCache( CACHE_ATTACHMENTS );
+            registerCache( CACHE_ATTACHMENTS_COLLECTION );
+            registerCache( CACHE_ATTACHMENTS_DYNAMIC );
+            registerCache( CACHE_DOCUMENTS );
+            registerCache( CACHE_HTML );
+            registerCache( CACHE_PAGES );
+            registerCache( CACHE_PAGES_HISTORY );
+            registerCache( CACHE_PAGES_TEXT );
+        }
+    }
+
+    /**
+     * Sets up whatever the caches need before they're registered. Does nothing by default.
+     *
+     * @throws WikiException if the caches can't be set up.
+     */
+    void startCaches() throws WikiException {
+    }
+
+    /**
+     * Creates a cache, configured through the wiki properties.
+     *
+     * @param cacheName the cache name.
+     * @throws WikiException if the cache configuration is invalid.
+     */
+    abstract void registerCache( String cacheName ) throws WikiException;
+
+    /** {@inheritDoc} */
+    @Override
+    public void shutdown() {
+        invalidations.shutdown();
+        shutdownCaches();
+        refreshAheads.clear();
+    }
+
+    /** Drops every cache. */
+    abstract void shutdownCaches();
+
+    /** {@inheritDoc} */
+    @Override
+    public < T extends Serializable > List< T > hotKeys( final String cacheName ) {
+        return hotKeys.top( cacheName );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void publish( final CacheInvalidation invalidation ) {
+        invalidations.publish( invalidation );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addInvalidationListener( final Consumer< CacheInvalidation > listener ) {
+        invalidations.addListener( listener );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean registerCodec( final String cacheName, final CacheCodec< ? > codec ) {
+        return enabled( cacheName ) && diskTier.registerCodec( cacheName, codec );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean registerStamp( final String cacheName, final CacheStamp stamp ) {
+        return enabled( cacheName ) && diskTier.registerStamp( cacheName, stamp );
+    }
+
+    boolean keyAndCacheAreNotNull( final String cacheName, final Serializable key ) {
+        return enabled( cacheName ) && key != null;
+    }
+
+}
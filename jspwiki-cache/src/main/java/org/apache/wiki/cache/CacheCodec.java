@@ -0,0 +1,53 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Writes and reads the values of a cache on the disk tier, for values which aren't strings and can't be, or shouldn't be, written
+ * through Java serialization. See {@link CachingManager#registerCodec(String, CacheCodec)}.
+ *
+ * @param <T> the type of the values of the cache.
+ * @since 3.0.1
+ */
+public interface CacheCodec< T > {
+
+    /**
+     * Writes a value of the cache.
+     *
+     * @param out where to write the value.
+     * @param value the value to write.
+     * @throws IOException if the value can't be written.
+     */
+    void write( DataOutput out, T value ) throws IOException;
+
+    /**
+     * Reads a value of the cache, as written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in where to read the value from.
+     * @return the value read.
+     * @throws IOException if the value can't be read.
+     */
+    T read( DataInput in ) throws IOException;
+
+}
@@ -19,6 +19,8 @@
 
 package org.apache.wiki.cache;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Simple pojo that holds cache information.
  */
@@ -26,22 +28,61 @@ public class CacheInfo {
 
     private final String name;
     private final long maxElementsAllowed;
-    private long misses;
-    private long hits;
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final long size;
+    private final long maxWeight;
+    private final long weightedSize;
 
     public CacheInfo( final String name, final long maxElementsAllowed ) {
+        this( name, maxElementsAllowed, 0, 0, 0 );
+    }
+
+    /**
+     * Creates a snapshot of the usage information of a cache which keeps its own statistics.
+     *
+     * @param name cache name.
+     * @param maxElementsAllowed maximum number of elements of the cache.
+     * @param size current number of elements of the cache.
+     * @param maxWeight maximum weight of the cache, in bytes, or {@code 0} if the cache isn't bounded by weight.
+     * @param weightedSize current weight of the cache, in bytes, or {@code 0} if the cache isn't bounded by weight.
+     * @param hits number of hits so far.
+     * @param misses number of misses so far.
+     * @param evictions number of elements evicted so far.
+     * @since 3.0.1
+     */
+    public CacheInfo( final String name, final long maxElementsAllowed, final long size, final long maxWeight, final long weightedSize,
+                      final long hits, final long misses, final long evictions ) {
+        this( name, maxElementsAllowed, size, maxWeight, weightedSize );
+        this.hits.add( hits );
+        this.misses.add( misses );
+        this.evictions.add( evictions );
+    }
+
+    private CacheInfo( final String name, final long maxElementsAllowed, final long size, final long maxWeight, final long weightedSize ) {
         this.name = name;
         this.maxElementsAllowed = maxElementsAllowed;
-        this.hits = 0L;
-        this.misses = 0L;
+        this.size = size;
+        this.maxWeight = maxWeight;
+        this.weightedSize = weightedSize;
     }
 
     public void hit() {
-        hits++;
+        hits.increment();
     }
 
     public void miss() {
-        misses++;
+        misses.increment();
+    }
+
+    /**
+     * Registers the eviction of an element from the cache.
+     *
+     * @since 3.0.1
+     */
+    public void evicted() {
+        evictions.increment();
     }
 
     public String getName() {
@@ -49,14 +90,54 @@ public class CacheInfo {
     }
 
     public long getMisses() {
-        return misses;
+        return misses.sum();
     }
 
     public long getHits() {
-        return hits;
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of elements evicted from the cache, either because it was full or because they expired.
+     *
+     * @return number of elements evicted from the cache.
+     * @since 3.0.1
+     */
+    public long getEvictions() {
+        return evictions.sum();
     }
 
     public long getMaxElementsAllowed() {
         return maxElementsAllowed;
     }
+
+    /**
+     * Returns the number of elements of the cache when this information was taken.
+     *
+     * @return number of elements of the cache.
+     * @since 3.0.1
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum weight of the cache, that is, the estimated heap its elements may take.
+     *
+     * @return maximum weight of the cache, in bytes, or {@code 0} if the cache isn't bounded by weight.
+     * @since 3.0.1
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Returns the weight of the cache when this information was taken, that is, the estimated heap taken by its elements.
+     *
+     * @return weight of the cache, in bytes, or {@code 0} if the cache isn't bounded by weight.
+     * @since 3.0.1
+     */
+    public long getWeightedSize() {
+        return weightedSize;
+    }
 }
@@ -0,0 +1,133 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import java.util.Objects;
+
+
+/**
+ * Invalidation of a cached element broadcast to the peer nodes of a cluster sharing the storage of the cached services, so they don't
+ * serve it stale. See {@link CachingManager#publish(CacheInvalidation)}.
+ *
+ * @since 3.0.1
+ */
+public final class CacheInvalidation {
+
+    /** What happened to the invalidated element on the node broadcasting the invalidation. */
+    public enum Type {
+        /** The element was created or updated. */
+        PUT,
+        /** A version of the element was removed. */
+        REMOVE,
+        /** The element was renamed, see {@link #getNewName()}. */
+        RENAME,
+        /** The element was deleted. */
+        DELETE
+    }
+
+    private final String cacheName;
+    private final Type type;
+    private final String name;
+    private final String newName;
+
+    /**
+     * Creates an invalidation.
+     *
+     * @param cacheName the main cache of the element, like {@link CachingManager#CACHE_PAGES}; other caches may hold it as well.
+     * @param type what happened to the element.
+     * @param name the element's identifier.
+     * @param newName the new identifier of a renamed element, {@code null} otherwise.
+     */
+    public CacheInvalidation( final String cacheName, final Type type, final String name, final String newName ) {
+        this.cacheName = Objects.requireNonNull( cacheName );
+        this.type = Objects.requireNonNull( type );
+        this.name = Objects.requireNonNull( name );
+        this.newName = newName;
+    }
+
+    /**
+     * Creates an invalidation of an element which wasn't renamed.
+     *
+     * @param cacheName the main cache of the element.
+     * @param type what happened to the element.
+     * @param name the element's identifier.
+     */
+    public CacheInvalidation( final String cacheName, final Type type, final String name ) {
+        this( cacheName, type, name, null );
+    }
+
+    /**
+     * Returns the main cache of the element.
+     *
+     * @return the main cache of the element.
+     */
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * Returns what happened to the element.
+     *
+     * @return what happened to the element.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the element's identifier, its old one if renamed.
+     *
+     * @return the element's identifier.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the new identifier of a renamed element.
+     *
+     * @return the new identifier of a renamed element, {@code null} otherwise.
+     */
+    public String getNewName() {
+        return newName;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals( final Object obj ) {
+        if( !( obj instanceof CacheInvalidation ) ) {
+            return false;
+        }
+        final CacheInvalidation other = ( CacheInvalidation )obj;
+        return cacheName.equals( other.cacheName ) && type == other.type && name.equals( other.name ) && Objects.equals( newName, other.newName );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hash( cacheName, type, name, newName );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return type + " " + cacheName + ":" + name + ( newName != null ? " -> " + newName : "" );
+    }
+
+}
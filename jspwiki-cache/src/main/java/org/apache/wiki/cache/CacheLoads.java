@@ -0,0 +1,234 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.exceptions.WikiException;
+import org.apache.wiki.util.CheckedSupplier;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+
+/**
+ * Coordinates the loading of cache elements, so that concurrent requests for the same missing element wait for a single load
+ * instead of all of them hitting the cached service at once, and reloads elements in the background before they expire.
+ *
+ * @since 3.0.1
+ */
+final class CacheLoads {
+
+    private static final Logger LOG = LogManager.getLogger( CacheLoads.class );
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /** Threads reloading elements ahead of their expiration; refreshes are skipped if they can't keep up. */
+    private static final ThreadPoolExecutor EXECUTOR;
+    static {
+        EXECUTOR = new ThreadPoolExecutor( 2, 2, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>( 1_000 ), r -> {
+            final Thread thread = new Thread( r, "JSPWiki Cache Refresh-" + THREAD_COUNT.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        EXECUTOR.allowCoreThreadTimeOut( true );
+    }
+
+    /** Loads in progress, keyed by cache name and element key. */
+    private final Map< List< Object >, Load > loading = new ConcurrentHashMap<>();
+
+    /** Refreshes in progress, kept apart from loads so a load after an invalidation never gets a value read before it. */
+    private final Map< List< Object >, Load > refreshing = new ConcurrentHashMap<>();
+
+    /**
+     * Loads an element, unless a load of the same element is already in progress, in which case waits for it and returns its result,
+     * or rethrows its exception.
+     *
+     * @param cacheName cache of the element.
+     * @param key element key.
+     * @param loader loads the element and puts it on the cache through the given {@link Load}.
+     * @return the loaded element.
+     * @throws E if the loader fails.
+     */
+    @SuppressWarnings( "unchecked" )
+    < T, E extends Exception > T load( final String cacheName, final Serializable key, final Loader< T, E > loader ) throws E {
+        final List< Object > id = List.of( cacheName, key );
+        final Load load = new Load();
+        final Load inProgress = loading.putIfAbsent( id, load );
+        if( inProgress != null ) {
+            try {
+                return ( T )inProgress.join();
+            } catch( final CompletionException e ) {
+                if( e.getCause() instanceof RuntimeException ) {
+                    throw ( RuntimeException )e.getCause();
+                } else if( e.getCause() instanceof Error ) {
+                    throw ( Error )e.getCause();
+                }
+                throw ( E )e.getCause();
+            }
+        }
+        try {
+            final T value = loader.load( load );
+            load.complete( value );
+            return value;
+        } catch( final Exception | Error e ) {
+            load.completeExceptionally( e );
+            throw e;
+        } finally {
+            loading.remove( id, load );
+        }
+    }
+
+    /**
+     * Reloads an element in the background, unless it's already being reloaded. Reloads failing or not finding the element leave the
+     * cache as it is, as do reloads of elements invalidated meanwhile.
+     *
+     * @param cacheName cache of the element.
+     * @param key element key.
+     * @param loader loads the element.
+     * @param loaded puts the reloaded element on the cache.
+     */
+    void refresh( final String cacheName, final Serializable key, final CheckedSupplier< ?, ? > loader, final Consumer< Object > loaded ) {
+        final List< Object > id = List.of( cacheName, key );
+        final Load refresh = new Load();
+        if( refreshing.putIfAbsent( id, refresh ) == null ) {
+            try {
+                EXECUTOR.execute( () -> {
+                    try {
+                        final Object value = loader.get();
+                        if( value != null ) {
+                            refresh.publish( () -> loaded.accept( value ) );
+                        }
+                    } catch( final Exception e ) {
+                        LOG.warn( "Unable to refresh {} on cache {}: {}", key, cacheName, e.getMessage() );
+                    } finally {
+                        refreshing.remove( id, refresh );
+                    }
+                } );
+            } catch( final RejectedExecutionException e ) {
+                refreshing.remove( id, refresh );
+                LOG.debug( "Skipping refresh of {} on cache {}, too many refreshes pending", key, cacheName );
+            }
+        }
+    }
+
+    /**
+     * Keeps the loads and refreshes of an element in progress from putting it on the cache, as the element is being put or removed
+     * and whatever they read may already be stale. Requests coming afterwards start a new load instead of waiting for those.
+     *
+     * @param cacheName cache of the element.
+     * @param key element key.
+     */
+    void invalidate( final String cacheName, final Serializable key ) {
+        final List< Object > id = List.of( cacheName, key );
+        final Load load = loading.remove( id );
+        if( load != null ) {
+            load.invalidate();
+        }
+        final Load refresh = refreshing.remove( id );
+        if( refresh != null ) {
+            refresh.invalidate();
+        }
+    }
+
+    /**
+     * Tells whether an element is due to be refreshed, that is, if it has lived longer than the given fraction of its lifetime.
+     *
+     * @param written time the element was written, in milliseconds.
+     * @param expires time the element expires, in milliseconds, {@link Long#MAX_VALUE} if it doesn't.
+     * @param refreshAhead fraction of the lifetime of the element after which it's refreshed, {@code 0} to never refresh it.
+     * @return {@code true} if the element should be reloaded, {@code false} otherwise.
+     */
+    static boolean isDue( final long written, final long expires, final double refreshAhead ) {
+        if( refreshAhead <= 0 || expires == Long.MAX_VALUE ) {
+            return false;
+        }
+        return System.currentTimeMillis() >= written + ( long )( ( expires - written ) * refreshAhead );
+    }
+
+    /**
+     * Reads the fraction of the lifetime of the elements of a cache after which they're refreshed, either set for the given cache or
+     * for all of them.
+     *
+     * @param props wiki properties.
+     * @param cacheName cache name.
+     * @return fraction of the lifetime of the elements after which they're refreshed, {@code 0} if they're never refreshed.
+     * @throws WikiException if the fraction isn't a number between 0 and 1.
+     */
+    static double getRefreshAhead( final Properties props, final String cacheName ) throws WikiException {
+        final String key = CachingManager.PROP_REFRESH_AHEAD + "." + cacheName;
+        final String value = TextUtil.getStringProperty( props, key, TextUtil.getStringProperty( props, CachingManager.PROP_REFRESH_AHEAD, "0" ) );
+        try {
+            final double refreshAhead = Double.parseDouble( value.trim() );
+            if( refreshAhead < 0 || refreshAhead >= 1 ) {
+                throw new NumberFormatException( "must be between 0 and 1" );
+            }
+            return refreshAhead;
+        } catch( final NumberFormatException e ) {
+            throw new WikiException( "Invalid refresh ahead factor for cache " + cacheName + ": " + value, e );
+        }
+    }
+
+    /**
+     * Loads an element, putting it on the cache only through {@link Load#publish(Runnable)}.
+     */
+    @FunctionalInterface
+    interface Loader< T, E extends Exception > {
+
+        T load( Load load ) throws E;
+
+    }
+
+    /** A load or refresh in progress, which may be invalidated before putting the element it read on the cache. */
+    static final class Load extends CompletableFuture< Object > {
+
+        private boolean invalidated;
+
+        /**
+         * Puts the loaded element on the cache, unless the element was invalidated since the load started.
+         *
+         * @param publication puts the element on the cache.
+         * @return {@code true} if the element was put on the cache, {@code false} otherwise.
+         */
+        synchronized boolean publish( final Runnable publication ) {
+            if( !invalidated ) {
+                publication.run();
+            }
+            return !invalidated;
+        }
+
+        synchronized void invalidate() {
+            invalidated = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import java.io.Serializable;
+
+
+/**
+ * Tells the current version of the elements of a cache on the cached service, so that the elements kept on its disk tier are only
+ * returned while they're current. Each element is written to the disk tier along with its stamp, and discarded when read if its stamp
+ * no longer matches the one of the cached service, like after the element is modified while the wiki is stopped. See
+ * {@link CachingManager#registerStamp(String, CacheStamp)}.
+ *
+ * @since 3.0.1
+ */
+@FunctionalInterface
+public interface CacheStamp {
+
+    /**
+     * Returns the current stamp of an element, like its version or last modification time on the cached service.
+     *
+     * @param key the element key.
+     * @return the stamp, or {@code null} if the cached service doesn't have the element.
+     * @throws Exception if the stamp can't be found out, in which case the element isn't returned from the disk tier.
+     */
+    String of( Serializable key ) throws Exception;
+
+}
@@ -0,0 +1,102 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+
+/**
+ * Estimates the heap taken by cache elements, so caches may be bounded by weight instead of by number of elements. Estimates are
+ * deliberately rough and on the high side: strings are weighed as if they weren't compacted, and values of unknown types which aren't
+ * {@link Weighable} are given a fixed weight.
+ *
+ * @since 3.0.1
+ */
+public final class CacheWeigher {
+
+    /** Weight of the bookkeeping of each cache element. */
+    static final long ENTRY_OVERHEAD = 64;
+
+    /** Weight of an object header plus a length or hash field. */
+    static final long OBJECT_OVERHEAD = 16;
+
+    /** Weight of the values whose size can't be estimated. */
+    static final long DEFAULT_WEIGHT = 512;
+
+    private CacheWeigher() {
+    }
+
+    /**
+     * Estimates the heap taken by a cache element.
+     *
+     * @param key element key.
+     * @param value element value.
+     * @return estimated size of the element, in bytes.
+     */
+    public static long weigh( final Object key, final Object value ) {
+        return ENTRY_OVERHEAD + estimate( key ) + estimate( value );
+    }
+
+    /**
+     * Estimates the heap taken by the given object.
+     *
+     * @param value object to estimate.
+     * @return estimated size of the object, in bytes.
+     */
+    public static long estimate( final Object value ) {
+        if( value == null ) {
+            return 0;
+        } else if( value instanceof Weighable ) {
+            return ( ( Weighable )value ).getEstimatedSize();
+        } else if( value instanceof CharSequence ) {
+            return estimate( ( CharSequence )value );
+        } else if( value instanceof byte[] ) {
+            return OBJECT_OVERHEAD + ( ( byte[] )value ).length;
+        } else if( value instanceof char[] ) {
+            return OBJECT_OVERHEAD + 2L * ( ( char[] )value ).length;
+        } else if( value instanceof Number || value instanceof Boolean ) {
+            return OBJECT_OVERHEAD;
+        } else if( value instanceof Collection ) {
+            long size = OBJECT_OVERHEAD;
+            for( final Object element : ( Collection< ? > )value ) {
+                size += OBJECT_OVERHEAD + estimate( element );
+            }
+            return size;
+        } else if( value instanceof Map ) {
+            long size = OBJECT_OVERHEAD;
+            for( final Map.Entry< ?, ? > entry : ( ( Map< ?, ? > )value ).entrySet() ) {
+                size += 2 * OBJECT_OVERHEAD + estimate( entry.getKey() ) + estimate( entry.getValue() );
+            }
+            return size;
+        }
+        return DEFAULT_WEIGHT;
+    }
+
+    /**
+     * Estimates the heap taken by the given text, as a {@link String} holding it, backing array included.
+     *
+     * @param text text to estimate.
+     * @return estimated size of the text, in bytes.
+     */
+    public static long estimate( final CharSequence text ) {
+        return text == null ? 0 : 2 * OBJECT_OVERHEAD + 2L * text.length();
+    }
+
+}
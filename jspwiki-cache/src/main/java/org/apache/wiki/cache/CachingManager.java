@@ -22,7 +22,9 @@ package org.apache.wiki.cache;
 import org.apache.wiki.util.CheckedSupplier;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Cache manager abstraction.
@@ -39,6 +41,45 @@ public interface CachingManager {
     /** The property value for setting the cache on/off.  Value is {@value}. */
     String PROP_CACHE_ENABLE = "jspwiki.cache.enable";
 
+    /** The property value with the {@link CachingManager} implementation to use.  Value is {@value}. */
+    String PROP_CACHE_MANAGER_IMPL = "jspwiki.cache.manager";
+
+    /**
+     * The property value with the fraction of the lifetime of cached elements after which they're reloaded in the background when
+     * requested, for all the caches or, suffixed with {@code .<cache name>}, for a given one.  Value is {@value}.
+     */
+    String PROP_REFRESH_AHEAD = "jspwiki.cache.refreshAhead";
+
+    /**
+     * The property value with the directory of the disk tier, which keeps the elements of the caches listed on
+     * {@link #PROP_DISK_TIER_CACHES} on disk, so they outlive both their eviction from the heap and, if their cache has a
+     * {@link CacheStamp}, restarts. Relative directories are resolved against the work directory. The disk tier is disabled if not
+     * set.  Value is {@value}.
+     */
+    String PROP_DISK_TIER = "jspwiki.cache.diskTier.directory";
+
+    /**
+     * The property value with the comma-separated names of the caches having a disk tier, the page text and history caches by
+     * default.  Value is {@value}.
+     */
+    String PROP_DISK_TIER_CACHES = "jspwiki.cache.diskTier.caches";
+
+    /** The property value telling whether the elements on the disk tier are compressed, {@code false} by default.  Value is {@value}. */
+    String PROP_DISK_TIER_COMPRESS = "jspwiki.cache.diskTier.compress";
+
+    /**
+     * The property value with the number of most requested keys of the page and page text caches which are kept track of, so they
+     * can be recorded and loaded again on startup. Requests aren't counted if not set.  Value is {@value}.
+     */
+    String PROP_HOT_KEYS = "jspwiki.cache.hotKeys";
+
+    /**
+     * The property value with the {@link InvalidationTransport} broadcasting the invalidations of this node to the peer nodes sharing
+     * the storage of the cached services, like {@link FileInvalidationTransport}. Invalidations aren't broadcast if not set.
+     * Value is {@value}.
+     */
+    String PROP_INVALIDATION_TRANSPORT = "jspwiki.cache.invalidation.transport";
+
     /** The property value with the location of the cache configuration file.  Value is {@value}. */
     String PROP_CACHE_CONF_FILE = "jspwiki.cache.config-file";
 
@@ -63,6 +104,9 @@ public interface CachingManager {
     /** Name of the rendering cache. */
     String CACHE_DOCUMENTS = "jspwiki.renderingCache";
 
+    /** Name of the rendered HTML cache. */
+    String CACHE_HTML = "jspwiki.htmlCache";
+
     /**
      * Shuts down the underlying cache manager
      */
@@ -95,6 +139,9 @@ public interface CachingManager {
     /**
      * Returns an item from a cache. If it is not found on the cache, try to retrieve from the provided supplier. If
      * found there, put the value in the cache, and return it. Otherwise, return {@code null}.
+     * <p>
+     * Concurrent requests for the same missing item wait for a single call to the supplier. If the cache refreshes its items ahead of
+     * their expiration, a cached item which is about to expire is returned while the supplier reloads it in the background.
      *
      * @param cacheName The cache in which the item lives.
      * @param key item's identifier.
@@ -104,6 +151,20 @@ public interface CachingManager {
      */
     < T, E extends Exception > T get( String cacheName, Serializable key, CheckedSupplier< T, E > supplier ) throws E;
 
+    /**
+     * Returns an item from a cache, if it is there, without loading it, counting the request (see {@link #PROP_HOT_KEYS}) nor
+     * affecting the cache statistics or the eviction order. Items evicted from the heap are looked up on the disk tier, if the cache
+     * has one, but aren't brought back to the heap. Meant for lookups which only probe the cache, rather than serving a request.
+     *
+     * @param cacheName The cache in which the item lives.
+     * @param key item's identifier.
+     * @return The requested item or {@code null} if either the cache is not enabled or the item is not present on the cache.
+     * @since 3.0.1
+     */
+    default < T > T peek( String cacheName, Serializable key ) {
+        return get( cacheName, key, () -> null );
+    }
+
     /**
      * Puts an item on a cache.
      *
@@ -130,4 +191,49 @@ public interface CachingManager {
      */
     default boolean registerListener( String cacheName, String listener, Object... args ) { return false; }
 
+    /**
+     * Registers the codec writing and reading the values of the given cache on its disk tier, for values which aren't strings and
+     * can't be written through Java serialization.
+     *
+     * @param cacheName the name of the cache.
+     * @param codec the codec of the values of the cache.
+     * @return {@code true} if the cache has a disk tier and the codec is registered, {@code false} otherwise.
+     */
+    default boolean registerCodec( String cacheName, CacheCodec< ? > codec ) { return false; }
+
+    /**
+     * Registers the stamp telling whether the elements kept on the disk tier of the given cache are still current. Without one, the
+     * elements on the disk tier outlive their eviction from the heap, but not restarts.
+     *
+     * @param cacheName the name of the cache.
+     * @param stamp the stamp of the elements of the cache.
+     * @return {@code true} if the cache has a disk tier and the stamp is registered, {@code false} otherwise.
+     */
+    default boolean registerStamp( String cacheName, CacheStamp stamp ) { return false; }
+
+    /**
+     * Returns the most requested keys of a cache, most requested first, if they're kept track of (see {@link #PROP_HOT_KEYS}).
+     * Requests are counted with decay, so keys which are no longer requested end up being dropped from the returned ones.
+     *
+     * @param cacheName The cache to be queried.
+     * @return the most requested keys of the cache, or an empty list if they aren't kept track of.
+     */
+    default < T extends Serializable > List< T > hotKeys( String cacheName ) { return Collections.emptyList(); }
+
+    /**
+     * Broadcasts an invalidation to the peer nodes, if there's an invalidation transport (see {@link #PROP_INVALIDATION_TRANSPORT}).
+     * The invalidation isn't applied on this node, whose caches are expected to be already up-to-date.
+     *
+     * @param invalidation the invalidation.
+     */
+    default void publish( CacheInvalidation invalidation ) {}
+
+    /**
+     * Registers a listener of the invalidations broadcast by the peer nodes, which removes the invalidated elements from the caches
+     * it's in charge of. Listeners are called from the invalidation transport's threads.
+     *
+     * @param listener the listener.
+     */
+    default void addInvalidationListener( Consumer< CacheInvalidation > listener ) {}
+
 }
@@ -0,0 +1,259 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.exceptions.WikiException;
+import org.apache.wiki.util.CheckedSupplier;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Caffeine-based {@link CachingManager}. Caches are bounded by number of elements, admitting new elements based on how frequently
+ * they're requested (W-TinyLFU), and loading a missing element only once even if it's requested concurrently.
+ * <p>
+ * Select it by setting {@value #PROP_CACHE_MANAGER_IMPL} to this class name. The number of elements of each cache is set with
+ * {@value #PROP_MAX_ELEMENTS}, or with {@value #PROP_MAX_ELEMENTS}{@code .<cache name>} for a given cache, and elements may be
+ * expired some seconds after being written with {@value #PROP_EXPIRE_AFTER_WRITE}, in which case they may also be refreshed ahead of
+ * their expiration through {@value #PROP_REFRESH_AHEAD}.
+ * <p>
+ * Caches holding elements of very different sizes, like page texts or rendered documents, may instead be bounded by the estimated
+ * heap taken by their elements, as weighed by {@link CacheWeigher}, by setting {@value #PROP_MAX_WEIGHT}{@code .<cache name>}. Those
+ * caches are not bounded by number of elements.
+ *
+ * @since 3.0.1
+ */
+public class CaffeineCachingManager extends AbstractCachingManager {
+
+    private static final Logger LOG = LogManager.getLogger( CaffeineCachingManager.class );
+
+    /** Maximum number of elements of each cache. Value is {@value}. */
+    public static final String PROP_MAX_ELEMENTS = "jspwiki.cache.caffeine.maxElements";
+
+    /** Seconds after which an element expires once written, {@code 0} meaning never. Value is {@value}. */
+    public static final String PROP_EXPIRE_AFTER_WRITE = "jspwiki.cache.caffeine.expireAfterWrite";
+
+    /** Prefix of the properties setting the maximum weight of a cache, in bytes, optionally suffixed with k, m or g. Value is {@value}. */
+    public static final String PROP_MAX_WEIGHT = "jspwiki.cache.caffeine.maxWeight";
+
+    private static final int DEFAULT_CACHE_SIZE = 1_000;
+
+    final Map< String, Cache< Serializable, Object > > cacheMap = new ConcurrentHashMap<>();
+    final Map< String, Long > cacheSizes = new ConcurrentHashMap<>();
+    final Map< String, Long > cacheWeights = new ConcurrentHashMap<>();
+    final Map< String, List< AtomicBoolean > > expiredListeners = new ConcurrentHashMap<>();
+
+    /** {@inheritDoc} */
+    @Override
+    void shutdownCaches() {
+        cacheMap.values().forEach( Cache::invalidateAll );
+        cacheMap.clear();
+        cacheSizes.clear();
+        cacheWeights.clear();
+        expiredListeners.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    void registerCache( final String cacheName ) throws WikiException {
+        final long maxWeight = getWeightProperty( PROP_MAX_WEIGHT + "." + cacheName );
+        final long maxElements = maxWeight > 0 ? Long.MAX_VALUE
+                                               : TextUtil.getIntegerProperty( properties, PROP_MAX_ELEMENTS + "." + cacheName,
+                                                                              TextUtil.getIntegerProperty( properties, PROP_MAX_ELEMENTS, DEFAULT_CACHE_SIZE ) );
+        final int expireAfterWrite = TextUtil.getIntegerProperty( properties, PROP_EXPIRE_AFTER_WRITE, 0 );
+        final List< AtomicBoolean > listeners = new CopyOnWriteArrayList<>();
+        final Caffeine< Serializable, Object > builder = Caffeine.newBuilder()
+                                                                 .recordStats()
+                                                                 .evictionListener( ( Serializable key, Object value, RemovalCause cause ) -> {
+                                                                     // signal that the cache no longer contains all elements...
+                                                                     listeners.forEach( allRequested -> allRequested.set( false ) );
+                                                                 } );
+        if( maxWeight > 0 ) {
+            builder.maximumWeight( maxWeight )
+                   .weigher( ( Serializable key, Object value ) -> ( int )Math.min( Integer.MAX_VALUE, CacheWeigher.weigh( key, value ) ) );
+            LOG.info( "Creating cache {} holding up to {} bytes", cacheName, maxWeight );
+        } else {
+            builder.maximumSize( maxElements );
+            LOG.info( "Creating cache {} holding up to {} elements", cacheName, maxElements );
+        }
+        if( expireAfterWrite > 0 ) {
+            builder.expireAfterWrite( Duration.ofSeconds( expireAfterWrite ) );
+        }
+        cacheMap.put( cacheName, builder.build() );
+        cacheSizes.put( cacheName, maxElements );
+        cacheWeights.put( cacheName, maxWeight );
+        refreshAheads.put( cacheName, CacheLoads.getRefreshAhead( properties, cacheName ) );
+        expiredListeners.put( cacheName, listeners );
+    }
+
+    long getWeightProperty( final String key ) throws WikiException {
+        final String value = TextUtil.getStringProperty( properties, key, "0" ).trim().toLowerCase( Locale.ROOT );
+        final int unit = "kmg".indexOf( value.isEmpty() ? ' ' : value.charAt( value.length() - 1 ) );
+        try {
+            final long weight = Long.parseLong( unit < 0 ? value : value.substring( 0, value.length() - 1 ).trim() );
+            return weight << ( 10 * ( unit + 1 ) );
+        } catch( final NumberFormatException e ) {
+            throw new WikiException( "Invalid cache weight on " + key + ": " + value, e );
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean enabled( final String cacheName ) {
+        return cacheMap.get( cacheName ) != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CacheInfo info( final String cacheName ) {
+        if( enabled( cacheName ) ) {
+            final Cache< Serializable, Object > cache = cacheMap.get( cacheName );
+            final CacheStats stats = cache.stats();
+            final long weightedSize = cache.policy().eviction().map( eviction -> eviction.weightedSize().orElse( 0L ) ).orElse( 0L );
+            return new CacheInfo( cacheName, cacheSizes.get( cacheName ), cache.estimatedSize(), cacheWeights.get( cacheName ), weightedSize,
+                                  stats.hitCount(), stats.missCount(), stats.evictionCount() );
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public < T extends Serializable > List< T > keys( final String cacheName ) {
+        if( enabled( cacheName ) ) {
+            return ( List< T > )new ArrayList<>( cacheMap.get( cacheName ).asMap().keySet() );
+        }
+        return Collections.emptyList();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public < T, E extends Exception > T get( final String cacheName, final Serializable key, final CheckedSupplier< T, E > supplier ) throws E {
+        if( keyAndCacheAreNotNull( cacheName, key ) ) {
+            hotKeys.requested( cacheName, key );
+            try {
+                final Cache< Serializable, Object > cache = cacheMap.get( cacheName );
+                final T value = ( T )cache.get( key, k -> {
+                    try {
+                        return diskTier.load( cacheName, key, supplier );
+                    } catch( final Exception e ) {
+                        throw new SupplierException( e );
+                    }
+                } );
+                if( value != null && isDue( cache, key, refreshAheads.get( cacheName ) ) ) {
+                    // only replace the element if it hasn't been removed or updated meanwhile
+                    loads.refresh( cacheName, key, supplier, refreshed -> {
+                        if( cache.asMap().replace( key, value, refreshed ) ) {
+                            diskTier.put( cacheName, key, refreshed );
+                        }
+                    } );
+                }
+                return value;
+            } catch( final SupplierException e ) {
+                if( e.getCause() instanceof RuntimeException ) {
+                    throw ( RuntimeException )e.getCause();
+                }
+                throw ( E )e.getCause();
+            }
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public < T > T peek( final String cacheName, final Serializable key ) {
+        if( keyAndCacheAreNotNull( cacheName, key ) ) {
+            final T value = ( T )cacheMap.get( cacheName ).policy().getIfPresentQuietly( key );
+            return value != null ? value : diskTier.get( cacheName, key );
+        }
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void put( final String cacheName, final Serializable key, final Object val ) {
+        if( keyAndCacheAreNotNull( cacheName, key ) ) {
+            loads.invalidate( cacheName, key );
+            if( val != null ) {
+                cacheMap.get( cacheName ).put( key, val );
+            } else {
+                cacheMap.get( cacheName ).invalidate( key );
+            }
+            diskTier.put( cacheName, key, val );
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void remove( final String cacheName, final Serializable key ) {
+        if( keyAndCacheAreNotNull( cacheName, key ) ) {
+            loads.invalidate( cacheName, key );
+            cacheMap.get( cacheName ).invalidate( key );
+            diskTier.remove( cacheName, key );
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean registerListener( final String cacheName, final String listener, final Object... args ) {
+        if( enabled( cacheName ) && "expired".equals( listener ) ) {
+            return expiredListeners.get( cacheName ).add( ( AtomicBoolean )args[0] );
+        }
+        return false;
+    }
+
+    boolean isDue( final Cache< Serializable, Object > cache, final Serializable key, final double refreshAhead ) {
+        return refreshAhead > 0 && cache.policy().expireAfterWrite().map( expiration -> {
+            final long age = expiration.ageOf( key, TimeUnit.MILLISECONDS ).orElse( 0L );
+            final long written = System.currentTimeMillis() - age;
+            return CacheLoads.isDue( written, written + expiration.getExpiresAfter( TimeUnit.MILLISECONDS ), refreshAhead );
+        } ).orElse( false );
+    }
+
+    /** Carries the checked exception thrown by a supplier out of the cache's loading function. */
+    private static final class SupplierException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        SupplierException( final Exception cause ) {
+            super( cause );
+        }
+
+    }
+
+}
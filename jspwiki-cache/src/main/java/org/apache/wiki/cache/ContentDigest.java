@@ -0,0 +1,108 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Compact digest of a text, used to check whether a cached element was built from a given text without keeping a copy of it nor
+ * comparing it character by character. It holds the first 128 bits of the SHA-256 hash of the text.
+ * <p>
+ * Digests are remembered for each text instance while it's in use, so the digest of a text loaded once, like the text of a page
+ * held on the page text cache, is only computed once.
+ *
+ * @since 3.0.1
+ */
+public final class ContentDigest implements Serializable, Weighable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Digests of the texts in use, compared by identity and released along with their texts. */
+    private static final Cache< String, ContentDigest > DIGESTS = Caffeine.newBuilder().weakKeys().maximumSize( 10_000 ).build();
+
+    private final long m_high;
+    private final long m_low;
+
+    private ContentDigest( final long high, final long low ) {
+        m_high = high;
+        m_low = low;
+    }
+
+    /**
+     * Returns the digest of the given text.
+     *
+     * @param text text to digest.
+     * @return the digest of the text, or {@code null} if the text is {@code null}.
+     */
+    public static ContentDigest of( final String text ) {
+        if( text == null ) {
+            return null;
+        }
+        return DIGESTS.get( text, ContentDigest::digest );
+    }
+
+    static ContentDigest digest( final String text ) {
+        try {
+            final ByteBuffer hash = ByteBuffer.wrap( MessageDigest.getInstance( "SHA-256" ).digest( text.getBytes( StandardCharsets.UTF_8 ) ) );
+            return new ContentDigest( hash.getLong(), hash.getLong() );
+        } catch( final NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( "SHA-256 is required to be supported by every JVM", e );
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getEstimatedSize() {
+        return CacheWeigher.OBJECT_OVERHEAD + 2 * Long.BYTES;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals( final Object obj ) {
+        if( this == obj ) {
+            return true;
+        }
+        if( !( obj instanceof ContentDigest ) ) {
+            return false;
+        }
+        final ContentDigest other = ( ContentDigest )obj;
+        return m_high == other.m_high && m_low == other.m_low;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Long.hashCode( m_high );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format( "%016x%016x", m_high, m_low );
+    }
+
+}
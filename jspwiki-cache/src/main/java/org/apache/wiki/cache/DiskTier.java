@@ -0,0 +1,370 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.exceptions.WikiException;
+import org.apache.wiki.util.CheckedSupplier;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ * Second tier of the caches listed on {@value CachingManager#PROP_DISK_TIER_CACHES}, keeping every element put on them on disk, one file
+ * per element, so they outlive both their eviction from the heap and restarts. Elements missing from the heap are looked up here before
+ * loading them from the cached service.
+ * <p>
+ * Strings are written as UTF-8, values of caches with a registered {@link CacheCodec} are written by it, and other values through Java
+ * serialization. Elements may be compressed by setting {@value CachingManager#PROP_DISK_TIER_COMPRESS}.
+ * <p>
+ * Each element is written along with its {@link CacheStamp}, and only returned while the stamp still matches the one of the cached
+ * service, so elements modified on the service behind the back of the cache, like while the wiki is stopped, are never served. The
+ * elements of caches without a registered stamp are stamped with the run that wrote them, so they don't outlive restarts.
+ *
+ * @since 3.0.1
+ */
+final class DiskTier {
+
+    private static final Logger LOG = LogManager.getLogger( DiskTier.class );
+
+    private static final int FORMAT = 2;
+    private static final byte STRING = 'S';
+    private static final byte CODEC = 'C';
+    private static final byte SERIALIZED = 'J';
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Map< String, Path > directories = new ConcurrentHashMap<>();
+    private final Map< String, CacheCodec< ? > > codecs = new ConcurrentHashMap<>();
+    private final Map< String, CacheStamp > stamps = new ConcurrentHashMap<>();
+    private final String run = UUID.randomUUID().toString();
+    private final boolean compress;
+
+    /**
+     * Creates the disk tier described by the given properties, which doesn't hold any cache unless
+     * {@value CachingManager#PROP_DISK_TIER} is set.
+     *
+     * @param engine the engine, whose work directory relative tier directories are resolved against; may be {@code null}.
+     * @param props the engine properties.
+     * @throws WikiException if the tier directories can't be created.
+     */
+    DiskTier( final Engine engine, final Properties props ) throws WikiException {
+        compress = TextUtil.getBooleanProperty( props, CachingManager.PROP_DISK_TIER_COMPRESS, false );
+        final String directory = TextUtil.getStringProperty( props, CachingManager.PROP_DISK_TIER, null );
+        if( directory == null || directory.isBlank() ) {
+            return;
+        }
+
+        Path root = Paths.get( directory.trim() );
+        if( !root.isAbsolute() && engine != null ) {
+            root = Paths.get( engine.getWorkDir() ).resolve( root );
+        }
+        final String caches = TextUtil.getStringProperty( props, CachingManager.PROP_DISK_TIER_CACHES,
+                                                          CachingManager.CACHE_PAGES_TEXT + "," + CachingManager.CACHE_PAGES_HISTORY );
+        for( final String cache : caches.split( "," ) ) {
+            final String cacheName = cache.trim();
+            if( !cacheName.isEmpty() ) {
+                final Path cacheDirectory = root.resolve( cacheName );
+                try {
+                    Files.createDirectories( cacheDirectory );
+                    deleteTempFiles( cacheDirectory );
+                } catch( final IOException e ) {
+                    throw new WikiException( "Unable to create the disk tier of " + cacheName + " on " + cacheDirectory + ": " + e.getMessage(), e );
+                }
+                directories.put( cacheName, cacheDirectory );
+                LOG.info( "Keeping the elements of cache {} on {}", cacheName, cacheDirectory );
+            }
+        }
+    }
+
+    /** Deletes the files left behind by writes interrupted by a crash. */
+    private void deleteTempFiles( final Path cacheDirectory ) throws IOException {
+        try( final DirectoryStream< Path > temps = Files.newDirectoryStream( cacheDirectory, "*" + TEMP_SUFFIX ) ) {
+            for( final Path temp : temps ) {
+                Files.deleteIfExists( temp );
+            }
+        }
+    }
+
+    /**
+     * Tells whether the given cache has a disk tier.
+     *
+     * @param cacheName the cache name.
+     * @return {@code true} if the elements of the cache are kept on disk, {@code false} otherwise.
+     */
+    boolean holds( final String cacheName ) {
+        return directories.containsKey( cacheName );
+    }
+
+    /**
+     * Sets the codec writing and reading the values of the given cache.
+     *
+     * @param cacheName the cache name.
+     * @param codec the codec.
+     * @return {@code true} if the cache has a disk tier, {@code false} otherwise.
+     */
+    boolean registerCodec( final String cacheName, final CacheCodec< ? > codec ) {
+        if( holds( cacheName ) ) {
+            codecs.put( cacheName, codec );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the stamp telling whether the elements of the given cache are current.
+     *
+     * @param cacheName the cache name.
+     * @param stamp the stamp.
+     * @return {@code true} if the cache has a disk tier, {@code false} otherwise.
+     */
+    boolean registerStamp( final String cacheName, final CacheStamp stamp ) {
+        if( holds( cacheName ) ) {
+            stamps.put( cacheName, stamp );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns an element from the disk tier or, if it isn't there, from the given supplier, in which case it's kept on the tier.
+     *
+     * @param cacheName the cache name.
+     * @param key the element key.
+     * @param supplier the supplier of the element, if it isn't on the disk tier.
+     * @return the element, or {@code null} if neither the tier nor the supplier have it.
+     * @throws E the exception thrown by the supplier.
+     */
+    < T, E extends Exception > T load( final String cacheName, final Serializable key, final CheckedSupplier< T, E > supplier ) throws E {
+        final T stored = get( cacheName, key );
+        if( stored != null ) {
+            return stored;
+        }
+        final T value = supplier.get();
+        if( value != null ) {
+            put( cacheName, key, value );
+        }
+        return value;
+    }
+
+    /**
+     * Returns an element from the disk tier.
+     *
+     * @param cacheName the cache name.
+     * @param key the element key.
+     * @return the element, or {@code null} if the cache doesn't have a disk tier or it doesn't hold a current copy of the element.
+     */
+    @SuppressWarnings( "unchecked" )
+    < T > T get( final String cacheName, final Serializable key ) {
+        final Path file = file( cacheName, key );
+        if( file == null ) {
+            return null;
+        }
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes( file );
+        } catch( final NoSuchFileException e ) {
+            return null;
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to read {} from the disk tier of {}: {}", key, cacheName, e.getMessage() );
+            return null;
+        }
+
+        try( final DataInputStream in = open( bytes ) ) {
+            if( !key.equals( read( in, null ) ) ) {
+                return null; // another key with the same digest
+            }
+            if( !in.readUTF().equals( stamp( cacheName, key ) ) ) {
+                LOG.debug( "Discarding outdated {} from the disk tier of {}", key, cacheName );
+                delete( file );
+                return null;
+            }
+            return ( T )read( in, codecs.get( cacheName ) );
+        } catch( final IOException | ClassNotFoundException | RuntimeException e ) {
+            LOG.warn( "Discarding unreadable {} from the disk tier of {}: {}", key, cacheName, e.getMessage() );
+            delete( file );
+            return null;
+        }
+    }
+
+    /**
+     * Keeps an element on the disk tier, if the cache has one.
+     *
+     * @param cacheName the cache name.
+     * @param key the element key.
+     * @param value the element, or {@code null} to remove it.
+     */
+    void put( final String cacheName, final Serializable key, final Object value ) {
+        final Path file = file( cacheName, key );
+        if( file == null ) {
+            return;
+        }
+        final String stamp = value != null ? stamp( cacheName, key ) : null;
+        if( stamp == null ) {
+            delete( file );
+            return;
+        }
+
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write( FORMAT );
+            bytes.write( compress ? 1 : 0 );
+            try( final DataOutputStream out = new DataOutputStream( compress ? new DeflaterOutputStream( bytes ) : bytes ) ) {
+                write( out, key, null );
+                out.writeUTF( stamp );
+                write( out, value, codecs.get( cacheName ) );
+            }
+
+            // write the whole element before making it visible, so readers never see it half written
+            final Path temp = Files.createTempFile( file.getParent(), file.getFileName().toString(), TEMP_SUFFIX );
+            try {
+                Files.write( temp, bytes.toByteArray() );
+                Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            } finally {
+                Files.deleteIfExists( temp );
+            }
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to write {} to the disk tier of {}: {}", key, cacheName, e.getMessage() );
+            delete( file );
+        }
+    }
+
+    /**
+     * Removes an element from the disk tier, if the cache has one.
+     *
+     * @param cacheName the cache name.
+     * @param key the element key.
+     */
+    void remove( final String cacheName, final Serializable key ) {
+        final Path file = file( cacheName, key );
+        if( file != null ) {
+            delete( file );
+        }
+    }
+
+    /**
+     * Current stamp of an element, {@code null} if the cached service doesn't have it or its stamp can't be found out.
+     */
+    private String stamp( final String cacheName, final Serializable key ) {
+        final CacheStamp stamp = stamps.get( cacheName );
+        if( stamp == null ) {
+            return run;
+        }
+        try {
+            return stamp.of( key );
+        } catch( final Exception e ) {
+            LOG.warn( "Unable to stamp {} on the disk tier of {}: {}", key, cacheName, e.getMessage() );
+            return null;
+        }
+    }
+
+    private Path file( final String cacheName, final Serializable key ) {
+        final Path directory = directories.get( cacheName );
+        if( directory == null || key == null ) {
+            return null;
+        }
+        return directory.resolve( ContentDigest.of( String.valueOf( key ) ).toString() );
+    }
+
+    private void delete( final Path file ) {
+        try {
+            Files.deleteIfExists( file );
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to delete {} from the disk tier: {}", file, e.getMessage() );
+        }
+    }
+
+    private DataInputStream open( final byte[] bytes ) throws IOException {
+        if( bytes.length < 2 || bytes[ 0 ] != FORMAT ) {
+            throw new IOException( "unknown format" );
+        }
+        final InputStream in = new ByteArrayInputStream( bytes, 2, bytes.length - 2 );
+        return new DataInputStream( bytes[ 1 ] == 1 ? new InflaterInputStream( in ) : in );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void write( final DataOutputStream out, final Object value, final CacheCodec< ? > codec ) throws IOException {
+        if( codec != null ) {
+            out.writeByte( CODEC );
+            ( ( CacheCodec< Object > )codec ).write( out, value );
+        } else if( value instanceof String ) {
+            out.writeByte( STRING );
+            writeBytes( out, ( ( String )value ).getBytes( StandardCharsets.UTF_8 ) );
+        } else if( value instanceof Serializable ) {
+            out.writeByte( SERIALIZED );
+            final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try( final ObjectOutputStream oos = new ObjectOutputStream( serialized ) ) {
+                oos.writeObject( value );
+            }
+            writeBytes( out, serialized.toByteArray() );
+        } else {
+            throw new NotSerializableException( value.getClass().getName() );
+        }
+    }
+
+    private Object read( final DataInputStream in, final CacheCodec< ? > codec ) throws IOException, ClassNotFoundException {
+        final byte type = in.readByte();
+        if( type == CODEC && codec != null ) {
+            return codec.read( in );
+        } else if( type == STRING ) {
+            return new String( readBytes( in ), StandardCharsets.UTF_8 );
+        } else if( type == SERIALIZED ) {
+            try( final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( readBytes( in ) ) ) ) {
+                return ois.readObject();
+            }
+        }
+        throw new IOException( "unexpected element type " + ( char )type );
+    }
+
+    private void writeBytes( final DataOutputStream out, final byte[] bytes ) throws IOException {
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    private byte[] readBytes( final DataInputStream in ) throws IOException {
+        final byte[] bytes = new byte[ in.readInt() ];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+}
@@ -25,8 +25,6 @@ import net.sf.ehcache.Element;
 import net.sf.ehcache.event.CacheEventListenerAdapter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.wiki.api.core.Engine;
-import org.apache.wiki.api.engine.Initializable;
 import org.apache.wiki.api.exceptions.WikiException;
 import org.apache.wiki.util.CheckedSupplier;
 import org.apache.wiki.util.TextUtil;
@@ -36,7 +34,6 @@ import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -44,7 +41,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * Ehcache-based {@link CachingManager}.
  */
-public class EhcacheCachingManager implements CachingManager, Initializable {
+public class EhcacheCachingManager extends AbstractCachingManager {
 
     private static final Logger LOG = LogManager.getLogger( EhcacheCachingManager.class );
     private static final int DEFAULT_CACHE_SIZE = 1_000;
@@ -56,7 +53,7 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 
     /** {@inheritDoc} */
     @Override
-    public void shutdown() {
+    void shutdownCaches() {
         if(!cacheMap.isEmpty()) {
             CacheManager.getInstance().shutdown();
             cacheMap.clear();
@@ -66,25 +63,16 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 
     /** {@inheritDoc} */
     @Override
-    public void initialize( final Engine engine, final Properties props ) throws WikiException {
-        final String cacheEnabled = TextUtil.getStringProperty( props, PROP_CACHE_ENABLE, PROP_USECACHE_DEPRECATED, "true" );
-        final boolean useCache = "true".equalsIgnoreCase( cacheEnabled );
-        final String confLocation = "/" + TextUtil.getStringProperty( props, PROP_CACHE_CONF_FILE, "ehcache-jspwiki.xml" );
-        if( useCache ) {
-            final URL location = this.getClass().getResource( confLocation );
-            LOG.info( "Reading ehcache configuration file from classpath on /{}", location );
-            cacheManager = CacheManager.create( location );
-            registerCache( CACHE_ATTACHMENTS );
-            registerCache( CACHE_ATTACHMENTS_COLLECTION );
-            registerCache( CACHE_ATTACHMENTS_DYNAMIC );
-            registerCache( CACHE_DOCUMENTS );
-            registerCache( CACHE_PAGES );
-            registerCache( CACHE_PAGES_HISTORY );
-            registerCache( CACHE_PAGES_TEXT );
-        }
+    void startCaches() {
+        final String confLocation = "/" + TextUtil.getStringProperty( properties, PROP_CACHE_CONF_FILE, "ehcache-jspwiki.xml" );
+        final URL location = this.getClass().getResource( confLocation );
+        LOG.info( "Reading ehcache configuration file from classpath on /{}", location );
+        cacheManager = CacheManager.create( location );
     }
 
-    void registerCache( final String cacheName ) {
+    /** {@inheritDoc} */
+    @Override
+    void registerCache( final String cacheName ) throws WikiException {
         final Cache cache;
         if( cacheManager.cacheExists( cacheName ) ) {
             cache = cacheManager.getCache( cacheName );
@@ -93,8 +81,21 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
             cache = new Cache( cacheName, DEFAULT_CACHE_SIZE, false, false, DEFAULT_CACHE_EXPIRY_PERIOD, DEFAULT_CACHE_EXPIRY_PERIOD );
             cacheManager.addCache( cache );
         }
+        final CacheInfo info = new CacheInfo( cacheName, cache.getCacheConfiguration().getMaxEntriesLocalHeap() );
+        cache.getCacheEventNotificationService().registerListener( new CacheEventListenerAdapter() {
+            @Override
+            public void notifyElementEvicted( final Ehcache cache, final Element element ) {
+                info.evicted();
+            }
+
+            @Override
+            public void notifyElementExpired( final Ehcache cache, final Element element ) {
+                info.evicted();
+            }
+        } );
         cacheMap.put( cacheName, cache );
-        cacheStats.put( cacheName, new CacheInfo( cacheName, cache.getCacheConfiguration().getMaxEntriesLocalHeap() ) );
+        cacheStats.put( cacheName, info );
+        refreshAheads.put( cacheName, CacheLoads.getRefreshAhead( properties, cacheName ) );
     }
 
     /** {@inheritDoc} */
@@ -107,7 +108,13 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
     @Override
     public CacheInfo info( final String cacheName ) {
         if( enabled( cacheName ) ) {
-            return cacheStats.get( cacheName );
+            // weight is only tracked by ehcache when the cache is bounded by maxBytesLocalHeap on its configuration file
+            final Cache cache = cacheMap.get( cacheName );
+            final CacheInfo stats = cacheStats.get( cacheName );
+            final long maxWeight = cache.getCacheConfiguration().getMaxBytesLocalHeap();
+            final long weightedSize = maxWeight > 0 ? cache.getStatistics().getLocalHeapSizeInBytes() : 0;
+            return new CacheInfo( cacheName, stats.getMaxElementsAllowed(), cache.getSize(), maxWeight, weightedSize,
+                                  stats.getHits(), stats.getMisses(), stats.getEvictions() );
         }
         return null;
     }
@@ -129,28 +136,64 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
     @SuppressWarnings( "unchecked" )
     public < T, E extends Exception > T get( final String cacheName, final Serializable key, final CheckedSupplier< T, E > supplier ) throws E {
         if( keyAndCacheAreNotNull( cacheName, key ) ) {
-            final Element element = cacheMap.get( cacheName ).get( key );
+            hotKeys.requested( cacheName, key );
+            final Cache cache = cacheMap.get( cacheName );
+            final Element element = cache.get( key );
             if( element != null ) {
                 cacheStats.get( cacheName ).hit();
+                if( CacheLoads.isDue( element.getLatestOfCreationAndUpdateTime(), element.getExpirationTime(), refreshAheads.get( cacheName ) ) ) {
+                    // only replace the element if it hasn't been removed or updated meanwhile
+                    loads.refresh( cacheName, key, supplier, value -> {
+                        if( cache.replace( element, new Element( key, value ) ) ) {
+                            diskTier.put( cacheName, key, value );
+                        }
+                    } );
+                }
                 return ( T )element.getObjectValue();
             } else {
-                // element doesn't exist in cache, try to retrieve from the cached service instead.
-                final T value = supplier.get();
-                if( value != null ) {
-                    cacheStats.get( cacheName ).miss();
-                    cacheMap.get( cacheName ).put( new Element( key, value ) );
-                }
-                return value;
+                // element doesn't exist in cache, try to retrieve from the cached service instead, only once if requested concurrently.
+                return loads.load( cacheName, key, load -> {
+                    final Element loaded = cache.get( key );
+                    if( loaded != null ) { // loaded by a concurrent request which finished in the meantime
+                        return ( T )loaded.getObjectValue();
+                    }
+                    final T stored = diskTier.get( cacheName, key );
+                    final T value = stored != null ? stored : supplier.get();
+                    if( value != null ) {
+                        cacheStats.get( cacheName ).miss();
+                        // skipped if the element has been put or removed since the load started, as the loaded value may be stale
+                        load.publish( () -> {
+                            cache.put( new Element( key, value ) );
+                            if( stored == null ) {
+                                diskTier.put( cacheName, key, value );
+                            }
+                        } );
+                    }
+                    return value;
+                } );
             }
         }
         return null;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public < T > T peek( final String cacheName, final Serializable key ) {
+        if( keyAndCacheAreNotNull( cacheName, key ) ) {
+            final Element element = cacheMap.get( cacheName ).getQuiet( key );
+            return element != null ? ( T )element.getObjectValue() : diskTier.get( cacheName, key );
+        }
+        return null;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void put( final String cacheName, final Serializable key, final Object val ) {
         if( keyAndCacheAreNotNull( cacheName, key ) ) {
+            loads.invalidate( cacheName, key );
             cacheMap.get( cacheName ).put( new Element( key, val ) );
+            diskTier.put( cacheName, key, val );
         }
     }
 
@@ -158,7 +201,9 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
     @Override
     public void remove( final String cacheName, final Serializable key ) {
         if( keyAndCacheAreNotNull( cacheName, key ) ) {
+            loads.invalidate( cacheName, key );
             cacheMap.get( cacheName ).remove( key );
+            diskTier.remove( cacheName, key );
         }
     }
 
@@ -178,8 +223,4 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
         return false;
     }
 
-    boolean keyAndCacheAreNotNull( final String cacheName, final Serializable key ) {
-        return enabled( cacheName ) && key != null;
-    }
-
 }
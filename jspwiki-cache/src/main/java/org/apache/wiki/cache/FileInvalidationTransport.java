@@ -0,0 +1,230 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * {@link InvalidationTransport} through a directory shared by every node, like the one holding the pages. Each node appends its
+ * invalidations to its own log file on the directory, and polls the logs of its peers for the lines appended since the last poll.
+ * <p>
+ * Each start of a node gets a new log, which is deleted on shutdown. Logs left behind by nodes which didn't shut down cleanly are
+ * deleted once they're a day old; a running node whose log is deleted just creates it again. Nodes only receive the invalidations
+ * published after they start; the elements which the caches having a disk tier (see {@link CachingManager#PROP_DISK_TIER}) kept
+ * while they were stopped are checked against their {@link CacheStamp} instead.
+ *
+ * @since 3.0.1
+ */
+public class FileInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger LOG = LogManager.getLogger( FileInvalidationTransport.class );
+
+    /**
+     * The property value with the directory shared by the nodes. Relative directories are resolved against the work directory, so
+     * they're only shared if the work directory is.  Value is {@value}.
+     */
+    public static final String PROP_DIRECTORY = "jspwiki.cache.invalidation.directory";
+
+    /** The property value with the milliseconds between polls of the peer logs, 1000 by default.  Value is {@value}. */
+    public static final String PROP_POLL_INTERVAL = "jspwiki.cache.invalidation.pollInterval";
+
+    static final String LOG_SUFFIX = ".log";
+    private static final long STALE_LOG_AGE = TimeUnit.DAYS.toMillis( 1 );
+    private static final String SEPARATOR = "\t";
+
+    private final Map< Path, Long > offsets = new HashMap<>();
+    private Path directory;
+    private Path log;
+    private Consumer< CacheInvalidation > receiver;
+    private ScheduledExecutorService poller;
+
+    /** {@inheritDoc} */
+    @Override
+    public void start( final Engine engine, final Properties props, final Consumer< CacheInvalidation > receiver ) throws IOException {
+        final String dir = TextUtil.getStringProperty( props, PROP_DIRECTORY, null );
+        if( dir == null || dir.isBlank() ) {
+            throw new IOException( PROP_DIRECTORY + " is not set" );
+        }
+        Path root = Paths.get( dir.trim() );
+        if( !root.isAbsolute() && engine != null ) {
+            root = Paths.get( engine.getWorkDir() ).resolve( root );
+        }
+        directory = Files.createDirectories( root );
+        log = directory.resolve( UUID.randomUUID() + LOG_SUFFIX );
+        Files.createFile( log );
+        this.receiver = receiver;
+
+        // skip what the peers published before this node started, its caches don't hold anything published by then
+        synchronized( offsets ) {
+            final long stale = System.currentTimeMillis() - STALE_LOG_AGE;
+            for( final Path peerLog : peerLogs() ) {
+                try {
+                    if( Files.getLastModifiedTime( peerLog ).toMillis() < stale ) {
+                        Files.deleteIfExists( peerLog );
+                    } else {
+                        offsets.put( peerLog, Files.size( peerLog ) );
+                    }
+                } catch( final NoSuchFileException e ) {
+                    // deleted meanwhile by its node
+                }
+            }
+        }
+
+        final long interval = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_POLL_INTERVAL, 1_000 ) );
+        poller = Executors.newSingleThreadScheduledExecutor( r -> {
+            final Thread thread = new Thread( r, "JSPWiki Cache Invalidation Poller" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        poller.scheduleWithFixedDelay( this::poll, interval, interval, TimeUnit.MILLISECONDS );
+        LOG.info( "Sharing cache invalidations on {} as {}", directory, log.getFileName() );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void publish( final CacheInvalidation invalidation ) throws IOException {
+        final String line = invalidation.getType() + SEPARATOR + encode( invalidation.getCacheName() ) + SEPARATOR +
+                            encode( invalidation.getName() ) + SEPARATOR + encode( invalidation.getNewName() ) + "\n";
+        Files.write( log, line.getBytes( StandardCharsets.UTF_8 ), StandardOpenOption.CREATE, StandardOpenOption.APPEND );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void shutdown() {
+        if( poller != null ) {
+            poller.shutdownNow();
+        }
+        if( log != null ) {
+            try {
+                Files.deleteIfExists( log );
+            } catch( final IOException e ) {
+                LOG.warn( "Unable to delete cache invalidation log {}: {}", log, e.getMessage() );
+            }
+        }
+    }
+
+    /**
+     * Delivers the invalidations appended to the peer logs since the last poll. Lines still being written are left for the next one.
+     */
+    void poll() {
+        synchronized( offsets ) {
+            try {
+                final Set< Path > peers = new HashSet<>();
+                for( final Path peerLog : peerLogs() ) {
+                    peers.add( peerLog );
+                    offsets.put( peerLog, read( peerLog, offsets.getOrDefault( peerLog, 0L ) ) );
+                }
+                offsets.keySet().retainAll( peers );
+            } catch( final IOException | RuntimeException e ) {
+                LOG.warn( "Unable to poll cache invalidations on {}: {}", directory, e.getMessage(), e );
+            }
+        }
+    }
+
+    private Set< Path > peerLogs() throws IOException {
+        final Set< Path > peerLogs = new HashSet<>();
+        try( final DirectoryStream< Path > logs = Files.newDirectoryStream( directory, "*" + LOG_SUFFIX ) ) {
+            for( final Path peerLog : logs ) {
+                if( !peerLog.equals( log ) ) {
+                    peerLogs.add( peerLog );
+                }
+            }
+        }
+        return peerLogs;
+    }
+
+    /** Delivers the complete lines of a peer log from the given offset on, and returns the offset of the first line not delivered. */
+    private long read( final Path peerLog, final long offset ) throws IOException {
+        final byte[] appended;
+        try( final RandomAccessFile file = new RandomAccessFile( peerLog.toFile(), "r" ) ) {
+            final long length = file.length();
+            if( length < offset ) {
+                return read( peerLog, 0L ); // the log was deleted and created again by its node
+            }
+            if( length == offset ) {
+                return offset;
+            }
+            appended = new byte[ ( int )Math.min( length - offset, Integer.MAX_VALUE ) ];
+            file.seek( offset );
+            file.readFully( appended );
+        } catch( final FileNotFoundException e ) {
+            return offset; // deleted meanwhile by its node
+        }
+
+        int start = 0;
+        for( int i = 0; i < appended.length; i++ ) {
+            if( appended[ i ] == '\n' ) {
+                deliver( peerLog, new String( appended, start, i - start, StandardCharsets.UTF_8 ) );
+                start = i + 1;
+            }
+        }
+        return offset + start;
+    }
+
+    private void deliver( final Path peerLog, final String line ) {
+        final String[] fields = line.split( SEPARATOR, -1 );
+        try {
+            if( fields.length == 4 ) {
+                final String newName = decode( fields[ 3 ] );
+                receiver.accept( new CacheInvalidation( decode( fields[ 1 ] ), CacheInvalidation.Type.valueOf( fields[ 0 ] ),
+                                                        decode( fields[ 2 ] ), newName.isEmpty() ? null : newName ) );
+                return;
+            }
+        } catch( final IllegalArgumentException e ) {
+            // unknown type or badly encoded name, reported below
+        }
+        LOG.warn( "Skipping malformed cache invalidation on {}: {}", peerLog, line );
+    }
+
+    private static String encode( final String value ) {
+        return value == null ? "" : URLEncoder.encode( value, StandardCharsets.UTF_8 );
+    }
+
+    private static String decode( final String value ) {
+        return URLDecoder.decode( value, StandardCharsets.UTF_8 );
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.apache.wiki.util.TextUtil;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+
+/**
+ * Counts the requests of the keys of the page and page text caches, so the most requested ones can be recorded and loaded again on
+ * startup. See {@link CachingManager#PROP_HOT_KEYS}.
+ *
+ * @since 3.0.1
+ */
+final class HotKeys {
+
+    /** How many more keys than the recorded ones are counted, so keys getting hot have a chance of being recorded. */
+    private static final int TRACKED_KEYS_FACTOR = 10;
+
+    private final Map< String, Map< Serializable, LongAdder > > counts = new ConcurrentHashMap<>();
+    private final int max;
+
+    HotKeys( final Properties props ) {
+        max = TextUtil.getIntegerProperty( props, CachingManager.PROP_HOT_KEYS, 0 );
+        if( max > 0 ) {
+            counts.put( CachingManager.CACHE_PAGES, new ConcurrentHashMap<>() );
+            counts.put( CachingManager.CACHE_PAGES_TEXT, new ConcurrentHashMap<>() );
+        }
+    }
+
+    /**
+     * Counts a request of the given key.
+     *
+     * @param cacheName the cache name.
+     * @param key the requested key.
+     */
+    void requested( final String cacheName, final Serializable key ) {
+        final Map< Serializable, LongAdder > cacheCounts = counts.get( cacheName );
+        if( cacheCounts != null ) {
+            LongAdder count = cacheCounts.get( key );
+            if( count == null ) {
+                if( cacheCounts.size() >= max * TRACKED_KEYS_FACTOR ) {
+                    return; // new keys are counted once the counts decay
+                }
+                count = cacheCounts.computeIfAbsent( key, k -> new LongAdder() );
+            }
+            count.increment();
+        }
+    }
+
+    /**
+     * Returns the most requested keys of the given cache, most requested first, and halves their counts, so keys which are no longer
+     * requested end up being forgotten.
+     *
+     * @param cacheName the cache name.
+     * @return the most requested keys of the cache, empty if its keys aren't counted.
+     */
+    @SuppressWarnings( "unchecked" )
+    < T extends Serializable > List< T > top( final String cacheName ) {
+        final Map< Serializable, LongAdder > cacheCounts = counts.get( cacheName );
+        if( cacheCounts == null ) {
+            return Collections.emptyList();
+        }
+        final List< Map.Entry< Serializable, Long > > sums = new ArrayList<>( cacheCounts.size() );
+        for( final Map.Entry< Serializable, LongAdder > count : cacheCounts.entrySet() ) {
+            final long sum = count.getValue().sumThenReset();
+            sums.add( Map.entry( count.getKey(), sum ) );
+            if( sum / 2 > 0 ) {
+                count.getValue().add( sum / 2 );
+            } else {
+                cacheCounts.remove( count.getKey(), count.getValue() );
+            }
+        }
+        return sums.stream()
+                   .sorted( Map.Entry.< Serializable, Long >comparingByValue( Comparator.reverseOrder() ) )
+                   .limit( max )
+                   .map( sum -> ( T )sum.getKey() )
+                   .collect( Collectors.toList() );
+    }
+
+}
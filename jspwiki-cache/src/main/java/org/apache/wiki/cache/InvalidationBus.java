@@ -0,0 +1,116 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.exceptions.WikiException;
+import org.apache.wiki.util.ClassUtil;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+
+/**
+ * Publishes the invalidations of a node through the {@link InvalidationTransport} set on
+ * {@value CachingManager#PROP_INVALIDATION_TRANSPORT}, and delivers the ones of its peer nodes to the registered listeners. Does nothing
+ * if no transport is set.
+ *
+ * @since 3.0.1
+ */
+final class InvalidationBus {
+
+    private static final Logger LOG = LogManager.getLogger( InvalidationBus.class );
+
+    private final List< Consumer< CacheInvalidation > > listeners = new CopyOnWriteArrayList<>();
+    private InvalidationTransport transport;
+
+    /**
+     * Starts the transport set on the given properties, if any.
+     *
+     * @param engine the engine.
+     * @param props the engine properties.
+     * @throws WikiException if the transport can't be instantiated or started.
+     */
+    void start( final Engine engine, final Properties props ) throws WikiException {
+        final String className = TextUtil.getStringProperty( props, CachingManager.PROP_INVALIDATION_TRANSPORT, null );
+        if( className == null || className.isBlank() ) {
+            return;
+        }
+        try {
+            final InvalidationTransport started = ClassUtil.buildInstance( "org.apache.wiki.cache", className.trim() );
+            started.start( engine, props, this::received );
+            transport = started;
+            LOG.info( "Broadcasting cache invalidations through {}", className );
+        } catch( final ReflectiveOperationException | IOException e ) {
+            throw new WikiException( "Unable to start the cache invalidation transport " + className + ": " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Registers a listener of the invalidations broadcast by the peer nodes.
+     *
+     * @param listener the listener.
+     */
+    void addListener( final Consumer< CacheInvalidation > listener ) {
+        listeners.add( listener );
+    }
+
+    /**
+     * Broadcasts an invalidation to the peer nodes. Failures are logged, as the change behind the invalidation has already happened.
+     *
+     * @param invalidation the invalidation.
+     */
+    void publish( final CacheInvalidation invalidation ) {
+        if( transport != null ) {
+            try {
+                transport.publish( invalidation );
+            } catch( final IOException e ) {
+                LOG.warn( "Unable to broadcast cache invalidation {}: {}", invalidation, e.getMessage(), e );
+            }
+        }
+    }
+
+    void received( final CacheInvalidation invalidation ) {
+        LOG.debug( "Received cache invalidation {}", invalidation );
+        for( final Consumer< CacheInvalidation > listener : listeners ) {
+            try {
+                listener.accept( invalidation );
+            } catch( final RuntimeException e ) {
+                LOG.warn( "Unable to apply cache invalidation {}: {}", invalidation, e.getMessage(), e );
+            }
+        }
+    }
+
+    /**
+     * Stops the transport, if any.
+     */
+    void shutdown() {
+        if( transport != null ) {
+            transport.shutdown();
+            transport = null;
+        }
+    }
+
+}
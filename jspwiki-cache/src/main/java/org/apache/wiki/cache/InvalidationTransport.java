@@ -0,0 +1,59 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.apache.wiki.api.core.Engine;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+
+/**
+ * Carries the {@link CacheInvalidation}s of a node to its peer nodes, and theirs to it. Set through
+ * {@value CachingManager#PROP_INVALIDATION_TRANSPORT}; implementations need a public no-arg constructor.
+ *
+ * @since 3.0.1
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Starts receiving the invalidations broadcast by the peer nodes.
+     *
+     * @param engine the engine.
+     * @param props the engine properties.
+     * @param receiver where to deliver the invalidations received from the peer nodes, never the ones published by this node.
+     * @throws IOException if the transport can't be started.
+     */
+    void start( Engine engine, Properties props, Consumer< CacheInvalidation > receiver ) throws IOException;
+
+    /**
+     * Broadcasts an invalidation to the peer nodes.
+     *
+     * @param invalidation the invalidation.
+     * @throws IOException if the invalidation can't be broadcast.
+     */
+    void publish( CacheInvalidation invalidation ) throws IOException;
+
+    /**
+     * Stops receiving invalidations and releases the transport's resources.
+     */
+    void shutdown();
+
+}
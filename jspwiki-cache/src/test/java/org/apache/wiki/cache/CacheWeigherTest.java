@@ -0,0 +1,47 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+
+public class CacheWeigherTest {
+
+    @Test
+    void testEstimate() {
+        Assertions.assertEquals( 0, CacheWeigher.estimate( ( Object )null ) );
+        Assertions.assertEquals( CacheWeigher.estimate( "abc" ) + 2 * 1_000, CacheWeigher.estimate( "abc" + "x".repeat( 1_000 ) ) );
+        Assertions.assertEquals( CacheWeigher.OBJECT_OVERHEAD + 10, CacheWeigher.estimate( new byte[ 10 ] ) );
+        Assertions.assertEquals( 42, CacheWeigher.estimate( ( Weighable )() -> 42 ) );
+        Assertions.assertEquals( CacheWeigher.DEFAULT_WEIGHT, CacheWeigher.estimate( new Object() ) );
+        Assertions.assertTrue( CacheWeigher.estimate( List.of( "a", "b" ) ) > 2 * CacheWeigher.estimate( "a" ) );
+        Assertions.assertTrue( CacheWeigher.estimate( Map.of( "a", "b" ) ) > CacheWeigher.estimate( "a" ) + CacheWeigher.estimate( "b" ) );
+    }
+
+    @Test
+    void testWeigh() {
+        Assertions.assertEquals( CacheWeigher.ENTRY_OVERHEAD + CacheWeigher.estimate( "key" ) + CacheWeigher.estimate( "value" ),
+                                 CacheWeigher.weigh( "key", "value" ) );
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.apache.wiki.api.exceptions.WikiException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class CaffeineCachingManagerTest {
+
+    static CaffeineCachingManager ccm = new CaffeineCachingManager();
+
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        ccm.initialize( null, new Properties() );
+    }
+
+    @Test
+    void testInitAndShutdown() throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CaffeineCachingManager.PROP_MAX_ELEMENTS, "10" );
+        props.setProperty( CaffeineCachingManager.PROP_MAX_ELEMENTS + "." + CachingManager.CACHE_PAGES, "20" );
+        CaffeineCachingManager ccm = new CaffeineCachingManager();
+        ccm.initialize( null, props );
+        Assertions.assertEquals( 8, ccm.cacheMap.size() );
+        Assertions.assertEquals( 10, ccm.info( CachingManager.CACHE_DOCUMENTS ).getMaxElementsAllowed() );
+        Assertions.assertEquals( 20, ccm.info( CachingManager.CACHE_PAGES ).getMaxElementsAllowed() );
+
+        ccm.registerCache( "anotherCache" );
+        Assertions.assertEquals( 9, ccm.cacheMap.size() );
+
+        ccm.shutdown();
+        ccm.shutdown(); // does nothing if already shutdown
+        Assertions.assertEquals( 0, ccm.cacheMap.size() );
+
+        props.setProperty( CachingManager.PROP_CACHE_ENABLE, "false" ); ccm = new CaffeineCachingManager();
+        ccm.initialize( null, props );
+        Assertions.assertEquals( 0, ccm.cacheMap.size() );
+    }
+
+    @Test
+    void testEnabled() {
+        Assertions.assertTrue( ccm.enabled( CachingManager.CACHE_PAGES ) );
+        Assertions.assertFalse( ccm.enabled( "Trucutru" ) );
+    }
+
+    @Test
+    void testInfo() {
+        Assertions.assertNotNull( ccm.info( CachingManager.CACHE_PAGES ) );
+        Assertions.assertNull( ccm.info( "Trucutru" ) );
+    }
+
+    @Test
+    void testPutGetRemoveAndKeys() {
+        final String retrieveFromBackend = "item";
+        ccm.put( CachingManager.CACHE_PAGES_TEXT, "key", "test" );
+        ccm.put( "trucutru", "key", "test" );
+        Assertions.assertEquals( "test", ccm.get( CachingManager.CACHE_PAGES_TEXT, "key", () -> retrieveFromBackend ) );
+        ccm.remove( CachingManager.CACHE_PAGES_TEXT, "key" );
+        ccm.remove( CachingManager.CACHE_PAGES_TEXT, null );
+        Assertions.assertEquals( "item", ccm.get( CachingManager.CACHE_PAGES_TEXT, "key", () -> retrieveFromBackend ) );
+        Assertions.assertEquals( 1, ccm.keys( CachingManager.CACHE_PAGES_TEXT ).size() );
+        Assertions.assertEquals( 0, ccm.keys( "trucutru" ).size() );
+
+        Assertions.assertNull( ccm.get( CachingManager.CACHE_PAGES_TEXT, null,  () -> retrieveFromBackend ) );
+        Assertions.assertNull( ccm.get( "trucutru", "key",  () -> retrieveFromBackend ) );
+        Assertions.assertNull( ccm.get( CachingManager.CACHE_PAGES_TEXT, "missing",  () -> null ) );
+        Assertions.assertEquals( 1, ccm.keys( CachingManager.CACHE_PAGES_TEXT ).size() );
+
+        final CacheInfo info = ccm.info( CachingManager.CACHE_PAGES_TEXT );
+        Assertions.assertEquals( 1, info.getHits() );
+        Assertions.assertEquals( 2, info.getMisses() );
+    }
+
+    @Test
+    void testDiskTier( @TempDir final Path dir ) throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CachingManager.PROP_DISK_TIER, dir.toString() );
+        final CaffeineCachingManager ccm = new CaffeineCachingManager();
+        ccm.initialize( null, props );
+        Assertions.assertTrue( ccm.registerStamp( CachingManager.CACHE_PAGES_TEXT, key -> "1" ) );
+        Assertions.assertTrue( ccm.registerStamp( CachingManager.CACHE_PAGES_HISTORY, key -> "1" ) );
+        Assertions.assertFalse( ccm.registerStamp( CachingManager.CACHE_DOCUMENTS, key -> "1" ) );
+        Assertions.assertEquals( "text", ccm.get( CachingManager.CACHE_PAGES_TEXT, "key", () -> "text" ) );
+        ccm.put( CachingManager.CACHE_PAGES_HISTORY, "key", "history" );
+        ccm.put( CachingManager.CACHE_DOCUMENTS, "key", "document" );
+        ccm.shutdown();
+
+        // a restarted manager starts with the elements of the caches with a disk tier
+        final CaffeineCachingManager restarted = new CaffeineCachingManager();
+        restarted.initialize( null, props );
+        restarted.registerStamp( CachingManager.CACHE_PAGES_TEXT, key -> "1" );
+        restarted.registerStamp( CachingManager.CACHE_PAGES_HISTORY, key -> "1" );
+        Assertions.assertEquals( "text", restarted.get( CachingManager.CACHE_PAGES_TEXT, "key", () -> "reloaded" ) );
+        Assertions.assertEquals( "history", restarted.get( CachingManager.CACHE_PAGES_HISTORY, "key", () -> "reloaded" ) );
+        Assertions.assertEquals( "reloaded", restarted.get( CachingManager.CACHE_DOCUMENTS, "key", () -> "reloaded" ) );
+
+        restarted.remove( CachingManager.CACHE_PAGES_TEXT, "key" );
+        restarted.cacheMap.get( CachingManager.CACHE_PAGES_TEXT ).invalidateAll();
+        Assertions.assertEquals( "reloaded", restarted.get( CachingManager.CACHE_PAGES_TEXT, "key", () -> "reloaded" ) );
+        restarted.shutdown();
+    }
+
+    @Test
+    void testSupplierExceptionsArePropagated() {
+        Assertions.assertThrows( IOException.class,
+                                 () -> ccm.get( CachingManager.CACHE_PAGES_HISTORY, "key", () -> { throw new IOException( "boom" ); } ) );
+        Assertions.assertThrows( IllegalStateException.class,
+                                 () -> ccm.get( CachingManager.CACHE_PAGES_HISTORY, "key", () -> { throw new IllegalStateException( "boom" ); } ) );
+        Assertions.assertTrue( ccm.keys( CachingManager.CACHE_PAGES_HISTORY ).isEmpty() );
+    }
+
+    @Test
+    void testPeekNeitherLoadsNorCounts() throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CachingManager.PROP_HOT_KEYS, "10" );
+        final CaffeineCachingManager ccm = new CaffeineCachingManager();
+        ccm.initialize( null, props );
+        ccm.put( CachingManager.CACHE_PAGES, "key", "test" );
+        Assertions.assertEquals( "test", ccm.peek( CachingManager.CACHE_PAGES, "key" ) );
+        Assertions.assertNull( ccm.peek( CachingManager.CACHE_PAGES, "missing" ) );
+        Assertions.assertNull( ccm.peek( CachingManager.CACHE_PAGES, null ) );
+        Assertions.assertNull( ccm.peek( "trucutru", "key" ) );
+        Assertions.assertEquals( List.of( "key" ), ccm.keys( CachingManager.CACHE_PAGES ) );
+        Assertions.assertTrue( ccm.hotKeys( CachingManager.CACHE_PAGES ).isEmpty() );
+        Assertions.assertEquals( 0, ccm.info( CachingManager.CACHE_PAGES ).getHits() );
+        Assertions.assertEquals( 0, ccm.info( CachingManager.CACHE_PAGES ).getMisses() );
+
+        ccm.get( CachingManager.CACHE_PAGES, "key", () -> null );
+        Assertions.assertEquals( List.of( "key" ), ccm.hotKeys( CachingManager.CACHE_PAGES ) );
+        ccm.shutdown();
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List< Thread > threads = new ArrayList<>();
+        for( int i = 0; i < 8; i++ ) {
+            final Thread thread = new Thread( () -> {
+                try {
+                    start.await();
+                    ccm.get( CachingManager.CACHE_ATTACHMENTS_DYNAMIC, "shared", () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep( 100L );
+                        return "value";
+                    } );
+                } catch( final Exception e ) {
+                    throw new RuntimeException( e );
+                }
+            } );
+            thread.start();
+            threads.add( thread );
+        }
+        start.countDown();
+        for( final Thread thread : threads ) {
+            thread.join();
+        }
+        Assertions.assertEquals( 1, loads.get() );
+    }
+
+    @Test
+    void testWeightBounds() throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CaffeineCachingManager.PROP_MAX_WEIGHT + "." + CachingManager.CACHE_PAGES_TEXT, "8k" );
+        final CaffeineCachingManager ccm = new CaffeineCachingManager();
+        ccm.initialize( null, props );
+        Assertions.assertEquals( 8 * 1024, ccm.info( CachingManager.CACHE_PAGES_TEXT ).getMaxWeight() );
+        Assertions.assertEquals( Long.MAX_VALUE, ccm.info( CachingManager.CACHE_PAGES_TEXT ).getMaxElementsAllowed() );
+        Assertions.assertEquals( 0, ccm.info( CachingManager.CACHE_PAGES ).getMaxWeight() );
+
+        ccm.put( CachingManager.CACHE_PAGES_TEXT, "stub", "stub" );
+        ccm.cacheMap.get( CachingManager.CACHE_PAGES_TEXT ).cleanUp(); // weights are applied asynchronously
+        Assertions.assertEquals( 1, ccm.info( CachingManager.CACHE_PAGES_TEXT ).getSize() );
+        Assertions.assertEquals( CacheWeigher.weigh( "stub", "stub" ), ccm.info( CachingManager.CACHE_PAGES_TEXT ).getWeightedSize() );
+
+        // a single big page takes the room of many small ones
+        ccm.put( CachingManager.CACHE_PAGES_TEXT, "big", "x".repeat( 3_000 ) );
+        for( int i = 0; i < 20; i++ ) {
+            ccm.put( CachingManager.CACHE_PAGES_TEXT, "page" + i, "text" + i );
+        }
+        ccm.cacheMap.get( CachingManager.CACHE_PAGES_TEXT ).cleanUp();
+        final CacheInfo info = ccm.info( CachingManager.CACHE_PAGES_TEXT );
+        Assertions.assertTrue( info.getWeightedSize() <= info.getMaxWeight() );
+        Assertions.assertTrue( info.getEvictions() > 0 );
+        ccm.shutdown();
+
+        props.setProperty( CaffeineCachingManager.PROP_MAX_WEIGHT + "." + CachingManager.CACHE_PAGES_TEXT, "lots" );
+        Assertions.assertThrows( WikiException.class, () -> new CaffeineCachingManager().initialize( null, props ) );
+    }
+
+    @Test
+    void testEvictionsAreReportedAndSignalled() throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CaffeineCachingManager.PROP_MAX_ELEMENTS, "2" );
+        final CaffeineCachingManager ccm = new CaffeineCachingManager();
+        ccm.initialize( null, props );
+        final AtomicBoolean allRequested = new AtomicBoolean( true );
+        Assertions.assertTrue( ccm.registerListener( CachingManager.CACHE_PAGES, "expired", allRequested ) );
+        Assertions.assertFalse( ccm.registerListener( CachingManager.CACHE_PAGES, "unknown", allRequested ) );
+
+        for( int i = 0; i < 10; i++ ) {
+            ccm.put( CachingManager.CACHE_PAGES, "key" + i, "value" + i );
+        }
+        ccm.cacheMap.get( CachingManager.CACHE_PAGES ).cleanUp();
+
+        Assertions.assertTrue( ccm.info( CachingManager.CACHE_PAGES ).getEvictions() >= 8 );
+        Assertions.assertFalse( allRequested.get() );
+        ccm.shutdown();
+    }
+
+    @Test
+    void testRefreshAhead() throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CaffeineCachingManager.PROP_EXPIRE_AFTER_WRITE, "10" );
+        props.setProperty( CachingManager.PROP_REFRESH_AHEAD + "." + CachingManager.CACHE_PAGES_TEXT, "0.001" ); // 10ms
+        final CaffeineCachingManager ccm = new CaffeineCachingManager();
+        ccm.initialize( null, props );
+
+        Assertions.assertEquals( "v1", ccm.get( CachingManager.CACHE_PAGES_TEXT, "key", () -> "v1" ) );
+        Assertions.assertEquals( "v1", ccm.get( CachingManager.CACHE_PAGES, "key", () -> "v1" ) );
+        Thread.sleep( 50L );
+        // the cached element is returned while it's reloaded in the background
+        Assertions.assertEquals( "v1", ccm.get( CachingManager.CACHE_PAGES_TEXT, "key", () -> "v2" ) );
+        final long timeout = System.currentTimeMillis() + 5_000L;
+        while( !"v2".equals( ccm.cacheMap.get( CachingManager.CACHE_PAGES_TEXT ).getIfPresent( "key" ) ) && System.currentTimeMillis() < timeout ) {
+            Thread.sleep( 10L );
+        }
+        Assertions.assertEquals( "v2", ccm.cacheMap.get( CachingManager.CACHE_PAGES_TEXT ).getIfPresent( "key" ) );
+        Assertions.assertEquals( "v1", ccm.get( CachingManager.CACHE_PAGES, "key", () -> "v2" ) ); // not refreshed ahead
+        ccm.shutdown();
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+public class ContentDigestTest {
+
+    @Test
+    void testDigest() {
+        final String text = "Some ''wiki'' text";
+        Assertions.assertNull( ContentDigest.of( null ) );
+        Assertions.assertSame( ContentDigest.of( text ), ContentDigest.of( text ) );
+        Assertions.assertEquals( ContentDigest.of( text ), ContentDigest.of( new String( text.toCharArray() ) ) );
+        Assertions.assertEquals( ContentDigest.of( text ).hashCode(), ContentDigest.of( new String( text.toCharArray() ) ).hashCode() );
+        Assertions.assertNotEquals( ContentDigest.of( text ), ContentDigest.of( text + " " ) );
+        Assertions.assertNotEquals( ContentDigest.of( "" ), ContentDigest.of( "\u0000" ) );
+        // first 128 bits of SHA-256( "abc" )
+        Assertions.assertEquals( "ba7816bf8f01cfea414140de5dae2223", ContentDigest.of( "abc" ).toString() );
+    }
+
+}
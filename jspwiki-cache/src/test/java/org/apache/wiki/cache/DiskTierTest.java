@@ -0,0 +1,161 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+
+class DiskTierTest {
+
+    @TempDir
+    Path dir;
+
+    final Map< Serializable, String > versions = new HashMap<>();
+
+    DiskTier tier( final boolean compress ) throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CachingManager.PROP_DISK_TIER, dir.toString() );
+        props.setProperty( CachingManager.PROP_DISK_TIER_COMPRESS, String.valueOf( compress ) );
+        return new DiskTier( null, props );
+    }
+
+    DiskTier stampedTier( final boolean compress ) throws Exception {
+        final DiskTier tier = tier( compress );
+        tier.registerStamp( CachingManager.CACHE_PAGES_TEXT, key -> versions.getOrDefault( key, "1" ) );
+        tier.registerStamp( CachingManager.CACHE_PAGES_HISTORY, key -> versions.getOrDefault( key, "1" ) );
+        return tier;
+    }
+
+    @ParameterizedTest
+    @ValueSource( booleans = { false, true } )
+    void testElementsOutliveRestarts( final boolean compress ) throws Exception {
+        final String text = "Some ''page'' text, with non-ASCII characters: ñ €.";
+        stampedTier( compress ).put( CachingManager.CACHE_PAGES_TEXT, "Page", text );
+        stampedTier( compress ).put( CachingManager.CACHE_PAGES_HISTORY, "Page", new ArrayList<>( List.of( "v1", "v2" ) ) );
+
+        final DiskTier restarted = stampedTier( compress );
+        Assertions.assertEquals( text, restarted.get( CachingManager.CACHE_PAGES_TEXT, "Page" ) );
+        Assertions.assertEquals( List.of( "v1", "v2" ), restarted.get( CachingManager.CACHE_PAGES_HISTORY, "Page" ) );
+        Assertions.assertNull( restarted.get( CachingManager.CACHE_PAGES_TEXT, "Other" ) );
+    }
+
+    @Test
+    void testOutdatedElementsAreDiscarded() throws Exception {
+        stampedTier( false ).put( CachingManager.CACHE_PAGES_TEXT, "Page", "v1" );
+        stampedTier( false ).put( CachingManager.CACHE_PAGES_TEXT, "Other", "v1" );
+        versions.put( "Page", "2" );
+        final DiskTier restarted = stampedTier( false );
+        Assertions.assertNull( restarted.get( CachingManager.CACHE_PAGES_TEXT, "Page" ) );
+        Assertions.assertEquals( "v1", restarted.get( CachingManager.CACHE_PAGES_TEXT, "Other" ) );
+
+        // without a stamp, elements don't outlive the tier that wrote them
+        final DiskTier unstamped = tier( false );
+        unstamped.put( CachingManager.CACHE_PAGES_TEXT, "Page", "v2" );
+        Assertions.assertEquals( "v2", unstamped.get( CachingManager.CACHE_PAGES_TEXT, "Page" ) );
+        Assertions.assertNull( tier( false ).get( CachingManager.CACHE_PAGES_TEXT, "Page" ) );
+    }
+
+    @Test
+    void testPutNullAndRemove() throws Exception {
+        final DiskTier tier = tier( false );
+        tier.put( CachingManager.CACHE_PAGES_TEXT, "Page", "text" );
+        tier.put( CachingManager.CACHE_PAGES_TEXT, "Page", null );
+        Assertions.assertNull( tier.get( CachingManager.CACHE_PAGES_TEXT, "Page" ) );
+
+        tier.put( CachingManager.CACHE_PAGES_TEXT, "Page", "text" );
+        tier.remove( CachingManager.CACHE_PAGES_TEXT, "Page" );
+        Assertions.assertNull( tier.get( CachingManager.CACHE_PAGES_TEXT, "Page" ) );
+        try( final var files = Files.list( dir.resolve( CachingManager.CACHE_PAGES_TEXT ) ) ) {
+            Assertions.assertEquals( 0, files.count() );
+        }
+    }
+
+    @Test
+    void testLoad() throws Exception {
+        final DiskTier tier = tier( false );
+        Assertions.assertEquals( "loaded", tier.load( CachingManager.CACHE_PAGES_TEXT, "Page", () -> "loaded" ) );
+        Assertions.assertEquals( "loaded", tier.load( CachingManager.CACHE_PAGES_TEXT, "Page", () -> "reloaded" ) );
+        Assertions.assertNull( tier.load( CachingManager.CACHE_PAGES_TEXT, "Missing", () -> null ) );
+    }
+
+    @Test
+    void testOnlyListedCachesAreHeld() throws Exception {
+        final DiskTier tier = tier( false );
+        Assertions.assertTrue( tier.holds( CachingManager.CACHE_PAGES_TEXT ) );
+        Assertions.assertFalse( tier.holds( CachingManager.CACHE_DOCUMENTS ) );
+        tier.put( CachingManager.CACHE_DOCUMENTS, "Page", "text" );
+        Assertions.assertNull( tier.get( CachingManager.CACHE_DOCUMENTS, "Page" ) );
+
+        final DiskTier disabled = new DiskTier( null, new Properties() );
+        Assertions.assertFalse( disabled.holds( CachingManager.CACHE_PAGES_TEXT ) );
+        Assertions.assertEquals( "loaded", disabled.load( CachingManager.CACHE_PAGES_TEXT, "Page", () -> "loaded" ) );
+    }
+
+    @Test
+    void testCodec() throws Exception {
+        final CacheCodec< File > codec = new CacheCodec<>() {
+            @Override
+            public void write( final DataOutput out, final File value ) throws IOException {
+                out.writeUTF( value.getPath() );
+            }
+
+            @Override
+            public File read( final DataInput in ) throws IOException {
+                return new File( in.readUTF() );
+            }
+        };
+        final DiskTier tier = tier( true );
+        Assertions.assertTrue( tier.registerCodec( CachingManager.CACHE_PAGES_HISTORY, codec ) );
+        Assertions.assertFalse( tier.registerCodec( CachingManager.CACHE_DOCUMENTS, codec ) );
+        tier.put( CachingManager.CACHE_PAGES_HISTORY, "Page", new File( "some/path" ) );
+        Assertions.assertEquals( new File( "some/path" ), tier.get( CachingManager.CACHE_PAGES_HISTORY, "Page" ) );
+    }
+
+    @Test
+    void testUnreadableElementsAreDiscarded() throws Exception {
+        final DiskTier tier = tier( false );
+        tier.put( CachingManager.CACHE_PAGES_TEXT, "Page", "text" );
+        try( final var files = Files.list( dir.resolve( CachingManager.CACHE_PAGES_TEXT ) ) ) {
+            final Path file = files.findFirst().orElseThrow();
+            Files.write( file, new byte[] { 1, 0, 'S', 0 } );
+        }
+        Assertions.assertNull( tier.get( CachingManager.CACHE_PAGES_TEXT, "Page" ) );
+        try( final var files = Files.list( dir.resolve( CachingManager.CACHE_PAGES_TEXT ) ) ) {
+            Assertions.assertEquals( 0, files.count() );
+        }
+    }
+
+}
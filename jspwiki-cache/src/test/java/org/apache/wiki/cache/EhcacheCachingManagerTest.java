@@ -18,11 +18,18 @@
  */
 package org.apache.wiki.cache;
 
+import org.apache.wiki.api.exceptions.WikiException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class EhcacheCachingManagerTest {
@@ -40,10 +47,10 @@ public class EhcacheCachingManagerTest {
         props.setProperty( CachingManager.PROP_CACHE_CONF_FILE, "ehcache-jspwiki-test.xml" );
         EhcacheCachingManager ecm = new EhcacheCachingManager();
         ecm.initialize( null, props );
-        Assertions.assertEquals( 7, ecm.cacheMap.size() );
+        Assertions.assertEquals( 8, ecm.cacheMap.size() );
 
         ecm.registerCache( "anotherCache" );
-        Assertions.assertEquals( 8, ecm.cacheMap.size() );
+        Assertions.assertEquals( 9, ecm.cacheMap.size() );
 
         ecm.shutdown();
         ecm.shutdown(); // does nothing if already shutdown
@@ -63,6 +70,8 @@ public class EhcacheCachingManagerTest {
     @Test
     void testInfo() {
         Assertions.assertNotNull( ecm.info( CachingManager.CACHE_PAGES ) );
+        Assertions.assertEquals( 1000, ecm.info( CachingManager.CACHE_PAGES ).getMaxElementsAllowed() );
+        Assertions.assertEquals( 0, ecm.info( CachingManager.CACHE_PAGES ).getMaxWeight() );
         Assertions.assertNull( ecm.info( "Trucutru" ) );
     }
 
@@ -82,4 +91,107 @@ public class EhcacheCachingManagerTest {
         Assertions.assertNull( ecm.get( "trucutru", "key",  () -> retrieveFromBackend ) );
     }
 
+    @Test
+    void testPeekNeitherLoadsNorCounts() throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CachingManager.PROP_HOT_KEYS, "10" );
+        final EhcacheCachingManager ecm = new EhcacheCachingManager();
+        ecm.initialize( null, props );
+        ecm.put( CachingManager.CACHE_PAGES, "peeked", "test" );
+        Assertions.assertEquals( "test", ecm.peek( CachingManager.CACHE_PAGES, "peeked" ) );
+        Assertions.assertNull( ecm.peek( CachingManager.CACHE_PAGES, "missing" ) );
+        Assertions.assertNull( ecm.peek( CachingManager.CACHE_PAGES, null ) );
+        Assertions.assertNull( ecm.peek( "trucutru", "peeked" ) );
+        Assertions.assertFalse( ecm.keys( CachingManager.CACHE_PAGES ).contains( "missing" ) );
+        Assertions.assertTrue( ecm.hotKeys( CachingManager.CACHE_PAGES ).isEmpty() );
+
+        ecm.get( CachingManager.CACHE_PAGES, "peeked", () -> null );
+        Assertions.assertEquals( List.of( "peeked" ), ecm.hotKeys( CachingManager.CACHE_PAGES ) );
+        ecm.remove( CachingManager.CACHE_PAGES, "peeked" ); // caches are shared with the other tests
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        final EhcacheCachingManager ecm = new EhcacheCachingManager();
+        ecm.initialize( null, new Properties() );
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List< Thread > threads = new ArrayList<>();
+        final List< Object > values = new CopyOnWriteArrayList<>();
+        for( int i = 0; i < 8; i++ ) {
+            final Thread thread = new Thread( () -> {
+                try {
+                    start.await();
+                    values.add( ecm.get( CachingManager.CACHE_ATTACHMENTS_DYNAMIC, "shared", () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep( 100L );
+                        return "value";
+                    } ) );
+                } catch( final Exception e ) {
+                    throw new RuntimeException( e );
+                }
+            } );
+            thread.start();
+            threads.add( thread );
+        }
+        start.countDown();
+        for( final Thread thread : threads ) {
+            thread.join();
+        }
+        Assertions.assertEquals( 1, loads.get() );
+        Assertions.assertEquals( 8, values.size() );
+        Assertions.assertTrue( values.stream().allMatch( "value"::equals ) );
+
+        Assertions.assertThrows( IOException.class, () -> ecm.get( CachingManager.CACHE_ATTACHMENTS_DYNAMIC, "failing", () -> { throw new IOException( "boom" ); } ) );
+    }
+
+    @Test
+    void testLoadDoesNotPublishOverRemove() throws Exception {
+        final EhcacheCachingManager ecm = new EhcacheCachingManager();
+        ecm.initialize( null, new Properties() );
+        final CountDownLatch loading = new CountDownLatch( 1 );
+        final CountDownLatch removed = new CountDownLatch( 1 );
+        final Thread thread = new Thread( () -> {
+            try {
+                ecm.get( CachingManager.CACHE_ATTACHMENTS_DYNAMIC, "key", () -> {
+                    loading.countDown();
+                    removed.await();
+                    return "stale";
+                } );
+            } catch( final Exception e ) {
+                throw new RuntimeException( e );
+            }
+        } );
+        thread.start();
+        loading.await();
+        ecm.remove( CachingManager.CACHE_ATTACHMENTS_DYNAMIC, "key" );
+        removed.countDown();
+        thread.join();
+
+        Assertions.assertEquals( "fresh", ecm.get( CachingManager.CACHE_ATTACHMENTS_DYNAMIC, "key", () -> "fresh" ) );
+    }
+
+    @Test
+    void testRefreshAhead() throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( CachingManager.PROP_REFRESH_AHEAD + ".refreshAheadCache", "0.0000001" ); // ~9ms of the default 24h lifetime
+        final EhcacheCachingManager ecm = new EhcacheCachingManager();
+        ecm.initialize( null, props );
+        ecm.registerCache( "refreshAheadCache" );
+        Assertions.assertEquals( 0, ecm.refreshAheads.get( CachingManager.CACHE_PAGES ) );
+
+        Assertions.assertEquals( "v1", ecm.get( "refreshAheadCache", "key", () -> "v1" ) );
+        Thread.sleep( 50L );
+        // the cached element is returned while it's reloaded in the background
+        Assertions.assertEquals( "v1", ecm.get( "refreshAheadCache", "key", () -> "v2" ) );
+        final long timeout = System.currentTimeMillis() + 5_000L;
+        while( !"v2".equals( ecm.cacheMap.get( "refreshAheadCache" ).get( "key" ).getObjectValue() ) && System.currentTimeMillis() < timeout ) {
+            Thread.sleep( 10L );
+        }
+        Assertions.assertEquals( "v2", ecm.cacheMap.get( "refreshAheadCache" ).get( "key" ).getObjectValue() );
+
+        props.setProperty( CachingManager.PROP_REFRESH_AHEAD, "2" );
+        Assertions.assertThrows( WikiException.class, () -> new EhcacheCachingManager().initialize( null, props ) );
+    }
+
 }
@@ -0,0 +1,114 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+
+class FileInvalidationTransportTest {
+
+    @TempDir
+    Path dir;
+
+    final List< FileInvalidationTransport > nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach( FileInvalidationTransport::shutdown );
+    }
+
+    FileInvalidationTransport node( final List< CacheInvalidation > received ) throws Exception {
+        final Properties props = new Properties();
+        props.setProperty( FileInvalidationTransport.PROP_DIRECTORY, dir.toString() );
+        props.setProperty( FileInvalidationTransport.PROP_POLL_INTERVAL, "3600000" ); // polled by the tests
+        final FileInvalidationTransport node = new FileInvalidationTransport();
+        node.start( null, props, received::add );
+        nodes.add( node );
+        return node;
+    }
+
+    @Test
+    void testPeersReceiveInvalidations() throws Exception {
+        final List< CacheInvalidation > receivedByA = new ArrayList<>();
+        final List< CacheInvalidation > receivedByB = new ArrayList<>();
+        final FileInvalidationTransport a = node( receivedByA );
+        final FileInvalidationTransport b = node( receivedByB );
+
+        final CacheInvalidation put = new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.PUT, "Main" );
+        final CacheInvalidation rename = new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.RENAME,
+                                                                "Tab\tand\nnewline", "Ñandú €" );
+        a.publish( put );
+        a.publish( rename );
+        a.poll();
+        b.poll();
+        Assertions.assertEquals( List.of(), receivedByA );
+        Assertions.assertEquals( List.of( put, rename ), receivedByB );
+
+        b.poll();
+        Assertions.assertEquals( 2, receivedByB.size(), "invalidations are delivered once" );
+    }
+
+    @Test
+    void testNodesSkipInvalidationsPublishedBeforeTheyStart() throws Exception {
+        final FileInvalidationTransport a = node( new ArrayList<>() );
+        a.publish( new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.DELETE, "Old" ) );
+
+        final List< CacheInvalidation > received = new ArrayList<>();
+        final FileInvalidationTransport b = node( received );
+        final CacheInvalidation remove = new CacheInvalidation( CachingManager.CACHE_ATTACHMENTS, CacheInvalidation.Type.REMOVE, "New/file.txt" );
+        a.publish( remove );
+        b.poll();
+        Assertions.assertEquals( List.of( remove ), received );
+    }
+
+    @Test
+    void testLinesBeingWrittenAreLeftForTheNextPoll() throws Exception {
+        final List< CacheInvalidation > received = new ArrayList<>();
+        final FileInvalidationTransport node = node( received );
+        final Path peerLog = dir.resolve( "peer" + FileInvalidationTransport.LOG_SUFFIX );
+        Files.write( peerLog, "PUT\tjspwiki.pageCache\tMa".getBytes( StandardCharsets.UTF_8 ) );
+        node.poll();
+        Assertions.assertEquals( List.of(), received );
+
+        Files.write( peerLog, "in\t\nBOGUS\tline\nDELETE\tjspwiki.pageCache\tOther\t\n".getBytes( StandardCharsets.UTF_8 ), StandardOpenOption.APPEND );
+        node.poll();
+        Assertions.assertEquals( List.of( new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.PUT, "Main" ),
+                                          new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.DELETE, "Other" ) ), received );
+    }
+
+    @Test
+    void testShutdownDeletesTheLog() throws Exception {
+        node( new ArrayList<>() );
+        Assertions.assertEquals( 1, dir.toFile().list().length );
+        nodes.remove( 0 ).shutdown();
+        Assertions.assertEquals( 0, dir.toFile().list().length );
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+
+class HotKeysTest {
+
+    HotKeys hotKeys( final int max ) {
+        final Properties props = new Properties();
+        props.setProperty( CachingManager.PROP_HOT_KEYS, String.valueOf( max ) );
+        return new HotKeys( props );
+    }
+
+    void request( final HotKeys hotKeys, final String key, final int times ) {
+        for( int i = 0; i < times; i++ ) {
+            hotKeys.requested( CachingManager.CACHE_PAGES_TEXT, key );
+        }
+    }
+
+    @Test
+    void testMostRequestedKeysFirst() {
+        final HotKeys hotKeys = hotKeys( 2 );
+        request( hotKeys, "Cold", 1 );
+        request( hotKeys, "Hot", 10 );
+        request( hotKeys, "Warm", 5 );
+        hotKeys.requested( CachingManager.CACHE_DOCUMENTS, "Hot" );
+        Assertions.assertEquals( List.of( "Hot", "Warm" ), hotKeys.top( CachingManager.CACHE_PAGES_TEXT ) );
+        Assertions.assertTrue( hotKeys.top( CachingManager.CACHE_DOCUMENTS ).isEmpty() );
+    }
+
+    @Test
+    void testCountsDecay() {
+        final HotKeys hotKeys = hotKeys( 2 );
+        request( hotKeys, "FormerlyHot", 8 );
+        request( hotKeys, "Cold", 1 );
+        Assertions.assertEquals( List.of( "FormerlyHot", "Cold" ), hotKeys.top( CachingManager.CACHE_PAGES_TEXT ) );
+
+        // counts are halved on each recording, and keys not requested lately are forgotten
+        request( hotKeys, "NowHot", 5 );
+        Assertions.assertEquals( List.of( "NowHot", "FormerlyHot" ), hotKeys.top( CachingManager.CACHE_PAGES_TEXT ) );
+        request( hotKeys, "NowHot", 1 );
+        Assertions.assertEquals( List.of( "NowHot", "FormerlyHot" ), hotKeys.top( CachingManager.CACHE_PAGES_TEXT ) );
+        Assertions.assertEquals( 2, hotKeys.top( CachingManager.CACHE_PAGES_TEXT ).size() );
+        Assertions.assertTrue( hotKeys.top( CachingManager.CACHE_PAGES_TEXT ).isEmpty() );
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        final HotKeys hotKeys = new HotKeys( new Properties() );
+        request( hotKeys, "Hot", 10 );
+        Assertions.assertTrue( hotKeys.top( CachingManager.CACHE_PAGES_TEXT ).isEmpty() );
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.  
+ */
+package org.apache.wiki.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *  Queue of the events fired by an event source and waiting to be delivered to an {@link AsyncWikiEventListener}. At most one thread
+ *  delivers the events of a queue at any time, so the listener receives them in the order they were fired.
+ *
+ *  @since 3.0.1
+ */
+final class AsyncEventQueue implements Runnable {
+
+    private static final Logger LOG = LogManager.getLogger( AsyncEventQueue.class );
+
+    /** Maximum number of events delivered in a row before giving other queues a chance to use the thread. */
+    private static final int BATCH_SIZE = 100;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /** Threads delivering the events of all the queues; idle threads die after a minute. */
+    private static final ThreadPoolExecutor EXECUTOR;
+    static {
+        final int threads = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+        EXECUTOR = new ThreadPoolExecutor( threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            final Thread thread = new Thread( r, "JSPWiki Async Event Delivery-" + THREAD_COUNT.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        EXECUTOR.allowCoreThreadTimeOut( true );
+    }
+
+    static final AtomicLong PENDING = new AtomicLong();
+    static final LongAdder DELIVERED = new LongAdder();
+    static final LongAdder DROPPED = new LongAdder();
+
+    private final WeakReference< WikiEventListener > m_listener;
+    private final BlockingQueue< WikiEvent > m_events;
+    private final long m_offerTimeout;
+    private final AtomicBoolean m_scheduled = new AtomicBoolean();
+
+    /**
+     *  Creates a queue for the given listener.
+     *
+     *  @param listener reference to the listener, shared with the event delegate, so this queue doesn't keep the listener alive.
+     *  @param capacity maximum number of pending events.
+     *  @param offerTimeout time, in milliseconds, to wait for room on the queue before dropping an event.
+     */
+    AsyncEventQueue( final WeakReference< WikiEventListener > listener, final int capacity, final long offerTimeout ) {
+        m_listener = listener;
+        m_events = new ArrayBlockingQueue<>( Math.max( 1, capacity ) );
+        m_offerTimeout = Math.max( 0L, offerTimeout );
+    }
+
+    /**
+     *  Queues an event for delivery. If the queue is full, waits for room on it up to the offer timeout, dropping the event if there's
+     *  still none.
+     *
+     *  @param event the event to deliver.
+     *  @return {@code true} if the event was queued, {@code false} if it was dropped.
+     */
+    boolean offer( final WikiEvent event ) {
+        boolean queued;
+        try {
+            queued = m_events.offer( event, m_offerTimeout, TimeUnit.MILLISECONDS );
+        } catch( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if( !queued ) {
+            DROPPED.increment();
+            LOG.warn( "Event queue of {} is full, dropping {}", m_listener.get(), event );
+            return false;
+        }
+        PENDING.incrementAndGet();
+        schedule();
+        return true;
+    }
+
+    /**
+     *  Returns the number of events waiting to be delivered.
+     *
+     *  @return the number of events waiting to be delivered.
+     */
+    int size() {
+        return m_events.size();
+    }
+
+    private void schedule() {
+        if( m_scheduled.compareAndSet( false, true ) ) {
+            try {
+                EXECUTOR.execute( this );
+            } catch( final RejectedExecutionException e ) {
+                m_scheduled.set( false );
+                LOG.error( "Unable to schedule the delivery of events to {}", m_listener.get(), e );
+            }
+        }
+    }
+
+    /**
+     *  Delivers the pending events, up to {@link #BATCH_SIZE} of them, scheduling itself again if there are more.
+     */
+    @Override
+    public void run() {
+        try {
+            for( int delivered = 0; delivered < BATCH_SIZE; delivered++ ) {
+                final WikiEvent event = m_events.poll();
+                if( event == null ) {
+                    break;
+                }
+                PENDING.decrementAndGet();
+                final WikiEventListener listener = m_listener.get();
+                if( listener == null ) {
+                    // the listener is gone, so are the events waiting for it
+                    PENDING.addAndGet( -m_events.drainTo( new ArrayList<>() ) );
+                    break;
+                }
+                try {
+                    listener.actionPerformed( event );
+                    DELIVERED.increment();
+                } catch( final RuntimeException e ) {
+                    LOG.error( "Listener {} failed to process {}", listener, event, e );
+                }
+            }
+        } finally {
+            m_scheduled.set( false );
+            if( !m_events.isEmpty() ) {
+                schedule();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.  
+ */
+package org.apache.wiki.event;
+
+
+/**
+ *  A {@link WikiEventListener} which receives its events asynchronously, so the thread firing an event doesn't wait for the listener
+ *  to process it. Events are queued per event source and delivered to the listener on a bounded pool of background threads, one at a
+ *  time and in the order they were fired by that source.
+ *  <p>
+ *  When the queue of pending events is full, the thread firing an event waits up to {@link #getOfferTimeout()} milliseconds for room
+ *  on the queue, and drops the event if there's still none. The number of queued, delivered and dropped events is available through
+ *  {@link WikiEventManager#getAsyncEventsPending()}, {@link WikiEventManager#getAsyncEventsDelivered()} and
+ *  {@link WikiEventManager#getAsyncEventsDropped()}.
+ *  <p>
+ *  Only listeners which don't need to act before the event source carries on should implement this interface, as there's no guarantee
+ *  on when the events will be delivered.
+ *
+ *  @since 3.0.1
+ */
+public interface AsyncWikiEventListener extends WikiEventListener {
+
+    /** Default maximum number of pending events per event source, value is {@value}. */
+    int DEFAULT_QUEUE_CAPACITY = 1_000;
+
+    /** Default time, in milliseconds, to wait for room on a full queue before dropping an event, value is {@value}. */
+    long DEFAULT_OFFER_TIMEOUT = 100L;
+
+    /**
+     * Returns the maximum number of events fired by an event source which may be waiting to be delivered to this listener.
+     *
+     * @return the maximum number of pending events per event source.
+     */
+    default int getQueueCapacity() {
+        return DEFAULT_QUEUE_CAPACITY;
+    }
+
+    /**
+     * Returns how long, in milliseconds, the thread firing an event waits for room on a full queue before dropping the event.
+     *
+     * @return the time to wait before dropping an event, {@code 0} to drop it right away.
+     */
+    default long getOfferTimeout() {
+        return DEFAULT_OFFER_TIMEOUT;
+    }
+
+}
@@ -23,16 +23,16 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.ConcurrentModificationException;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  *  A singleton class that manages the addition and removal of WikiEvent listeners to a event source, as well as the firing of events
@@ -120,6 +120,16 @@ import java.util.Vector;
  *  garbage is collected, your object might still be getting events, so if you wish to avoid that, please remove it explicitly as
  *  described above.
  *  </p>
+ *  <h3>Concurrency</h3>
+ *  <p>
+ *  Firing an event doesn't take any lock: delegates are kept on a concurrent map and each delegate keeps its listeners on a
+ *  copy-on-write array, so a slow listener only delays the thread firing the event, not the other threads firing events from the
+ *  same source. Listeners cleared by the garbage collector are purged in the background.
+ *  </p>
+ *  <p>
+ *  Listeners implementing {@link AsyncWikiEventListener} don't even delay the thread firing the event: their events are queued, per
+ *  event source, and delivered in order on background threads.
+ *  </p>
  * @since 2.4.20
  */
 public final class WikiEventManager {
@@ -130,16 +140,19 @@ public final class WikiEventManager {
     private static final boolean c_permitMonitor = true;
 
     /* Optional listener to be used as all-event monitor. */
-    private static WikiEventListener c_monitor;
+    private static volatile WikiEventListener c_monitor;
+
+    /* Key used on the delegates Map for the null client, as the Map doesn't allow null keys. */
+    private static final Object NULL_CLIENT = new Object();
 
     /* The Map of client object to WikiEventDelegate. */
-    private final Map< Object, WikiEventDelegate > m_delegates = new HashMap<>();
+    private final Map< Object, WikiEventDelegate > m_delegates = new ConcurrentHashMap<>();
 
     /* The Vector containing any preloaded WikiEventDelegates. */
     private final Vector< WikiEventDelegate > m_preloadCache = new Vector<>();
 
     /* Singleton instance of the WikiEventManager. */
-    private static WikiEventManager c_instance;
+    private static volatile WikiEventManager c_instance;
 
     /** Constructor for a WikiEventManager. */
     private WikiEventManager() {
@@ -154,13 +167,17 @@ public final class WikiEventManager {
      *  @return A shared instance of the WikiEventManager
      */
     public static WikiEventManager getInstance() {
-        if( c_instance == null ) {
+        WikiEventManager instance = c_instance;
+        if( instance == null ) {
             synchronized( WikiEventManager.class ) {
-                return new WikiEventManager();
-                // start up any post-instantiation services here
+                instance = c_instance;
+                if( instance == null ) {
+                    instance = new WikiEventManager();
+                    // start up any post-instantiation services here
+                }
             }
         }
-        return c_instance;
+        return instance;
     }
 
     // public/API methods ......................................................
@@ -239,29 +256,17 @@ public final class WikiEventManager {
      */
     public static boolean removeWikiEventListener( final WikiEventListener listener ) {
         boolean removed = false;
-        // get the Map.entry object for the entire Map, then check match on entry (listener)
-        final WikiEventManager mgr = getInstance();
-        final Map< Object, WikiEventDelegate > sources =  Collections.synchronizedMap( mgr.getDelegates() );
-        synchronized( sources ) {
-            // get an iterator over the Map.Enty objects in the map
-            for( final Map.Entry< Object, WikiEventDelegate > entry : sources.entrySet() ) {
-                // the entry value is the delegate
-                final WikiEventDelegate delegate = entry.getValue();
-
-                // now see if we can remove the listener from the delegate (delegate may be null because this is a weak reference)
-                if( delegate != null && delegate.removeWikiEventListener( listener ) ) {
-                    removed = true; // was removed
-                }
+        for( final WikiEventDelegate delegate : getInstance().getDelegates().values() ) {
+            if( delegate.removeWikiEventListener( listener ) ) {
+                removed = true; // was removed
             }
         }
         return removed;
     }
 
     private void removeDelegates() {
-        synchronized( m_delegates ) {
-            m_delegates.clear();
-        }
         synchronized( m_preloadCache ) {
+            m_delegates.clear();
             m_preloadCache.clear();
         }
     }
@@ -290,11 +295,42 @@ public final class WikiEventManager {
     public static void fireEvent( final Object client, final WikiEvent event ) {
         final WikiEventDelegate source = getInstance().getDelegateFor( client );
         source.fireEvent( event );
-        if( c_monitor != null ) {
-            c_monitor.actionPerformed( event );
+        final WikiEventListener monitor = c_monitor;
+        if( monitor != null ) {
+            monitor.actionPerformed( event );
         }
     }
 
+    /**
+     *  Returns the number of events waiting to be delivered to {@link AsyncWikiEventListener}s.
+     *
+     *  @return the number of events waiting to be delivered.
+     *  @since 3.0.1
+     */
+    public static long getAsyncEventsPending() {
+        return AsyncEventQueue.PENDING.get();
+    }
+
+    /**
+     *  Returns the number of events delivered to {@link AsyncWikiEventListener}s so far.
+     *
+     *  @return the number of events delivered.
+     *  @since 3.0.1
+     */
+    public static long getAsyncEventsDelivered() {
+        return AsyncEventQueue.DELIVERED.sum();
+    }
+
+    /**
+     *  Returns the number of events dropped so far because the queue of an {@link AsyncWikiEventListener} was full.
+     *
+     *  @return the number of events dropped.
+     *  @since 3.0.1
+     */
+    public static long getAsyncEventsDropped() {
+        return AsyncEventQueue.DROPPED.sum();
+    }
+
     // private and utility methods .............................................
 
     /**
@@ -315,11 +351,18 @@ public final class WikiEventManager {
      * @return the WikiEventDelegate.
      */
     private WikiEventDelegate getDelegateFor( final Object client ) {
-        synchronized( m_delegates ) {
+        if( client != null && !( client instanceof Class ) ) {
+            // a client seen before always gets its delegate back, so there's no need to lock
+            final WikiEventDelegate delegate = m_delegates.get( client );
+            if( delegate != null ) {
+                return delegate;
+            }
+        }
+        synchronized( m_preloadCache ) {
             if( client == null || client instanceof Class ) { // then preload the cache
                 final WikiEventDelegate delegate = new WikiEventDelegate( client );
                 m_preloadCache.add( delegate );
-                m_delegates.put( client, delegate );
+                m_delegates.put( client != null ? client : NULL_CLIENT, delegate );
                 return delegate;
             } else if( !m_preloadCache.isEmpty() ) {
                 // then see if any of the cached delegates match the class of the incoming client
@@ -336,12 +379,7 @@ public final class WikiEventManager {
                 }
             }
             // otherwise treat normally...
-            WikiEventDelegate delegate = m_delegates.get( client );
-            if( delegate == null ) {
-                delegate = new WikiEventDelegate( client );
-                m_delegates.put( client, delegate );
-            }
-            return delegate;
+            return m_delegates.computeIfAbsent( client, WikiEventDelegate::new );
         }
     }
 
@@ -357,8 +395,13 @@ public final class WikiEventManager {
      */
     private static final class WikiEventDelegate {
 
-        /* A list of event listeners for this instance. */
-        private final ArrayList< WeakReference< WikiEventListener > > m_listenerList = new ArrayList<>();
+        private static final ListenerReference[] NO_LISTENERS = new ListenerReference[ 0 ];
+
+        /* Copy-on-write array of event listeners for this instance, replaced as a whole on every change. */
+        private volatile ListenerReference[] m_listeners = NO_LISTENERS;
+
+        /* Set while a purge of the cleared listeners is pending, so only one is scheduled at a time. */
+        private final AtomicBoolean m_purgeScheduled = new AtomicBoolean();
         private Class< ? >  m_class;
 
         /**
@@ -386,17 +429,15 @@ public final class WikiEventManager {
          * @throws java.lang.UnsupportedOperationException  if any attempt is made to modify the Set
          */
         public Set< WikiEventListener > getWikiEventListeners() {
-            synchronized( m_listenerList ) {
-                final TreeSet< WikiEventListener > set = new TreeSet<>( new WikiEventListenerComparator() );
-                for( final WeakReference< WikiEventListener > wikiEventListenerWeakReference : m_listenerList ) {
-                    final WikiEventListener l = wikiEventListenerWeakReference.get();
-                    if( l != null ) {
-                        set.add( l );
-                    }
+            final TreeSet< WikiEventListener > set = new TreeSet<>( new WikiEventListenerComparator() );
+            for( final ListenerReference wikiEventListenerWeakReference : m_listeners ) {
+                final WikiEventListener l = wikiEventListenerWeakReference.get();
+                if( l != null ) {
+                    set.add( l );
                 }
-
-                return Collections.unmodifiableSet( set );
             }
+
+            return Collections.unmodifiableSet( set );
         }
 
         /**
@@ -405,14 +446,16 @@ public final class WikiEventManager {
          * @param listener the WikiEventListener to be added
          * @return true if the listener was added (i.e., it was not already in the list and was added)
          */
-        public boolean addWikiEventListener( final WikiEventListener listener ) {
-            synchronized( m_listenerList ) {
-                final boolean listenerAlreadyContained = m_listenerList.stream()
-                                                                       .map( WeakReference::get )
-                                                                       .anyMatch( ref -> ref == listener );
-                if( !listenerAlreadyContained ) {
-                    return m_listenerList.add( new WeakReference<>( listener ) );
-                }
+        public synchronized boolean addWikiEventListener( final WikiEventListener listener ) {
+            final ListenerReference[] listeners = m_listeners;
+            final boolean listenerAlreadyContained = Arrays.stream( listeners )
+                                                           .map( WeakReference::get )
+                                                           .anyMatch( ref -> ref == listener );
+            if( !listenerAlreadyContained ) {
+                final ListenerReference[] added = Arrays.copyOf( listeners, listeners.length + 1 );
+                added[ listeners.length ] = new ListenerReference( listener );
+                m_listeners = added;
+                return true;
             }
             return false;
         }
@@ -423,61 +466,83 @@ public final class WikiEventManager {
          * @param listener   the WikiEventListener to be removed
          * @return true if the listener was removed (i.e., it was actually in the list and was removed)
          */
-        public boolean removeWikiEventListener( final WikiEventListener listener ) {
-            synchronized( m_listenerList ) {
-                for( final Iterator< WeakReference< WikiEventListener > > i = m_listenerList.iterator(); i.hasNext(); ) {
-                    final WikiEventListener l = i.next().get();
-                    if( l == listener ) {
-                        i.remove();
-                        return true;
-                    }
+        public synchronized boolean removeWikiEventListener( final WikiEventListener listener ) {
+            final ListenerReference[] listeners = m_listeners;
+            for( int i = 0; i < listeners.length; i++ ) {
+                if( listeners[ i ].get() == listener ) {
+                    final ListenerReference[] removed = Arrays.copyOf( listeners, listeners.length - 1 );
+                    System.arraycopy( listeners, i + 1, removed, i, listeners.length - i - 1 );
+                    m_listeners = removed;
+                    return true;
                 }
             }
 
             return false;
         }
 
+        /**
+         *  Removes all the listeners which have been cleared by the garbage collector.
+         */
+        synchronized void purgeClearedListeners() {
+            m_purgeScheduled.set( false );
+            final ListenerReference[] listeners = m_listeners;
+            final ListenerReference[] alive = Arrays.stream( listeners )
+                                                    .filter( ref -> ref.get() != null )
+                                                    .toArray( ListenerReference[]::new );
+            if( alive.length != listeners.length ) {
+                m_listeners = alive.length > 0 ? alive : NO_LISTENERS;
+            }
+        }
+
         /**
          *  Returns true if there are one or more listeners registered with this instance.
          */
         public boolean isListening() {
-            synchronized( m_listenerList ) {
-                return !m_listenerList.isEmpty();
-            }
+            return m_listeners.length > 0;
         }
 
         /**
-         *  Notify all listeners having a registered interest in change events of the supplied WikiEvent.
+         *  Notify all listeners having a registered interest in change events of the supplied WikiEvent. Works on a snapshot of the
+         *  listeners, so listeners are called without holding any lock, and may add or remove listeners while being notified.
          */
         public void fireEvent( final WikiEvent event ) {
             boolean needsCleanup = false;
-            try {
-                synchronized( m_listenerList ) {
-                    for( final WeakReference< WikiEventListener > wikiEventListenerWeakReference : m_listenerList ) {
-                        final WikiEventListener listener = wikiEventListenerWeakReference.get();
-                        if( listener != null ) {
-                            listener.actionPerformed( event );
-                        } else {
-                            needsCleanup = true;
-                        }
-                    }
+            for( final ListenerReference wikiEventListenerWeakReference : m_listeners ) {
+                final WikiEventListener listener = wikiEventListenerWeakReference.get();
+                if( listener == null ) {
+                    needsCleanup = true;
+                } else if( wikiEventListenerWeakReference.m_queue != null ) {
+                    wikiEventListenerWeakReference.m_queue.offer( event );
+                } else {
+                    listener.actionPerformed( event );
+                }
+            }
 
-                    //  Remove all such listeners which have expired
-                    if( needsCleanup ) {
-                        for( int i = 0; i < m_listenerList.size(); i++ ) {
-                            final WeakReference< WikiEventListener > w = m_listenerList.get( i );
-                            if( w.get() == null ) {
-                                m_listenerList.remove(i--);
-                            }
-                        }
-                    }
+            //  Remove all such listeners which have expired, out of the thread firing the event
+            if( needsCleanup && m_purgeScheduled.compareAndSet( false, true ) ) {
+                CompletableFuture.runAsync( this::purgeClearedListeners );
+            }
+        }
+    }
 
-                }
-            } catch( final ConcurrentModificationException e ) {
-                //  We don't die, we just don't do notifications in that case.
-                LOG.info( "Concurrent modification of event list; please report this.", e );
+    /**
+     *  Weak reference to a listener, along with the queue of events waiting to be delivered to it, if it's an
+     *  {@link AsyncWikiEventListener}.
+     */
+    private static final class ListenerReference extends WeakReference< WikiEventListener > {
+
+        private final AsyncEventQueue m_queue;
+
+        ListenerReference( final WikiEventListener listener ) {
+            super( listener );
+            if( listener instanceof AsyncWikiEventListener ) {
+                final AsyncWikiEventListener async = ( AsyncWikiEventListener )listener;
+                m_queue = new AsyncEventQueue( this, async.getQueueCapacity(), async.getOfferTimeout() );
+            } else {
+                m_queue = null;
             }
         }
+
     }
 
     private static class WikiEventListenerComparator implements Comparator< WikiEventListener > {
@@ -21,6 +21,12 @@ package org.apache.wiki.event;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 
 public class WikiEventManagerTest {
 
@@ -68,4 +74,124 @@ public class WikiEventManagerTest {
         WikiEventManager.removeWikiEventListener( listener ); // dispose listener; if not done, listener would still be attached to test4 on other tests
     }
 
+    @Test
+    public void shouldNotBlockOtherThreadsWhileAListenerIsSlow() throws Exception {
+        final String client = "test5";
+        final CountDownLatch entered = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final WikiEventListener slow = event -> {
+            if( event.getType() == WikiPageEvent.PAGE_LOCK ) {
+                entered.countDown();
+                try {
+                    release.await( 10, TimeUnit.SECONDS );
+                } catch( final InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final TestWikiEventListener listener = new TestWikiEventListener();
+        WikiEventManager.addWikiEventListener( client, slow );
+        WikiEventManager.addWikiEventListener( client, listener );
+
+        final Thread blocked = new Thread( () -> WikiEventManager.fireEvent( client, new WikiPageEvent( "source", WikiPageEvent.PAGE_LOCK, "page" ) ) );
+        blocked.start();
+        Assertions.assertTrue( entered.await( 10, TimeUnit.SECONDS ) );
+
+        Assertions.assertTimeoutPreemptively( Duration.ofSeconds( 5 ), () -> {
+            WikiEventManager.fireEvent( client, new WikiPageEvent( "source", WikiPageEvent.PAGE_REQUESTED, "page" ) );
+            WikiEventManager.removeWikiEventListener( client, listener );
+        } );
+        release.countDown();
+        blocked.join();
+
+        // the blocked thread still notifies the listeners it had when it started firing
+        Assertions.assertEquals( 2, listener.getInvoked() );
+        WikiEventManager.removeWikiEventListener( slow );
+    }
+
+    @Test
+    public void shouldAllowListenersToUnregisterWhileBeingNotified() {
+        final String client = "test6";
+        final TestWikiEventListener listener = new TestWikiEventListener();
+        final WikiEventListener once = new WikiEventListener() {
+            @Override
+            public void actionPerformed( final WikiEvent event ) {
+                WikiEventManager.removeWikiEventListener( client, this );
+            }
+        };
+        WikiEventManager.addWikiEventListener( client, once );
+        WikiEventManager.addWikiEventListener( client, listener );
+        WikiEventManager.fireEvent( client, new WikiPageEvent( "source", WikiPageEvent.PAGE_REQUESTED, "page" ) );
+        WikiEventManager.fireEvent( client, new WikiPageEvent( "source", WikiPageEvent.PAGE_REQUESTED, "page" ) );
+
+        Assertions.assertEquals( 2, listener.getInvoked() );
+        Assertions.assertEquals( 1, WikiEventManager.getWikiEventListeners( client ).size() );
+        WikiEventManager.removeWikiEventListener( listener );
+    }
+
+    @Test
+    public void shouldDeliverEventsToAsyncListenersInOrderOutOfTheFiringThread() throws Exception {
+        final String client = "test7";
+        final int events = 500;
+        final List< String > received = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch( events );
+        final Thread firing = Thread.currentThread();
+        final AsyncWikiEventListener listener = event -> {
+            if( Thread.currentThread() != firing ) {
+                received.add( ( ( WikiPageEvent )event ).getPageName() );
+            }
+            done.countDown();
+        };
+        WikiEventManager.addWikiEventListener( client, listener );
+        final long delivered = WikiEventManager.getAsyncEventsDelivered();
+        for( int i = 0; i < events; i++ ) {
+            WikiEventManager.fireEvent( client, new WikiPageEvent( "source", WikiPageEvent.PAGE_REQUESTED, "page" + i ) );
+        }
+
+        Assertions.assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        Assertions.assertEquals( events, received.size() );
+        for( int i = 0; i < events; i++ ) {
+            Assertions.assertEquals( "page" + i, received.get( i ) );
+        }
+        Assertions.assertTrue( WikiEventManager.getAsyncEventsDelivered() - delivered >= events - 1 );
+        WikiEventManager.removeWikiEventListener( listener );
+    }
+
+    @Test
+    public void shouldDropEventsWhenAsyncListenerQueueIsFull() throws Exception {
+        final String client = "test8";
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AsyncWikiEventListener listener = new AsyncWikiEventListener() {
+            @Override
+            public void actionPerformed( final WikiEvent event ) {
+                try {
+                    release.await( 10, TimeUnit.SECONDS );
+                } catch( final InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public int getQueueCapacity() {
+                return 2;
+            }
+
+            @Override
+            public long getOfferTimeout() {
+                return 0L;
+            }
+        };
+        WikiEventManager.addWikiEventListener( client, listener );
+        final long dropped = WikiEventManager.getAsyncEventsDropped();
+        // one event being delivered, two waiting on the queue, the rest dropped
+        for( int i = 0; i < 10; i++ ) {
+            WikiEventManager.fireEvent( client, new WikiPageEvent( "source", WikiPageEvent.PAGE_REQUESTED, "page" + i ) );
+        }
+        release.countDown();
+
+        final long droppedNow = WikiEventManager.getAsyncEventsDropped() - dropped;
+        Assertions.assertTrue( droppedNow >= 7 && droppedNow <= 8, "dropped " + droppedNow );
+        WikiEventManager.removeWikiEventListener( listener );
+    }
+
 }
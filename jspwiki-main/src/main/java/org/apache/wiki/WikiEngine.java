@@ -42,6 +42,7 @@ import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.event.WikiPageEvent;
 import org.apache.wiki.filters.FilterManager;
 import org.apache.wiki.i18n.InternationalizationManager;
+import org.apache.wiki.pages.CacheWarmer;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.plugin.PluginManager;
 import org.apache.wiki.references.ReferenceManager;
@@ -78,6 +79,7 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
@@ -141,6 +143,12 @@ public class WikiEngine implements Engine {
     /** Stores WikiEngine's associated managers. */
     protected final Map< Class< ? >, Object > managers = new ConcurrentHashMap<>();
 
+    /** Resolved {@link #getManager(Class)} lookups, keyed by requested type. Cleared whenever a new manager gets registered. */
+    private final Map< Class< ? >, Optional< Object > > resolvedManager = new ConcurrentHashMap<>();
+
+    /** Resolved {@link #getManagers(Class)} lookups, keyed by requested type. Cleared whenever a new manager gets registered. */
+    private final Map< Class< ? >, List< Object > > resolvedManagers = new ConcurrentHashMap<>();
+
     /**
      *  Gets a WikiEngine related to this servlet.  Since this method is only called from JSP pages (and JspInit()) to be specific,
      *  we throw a RuntimeException if things don't work.
@@ -278,10 +286,12 @@ public class WikiEngine implements Engine {
             final String aclClassName = m_properties.getProperty( PROP_ACL_MANAGER_IMPL, ClassUtil.getMappedClass( AclManager.class.getName() ).getName() );
             final String urlConstructorClassName = TextUtil.getStringProperty( props, PROP_URLCONSTRUCTOR, "DefaultURLConstructor" );
             final Class< URLConstructor > urlclass = ClassUtil.findClass( "org.apache.wiki.url", urlConstructorClassName );
+            final String cachingManagerClassName = m_properties.getProperty( CachingManager.PROP_CACHE_MANAGER_IMPL,
+                                                                             ClassUtil.getMappedClass( CachingManager.class.getName() ).getName() );
 
             initComponent( CommandResolver.class, this, props );
             initComponent( urlclass.getName(), URLConstructor.class );
-            initComponent( CachingManager.class, this, props );
+            initComponent( cachingManagerClassName, CachingManager.class, this, props );
             initComponent( PageManager.class, this, props );
             initComponent( PluginManager.class, this, props );
             initComponent( DifferenceManager.class, this, props );
@@ -340,6 +350,9 @@ public class WikiEngine implements Engine {
         } catch( final Exception e ) {
             LOG.error( "Unable to start RSS generator - JSPWiki will still work, but there will be no RSS feed.", e );
         }
+        if( TextUtil.getIntegerProperty( props, CachingManager.PROP_HOT_KEYS, 0 ) > 0 ) {
+            new CacheWarmer( this, props ).start();
+        }
 
         final Map< String, String > extraComponents = ClassUtil.getExtraClassMappings();
         initExtraComponents( extraComponents );
@@ -403,30 +416,55 @@ public class WikiEngine implements Engine {
         } else {
             component = ClassUtil.getMappedObject( componentInitClass, initArgs );
         }
-        managers.put( componentClass, component );
+        registerManager( componentClass, component );
         if( Initializable.class.isAssignableFrom( component.getClass() ) ) {
             ( ( Initializable )component ).initialize( this, m_properties );
         }
     }
 
+    /**
+     * Registers a manager under the given type, discarding any previously resolved manager lookup, as the new manager may change
+     * the outcome of {@link #getManager(Class)} or {@link #getManagers(Class)}.
+     *
+     * @param componentClass type under which the manager is registered.
+     * @param component the manager.
+     */
+    void registerManager( final Class< ? > componentClass, final Object component ) {
+        managers.put( componentClass, component );
+        resolvedManager.clear();
+        resolvedManagers.clear();
+    }
+
     /** {@inheritDoc} */
     @Override
     @SuppressWarnings( "unchecked" )
     public < T > T getManager( final Class< T > manager ) {
-        return ( T )managers.entrySet().stream()
-                                       .filter( e -> manager.isAssignableFrom( e.getKey() ) )
-                                       .map( Map.Entry::getValue )
-                                       .findFirst().orElse( null );
+        return ( T )resolvedManager.computeIfAbsent( manager, this::resolveManager ).orElse( null );
     }
 
     /** {@inheritDoc} */
     @Override
     @SuppressWarnings( "unchecked" )
     public < T > List< T > getManagers( final Class< T > manager ) {
-        return ( List< T > )managers.entrySet().stream()
-                                               .filter( e -> manager.isAssignableFrom( e.getKey() ) )
-                                               .map( Map.Entry::getValue )
-                                               .collect( Collectors.toList() );
+        return ( List< T > )resolvedManagers.computeIfAbsent( manager, this::resolveManagers );
+    }
+
+    Optional< Object > resolveManager( final Class< ? > manager ) {
+        final Object exactMatch = managers.get( manager );
+        if( exactMatch != null ) {
+            return Optional.of( exactMatch );
+        }
+        return managers.entrySet().stream()
+                                  .filter( e -> manager.isAssignableFrom( e.getKey() ) )
+                                  .map( Map.Entry::getValue )
+                                  .findFirst();
+    }
+
+    List< Object > resolveManagers( final Class< ? > manager ) {
+        return managers.entrySet().stream()
+                                  .filter( e -> manager.isAssignableFrom( e.getKey() ) )
+                                  .map( Map.Entry::getValue )
+                                  .collect( Collectors.toUnmodifiableList() );
     }
 
     /** {@inheritDoc} */
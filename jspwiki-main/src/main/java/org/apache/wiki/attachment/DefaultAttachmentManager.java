@@ -30,9 +30,12 @@ import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.providers.AttachmentProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.references.ReferenceManager;
+import org.apache.wiki.render.RenderingManager;
 import org.apache.wiki.search.SearchManager;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.TextUtil;
@@ -127,13 +130,19 @@ public class DefaultAttachmentManager implements AttachmentManager {
             return null;
         }
 
+        final String name;
         if( att != null ) {
-            return att.getName();
+            name = att.getName();
         } else if( attachmentname.indexOf( '/' ) != -1 ) {
-            return attachmentname;
+            name = attachmentname;
+        } else {
+            return null;
         }
 
-        return null;
+        if( context != null ) {
+            RenderingManager.addDependency( context, name );
+        }
+        return name;
     }
 
     /** {@inheritDoc} */
@@ -264,6 +273,7 @@ public class DefaultAttachmentManager implements AttachmentManager {
         final Page parent = Wiki.contents().page( m_engine, att.getParentName() );
         m_engine.getManager( ReferenceManager.class ).updateReferences( parent );
         m_engine.getManager( SearchManager.class ).reindexPage( att );
+        fireEvent( WikiPageEvent.POST_SAVE_BEGIN, att.getName() );
     }
 
     /** {@inheritDoc} */
@@ -309,7 +319,6 @@ public class DefaultAttachmentManager implements AttachmentManager {
 
     /** {@inheritDoc} */
     @Override
-    // FIXME: Should also use events!
     public void deleteAttachment( final Attachment att ) throws ProviderException {
         if( m_provider == null ) {
             return;
@@ -318,6 +327,19 @@ public class DefaultAttachmentManager implements AttachmentManager {
         m_provider.deleteAttachment( att );
         m_engine.getManager( SearchManager.class ).pageRemoved( att );
         m_engine.getManager( ReferenceManager.class ).clearPageEntries( att.getName() );
+        fireEvent( WikiPageEvent.PAGE_DELETED, att.getName() );
+    }
+
+    /**
+     *  Fires a WikiPageEvent of the provided type and attachment name to all registered listeners.
+     *
+     *  @param type the event type to be fired.
+     *  @param attachmentName the attachment name.
+     */
+    protected final void fireEvent( final int type, final String attachmentName ) {
+        if( WikiEventManager.isListening( this ) ) {
+            WikiEventManager.fireEvent( this, new WikiPageEvent( m_engine, type, attachmentName ) );
+        }
     }
 
 }
@@ -0,0 +1,230 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.pages;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.WikiBackgroundThread;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.filters.FilterManager;
+import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+
+/**
+ *  Background thread warming up the page caches on startup. The most requested pages, as counted by the {@link CachingManager} when
+ *  {@value CachingManager#PROP_HOT_KEYS} is set, are periodically recorded on the work directory, and loaded again into the page and
+ *  page text caches, and optionally parsed into the rendering cache, when the engine starts, while it already serves requests.
+ *  <p>
+ *  The warm-up uses {@value #PROP_WARMUP_THREADS} threads, and gives up on the pages not loaded after
+ *  {@value #PROP_WARMUP_TIME_BUDGET} seconds.
+ *
+ *  @since 3.0.1
+ */
+public class CacheWarmer extends WikiBackgroundThread {
+
+    private static final Logger LOG = LogManager.getLogger( CacheWarmer.class );
+
+    /** Seconds between recordings of the most requested pages, 300 by default. Value is {@value}. */
+    public static final String PROP_HOT_KEYS_INTERVAL = "jspwiki.cache.hotKeys.interval";
+
+    /** Number of threads loading the pages on startup, 2 by default. Value is {@value}. */
+    public static final String PROP_WARMUP_THREADS = "jspwiki.cache.warmup.threads";
+
+    /** Seconds after which the pages not yet loaded on startup are given up on, 60 by default. Value is {@value}. */
+    public static final String PROP_WARMUP_TIME_BUDGET = "jspwiki.cache.warmup.timeBudget";
+
+    /** Whether the pages loaded on startup are also parsed into the rendering cache, {@code false} by default. Value is {@value}. */
+    public static final String PROP_WARMUP_DOCUMENTS = "jspwiki.cache.warmup.documents";
+
+    /** Name of the file on the work directory where the most requested pages are recorded. */
+    static final String HOT_KEYS_FILE = "hotkeys.txt";
+
+    private final Path m_hotKeysFile;
+    private final int m_hotKeys;
+    private final int m_threads;
+    private final int m_timeBudget;
+    private final boolean m_warmUpDocuments;
+    private boolean m_warmedUp;
+
+    /**
+     *  Creates the thread warming up the caches of the given engine.
+     *
+     *  @param engine the wiki engine.
+     *  @param props the engine properties.
+     */
+    public CacheWarmer( final Engine engine, final Properties props ) {
+        super( engine, TextUtil.getIntegerProperty( props, PROP_HOT_KEYS_INTERVAL, 300 ) );
+        setName( "JSPWiki Cache Warmer" );
+        m_hotKeysFile = Paths.get( engine.getWorkDir(), HOT_KEYS_FILE );
+        m_hotKeys = TextUtil.getIntegerProperty( props, CachingManager.PROP_HOT_KEYS, 0 );
+        m_threads = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_WARMUP_THREADS, 2 ) );
+        m_timeBudget = TextUtil.getIntegerProperty( props, PROP_WARMUP_TIME_BUDGET, 60 );
+        m_warmedUp = false;
+        m_warmUpDocuments = TextUtil.getBooleanProperty( props, PROP_WARMUP_DOCUMENTS, false );
+    }
+
+    /**
+     *  Loads the pages recorded on the previous run into the caches.
+     */
+    @Override
+    public void startupTask() {
+        warmUp( readHotPages() );
+    }
+
+    /**
+     *  Records the most requested pages, except right after warming up the caches, as the requests counted by then are mostly the
+     *  warm-up ones.
+     */
+    @Override
+    public void backgroundTask() {
+        if( m_warmedUp ) {
+            writeHotPages();
+        }
+        m_warmedUp = true;
+    }
+
+    /**
+     *  Records the most requested pages one last time.
+     */
+    @Override
+    public void shutdownTask() {
+        writeHotPages();
+    }
+
+    /**
+     *  Loads the given pages into the caches in parallel, giving up on the ones not loaded within the time budget.
+     *
+     *  @param pages the names of the pages to load.
+     *  @return the number of pages loaded.
+     */
+    int warmUp( final List< String > pages ) {
+        if( pages.isEmpty() ) {
+            return 0;
+        }
+
+        final long start = System.currentTimeMillis();
+        final List< Callable< Boolean > > loads = new ArrayList<>( pages.size() );
+        pages.forEach( page -> loads.add( () -> load( page ) ) );
+        final ExecutorService executor = Executors.newFixedThreadPool( m_threads );
+        int loaded = 0;
+        try {
+            for( final Future< Boolean > load : executor.invokeAll( loads, m_timeBudget, TimeUnit.SECONDS ) ) {
+                if( !load.isCancelled() && load.get() ) {
+                    loaded++;
+                }
+            }
+        } catch( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        } catch( final Exception e ) {
+            LOG.warn( "Unable to warm up the caches: {}", e.getMessage(), e );
+        } finally {
+            executor.shutdownNow();
+        }
+        LOG.info( "Warmed up the caches with {} of {} pages in {} ms", loaded, pages.size(), System.currentTimeMillis() - start );
+        return loaded;
+    }
+
+    private boolean load( final String pageName ) throws Exception {
+        final PageManager pageManager = getEngine().getManager( PageManager.class );
+        final Page page = pageManager.getPage( pageName );
+        if( page == null ) {
+            return false;
+        }
+        final String text = pageManager.getPureText( page );
+        if( m_warmUpDocuments ) {
+            // parse the text as viewing the page does, so the document is found on the rendering cache then
+            final Context context = Wiki.context().create( getEngine(), page );
+            final String filtered = getEngine().getManager( FilterManager.class ).doPreTranslateFiltering( context, text );
+            getEngine().getManager( RenderingManager.class ).getRenderedDocument( context, filtered );
+        }
+        return true;
+    }
+
+    /**
+     *  Reads the pages recorded on the previous run.
+     *
+     *  @return the names of the recorded pages, most requested first.
+     */
+    List< String > readHotPages() {
+        try {
+            final List< String > pages = new ArrayList<>();
+            for( final String line : Files.readAllLines( m_hotKeysFile, StandardCharsets.UTF_8 ) ) {
+                if( !line.isBlank() ) {
+                    pages.add( line.trim() );
+                }
+            }
+            return pages;
+        } catch( final NoSuchFileException e ) {
+            return new ArrayList<>();
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to read the most requested pages from {}: {}", m_hotKeysFile, e.getMessage() );
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     *  Records the most requested pages, as counted by the page text cache first, as that's what viewing them requests, and then by
+     *  the page cache.
+     */
+    void writeHotPages() {
+        final CachingManager cachingManager = getEngine().getManager( CachingManager.class );
+        final Set< String > pages = new LinkedHashSet<>( cachingManager.< String >hotKeys( CachingManager.CACHE_PAGES_TEXT ) );
+        pages.addAll( cachingManager.< String >hotKeys( CachingManager.CACHE_PAGES ) );
+        final List< String > hotPages = pages.stream().limit( m_hotKeys ).collect( Collectors.toList() );
+        if( hotPages.isEmpty() ) {
+            return; // keep the pages recorded previously, nothing was requested meanwhile
+        }
+        try {
+            final Path temp = Files.createTempFile( m_hotKeysFile.getParent(), HOT_KEYS_FILE, ".tmp" );
+            try {
+                Files.write( temp, hotPages, StandardCharsets.UTF_8 );
+                Files.move( temp, m_hotKeysFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            } finally {
+                Files.deleteIfExists( temp );
+            }
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to record the most requested pages on {}: {}", m_hotKeysFile, e.getMessage() );
+        }
+    }
+
+}
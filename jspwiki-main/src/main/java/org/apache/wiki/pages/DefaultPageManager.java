@@ -478,6 +478,30 @@ public class DefaultPageManager implements PageManager {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * @see org.apache.wiki.pages.PageManager#getRecentChanges(java.util.Date)
+     */
+    @Override
+    public Set< Page > getRecentChanges( final Date since ) {
+        if( !m_provider.tracksChanges() ) {
+            return PageManager.super.getRecentChanges( since );
+        }
+        try {
+            final TreeSet< Page > sortedPages = new TreeSet<>( new PageTimeComparator() );
+            sortedPages.addAll( m_provider.getAllChangedSince( since ) );
+            final AttachmentManager attachmentManager = m_engine.getManager( AttachmentManager.class );
+            if( attachmentManager.attachmentsEnabled() ) {
+                sortedPages.addAll( attachmentManager.getCurrentProvider().listAllChanged( since ) );
+            }
+
+            return sortedPages;
+        } catch( final ProviderException e ) {
+            LOG.error( "Unable to fetch the pages changed since " + since + ": ", e );
+            return Collections.emptySet();
+        }
+    }
+
     /**
      * {@inheritDoc}
      * @see org.apache.wiki.pages.PageManager#pageExists(java.lang.String)
@@ -26,8 +26,10 @@ import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.event.WikiEventListener;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 
 public interface PageManager extends WikiEventListener {
@@ -269,6 +271,25 @@ public interface PageManager extends WikiEventListener {
      */
     Set< Page > getRecentChanges();
 
+    /**
+     *  Returns the pages and attachments changed since the given date, sorted like {@link #getRecentChanges()}. This default
+     *  implementation picks them out of all the recent changes; implementations should ask the providers for them instead, when they
+     *  can tell which ones changed without listing them all.
+     *
+     *  @param since date of the oldest changes to return.
+     *  @return Set of WikiPage objects.
+     *  @since 3.0.1
+     */
+    default Set< Page > getRecentChanges( final Date since ) {
+        final Set< Page > changes = new TreeSet<>( new PageTimeComparator() );
+        for( final Page page : getRecentChanges() ) {
+            if( page.getLastModified() != null && !page.getLastModified().before( since ) ) {
+                changes.add( page );
+            }
+        }
+        return changes;
+    }
+
     /**
      * Returns true, if the page exists (any version) on the underlying WikiPageProvider.
      *
@@ -24,6 +24,7 @@ import org.apache.oro.text.regex.Pattern;
 import org.apache.oro.text.regex.Perl5Matcher;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.render.RenderingManager;
 
 import java.util.Arrays;
 import java.util.Comparator;
@@ -161,7 +162,8 @@ public class LinkParsingOperations {
     }
 
     /**
-     * Returns {@code true}, if the link name exists; otherwise it returns {@code false}.
+     * Returns {@code true}, if the link name exists; otherwise it returns {@code false}. The link name is registered as a
+     * {@link RenderingManager#addDependency(Context, String) dependency} of the page being rendered.
      *
      * @param page link name
      * @return {@code true}, if the link name exists; otherwise it returns {@code false}.
@@ -170,6 +172,7 @@ public class LinkParsingOperations {
         if( page == null || page.isEmpty() ) {
             return false;
         }
+        RenderingManager.addDependency( wikiContext, page );
         try {
             return wikiContext.getEngine().getFinalPageName( page ) != null;
         } catch( final ProviderException e ) {
@@ -179,7 +182,8 @@ public class LinkParsingOperations {
     }
 
     /**
-     * Returns link name, if it exists; otherwise it returns {@code null}.
+     * Returns link name, if it exists; otherwise it returns {@code null}. The link name is registered as a
+     * {@link RenderingManager#addDependency(Context, String) dependency} of the page being rendered.
      *
      * @param page link name
      * @return link name, if it exists; otherwise it returns {@code null}.
@@ -188,8 +192,11 @@ public class LinkParsingOperations {
         if( page == null || page.isEmpty() ) {
             return null;
         }
+        RenderingManager.addDependency( wikiContext, page );
         try {
-            return wikiContext.getEngine().getFinalPageName( page );
+            final String finalName = wikiContext.getEngine().getFinalPageName( page );
+            RenderingManager.addDependency( wikiContext, finalName );
+            return finalName;
         } catch( final ProviderException e ) {
             LOG.warn( "TranslatorReader got a faulty page name [" + page + "]!", e );
             return null;
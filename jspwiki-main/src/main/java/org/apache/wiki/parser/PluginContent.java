@@ -32,6 +32,7 @@ import org.apache.wiki.api.plugin.Plugin;
 import org.apache.wiki.api.plugin.PluginElement;
 import org.apache.wiki.plugin.PluginManager;
 import org.apache.wiki.preferences.Preferences;
+import org.apache.wiki.render.RenderingManager;
 import org.apache.wiki.variables.VariableManager;
 import org.jdom2.Text;
 
@@ -40,6 +41,7 @@ import java.text.MessageFormat;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.ResourceBundle;
 
 
@@ -163,12 +165,17 @@ public class PluginContent extends Text implements PluginElement {
                 for( final Map.Entry< String, String > e : m_params.entrySet() ) {
                     String val = e.getValue();
                     val = engine.getManager( VariableManager.class).expandVariables( context, val );
+                    if( !Objects.equals( val, e.getValue() ) ) {
+                        // variables may vary from one view to another
+                        context.setVariable( RenderingManager.VAR_UNCACHEABLE, Boolean.TRUE );
+                    }
                     parsedParams.put( e.getKey(), val );
                 }
                 final PluginManager pm = engine.getManager( PluginManager.class );
                 result = pm.execute( context, m_pluginName, parsedParams );
             }
         } catch( final Exception e ) {
+            context.setVariable( RenderingManager.VAR_UNCACHEABLE, Boolean.TRUE );
             if( wysiwygEditorMode ) {
                 result = "";
             } else {
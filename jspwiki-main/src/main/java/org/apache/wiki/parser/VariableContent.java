@@ -22,6 +22,7 @@ import org.apache.commons.text.StringEscapeUtils;
 import org.apache.wiki.WikiContext;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.exceptions.NoSuchVariableException;
+import org.apache.wiki.render.RenderingManager;
 import org.apache.wiki.variables.VariableManager;
 import org.jdom2.Text;
 
@@ -72,6 +73,7 @@ public class VariableContent extends Text {
         if( wysiwygEditorMode != null && wysiwygEditorMode ) {
             result = "[" + m_varName + "]";
         } else {
+            context.setVariable( RenderingManager.VAR_UNCACHEABLE, Boolean.TRUE );
             try {
                 result = context.getEngine().getManager( VariableManager.class ).parseAndGetValue( context, m_varName );
             } catch( final NoSuchVariableException e ) {
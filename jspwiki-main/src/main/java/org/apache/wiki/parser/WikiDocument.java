@@ -20,7 +20,13 @@ package org.apache.wiki.parser;
 
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Page;
+import org.apache.wiki.cache.CacheWeigher;
+import org.apache.wiki.cache.ContentDigest;
+import org.apache.wiki.cache.Weighable;
+import org.jdom2.Attribute;
+import org.jdom2.Content;
 import org.jdom2.Document;
+import org.jdom2.Element;
 
 import java.lang.ref.WeakReference;
 
@@ -32,12 +38,13 @@ import java.lang.ref.WeakReference;
  *  
  *  @since  2.4
  */
-public class WikiDocument extends Document {
+public class WikiDocument extends Document implements Weighable {
 
     private static final long serialVersionUID = 1L;
     
     private final Page m_page;
     private String m_wikiText;
+    private ContentDigest m_wikiTextDigest;
     private WeakReference< Context > m_context;
     
     /**
@@ -61,15 +68,37 @@ public class WikiDocument extends Document {
     }
     
     /**
-     *  Returns the wikimarkup used to render this document.
+     *  Returns the wikimarkup used to render this document. Documents rendered through the
+     *  {@link org.apache.wiki.render.RenderingManager} don't keep their wikimarkup, only its digest.
      *  
-     *  @return The WikiMarkup
+     *  @return The WikiMarkup, or {@code null} if it wasn't set.
      */
     public String getPageData()
     {
         return m_wikiText;
     }
     
+    /**
+     *  Sets the digest of the wikimarkup used to render this document.
+     *
+     *  @param digest digest of the wikimarkup.
+     *  @since 3.0.1
+     */
+    public void setPageDigest( final ContentDigest digest ) {
+        m_wikiTextDigest = digest;
+    }
+
+    /**
+     *  Returns the digest of the wikimarkup used to render this document, which tells whether it was rendered from a given text.
+     *
+     *  @return the digest of the wikimarkup, or the digest of the wikimarkup set through {@link #setPageData(String)} if no digest
+     *  was set.
+     *  @since 3.0.1
+     */
+    public ContentDigest getPageDigest() {
+        return m_wikiTextDigest != null ? m_wikiTextDigest : ContentDigest.of( m_wikiText );
+    }
+
     /**
      *  Return the WikiPage for whom this WikiDocument exists.
      *  
@@ -103,4 +132,24 @@ public class WikiDocument extends Document {
         return m_context.get();
     }
 
+    /**
+     *  Estimates the heap taken by this document, walking its DOM tree and adding the wikimarkup used to render it.
+     *
+     *  @return estimated size of the document, in bytes.
+     *  @since 3.0.1
+     */
+    @Override
+    public long getEstimatedSize() {
+        long size = CacheWeigher.estimate( m_wikiText );
+        for( final Content content : getDescendants() ) {
+            size += CacheWeigher.estimate( content instanceof Element ? ( ( Element )content ).getName() : content.getValue() );
+            if( content instanceof Element && ( ( Element )content ).hasAttributes() ) {
+                for( final Attribute attribute : ( ( Element )content ).getAttributes() ) {
+                    size += CacheWeigher.estimate( attribute.getName() ) + CacheWeigher.estimate( attribute.getValue() );
+                }
+            }
+        }
+        return size;
+    }
+
 }
@@ -41,6 +41,7 @@ import org.apache.wiki.api.plugin.Plugin;
 import org.apache.wiki.modules.BaseModuleManager;
 import org.apache.wiki.modules.WikiModuleInfo;
 import org.apache.wiki.preferences.Preferences;
+import org.apache.wiki.render.RenderingManager;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.FileUtil;
 import org.apache.wiki.util.TextUtil;
@@ -280,8 +281,12 @@ public class DefaultPluginManager extends BaseModuleManager implements PluginMan
 
             //  ...and launch.
             try {
+                if( !plugin.isCacheable() ) {
+                    context.setVariable( RenderingManager.VAR_UNCACHEABLE, Boolean.TRUE );
+                }
                 return plugin.execute( context, params );
             } catch( final PluginException e ) {
+                context.setVariable( RenderingManager.VAR_UNCACHEABLE, Boolean.TRUE );
                 LOG.warn(e.getMessage(), e);
                 if( debug ) {
                     return stackTrace( params, e );
@@ -290,7 +295,8 @@ public class DefaultPluginManager extends BaseModuleManager implements PluginMan
                 // Just pass this exception onward.
                 throw ( PluginException )e.fillInStackTrace();
             } catch( final Throwable t ) {
-                
+                context.setVariable( RenderingManager.VAR_UNCACHEABLE, Boolean.TRUE );
+
                 // But all others get captured here.
                 LOG.warn( "Plugin failed while executing:", t );
                 if( debug ) {
@@ -91,6 +91,18 @@ public class InsertPage implements Plugin {
     public String getSnipExample() {
         return "InsertPage page='{pagename}'";
     }
+
+    /**
+     *  {@inheritDoc}
+     *
+     *  <p>The inserted page is registered as a dependency of the page being rendered, so the latter is flushed from the caches whenever
+     *  the inserted page changes. Pages shown only once aren't cached.
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
     /**
      *  {@inheritDoc}
      */
@@ -119,6 +131,7 @@ public class InsertPage implements Plugin {
         }
 
         if( includedPage != null ) {
+            RenderingManager.addDependency( context, includedPage );
             final Page page;
             try {
                 final String pageName = engine.getFinalPageName( includedPage );
@@ -129,6 +142,8 @@ public class InsertPage implements Plugin {
             }
 
             if( page != null ) {
+                RenderingManager.addDependency( context, page.getName() );
+
                 //  Check for recursivity
                 List<String> previousIncludes = context.getVariable( ATTR_RECURSE );
 
@@ -153,6 +168,8 @@ public class InsertPage implements Plugin {
                 String cookieName = "";
 
                 if( showOnce ) {
+                    // whether the page is shown depends on the user's cookies
+                    context.setVariable( RenderingManager.VAR_UNCACHEABLE, Boolean.TRUE );
                     cookieName = ONCE_COOKIE + TextUtil.urlEncodeUTF8( page.getName() ).replaceAll( "\\+", "%20" );
 
                     if( HttpUtil.retrieveCookieValue( context.getHttpRequest(), cookieName ) != null ) {
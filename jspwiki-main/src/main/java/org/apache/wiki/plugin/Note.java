@@ -59,6 +59,17 @@ public class Note implements Plugin {
     public String getSnipExample() {
         return "Note " + PROP_NOTE_IMAGE + "=note.png This text shows as tooltip";
     }
+
+    /**
+     *  {@inheritDoc}
+     *
+     *  <p>Notes only depend on their parameters.
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
     /**
      *  {@inheritDoc}
      */
@@ -85,6 +85,17 @@ public class RecentChangesPlugin extends AbstractReferralPlugin implements Plugi
     }
    
     
+    /**
+     *  {@inheritDoc}
+     *
+     *  <p>Changes older than the {@code since} days fall off the listing as time goes by, even on a wiki where nothing changes, so
+     *  pages using this plugin are rendered on each view.
+     */
+    @Override
+    public boolean isCacheable() {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -113,8 +124,7 @@ public class RecentChangesPlugin extends AbstractReferralPlugin implements Plugi
 
         LOG.debug("Calculating recent changes from "+sincedate.getTime());
 
-        // FIXME: Should really have a since date on the getRecentChanges method.
-        Collection< Page > changes = engine.getManager( PageManager.class ).getRecentChanges();
+        Collection< Page > changes = engine.getManager( PageManager.class ).getRecentChanges( sincedate.getTime() );
         super.initialize( context, params );
         changes = filterWikiPageCollection( changes );
         
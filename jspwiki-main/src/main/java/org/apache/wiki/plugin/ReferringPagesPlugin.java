@@ -28,6 +28,7 @@ import org.apache.wiki.api.plugin.Plugin;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.preferences.Preferences;
 import org.apache.wiki.references.ReferenceManager;
+import org.apache.wiki.render.RenderingManager;
 import org.apache.wiki.util.TextUtil;
 
 import java.text.MessageFormat;
@@ -76,11 +77,23 @@ public class ReferringPagesPlugin extends AbstractReferralPlugin {
         return "ReferringPagesPlugin page='{pagename}' separator=',' include='regexp' exclude='regexp'";
     }
     
+    /**
+     *  {@inheritDoc}
+     *
+     *  <p>The referring pages may change whenever any page is saved, so pages using this plugin are flushed from the caches whenever any
+     *  page changes.
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
     /**
      *  {@inheritDoc}
      */
     @Override
     public String execute( final Context context, final Map< String, String > params ) throws PluginException {
+        RenderingManager.addDependency( context, RenderingManager.ANY_PAGE );
         final ReferenceManager refmgr = context.getEngine().getManager( ReferenceManager.class );
         String pageName = params.get( PARAM_PAGE );
         final ResourceBundle rb = Preferences.getBundle( context, Plugin.CORE_PLUGINS_RESOURCEBUNDLE );
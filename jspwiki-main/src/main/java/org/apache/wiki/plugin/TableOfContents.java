@@ -92,6 +92,16 @@ public class TableOfContents implements Plugin, HeadingListener {
     public String getSnipExample() {
         return "TableOfContents";
     }
+
+    /**
+     *  {@inheritDoc}
+     *
+     *  <p>The table of contents only depends on the headings of the page.
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
     
     /**
      *  {@inheritDoc}
@@ -35,23 +35,33 @@ import org.apache.wiki.search.SearchResultComparator;
 import org.apache.wiki.util.FileUtil;
 import org.apache.wiki.util.TextUtil;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
 import org.apache.commons.lang3.SystemUtils;
 
 
@@ -62,6 +72,11 @@ import org.apache.commons.lang3.SystemUtils;
  *  on the files contents based on its name.
  *  <p>
  *  This class functions as a superclass to all file based providers.
+ *  <p>
+ *  The changes made to the pages are recorded on an append-only journal kept on the page directory, which answers
+ *  {@link #getAllChangedSince(Date)} by reading only its most recent entries. The journal is rebuilt from the modification dates of
+ *  the page files when it is missing, so changes made to the files behind the provider's back are only seen after a restart, and only
+ *  if the journal is deleted in between.
  *
  *  @since 2.1.21.
  */
@@ -103,11 +118,16 @@ public abstract class AbstractFileProvider implements PageProvider {
      */
     public static final String FILE_EXT = ".txt";
 
+    /** The extension of the temporary files written before replacing pages and their metadata. */
+    private static final String TEMP_EXT = ".tmp";
+
     /** The default encoding. */
     public static final String DEFAULT_ENCODING = StandardCharsets.ISO_8859_1.toString();
 
     private boolean m_windowsHackNeeded;
 
+    private volatile ChangeJournal m_journal;
+
     /**
      *  {@inheritDoc}
      *  @throws FileNotFoundException If the specified page directory does not exist.
@@ -142,9 +162,63 @@ public abstract class AbstractFileProvider implements PageProvider {
         MAX_PROPKEYLENGTH = TextUtil.getIntegerProperty( properties, PROP_CUSTOMPROP_MAXKEYLENGTH, DEFAULT_MAX_PROPKEYLENGTH );
         MAX_PROPVALUELENGTH = TextUtil.getIntegerProperty( properties, PROP_CUSTOMPROP_MAXVALUELENGTH, DEFAULT_MAX_PROPVALUELENGTH );
 
+        m_journal = openJournal();
         LOG.info( "Wikipages are read from '" + m_pageDirectory + "'" );
     }
 
+    /**
+     *  Opens the change journal of the page directory, first rebuilding it from the modification dates of the page files if it is
+     *  missing or has grown too large.
+     *
+     *  @return the journal, or null if it can't be used.
+     */
+    private ChangeJournal openJournal() {
+        final File file = new File( m_pageDirectory, ChangeJournal.FILE_NAME );
+        try {
+            if( !file.exists() || file.length() > ChangeJournal.MAX_SIZE ) {
+                final File[] wikipages = new File( m_pageDirectory ).listFiles( new WikiFileFilter() );
+                final File[] sorted = wikipages != null ? wikipages : new File[ 0 ];
+                Arrays.sort( sorted, Comparator.comparingLong( File::lastModified ) );
+                writeAtomically( file, out -> {
+                    final OutputStream buffered = new BufferedOutputStream( out );
+                    for( final File wikipage : sorted ) {
+                        final String filename = wikipage.getName();
+                        buffered.write( ChangeJournal.entry( wikipage.lastModified(), filename.substring( 0, filename.lastIndexOf( FILE_EXT ) ) ) );
+                    }
+                    buffered.flush();
+                }, -1L );
+                LOG.info( "Rebuilt the change journal from " + sorted.length + " pages" );
+            }
+            return ChangeJournal.open( file.toPath() );
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to open the change journal, recent changes will be looked up on all the pages: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     *  Records on the change journal that the given pages have just been changed, created, deleted or renamed, so that
+     *  {@link #getAllChangedSince(Date)} finds them. Subclasses changing page files other than through the methods of this class must
+     *  call this afterwards.
+     *
+     *  @param pages names of the changed pages.
+     *  @since 3.0.1
+     */
+    protected void pageChanged( final String... pages ) {
+        final ChangeJournal journal = m_journal;
+        if( journal != null ) {
+            final String[] mangled = Arrays.stream( pages ).map( this::mangleName ).toArray( String[]::new );
+            try {
+                journal.append( mangled );
+            } catch( final IOException e ) {
+                // The journal is missing changes from now on, so drop it; it will be rebuilt on the next start
+                LOG.error( "Unable to write the change journal, recent changes will be looked up on all the pages", e );
+                m_journal = null;
+                new File( m_pageDirectory, ChangeJournal.FILE_NAME ).delete();
+            }
+        }
+    }
+
 
     String getPageDirectory()
     {
@@ -290,13 +364,66 @@ public abstract class AbstractFileProvider implements PageProvider {
     @Override
     public void putPageText( final Page page, final String text ) throws ProviderException {
         final File file = findPage( page.getName() );
-        try( final PrintWriter out = new PrintWriter( new OutputStreamWriter( Files.newOutputStream( file.toPath() ), m_encoding ) ) ) {
-            out.print( obfuscate(text) );
+        try {
+            writeAtomically( file, out -> {
+                final PrintWriter writer = new PrintWriter( new OutputStreamWriter( out, m_encoding ) );
+                writer.print( obfuscate(text) );
+                writer.flush();
+            }, -1L );
+            pageChanged( page.getName() );
         } catch( final IOException e ) {
             LOG.error( "Saving failed", e );
         }
     }
 
+    /**
+     *  Writes a file through a temporary file on the same directory, which then replaces it atomically, so that readers of the file
+     *  never see it half-written.
+     *
+     *  @param file the file to write.
+     *  @param contents writes the contents of the file.
+     *  @param lastModified the modification time to give to the file, or -1 to keep the time it's written at.
+     *  @throws IOException if the file can't be written.
+     *  @since 3.0.1
+     */
+    protected void writeAtomically( final File file, final FileContents contents, final long lastModified ) throws IOException {
+        final Path target = file.toPath();
+        final Path temp = target.resolveSibling( "." + file.getName() + "." + Long.toHexString( ThreadLocalRandom.current().nextLong() ) + TEMP_EXT );
+        try {
+            try( final OutputStream out = Files.newOutputStream( temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE ) ) {
+                contents.writeTo( out );
+            }
+            if( lastModified >= 0L ) {
+                Files.setLastModifiedTime( temp, FileTime.fromMillis( lastModified ) );
+            }
+            try {
+                Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            } catch( final AtomicMoveNotSupportedException e ) {
+                Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+            }
+        } finally {
+            Files.deleteIfExists( temp );
+        }
+    }
+
+    /**
+     *  Writes the contents of a file, see {@link #writeAtomically(File, FileContents, long)}.
+     *
+     *  @since 3.0.1
+     */
+    @FunctionalInterface
+    protected interface FileContents {
+
+        /**
+         *  Writes the contents of the file.
+         *
+         *  @param out where to write the contents, which is closed afterwards.
+         *  @throws IOException if the contents can't be written.
+         */
+        void writeTo( OutputStream out ) throws IOException;
+
+    }
+
     /**
      *  {@inheritDoc}
      */
@@ -330,15 +457,49 @@ public abstract class AbstractFileProvider implements PageProvider {
     }
 
     /**
-     *  Does not work.
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    /**
+     *  Finds the pages changed since the given date on the change journal, or if it can't be used, by checking the modification date of
+     *  every page. Pages which were deleted since are not returned.
      *
      *  @param date {@inheritDoc}
-     *  @return {@inheritDoc}
+     *  @return {@inheritDoc}, the most recently changed first.
      */
     @Override
-    public Collection< Page > getAllChangedSince( final Date date )
-    {
-        return new ArrayList<>(); // FIXME
+    public Collection< Page > getAllChangedSince( final Date date ) {
+        final ChangeJournal journal = m_journal;
+        if( journal != null ) {
+            try {
+                final List< Page > changed = new ArrayList<>();
+                for( final String mangled : journal.changedSince( date.getTime() ) ) {
+                    final Page page = getPageInfo( unmangleName( mangled ), PageProvider.LATEST_VERSION );
+                    if( page != null ) {
+                        changed.add( page );
+                    }
+                }
+                return changed;
+            } catch( final IOException | ProviderException e ) {
+                LOG.error( "Unable to read the change journal, looking up recent changes on all the pages", e );
+            }
+        }
+
+        final List< Page > changed = new ArrayList<>();
+        try {
+            for( final Page page : getAllPages() ) {
+                if( page.getLastModified() != null && !page.getLastModified().before( date ) ) {
+                    changed.add( page );
+                }
+            }
+        } catch( final ProviderException e ) {
+            LOG.error( "Unable to list the pages changed since " + date, e );
+        }
+        return changed;
     }
 
     /**
@@ -432,6 +593,7 @@ public abstract class AbstractFileProvider implements PageProvider {
         if( version == WikiProvider.LATEST_VERSION ) {
             final File f = findPage( pageName );
             f.delete();
+            pageChanged( pageName );
         }
     }
 
@@ -442,6 +604,7 @@ public abstract class AbstractFileProvider implements PageProvider {
     public void deletePage( final String pageName ) throws ProviderException {
         final File f = findPage( pageName );
         f.delete();
+        pageChanged( pageName );
     }
 
     /**
@@ -31,7 +31,9 @@ import org.apache.wiki.api.providers.WikiProvider;
 import org.apache.wiki.api.search.QueryItem;
 import org.apache.wiki.attachment.AttachmentManager;
 import org.apache.wiki.cache.CacheInfo;
+import org.apache.wiki.cache.CacheInvalidation;
 import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.pages.PageTimeComparator;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.TextUtil;
 
@@ -71,6 +73,7 @@ public class CachingAttachmentProvider implements AttachmentProvider {
         LOG.info( "Initing CachingAttachmentProvider" );
         cachingManager = engine.getManager( CachingManager.class );
         cachingManager.registerListener( CachingManager.CACHE_ATTACHMENTS, "expired", allRequested );
+        cachingManager.addInvalidationListener( this::invalidated );
 
         // Find and initialize real provider.
         final String classname;
@@ -100,6 +103,7 @@ public class CachingAttachmentProvider implements AttachmentProvider {
         att.setLastModified( new Date() );
         cachingManager.put( CachingManager.CACHE_ATTACHMENTS, att.getName(), att );
         attachments.incrementAndGet();
+        cachingManager.publish( new CacheInvalidation( CachingManager.CACHE_ATTACHMENTS, CacheInvalidation.Type.PUT, att.getName() ) );
     }
 
     /**
@@ -156,11 +160,12 @@ public class CachingAttachmentProvider implements AttachmentProvider {
             final List< String > keys = cachingManager.keys( CachingManager.CACHE_ATTACHMENTS );
             all = new ArrayList<>();
             for( final String key : keys) {
-                final Attachment cachedAttachment = cachingManager.get( CachingManager.CACHE_ATTACHMENTS, key, () -> null );
-                if( cachedAttachment != null ) {
+                final Attachment cachedAttachment = cachingManager.peek( CachingManager.CACHE_ATTACHMENTS, key );
+                if( cachedAttachment != null && cachedAttachment.getLastModified().after( timestamp ) ) {
                     all.add( cachedAttachment );
                 }
             }
+            all.sort( new PageTimeComparator() );
         }
 
         if( cachingManager.enabled( CachingManager.CACHE_ATTACHMENTS )
@@ -223,6 +228,7 @@ public class CachingAttachmentProvider implements AttachmentProvider {
         if( att.getVersion() == PageProvider.LATEST_VERSION ) {
             attachments.decrementAndGet();
         }
+        cachingManager.publish( new CacheInvalidation( CachingManager.CACHE_ATTACHMENTS, CacheInvalidation.Type.REMOVE, att.getName() ) );
     }
 
     /**
@@ -234,6 +240,7 @@ public class CachingAttachmentProvider implements AttachmentProvider {
         cachingManager.remove( CachingManager.CACHE_ATTACHMENTS, att.getName() );
         provider.deleteAttachment( att );
         attachments.decrementAndGet();
+        cachingManager.publish( new CacheInvalidation( CachingManager.CACHE_ATTACHMENTS, CacheInvalidation.Type.DELETE, att.getName() ) );
     }
 
     /**
@@ -267,6 +274,12 @@ public class CachingAttachmentProvider implements AttachmentProvider {
     @Override
     public void moveAttachmentsForPage( final String oldParent, final String newParent ) throws ProviderException {
         provider.moveAttachmentsForPage( oldParent, newParent );
+        forgetAttachmentsOf( oldParent, newParent );
+        cachingManager.publish( new CacheInvalidation( CachingManager.CACHE_ATTACHMENTS_COLLECTION, CacheInvalidation.Type.RENAME,
+                                                       oldParent, newParent ) );
+    }
+
+    private void forgetAttachmentsOf( final String oldParent, final String newParent ) {
         cachingManager.remove( CachingManager.CACHE_ATTACHMENTS_COLLECTION, newParent );
         cachingManager.remove( CachingManager.CACHE_ATTACHMENTS_COLLECTION, oldParent );
 
@@ -280,4 +293,25 @@ public class CachingAttachmentProvider implements AttachmentProvider {
         }
     }
 
+    /**
+     * Removes from the caches an attachment changed on a peer node, or the attachments of a page whose attachments were moved on it.
+     * The list of all attachments is read again from the real provider the next time it's requested, as it may have changed as well.
+     *
+     * @param invalidation the invalidation broadcast by the peer node.
+     */
+    void invalidated( final CacheInvalidation invalidation ) {
+        if( CachingManager.CACHE_ATTACHMENTS.equals( invalidation.getCacheName() ) ) {
+            final String name = invalidation.getName();
+            final int parent = name.lastIndexOf( '/' );
+            if( parent != -1 ) {
+                cachingManager.remove( CachingManager.CACHE_ATTACHMENTS_COLLECTION, name.substring( 0, parent ) );
+            }
+            cachingManager.remove( CachingManager.CACHE_ATTACHMENTS, name );
+            allRequested.set( false );
+        } else if( CachingManager.CACHE_ATTACHMENTS_COLLECTION.equals( invalidation.getCacheName() ) ) {
+            forgetAttachmentsOf( invalidation.getName(), invalidation.getNewName() );
+            allRequested.set( false );
+        }
+    }
+
 }
\ No newline at end of file
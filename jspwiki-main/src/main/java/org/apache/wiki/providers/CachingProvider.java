@@ -30,7 +30,9 @@ import org.apache.wiki.api.search.QueryItem;
 import org.apache.wiki.api.search.SearchResult;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.cache.CacheInfo;
+import org.apache.wiki.cache.CacheInvalidation;
 import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.cache.ContentDigest;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.render.RenderingManager;
@@ -38,13 +40,13 @@ import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.TextUtil;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 
@@ -52,7 +54,13 @@ import java.util.concurrent.atomic.AtomicLong;
  *  Provides a caching page provider.  This class rests on top of a real provider class and provides a cache to speed things up.  Only
  *  if the cache copy of the page text has expired, we fetch it from the provider.
  *  <p>
- *  This class does not detect if someone has modified the page externally, not through JSPWiki routines.
+ *  Every page is listed on a compact catalog of page metadata as well, which lets all pages be listed cheaply even if the page cache
+ *  can't hold them all.
+ *  <p>
+ *  This class does not detect if someone has modified the page externally, not through JSPWiki routines. The text and history kept
+ *  on the disk tier of the page caches (see {@link CachingManager#PROP_DISK_TIER}) are checked against the version and modification
+ *  time of their page when read, so pages modified while the wiki is stopped are read again. Nodes sharing the page storage detect the
+ *  pages modified by each other if they broadcast their invalidations (see {@link CachingManager#PROP_INVALIDATION_TRANSPORT}).
  *  <p>
  *  Heavily based on ideas by Chris Brooking.
  *  <p>
@@ -68,7 +76,7 @@ public class CachingProvider implements PageProvider {
     private PageProvider provider;
     private Engine engine;
 
-    private final AtomicBoolean allRequested = new AtomicBoolean();
+    private PageCatalog catalog;
     private final AtomicLong pages = new AtomicLong( 0L );
 
     /**
@@ -80,8 +88,12 @@ public class CachingProvider implements PageProvider {
 
         // engine is used for getting the search engine
         this.engine = engine;
+        catalog = new PageCatalog( engine );
         cachingManager = this.engine.getManager( CachingManager.class );
-        cachingManager.registerListener( CachingManager.CACHE_PAGES, "expired", allRequested );
+        cachingManager.registerCodec( CachingManager.CACHE_PAGES_HISTORY, new PageHistoryCodec( engine ) );
+        cachingManager.registerStamp( CachingManager.CACHE_PAGES_TEXT, this::stamp );
+        cachingManager.registerStamp( CachingManager.CACHE_PAGES_HISTORY, this::stamp );
+        cachingManager.addInvalidationListener( this::invalidated );
 
         //  Find and initialize real provider.
         final String classname;
@@ -106,7 +118,7 @@ public class CachingProvider implements PageProvider {
         if( name == null ) {
             return null;
         }
-        return cachingManager.get( CachingManager.CACHE_PAGES, name, () -> provider.getPageInfo( name, PageProvider.LATEST_VERSION ) );
+        return cachingManager.get( CachingManager.CACHE_PAGES, name, () -> catalog.update( provider.getPageInfo( name, PageProvider.LATEST_VERSION ) ) );
     }
 
 
@@ -211,7 +223,9 @@ public class CachingProvider implements PageProvider {
 
         return cachingManager.get( CachingManager.CACHE_PAGES_TEXT, pageName, () -> {
             if( pageExists( pageName ) ) {
-                return provider.getPageText( pageName, PageProvider.LATEST_VERSION );
+                final String text = provider.getPageText( pageName, PageProvider.LATEST_VERSION );
+                ContentDigest.of( text ); // digest the text once, so rendering it can check its cached documents cheaply
+                return text;
             }
             return null;
         } );
@@ -234,6 +248,7 @@ public class CachingProvider implements PageProvider {
             getPageInfoFromCache( page.getName() );
         }
         pages.incrementAndGet();
+        cachingManager.publish( new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.PUT, page.getName() ) );
     }
 
     /**
@@ -241,36 +256,29 @@ public class CachingProvider implements PageProvider {
      */
     @Override
     public Collection< Page > getAllPages() throws ProviderException {
-        final Collection< Page > all;
-        if ( !allRequested.get() ) {
-            all = provider.getAllPages();
-            // Make sure that all pages are in the cache.
+        if( !catalog.isLoaded() ) {
+            // pages are saved, deleted and moved while holding this lock, so the load doesn't lose any of those changes
             synchronized( this ) {
-                for( final Page p : all ) {
-                    cachingManager.put( CachingManager.CACHE_PAGES,  p.getName(), p );
-                }
-                allRequested.set( true );
-            }
-            pages.set( all.size() );
-        } else {
-            final List< String > keys = cachingManager.keys( CachingManager.CACHE_PAGES );
-            all = new TreeSet<>();
-            for( final String key : keys ) {
-                final Page cachedPage = cachingManager.get( CachingManager.CACHE_PAGES, key, () -> null );
-                if( cachedPage != null ) {
-                    all.add( cachedPage );
+                if( !catalog.isLoaded() ) {
+                    final Collection< Page > all = provider.getAllPages();
+                    // Make sure that all pages are in the cache, as long as they fit, and in the catalog.
+                    for( final Page p : all ) {
+                        cachingManager.put( CachingManager.CACHE_PAGES,  p.getName(), p );
+                    }
+                    catalog.load( all );
+                    pages.set( all.size() );
+                    return all;
                 }
             }
         }
 
-        if( cachingManager.enabled( CachingManager.CACHE_PAGES )
-                && pages.get() >= cachingManager.info( CachingManager.CACHE_PAGES ).getMaxElementsAllowed() ) {
-            LOG.warn( "seems {} can't hold all pages from your page repository, " +
-                    "so we're delegating on the underlying provider instead. Please consider increasing " +
-                    "your cache sizes on the ehcache configuration file to avoid this behaviour", CachingManager.CACHE_PAGES );
-            return provider.getAllPages();
+        // Cached pages carry all their metadata; the ones evicted from the cache are rebuilt from the catalog. Only peeking at the cache
+        // keeps listing every page from counting as a request of each one.
+        final Collection< Page > all = new TreeSet<>();
+        for( final PageCatalog.Entry entry : catalog.entries() ) {
+            final Page cachedPage = cachingManager.peek( CachingManager.CACHE_PAGES, entry.name );
+            all.add( cachedPage != null ? cachedPage : catalog.toPage( entry ) );
         }
-
         return all;
     }
 
@@ -282,11 +290,22 @@ public class CachingProvider implements PageProvider {
         return provider.getAllChangedSince( date );
     }
 
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean tracksChanges() {
+        return provider.tracksChanges();
+    }
+
     /**
      *  {@inheritDoc}
      */
     @Override
     public int getPageCount() throws ProviderException {
+        if( catalog.isLoaded() ) {
+            return catalog.size();
+        }
         return provider.getPageCount();
     }
 
@@ -379,10 +398,15 @@ public class CachingProvider implements PageProvider {
 
             provider.deleteVersion( pageName, version );
             cachingManager.remove( CachingManager.CACHE_PAGES_HISTORY, pageName );
+            if( version == PageProvider.LATEST_VERSION || version == latestcached ) {
+                catalog.remove( pageName );
+                getPageInfoFromCache( pageName ); // catalog the version now latest, if any
+            }
         }
         if( version == PageProvider.LATEST_VERSION ) {
             pages.decrementAndGet();
         }
+        cachingManager.publish( new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.REMOVE, pageName ) );
     }
 
     /**
@@ -396,8 +420,10 @@ public class CachingProvider implements PageProvider {
             cachingManager.put( CachingManager.CACHE_PAGES_TEXT, pageName, null );
             cachingManager.put( CachingManager.CACHE_PAGES_HISTORY, pageName, null );
             provider.deletePage( pageName );
+            catalog.remove( pageName );
         }
         pages.decrementAndGet();
+        cachingManager.publish( new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.DELETE, pageName ) );
     }
 
     /**
@@ -415,6 +441,54 @@ public class CachingProvider implements PageProvider {
             cachingManager.remove( CachingManager.CACHE_PAGES, to );
             cachingManager.remove( CachingManager.CACHE_PAGES_TEXT, to );
             cachingManager.remove( CachingManager.CACHE_PAGES_HISTORY, to );
+            catalog.remove( from );
+            getPageInfoFromCache( to );
+        }
+        cachingManager.publish( new CacheInvalidation( CachingManager.CACHE_PAGES, CacheInvalidation.Type.RENAME, from, to ) );
+    }
+
+    /**
+     *  Stamps the text and history of a page kept on the disk tier with the version and modification time of the page, so they're not
+     *  served once the page is changed behind the back of the cache.
+     *
+     *  @param name page name.
+     *  @return the stamp of the page, or {@code null} if it doesn't exist.
+     *  @throws ProviderException if the page can't be read.
+     */
+    String stamp( final Serializable name ) throws ProviderException {
+        final Page page = getPageInfoFromCache( ( String )name );
+        if( page == null ) {
+            return null;
+        }
+        final Date lastModified = page.getLastModified();
+        return page.getVersion() + ":" + ( lastModified != null ? lastModified.getTime() : 0L );
+    }
+
+    /**
+     *  Removes from the caches a page changed on a peer node, along with the page it's renamed to, and catalogs them again.
+     *
+     *  @param invalidation the invalidation broadcast by the peer node.
+     */
+    void invalidated( final CacheInvalidation invalidation ) {
+        if( CachingManager.CACHE_PAGES.equals( invalidation.getCacheName() ) ) {
+            synchronized( this ) {
+                reload( invalidation.getName() );
+                if( invalidation.getNewName() != null ) {
+                    reload( invalidation.getNewName() );
+                }
+            }
+        }
+    }
+
+    private void reload( final String pageName ) {
+        cachingManager.remove( CachingManager.CACHE_PAGES, pageName );
+        cachingManager.remove( CachingManager.CACHE_PAGES_TEXT, pageName );
+        cachingManager.remove( CachingManager.CACHE_PAGES_HISTORY, pageName );
+        catalog.remove( pageName );
+        try {
+            getPageInfoFromCache( pageName );
+        } catch( final ProviderException e ) {
+            LOG.warn( "Unable to catalog page {} changed on a peer node: {}", pageName, e.getMessage() );
         }
     }
 
@@ -0,0 +1,198 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+
+/**
+ *  The append-only journal of the changes made to the pages of an {@link AbstractFileProvider}, which has one line per changed page
+ *  with the time of the change and the mangled name of the page. Lines are only ever appended, with times that never go backwards, so
+ *  the pages changed since a given time are found by reading the journal backwards from its end until an older line turns up.
+ *
+ *  @since 3.0.1
+ */
+final class ChangeJournal {
+
+    private static final Logger LOG = LogManager.getLogger( ChangeJournal.class );
+
+    /** Name of the journal file, on the page directory. */
+    static final String FILE_NAME = "changes.journal";
+
+    /** Journals growing larger than this are rebuilt when opened, so that they do not grow forever. */
+    static final long MAX_SIZE = 8L * 1024L * 1024L;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Path m_file;
+    private long m_lastStamp;
+
+    private ChangeJournal( final Path file ) {
+        m_file = file;
+    }
+
+    /**
+     *  Opens the given journal, dropping the line which was being appended to it if it was left incomplete.
+     *
+     *  @param file the journal file, which must exist.
+     *  @return the opened journal.
+     *  @throws IOException if the journal can't be read.
+     */
+    static ChangeJournal open( final Path file ) throws IOException {
+        final ChangeJournal journal = new ChangeJournal( file );
+        try( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE ) ) {
+            final long end = lineEnd( channel );
+            if( end < channel.size() ) {
+                LOG.warn( "Dropping the incomplete last line of " + file );
+                channel.truncate( end );
+            }
+        }
+        journal.changedSince( Long.MAX_VALUE ); // finds the time of the last change
+        return journal;
+    }
+
+    /**
+     *  Position past the last line separator of the journal.
+     */
+    private static long lineEnd( final FileChannel channel ) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate( 1 );
+        for( long pos = channel.size() - 1; pos >= 0; pos-- ) {
+            buffer.clear();
+            if( channel.read( buffer, pos ) == 1 && buffer.get( 0 ) == '\n' ) {
+                return pos + 1;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     *  The journal line of a change.
+     *
+     *  @param stamp time of the change.
+     *  @param page mangled name of the changed page.
+     *  @return the line, separator included.
+     */
+    static byte[] entry( final long stamp, final String page ) {
+        return ( stamp + " " + page + "\n" ).getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     *  Records that the given pages were changed now.
+     *
+     *  @param pages mangled names of the changed pages.
+     *  @throws IOException if the journal can't be written.
+     */
+    synchronized void append( final String... pages ) throws IOException {
+        final long stamp = Math.max( System.currentTimeMillis(), m_lastStamp ); // keeps the journal sorted if the clock is set back
+        final StringBuilder lines = new StringBuilder();
+        for( final String page : pages ) {
+            lines.append( stamp ).append( ' ' ).append( page ).append( '\n' );
+        }
+        Files.write( m_file, lines.toString().getBytes( StandardCharsets.UTF_8 ), StandardOpenOption.APPEND );
+        m_lastStamp = stamp;
+    }
+
+    /**
+     *  Reads the journal backwards from its end, up to the first change made before the given time.
+     *
+     *  @param since time of the oldest changes to return.
+     *  @return the mangled names of the pages changed since then, the most recently changed first.
+     *  @throws IOException if the journal can't be read.
+     */
+    Set< String > changedSince( final long since ) throws IOException {
+        final Set< String > pages = new LinkedHashSet<>();
+        try( final FileChannel channel = FileChannel.open( m_file, StandardOpenOption.READ ) ) {
+            long pos = channel.size();
+            byte[] carry = new byte[ 0 ]; // start of the line read last, which begins on an earlier chunk
+            boolean atEnd = true;         // whether the end of the journal, maybe a line still being appended, is yet to be skipped
+            while( pos > 0L ) {
+                final int length = ( int )Math.min( CHUNK_SIZE, pos );
+                pos -= length;
+                final byte[] bytes = Arrays.copyOf( read( channel, pos, length ), length + carry.length );
+                System.arraycopy( carry, 0, bytes, length, carry.length );
+
+                int end = bytes.length;
+                for( int i = bytes.length - 1; i >= 0; i-- ) {
+                    if( bytes[ i ] == '\n' ) {
+                        if( atEnd ) {
+                            atEnd = false;
+                        } else if( !accept( bytes, i + 1, end, since, pages ) ) {
+                            return pages;
+                        }
+                        end = i;
+                    }
+                }
+                carry = Arrays.copyOf( bytes, end );
+            }
+            if( !atEnd ) {
+                accept( carry, 0, carry.length, since, pages );
+            }
+        }
+        return pages;
+    }
+
+    private static byte[] read( final FileChannel channel, final long pos, final int length ) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate( length );
+        while( buffer.hasRemaining() ) {
+            if( channel.read( buffer, pos + buffer.position() ) < 0 ) {
+                throw new EOFException( "Journal shrunk while being read" );
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     *  Adds the page of the given line to the changed ones, unless it was changed before the given time.
+     *
+     *  @return false if the line is older than the given time, which ends the reading.
+     */
+    private boolean accept( final byte[] bytes, final int start, final int end, final long since, final Set< String > pages ) {
+        final String line = new String( bytes, start, end - start, StandardCharsets.UTF_8 );
+        final int space = line.indexOf( ' ' );
+        final long stamp;
+        try {
+            stamp = Long.parseLong( line.substring( 0, Math.max( space, 0 ) ) );
+        } catch( final NumberFormatException e ) {
+            LOG.debug( "Skipping malformed journal line: " + line );
+            return true;
+        }
+        synchronized( this ) {
+            m_lastStamp = Math.max( m_lastStamp, stamp );
+        }
+        if( stamp < since ) {
+            return false;
+        }
+        pages.add( line.substring( space + 1 ) );
+        return true;
+    }
+
+}
@@ -0,0 +1,541 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.NoRequiredPropertyException;
+import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.api.providers.AttachmentProvider;
+import org.apache.wiki.api.providers.WikiProvider;
+import org.apache.wiki.api.search.QueryItem;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.pages.PageTimeComparator;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ *  Keeps the attachments and all their versions on a database table, one row per version, looking up the JDBC DataSource through
+ *  JNDI like the {@link JDBCPageProvider} does. The table is keyed by page, attachment name and version, and indexed by modification
+ *  date. The attachment data is kept on a BLOB column, which is streamed to the database when saved and from it when read, so
+ *  attachments are never held in memory as a whole.
+ *  <p>
+ *  The table, whose name can be set with {@value #PROP_DB_TABLE}, has these columns:
+ *  </p>
+ *  <table>
+ *  <tr><td><code>page</code></td><td>name of the page the attachment belongs to</td></tr>
+ *  <tr><td><code>name</code></td><td>file name of the attachment</td></tr>
+ *  <tr><td><code>version</code></td><td>version number, starting at 1</td></tr>
+ *  <tr><td><code>modified</code></td><td>timestamp of the version, indexed</td></tr>
+ *  <tr><td><code>author</code></td><td>author of the version</td></tr>
+ *  <tr><td><code>changenote</code></td><td>change note of the version</td></tr>
+ *  <tr><td><code>attributes</code></td><td>custom properties, in the properties file format</td></tr>
+ *  <tr><td><code>content_size</code></td><td>size of the data, in bytes</td></tr>
+ *  <tr><td><code>content</code></td><td>data of the version</td></tr>
+ *  </table>
+ *
+ *  @since 3.0.1
+ */
+public class JDBCAttachmentProvider implements AttachmentProvider {
+
+    private static final Logger LOG = LogManager.getLogger( JDBCAttachmentProvider.class );
+
+    /** Default JNDI name of the DataSource. */
+    public static final String DEFAULT_DB_JNDI_NAME = "jdbc/AttachmentDatabase";
+
+    /** Default name of the table holding the attachments. */
+    public static final String DEFAULT_DB_TABLE = "attachments";
+
+    /** JNDI name of the DataSource. Value is {@value}. */
+    public static final String PROP_DB_DATASOURCE = "jspwiki.jdbcAttachmentProvider.datasource";
+
+    /** Name of the table holding the attachments. Value is {@value}. */
+    public static final String PROP_DB_TABLE = "jspwiki.jdbcAttachmentProvider.table";
+
+    private static final String INFO_COLUMNS = "page, name, version, modified, author, changenote, attributes, content_size";
+
+    private Engine m_engine;
+    private JDBCStore m_store;
+
+    private String m_findLatestVersion;
+    private String m_findVersion;
+    private String m_findHistory;
+    private String m_findByPage;
+    private String m_findChangedSince;
+    private String m_findContent;
+    private String m_insertVersion;
+    private String m_updateContent;
+    private String m_updateSize;
+    private String m_deleteVersion;
+    private String m_deleteAttachment;
+    private String m_countByPage;
+    private String m_movePage;
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void initialize( final Engine engine, final Properties properties ) throws NoRequiredPropertyException, IOException {
+        m_engine = engine;
+        final String jndiName = properties.getProperty( PROP_DB_DATASOURCE, DEFAULT_DB_JNDI_NAME );
+        final String table = properties.getProperty( PROP_DB_TABLE, DEFAULT_DB_TABLE );
+        final String latest = " version=(SELECT MAX(version) FROM " + table + " q WHERE q.page=a.page AND q.name=a.name)";
+
+        m_findLatestVersion = "SELECT MAX(version) FROM " + table + " WHERE page=? AND name=?";
+        m_findVersion = "SELECT " + INFO_COLUMNS + " FROM " + table + " WHERE page=? AND name=? AND version=?";
+        m_findHistory = "SELECT " + INFO_COLUMNS + " FROM " + table + " WHERE page=? AND name=? ORDER BY version DESC";
+        m_findByPage = "SELECT " + INFO_COLUMNS + " FROM " + table + " a WHERE page=? AND" + latest;
+        m_findChangedSince = "SELECT " + INFO_COLUMNS + " FROM " + table + " a WHERE modified>? AND" + latest;
+        m_findContent = "SELECT content FROM " + table + " WHERE page=? AND name=? AND version=?";
+        m_insertVersion = "INSERT INTO " + table + " (" + INFO_COLUMNS + ", content) VALUES (?,?,?,?,?,?,?,?,?)";
+        m_updateContent = "UPDATE " + table + " SET content=? WHERE page=? AND name=? AND version=?";
+        m_updateSize = "UPDATE " + table + " SET content_size=? WHERE page=? AND name=? AND version=?";
+        m_deleteVersion = "DELETE FROM " + table + " WHERE page=? AND name=? AND version=?";
+        m_deleteAttachment = "DELETE FROM " + table + " WHERE page=? AND name=?";
+        m_countByPage = "SELECT COUNT(*) FROM " + table + " WHERE page=?";
+        m_movePage = "UPDATE " + table + " SET page=? WHERE page=?";
+
+        m_store = JDBCStore.lookup( jndiName, PROP_DB_DATASOURCE, table );
+        LOG.info( "JDBCAttachmentProvider initialized from JNDI DataSource: {}", jndiName );
+    }
+
+    /**
+     *  Latest version of the attachment, or -1 if there is none.
+     */
+    private int findLatestVersion( final Connection conn, final String page, final String name ) throws SQLException {
+        try( final PreparedStatement ps = conn.prepareStatement( m_findLatestVersion ) ) {
+            ps.setString( 1, page );
+            ps.setString( 2, name );
+            try( final ResultSet rs = ps.executeQuery() ) {
+                final int version = rs.next() ? rs.getInt( 1 ) : 0;
+                return version > 0 ? version : -1;
+            }
+        }
+    }
+
+    private int resolve( final Connection conn, final Attachment att ) throws SQLException {
+        return att.getVersion() == WikiProvider.LATEST_VERSION ? findLatestVersion( conn, att.getParentName(), att.getFileName() )
+                                                               : att.getVersion();
+    }
+
+    private Attachment toAttachment( final ResultSet rs ) throws SQLException {
+        final Attachment att = Wiki.contents().attachment( m_engine, rs.getString( "page" ), rs.getString( "name" ) );
+        att.setVersion( rs.getInt( "version" ) );
+        att.setLastModified( new Date( rs.getTimestamp( "modified" ).getTime() ) );
+        att.setAuthor( rs.getString( "author" ) );
+        att.setSize( rs.getLong( "content_size" ) );
+        final String changeNote = rs.getString( "changenote" );
+        if( changeNote != null ) {
+            att.setAttribute( Page.CHANGENOTE, changeNote );
+        }
+        JDBCStore.setCustomProperties( att, rs.getString( "attributes" ) );
+        return att;
+    }
+
+    private List< Attachment > findAttachments( final String sql, final Object... params ) throws SQLException {
+        try( final Connection conn = m_store.connection(); final PreparedStatement ps = conn.prepareStatement( sql ) ) {
+            for( int i = 0; i < params.length; i++ ) {
+                ps.setObject( i + 1, params[ i ] );
+            }
+            try( final ResultSet rs = ps.executeQuery() ) {
+                final List< Attachment > attachments = new ArrayList<>();
+                while( rs.next() ) {
+                    attachments.add( toAttachment( rs ) );
+                }
+                return attachments;
+            }
+        }
+    }
+
+    /**
+     *  Inserts a version of the attachment, streaming its data to the database and recording its size afterwards.
+     */
+    private void insert( final Connection conn, final Attachment att, final int version, final long lastModified, final InputStream data )
+            throws SQLException {
+        reserve( conn, att, version, lastModified );
+        store( conn, att, version, data );
+    }
+
+    /**
+     *  Inserts a version of the attachment with no data yet. The data is only streamed once the version is known to be free, as a
+     *  stream can't be read again if the insert has to be retried with another version.
+     */
+    private void reserve( final Connection conn, final Attachment att, final int version, final long lastModified ) throws SQLException {
+        try( final PreparedStatement insert = conn.prepareStatement( m_insertVersion ) ) {
+            String author = att.getAuthor();
+            if( author == null ) {
+                author = "unknown"; // FIXME: Should be localized, but cannot due to missing WikiContext
+            }
+            insert.setString( 1, att.getParentName() );
+            insert.setString( 2, att.getFileName() );
+            insert.setInt( 3, version );
+            insert.setTimestamp( 4, new Timestamp( lastModified ) );
+            insert.setString( 5, author );
+            insert.setString( 6, att.getAttribute( Page.CHANGENOTE ) );
+            insert.setString( 7, JDBCStore.customProperties( att ) );
+            insert.setLong( 8, 0L );
+            insert.setBytes( 9, new byte[ 0 ] );
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     *  Streams the data of a reserved version of the attachment to the database, recording its size afterwards.
+     */
+    private void store( final Connection conn, final Attachment att, final int version, final InputStream data ) throws SQLException {
+        final CountingInputStream in = new CountingInputStream( data );
+        try( final PreparedStatement content = conn.prepareStatement( m_updateContent );
+             final PreparedStatement size = conn.prepareStatement( m_updateSize ) ) {
+            content.setBinaryStream( 1, in );
+            content.setString( 2, att.getParentName() );
+            content.setString( 3, att.getFileName() );
+            content.setInt( 4, version );
+            content.executeUpdate();
+
+            size.setLong( 1, in.m_count );
+            size.setString( 2, att.getParentName() );
+            size.setString( 3, att.getFileName() );
+            size.setInt( 4, version );
+            size.executeUpdate();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void putAttachmentData( final Attachment att, final InputStream data ) throws ProviderException, IOException {
+        LOG.info( "Uploading attachment " + att.getFileName() + " to page " + att.getParentName() );
+        try {
+            m_store.inTransaction( conn -> {
+                final int version = JDBCStore.insertNextVersion( conn, c -> findLatestVersion( c, att.getParentName(), att.getFileName() ),
+                                                                 ( c, v ) -> reserve( c, att, v, System.currentTimeMillis() ) );
+                store( conn, att, version, data );
+                return version;
+            } );
+        } catch( final SQLException e ) {
+            LOG.error( "Could not save attachment data: ", e );
+            throw new IOException( "Could not save attachment data: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public String getProviderInfo() {
+        return "";
+    }
+
+    /**
+     *  Streams the attachment data from the database; the connection it is read on is released when the returned stream is closed.
+     *
+     *  {@inheritDoc}
+     */
+    @Override
+    public InputStream getAttachmentData( final Attachment att ) throws IOException, ProviderException {
+        final Connection conn;
+        final boolean autoCommit;
+        try {
+            conn = m_store.connection();
+            autoCommit = conn.getAutoCommit();
+        } catch( final SQLException e ) {
+            LOG.error( "Could not read attachment data: ", e );
+            throw new IOException( "Could not read attachment data: " + e.getMessage(), e );
+        }
+        boolean streaming = false;
+        try {
+            conn.setAutoCommit( false ); // LOBs are only readable within the transaction they were obtained in
+            final PreparedStatement ps = conn.prepareStatement( m_findContent );
+            ps.setString( 1, att.getParentName() );
+            ps.setString( 2, att.getFileName() );
+            ps.setInt( 3, resolve( conn, att ) );
+            final ResultSet rs = ps.executeQuery();
+            if( !rs.next() ) {
+                throw new ProviderException( "No such attachment was found." );
+            }
+            final InputStream data = new ResultInputStream( rs.getBinaryStream( 1 ), conn, autoCommit );
+            streaming = true;
+            return data;
+        } catch( final SQLException e ) {
+            LOG.error( "Could not read attachment data: ", e );
+            throw new IOException( "Could not read attachment data: " + e.getMessage(), e );
+        } finally {
+            if( !streaming ) {
+                try {
+                    JDBCStore.release( conn, autoCommit );
+                } catch( final SQLException e ) {
+                    LOG.warn( "Unable to release the connection of an attachment: " + e.getMessage() );
+                }
+            }
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public List< Attachment > listAttachments( final Page page ) throws ProviderException {
+        try {
+            return findAttachments( m_findByPage, page.getName() );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to list the attachments of " + page.getName(), e );
+            throw new ProviderException( "Could not list the attachments: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< Attachment > findAttachments( final QueryItem[] query ) {
+        return new ArrayList<>();
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public List< Attachment > listAllChanged( final Date timestamp ) throws ProviderException {
+        try {
+            final List< Attachment > list = findAttachments( m_findChangedSince, new Timestamp( timestamp.getTime() ) );
+            list.sort( new PageTimeComparator() );
+            return list;
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to list the attachments changed since " + timestamp, e );
+            throw new ProviderException( "Could not list the attachments: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Attachment getAttachmentInfo( final Page page, final String name, final int version ) throws ProviderException {
+        try( final Connection conn = m_store.connection(); final PreparedStatement ps = conn.prepareStatement( m_findVersion ) ) {
+            ps.setString( 1, page.getName() );
+            ps.setString( 2, name );
+            ps.setInt( 3, version == WikiProvider.LATEST_VERSION ? findLatestVersion( conn, page.getName(), name ) : version );
+            try( final ResultSet rs = ps.executeQuery() ) {
+                return rs.next() ? toAttachment( rs ) : null;
+            }
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to read " + name + " of " + page.getName(), e );
+            throw new ProviderException( "Could not read attachment info: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public List< Attachment > getVersionHistory( final Attachment att ) {
+        try {
+            return findAttachments( m_findHistory, att.getParentName(), att.getFileName() );
+        } catch( final SQLException e ) {
+            LOG.error( "Getting version history failed for page: " + att, e );
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void deleteVersion( final Attachment att ) throws ProviderException {
+        try {
+            m_store.inTransaction( conn -> {
+                try( final PreparedStatement ps = conn.prepareStatement( m_deleteVersion ) ) {
+                    ps.setString( 1, att.getParentName() );
+                    ps.setString( 2, att.getFileName() );
+                    ps.setInt( 3, resolve( conn, att ) );
+                    return ps.executeUpdate();
+                }
+            } );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to delete " + att, e );
+            throw new ProviderException( "Could not delete attachment version: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void deleteAttachment( final Attachment att ) throws ProviderException {
+        try {
+            m_store.inTransaction( conn -> {
+                try( final PreparedStatement ps = conn.prepareStatement( m_deleteAttachment ) ) {
+                    ps.setString( 1, att.getParentName() );
+                    ps.setString( 2, att.getFileName() );
+                    return ps.executeUpdate();
+                }
+            } );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to delete " + att, e );
+            throw new ProviderException( "Could not delete attachment: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void moveAttachmentsForPage( final String oldParent, final String newParent ) throws ProviderException {
+        try {
+            m_store.inTransaction( conn -> {
+                try( final PreparedStatement count = conn.prepareStatement( m_countByPage );
+                     final PreparedStatement move = conn.prepareStatement( m_movePage ) ) {
+                    count.setString( 1, newParent );
+                    try( final ResultSet rs = count.executeQuery() ) {
+                        if( rs.next() && rs.getInt( 1 ) > 0 ) {
+                            LOG.error( "Page rename failed because " + newParent + " already has attachments" );
+                            return 0;
+                        }
+                    }
+                    move.setString( 1, newParent );
+                    move.setString( 2, oldParent );
+                    return move.executeUpdate();
+                }
+            } );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to move the attachments of " + oldParent + " to " + newParent, e );
+            throw new ProviderException( "Could not move attachments: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  Copies into the table all the versions of the attachments of the given provider, keeping their version numbers, dates, authors
+     *  and change notes. Each attachment is copied in a transaction of its own, streaming the data of its versions; the attachments
+     *  the table already has are skipped, so an import which was interrupted may be run again.
+     *
+     *  @param source provider holding the attachments to copy, already initialized.
+     *  @return the number of attachment versions copied.
+     *  @throws ProviderException if the attachments can't be read from the source, or written to the table.
+     */
+    public int importAttachments( final AttachmentProvider source ) throws ProviderException {
+        int imported = 0;
+        for( final Attachment att : source.listAllChanged( new Date( 0L ) ) ) {
+            if( getAttachmentInfo( Wiki.contents().page( m_engine, att.getParentName() ), att.getFileName(), WikiProvider.LATEST_VERSION ) != null ) {
+                continue;
+            }
+            final List< Attachment > history = new ArrayList<>( source.getVersionHistory( att ) );
+            history.sort( Comparator.comparingInt( Attachment::getVersion ) );
+            try {
+                imported += m_store.inTransaction( conn -> {
+                    int copied = 0;
+                    for( final Attachment version : history ) {
+                        try( final InputStream data = source.getAttachmentData( version ) ) {
+                            final long lastModified = version.getLastModified() != null ? version.getLastModified().getTime()
+                                                                                        : System.currentTimeMillis();
+                            insert( conn, version, version.getVersion(), lastModified, data );
+                            copied++;
+                        } catch( final IOException | ProviderException e ) {
+                            throw new SQLException( "Unable to read " + version + ": " + e.getMessage(), e );
+                        }
+                    }
+                    return copied;
+                } );
+            } catch( final SQLException e ) {
+                LOG.error( "Importing " + att + " failed", e );
+                throw new ProviderException( "Could not import attachment " + att.getName() + ": " + e.getMessage() );
+            }
+        }
+        LOG.info( "Imported " + imported + " attachment versions from " + source.getClass().getName() );
+        return imported;
+    }
+
+    /**
+     *  Counts the bytes streamed to the database.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        long m_count;
+
+        CountingInputStream( final InputStream in ) {
+            super( in );
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if( b >= 0 ) {
+                m_count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read( final byte[] b, final int off, final int len ) throws IOException {
+            final int read = super.read( b, off, len );
+            if( read > 0 ) {
+                m_count += read;
+            }
+            return read;
+        }
+
+    }
+
+    /**
+     *  Attachment data streamed from the database, which releases the connection it is read on when closed.
+     */
+    private static final class ResultInputStream extends FilterInputStream {
+
+        private final Connection m_conn;
+        private final boolean m_autoCommit;
+
+        ResultInputStream( final InputStream in, final Connection conn, final boolean autoCommit ) {
+            super( in );
+            m_conn = conn;
+            m_autoCommit = autoCommit;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                try {
+                    JDBCStore.release( m_conn, m_autoCommit ); // also closes the statement and the result set
+                } catch( final SQLException e ) {
+                    LOG.warn( "Unable to release the connection of an attachment: " + e.getMessage() );
+                }
+            }
+        }
+
+    }
+
+}
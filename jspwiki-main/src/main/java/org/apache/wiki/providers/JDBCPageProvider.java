@@ -0,0 +1,517 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.NoRequiredPropertyException;
+import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.providers.WikiProvider;
+import org.apache.wiki.api.search.QueryItem;
+import org.apache.wiki.api.search.SearchResult;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.search.SearchMatcher;
+import org.apache.wiki.search.SearchResultComparator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ *  Keeps the pages and all their versions on a database table, one row per version, looking up the JDBC DataSource through JNDI
+ *  like the {@link org.apache.wiki.auth.user.JDBCUserDatabase} does. The table is keyed by page name and version, and indexed by
+ *  modification date, so page infos, histories and the pages changed since a given date are plain indexed queries; new versions
+ *  are inserted in a transaction.
+ *  <p>
+ *  The table, whose name can be set with {@value #PROP_DB_TABLE}, has these columns:
+ *  </p>
+ *  <table>
+ *  <tr><td><code>name</code></td><td>page name</td></tr>
+ *  <tr><td><code>version</code></td><td>version number, starting at 1</td></tr>
+ *  <tr><td><code>modified</code></td><td>timestamp of the version, indexed</td></tr>
+ *  <tr><td><code>author</code></td><td>author of the version</td></tr>
+ *  <tr><td><code>changenote</code></td><td>change note of the version</td></tr>
+ *  <tr><td><code>attributes</code></td><td>custom page properties, in the properties file format</td></tr>
+ *  <tr><td><code>content_size</code></td><td>size of the text, in UTF-8 bytes</td></tr>
+ *  <tr><td><code>content</code></td><td>text of the version</td></tr>
+ *  </table>
+ *  <p>
+ *  The DDL of the table for some databases can be found next to the one of the user database. The pages of another provider are
+ *  copied into the table, in batches, by {@link #importPages(PageProvider)}.
+ *  </p>
+ *
+ *  @since 3.0.1
+ */
+public class JDBCPageProvider implements PageProvider {
+
+    private static final Logger LOG = LogManager.getLogger( JDBCPageProvider.class );
+
+    /** Default JNDI name of the DataSource. */
+    public static final String DEFAULT_DB_JNDI_NAME = "jdbc/PageDatabase";
+
+    /** Default name of the table holding the pages. */
+    public static final String DEFAULT_DB_TABLE = "pages";
+
+    /** JNDI name of the DataSource. Value is {@value}. */
+    public static final String PROP_DB_DATASOURCE = "jspwiki.jdbcPageProvider.datasource";
+
+    /** Name of the table holding the pages. Value is {@value}. */
+    public static final String PROP_DB_TABLE = "jspwiki.jdbcPageProvider.table";
+
+    /** Number of versions inserted at once when importing pages. */
+    static final int BATCH_SIZE = 100;
+
+    private static final String INFO_COLUMNS = "name, version, modified, author, changenote, attributes, content_size";
+
+    private Engine m_engine;
+    private JDBCStore m_store;
+
+    private String m_findLatestVersion;
+    private String m_findVersion;
+    private String m_findHistory;
+    private String m_findAll;
+    private String m_findChangedSince;
+    private String m_findNames;
+    private String m_findLatestTexts;
+    private String m_findText;
+    private String m_countPages;
+    private String m_insertVersion;
+    private String m_deleteVersion;
+    private String m_deletePage;
+    private String m_renamePage;
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void initialize( final Engine engine, final Properties properties ) throws NoRequiredPropertyException, IOException {
+        m_engine = engine;
+        final String jndiName = properties.getProperty( PROP_DB_DATASOURCE, DEFAULT_DB_JNDI_NAME );
+        final String table = properties.getProperty( PROP_DB_TABLE, DEFAULT_DB_TABLE );
+        final String latest = " version=(SELECT MAX(version) FROM " + table + " q WHERE q.name=p.name)";
+
+        m_findLatestVersion = "SELECT MAX(version) FROM " + table + " WHERE name=?";
+        m_findVersion = "SELECT " + INFO_COLUMNS + " FROM " + table + " WHERE name=? AND version=?";
+        m_findHistory = "SELECT " + INFO_COLUMNS + " FROM " + table + " WHERE name=? ORDER BY version DESC";
+        m_findAll = "SELECT " + INFO_COLUMNS + " FROM " + table + " p WHERE" + latest;
+        m_findChangedSince = "SELECT " + INFO_COLUMNS + " FROM " + table + " p WHERE modified>=? AND" + latest;
+        m_findNames = "SELECT DISTINCT name FROM " + table;
+        m_findLatestTexts = "SELECT name, content FROM " + table + " p WHERE" + latest;
+        m_findText = "SELECT content FROM " + table + " WHERE name=? AND version=?";
+        m_countPages = "SELECT COUNT(DISTINCT name) FROM " + table;
+        m_insertVersion = "INSERT INTO " + table + " (" + INFO_COLUMNS + ", content) VALUES (?,?,?,?,?,?,?,?)";
+        m_deleteVersion = "DELETE FROM " + table + " WHERE name=? AND version=?";
+        m_deletePage = "DELETE FROM " + table + " WHERE name=?";
+        m_renamePage = "UPDATE " + table + " SET name=? WHERE name=?";
+
+        m_store = JDBCStore.lookup( jndiName, PROP_DB_DATASOURCE, table );
+        LOG.info( "JDBCPageProvider initialized from JNDI DataSource: {}", jndiName );
+    }
+
+    /**
+     *  Latest version of the page, or -1 if there is none.
+     */
+    private int findLatestVersion( final Connection conn, final String page ) throws SQLException {
+        try( final PreparedStatement ps = conn.prepareStatement( m_findLatestVersion ) ) {
+            ps.setString( 1, page );
+            try( final ResultSet rs = ps.executeQuery() ) {
+                final int version = rs.next() ? rs.getInt( 1 ) : 0;
+                return version > 0 ? version : -1;
+            }
+        }
+    }
+
+    private int resolve( final Connection conn, final String page, final int version ) throws SQLException {
+        return version == WikiProvider.LATEST_VERSION ? findLatestVersion( conn, page ) : version;
+    }
+
+    private Page toPage( final ResultSet rs ) throws SQLException {
+        final Page page = Wiki.contents().page( m_engine, rs.getString( "name" ) );
+        page.setVersion( rs.getInt( "version" ) );
+        page.setLastModified( new Date( rs.getTimestamp( "modified" ).getTime() ) );
+        page.setAuthor( rs.getString( "author" ) );
+        page.setSize( rs.getLong( "content_size" ) );
+        final String changeNote = rs.getString( "changenote" );
+        if( changeNote != null ) {
+            page.setAttribute( Page.CHANGENOTE, changeNote );
+        }
+        JDBCStore.setCustomProperties( page, rs.getString( "attributes" ) );
+        return page;
+    }
+
+    private List< Page > findPages( final String sql, final Object... params ) throws SQLException {
+        try( final Connection conn = m_store.connection(); final PreparedStatement ps = conn.prepareStatement( sql ) ) {
+            for( int i = 0; i < params.length; i++ ) {
+                ps.setObject( i + 1, params[ i ] );
+            }
+            try( final ResultSet rs = ps.executeQuery() ) {
+                final List< Page > pages = new ArrayList<>();
+                while( rs.next() ) {
+                    pages.add( toPage( rs ) );
+                }
+                return pages;
+            }
+        }
+    }
+
+    private void bindVersion( final PreparedStatement ps, final String name, final int version, final long lastModified,
+                              final Page page, final String text ) throws SQLException {
+        ps.setString( 1, name );
+        ps.setInt( 2, version );
+        ps.setTimestamp( 3, new Timestamp( lastModified ) );
+        ps.setString( 4, page.getAuthor() );
+        ps.setString( 5, page.getAttribute( Page.CHANGENOTE ) );
+        ps.setString( 6, JDBCStore.customProperties( page ) );
+        ps.setLong( 7, text.getBytes( StandardCharsets.UTF_8 ).length );
+        ps.setString( 8, text );
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void putPageText( final Page page, final String text ) throws ProviderException {
+        try {
+            m_store.inTransaction( conn -> JDBCStore.insertNextVersion( conn, c -> findLatestVersion( c, page.getName() ), ( c, version ) -> {
+                try( final PreparedStatement ps = c.prepareStatement( m_insertVersion ) ) {
+                    bindVersion( ps, page.getName(), version, System.currentTimeMillis(), page, text );
+                    ps.executeUpdate();
+                }
+            } ) );
+        } catch( final SQLException e ) {
+            LOG.error( "Saving failed", e );
+            throw new ProviderException( "Could not save page text: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean pageExists( final String page ) {
+        return pageExists( page, WikiProvider.LATEST_VERSION );
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean pageExists( final String page, final int version ) {
+        try( final Connection conn = m_store.connection() ) {
+            final int latest = findLatestVersion( conn, page );
+            if( version == WikiProvider.LATEST_VERSION || version == latest || latest < 0 ) {
+                return latest > 0;
+            }
+            try( final PreparedStatement ps = conn.prepareStatement( m_findVersion ) ) {
+                ps.setString( 1, page );
+                ps.setInt( 2, version );
+                try( final ResultSet rs = ps.executeQuery() ) {
+                    return rs.next();
+                }
+            }
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to look up " + page, e );
+            return false;
+        }
+    }
+
+    /**
+     *  Iterates through the latest versions of all the pages, and matches them against the given query.
+     *
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< SearchResult > findPages( final QueryItem[] query ) {
+        final TreeSet< SearchResult > res = new TreeSet<>( new SearchResultComparator() );
+        final SearchMatcher matcher = new SearchMatcher( m_engine, query );
+        try( final Connection conn = m_store.connection();
+             final PreparedStatement ps = conn.prepareStatement( m_findLatestTexts );
+             final ResultSet rs = ps.executeQuery() ) {
+            while( rs.next() ) {
+                final SearchResult comparison = matcher.matchPageContent( rs.getString( 1 ), rs.getString( 2 ) );
+                if( comparison != null ) {
+                    res.add( comparison );
+                }
+            }
+        } catch( final SQLException | IOException e ) {
+            LOG.error( "Failed to search the pages", e );
+        }
+
+        return res;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Page getPageInfo( final String page, final int version ) throws ProviderException {
+        try( final Connection conn = m_store.connection(); final PreparedStatement ps = conn.prepareStatement( m_findVersion ) ) {
+            ps.setString( 1, page );
+            ps.setInt( 2, resolve( conn, page, version ) );
+            try( final ResultSet rs = ps.executeQuery() ) {
+                return rs.next() ? toPage( rs ) : null;
+            }
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to read " + page + ", version " + version, e );
+            throw new ProviderException( "Could not read page info: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< Page > getAllPages() throws ProviderException {
+        try {
+            return findPages( m_findAll );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to list the pages", e );
+            throw new ProviderException( "Could not list the pages: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< Page > getAllChangedSince( final Date date ) {
+        try {
+            return findPages( m_findChangedSince, new Timestamp( date.getTime() ) );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to list the pages changed since " + date, e );
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getPageCount() throws ProviderException {
+        try( final Connection conn = m_store.connection();
+             final PreparedStatement ps = conn.prepareStatement( m_countPages );
+             final ResultSet rs = ps.executeQuery() ) {
+            return rs.next() ? rs.getInt( 1 ) : 0;
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to count the pages", e );
+            throw new ProviderException( "Could not count the pages: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public List< Page > getVersionHistory( final String page ) throws ProviderException {
+        try {
+            return findPages( m_findHistory, page );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to read the history of " + page, e );
+            throw new ProviderException( "Could not read the page history: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public String getPageText( final String page, final int version ) throws ProviderException {
+        try( final Connection conn = m_store.connection(); final PreparedStatement ps = conn.prepareStatement( m_findText ) ) {
+            final int latest = findLatestVersion( conn, page );
+            if( latest < 0 ) {
+                return null;
+            }
+            ps.setString( 1, page );
+            ps.setInt( 2, version == WikiProvider.LATEST_VERSION ? latest : version );
+            try( final ResultSet rs = ps.executeQuery() ) {
+                if( !rs.next() ) {
+                    throw new NoSuchVersionException( "Page " + page + ", version " + version + ", does not exist." );
+                }
+                return rs.getString( 1 );
+            }
+        } catch( final SQLException e ) {
+            LOG.error( "Failed to read " + page + ", version " + version, e );
+            throw new ProviderException( "Could not read page text: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void deleteVersion( final String pageName, final int version ) throws ProviderException {
+        try {
+            m_store.inTransaction( conn -> {
+                try( final PreparedStatement ps = conn.prepareStatement( m_deleteVersion ) ) {
+                    ps.setString( 1, pageName );
+                    ps.setInt( 2, resolve( conn, pageName, version ) );
+                    return ps.executeUpdate();
+                }
+            } );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to delete version " + version + " of " + pageName, e );
+            throw new ProviderException( "Could not delete page version: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void deletePage( final String pageName ) throws ProviderException {
+        try {
+            m_store.inTransaction( conn -> {
+                try( final PreparedStatement ps = conn.prepareStatement( m_deletePage ) ) {
+                    ps.setString( 1, pageName );
+                    return ps.executeUpdate();
+                }
+            } );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to delete " + pageName, e );
+            throw new ProviderException( "Could not delete page: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  Renames the page, replacing the page already having the new name, if any.
+     *
+     *  {@inheritDoc}
+     */
+    @Override
+    public void movePage( final String from, final String to ) throws ProviderException {
+        try {
+            m_store.inTransaction( conn -> {
+                try( final PreparedStatement delete = conn.prepareStatement( m_deletePage );
+                     final PreparedStatement rename = conn.prepareStatement( m_renamePage ) ) {
+                    delete.setString( 1, to );
+                    delete.executeUpdate();
+                    rename.setString( 1, to );
+                    rename.setString( 2, from );
+                    return rename.executeUpdate();
+                }
+            } );
+        } catch( final SQLException e ) {
+            LOG.error( "Unable to move " + from + " to " + to, e );
+            throw new ProviderException( "Could not move page: " + e.getMessage() );
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public String getProviderInfo() {
+        return "";
+    }
+
+    /**
+     *  Copies into the table all the versions of the pages of the given provider, keeping their version numbers, dates, authors,
+     *  change notes and custom properties. The versions are inserted in batches of {@value #BATCH_SIZE}, which are committed once the
+     *  pages they belong to are complete; the pages the table already has are skipped, so an import which was interrupted may be run
+     *  again.
+     *
+     *  @param source provider holding the pages to copy, already initialized.
+     *  @return the number of page versions copied.
+     *  @throws ProviderException if the pages can't be read from the source, or written to the table.
+     */
+    public int importPages( final PageProvider source ) throws ProviderException {
+        int imported = 0;
+        try( final Connection conn = m_store.connection() ) {
+            final Set< String > existing = new HashSet<>();
+            try( final PreparedStatement ps = conn.prepareStatement( m_findNames ); final ResultSet rs = ps.executeQuery() ) {
+                while( rs.next() ) {
+                    existing.add( rs.getString( 1 ) );
+                }
+            }
+
+            final boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit( false );
+            try( final PreparedStatement ps = conn.prepareStatement( m_insertVersion ) ) {
+                int batched = 0;
+                for( final Page page : source.getAllPages() ) {
+                    final String name = page.getName();
+                    if( existing.contains( name ) ) {
+                        continue;
+                    }
+                    final List< Page > history = new ArrayList<>( source.getVersionHistory( name ) );
+                    if( history.isEmpty() ) {
+                        history.add( page ); // not versioned yet
+                    }
+                    history.sort( Comparator.comparingInt( Page::getVersion ) );
+                    for( final Page version : history ) {
+                        final String text = source.getPageText( name, version.getVersion() );
+                        if( text != null ) {
+                            final long lastModified = version.getLastModified() != null ? version.getLastModified().getTime()
+                                                                                        : System.currentTimeMillis();
+                            bindVersion( ps, name, Math.max( 1, version.getVersion() ), lastModified, version, text );
+                            ps.addBatch();
+                            batched++;
+                            imported++;
+                        }
+                    }
+                    if( batched >= BATCH_SIZE ) {
+                        ps.executeBatch();
+                        conn.commit();
+                        batched = 0;
+                    }
+                }
+                if( batched > 0 ) {
+                    ps.executeBatch();
+                    conn.commit();
+                }
+            } catch( final SQLException | ProviderException e ) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit( autoCommit );
+            }
+        } catch( final SQLException e ) {
+            LOG.error( "Importing the pages failed", e );
+            throw new ProviderException( "Could not import the pages: " + e.getMessage() );
+        }
+        LOG.info( "Imported " + imported + " page versions from " + source.getClass().getName() );
+        return imported;
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.NoRequiredPropertyException;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Savepoint;
+import java.util.Map;
+import java.util.Properties;
+
+
+/**
+ *  The JNDI DataSource the {@link JDBCPageProvider} and the {@link JDBCAttachmentProvider} keep their data on, and what both of them
+ *  need around it: running changes in a transaction, and storing the custom properties of pages and attachments.
+ *
+ *  @since 3.0.1
+ */
+final class JDBCStore {
+
+    private static final Logger LOG = LogManager.getLogger( JDBCStore.class );
+
+    /** How many times {@link #insertNextVersion(Connection, Transaction, VersionInsert)} tries a version before giving up. */
+    static final int MAX_INSERT_ATTEMPTS = 5;
+
+    private final DataSource m_ds;
+
+    private JDBCStore( final DataSource ds ) {
+        m_ds = ds;
+    }
+
+    /**
+     *  Looks up the DataSource bound to the given JNDI name, and checks the given table can be read from it.
+     *
+     *  @param jndiName JNDI name of the DataSource, relative to {@code java:comp/env}.
+     *  @param property property which set the JNDI name, for the error messages.
+     *  @param table table which should be readable.
+     *  @return the store.
+     *  @throws NoRequiredPropertyException if there is no DataSource with the given name.
+     *  @throws IOException if the table can't be read.
+     */
+    static JDBCStore lookup( final String jndiName, final String property, final String table ) throws NoRequiredPropertyException, IOException {
+        final JDBCStore store;
+        try {
+            final Context initCtx = new InitialContext();
+            final Context ctx = ( Context )initCtx.lookup( "java:comp/env" );
+            store = new JDBCStore( ( DataSource )ctx.lookup( jndiName ) );
+        } catch( final NamingException e ) {
+            throw new NoRequiredPropertyException( "No DataSource bound to " + jndiName + ": " + e.getMessage(), property );
+        }
+
+        // Test connection by doing a quickie select
+        try( final Connection conn = store.connection() ) {
+            conn.prepareStatement( "SELECT * FROM " + table ).close();
+        } catch( final SQLException e ) {
+            throw new IOException( "DB connectivity error: " + e.getMessage(), e );
+        }
+        return store;
+    }
+
+    Connection connection() throws SQLException {
+        return m_ds.getConnection();
+    }
+
+    /**
+     *  Runs the given work on a connection of its own, committing it if it completes and rolling it back otherwise. The connection
+     *  gets its auto-commit mode back before being released, as pooled connections are handed out again as they're returned.
+     *
+     *  @param work the work to do.
+     *  @return what the work returned.
+     *  @throws SQLException if the work, or the commit, fails.
+     */
+    < T > T inTransaction( final Transaction< T > work ) throws SQLException {
+        try( final Connection conn = connection() ) {
+            final boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit( false );
+            try {
+                final T result = work.run( conn );
+                conn.commit();
+                return result;
+            } catch( final SQLException | RuntimeException e ) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit( autoCommit );
+            }
+        }
+    }
+
+    /**
+     *  Releases a connection whose auto-commit mode was turned off, rolling back whatever it left uncommitted and giving it back its
+     *  auto-commit mode first.
+     *
+     *  @param conn the connection.
+     *  @param autoCommit the auto-commit mode the connection had.
+     *  @throws SQLException if the connection can't be rolled back or released.
+     */
+    static void release( final Connection conn, final boolean autoCommit ) throws SQLException {
+        try {
+            conn.rollback();
+            conn.setAutoCommit( autoCommit );
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     *  Inserts the version following the latest one, as part of the transaction the connection is in. Versions are numbered from the
+     *  latest one found, so two saves running at once may both pick the same number, and the one inserting it last fails on the primary
+     *  key. That insert is rolled back to a savepoint taken before it, and tried again with the version which now follows the latest.
+     *
+     *  @param conn connection, on which a transaction was started.
+     *  @param latest finds the latest version, or a negative number if there is none.
+     *  @param insert inserts the given version.
+     *  @return the version inserted.
+     *  @throws SQLException if the version can't be inserted.
+     */
+    static int insertNextVersion( final Connection conn, final Transaction< Integer > latest, final VersionInsert insert ) throws SQLException {
+        for( int attempt = 1; ; attempt++ ) {
+            final int version = Math.max( latest.run( conn ), 0 ) + 1;
+            final Savepoint savepoint = conn.setSavepoint();
+            try {
+                insert.insert( conn, version );
+                conn.releaseSavepoint( savepoint );
+                return version;
+            } catch( final SQLException e ) {
+                if( attempt >= MAX_INSERT_ATTEMPTS || !isDuplicateKey( e ) ) {
+                    throw e;
+                }
+                LOG.debug( "Version {} was taken by a concurrent save, retrying", version );
+                conn.rollback( savepoint );
+            }
+        }
+    }
+
+    /**
+     *  Whether the error is a constraint violation, which for an insert of a version means the version is already there.
+     */
+    static boolean isDuplicateKey( final SQLException e ) {
+        return e instanceof SQLIntegrityConstraintViolationException || ( e.getSQLState() != null && e.getSQLState().startsWith( "23" ) );
+    }
+
+    /**
+     *  Work done by {@link #inTransaction(Transaction)}.
+     */
+    @FunctionalInterface
+    interface Transaction< T > {
+        T run( Connection conn ) throws SQLException;
+    }
+
+    /**
+     *  Insert done by {@link #insertNextVersion(Connection, Transaction, VersionInsert)}.
+     */
+    @FunctionalInterface
+    interface VersionInsert {
+        void insert( Connection conn, int version ) throws SQLException;
+    }
+
+    /**
+     *  The custom properties of the page, those attributes whose name starts with "@", in the properties file format.
+     */
+    static String customProperties( final Page page ) {
+        final Properties props = new Properties();
+        for( final Map.Entry< String, Object > attribute : page.getAttributes().entrySet() ) {
+            if( attribute.getKey().startsWith( "@" ) && attribute.getValue() != null ) {
+                props.setProperty( attribute.getKey(), attribute.getValue().toString() );
+            }
+        }
+        if( props.isEmpty() ) {
+            return null;
+        }
+
+        final StringWriter out = new StringWriter();
+        try {
+            props.store( out, null );
+        } catch( final IOException e ) {
+            throw new UncheckedIOException( e ); // not happening on a StringWriter
+        }
+        return out.toString();
+    }
+
+    /**
+     *  Sets on the page the custom properties kept by {@link #customProperties(Page)}.
+     */
+    static void setCustomProperties( final Page page, final String stored ) {
+        if( stored != null ) {
+            final Properties props = new Properties();
+            try {
+                props.load( new StringReader( stored ) );
+            } catch( final IOException e ) {
+                throw new UncheckedIOException( e ); // not happening on a StringReader
+            }
+            props.stringPropertyNames().forEach( key -> page.setAttribute( key, props.getProperty( key ) ) );
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ *  One of the append-only files of the {@link SegmentedLogProvider}. Records are only ever appended to the end of the segment, and read
+ *  back through positioned reads, so any number of threads may read it while another one appends to it. The segment also keeps count
+ *  of how many of its bytes still belong to page versions in use, which tells how much compacting it would reclaim.
+ *  <P>
+ *  A thread interrupted while reading or writing closes the channel of the segment for every other thread too, as channels are
+ *  interruptible. The channel is then opened again by the next thread using it, so an interrupted page load does not leave the
+ *  segment unreadable until the wiki is restarted.
+ *
+ *  @since 3.0.1
+ */
+final class LogSegment {
+
+    /** Start of the names of the segment files. */
+    static final String PREFIX = "segment-";
+
+    /** Extension of the segment files. */
+    static final String EXT = ".log";
+
+    private final int id;
+    private final Path path;
+    private volatile FileChannel channel;
+    private boolean closed;
+    private long size;
+    private long liveBytes;
+
+    private LogSegment( final int id, final Path path, final FileChannel channel ) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    /**
+     *  Opens the segment with the given id on the given directory, creating it if it does not exist yet.
+     *
+     *  @param directory directory holding the segments.
+     *  @param id segment id.
+     *  @return the opened segment.
+     *  @throws IOException if the segment file can't be opened.
+     */
+    static LogSegment open( final Path directory, final int id ) throws IOException {
+        final Path path = directory.resolve( fileName( id ) );
+        return new LogSegment( id, path, FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE ) );
+    }
+
+    /**
+     *  Runs the given operation on the channel of the segment, opening the channel again if another thread closed it by being
+     *  interrupted. If it's this thread which is interrupted, the operation fails, and the channel is left for the next one to open.
+     */
+    private < T > T withChannel( final ChannelOperation< T > operation ) throws IOException {
+        FileChannel current = channel;
+        while( true ) {
+            try {
+                return operation.run( current );
+            } catch( final ClosedByInterruptException e ) {
+                throw e;
+            } catch( final ClosedChannelException e ) {
+                current = reopen( current );
+            }
+        }
+    }
+
+    private synchronized FileChannel reopen( final FileChannel broken ) throws IOException {
+        if( closed ) {
+            throw new ClosedChannelException();
+        }
+        if( channel == broken ) {
+            channel = FileChannel.open( path, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        }
+        return channel;
+    }
+
+    /**
+     *  Operation done by {@link #withChannel(ChannelOperation)}.
+     */
+    @FunctionalInterface
+    private interface ChannelOperation< T > {
+        T run( FileChannel channel ) throws IOException;
+    }
+
+    /**
+     *  Name of the file of the segment with the given id, which sorts segments in the order they were created.
+     */
+    static String fileName( final int id ) {
+        return String.format( "%s%08d%s", PREFIX, id, EXT );
+    }
+
+    /**
+     *  Id of the segment file of the given name, or -1 if it isn't the name of a segment file.
+     */
+    static int idOf( final String fileName ) {
+        if( fileName.startsWith( PREFIX ) && fileName.endsWith( EXT ) ) {
+            try {
+                return Integer.parseInt( fileName.substring( PREFIX.length(), fileName.length() - EXT.length() ) );
+            } catch( final NumberFormatException e ) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    int id() {
+        return id;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    void addLiveBytes( final long bytes ) {
+        liveBytes += bytes;
+    }
+
+    /**
+     *  Appends the given bytes to the end of the segment.
+     *
+     *  @param bytes the bytes to append.
+     *  @return the position at which they were written.
+     *  @throws IOException if the bytes can't be written.
+     */
+    long append( final ByteBuffer bytes ) throws IOException {
+        final long position = size;
+        long at = position;
+        try {
+            while( bytes.hasRemaining() ) {
+                final long from = at;
+                at += withChannel( c -> c.write( bytes, from ) );
+            }
+        } catch( final IOException e ) {
+            // don't leave half a record behind, the next ones would be unreadable
+            withChannel( c -> c.truncate( position ) );
+            throw e;
+        }
+        size = at;
+        return position;
+    }
+
+    /**
+     *  Fills the given buffer with the bytes of the segment starting at the given position.
+     *
+     *  @param position position of the first byte to read.
+     *  @param bytes buffer to fill.
+     *  @throws IOException if the bytes can't be read, or the segment ends before the buffer is filled.
+     */
+    void read( final long position, final ByteBuffer bytes ) throws IOException {
+        long at = position;
+        while( bytes.hasRemaining() ) {
+            final long from = at;
+            final int read = withChannel( c -> c.read( bytes, from ) );
+            if( read < 0 ) {
+                throw new EOFException( "Unexpected end of " + path + " at " + at );
+            }
+            at += read;
+        }
+    }
+
+    /**
+     *  Cuts the segment at the given size, dropping a record which was only partially written.
+     */
+    void truncate( final long newSize ) throws IOException {
+        withChannel( c -> c.truncate( newSize ) );
+        size = newSize;
+    }
+
+    /**
+     *  Forces the appended bytes to the storage device.
+     */
+    void force() throws IOException {
+        withChannel( c -> {
+            c.force( false );
+            return null;
+        } );
+    }
+
+    synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    /**
+     *  Closes the segment and removes its file.
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists( path );
+    }
+
+}
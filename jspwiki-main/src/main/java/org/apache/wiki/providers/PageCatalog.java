@@ -0,0 +1,157 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ *  Compact metadata of every page of the repository: name, version, date, author, size and change note. Unlike the page cache it's
+ *  never evicted, so all the pages can be listed without asking the real provider, whatever the size of the repository. It's loaded
+ *  from the real provider the first time all pages are requested, and then kept up-to-date as pages change.
+ *
+ *  @since 3.0.1
+ */
+final class PageCatalog {
+
+    private final Engine engine;
+    private volatile Map< String, Entry > entries;
+
+    PageCatalog( final Engine engine ) {
+        this.engine = engine;
+    }
+
+    /**
+     *  Tells whether the catalog holds every page of the repository.
+     *
+     *  @return {@code true} if the catalog has been loaded, {@code false} otherwise.
+     */
+    boolean isLoaded() {
+        return entries != null;
+    }
+
+    /**
+     *  Replaces the catalog with the given pages.
+     *
+     *  @param pages every page of the repository.
+     */
+    void load( final Collection< Page > pages ) {
+        final Map< String, Entry > loaded = new ConcurrentHashMap<>( pages.size() * 4 / 3 + 1 );
+        for( final Page page : pages ) {
+            loaded.put( page.getName(), new Entry( page ) );
+        }
+        entries = loaded;
+    }
+
+    /**
+     *  Adds or updates a page, if the catalog has been loaded.
+     *
+     *  @param page the latest version of the page; may be {@code null}.
+     *  @return the given page.
+     */
+    Page update( final Page page ) {
+        final Map< String, Entry > current = entries;
+        if( page != null && current != null ) {
+            current.put( page.getName(), new Entry( page ) );
+        }
+        return page;
+    }
+
+    /**
+     *  Removes a page, if the catalog has been loaded.
+     *
+     *  @param pageName the name of the page.
+     */
+    void remove( final String pageName ) {
+        final Map< String, Entry > current = entries;
+        if( current != null ) {
+            current.remove( pageName );
+        }
+    }
+
+    /**
+     *  Returns the number of pages of the repository.
+     *
+     *  @return the number of pages, or -1 if the catalog hasn't been loaded.
+     */
+    int size() {
+        final Map< String, Entry > current = entries;
+        return current != null ? current.size() : -1;
+    }
+
+    /**
+     *  Returns the metadata of every page.
+     *
+     *  @return the metadata of every page; empty if the catalog hasn't been loaded.
+     */
+    Collection< Entry > entries() {
+        final Map< String, Entry > current = entries;
+        return current != null ? current.values() : Collections.emptyList();
+    }
+
+    /**
+     *  Creates the page described by a catalog entry.
+     *
+     *  @param entry the catalog entry.
+     *  @return the page, without any attribute other than the change note.
+     */
+    Page toPage( final Entry entry ) {
+        final Page page = Wiki.contents().page( engine, entry.name );
+        page.setVersion( entry.version );
+        if( entry.lastModified >= 0L ) {
+            page.setLastModified( new Date( entry.lastModified ) );
+        }
+        page.setAuthor( entry.author );
+        page.setSize( entry.size );
+        if( entry.changeNote != null ) {
+            page.setAttribute( Page.CHANGENOTE, entry.changeNote );
+        }
+        return page;
+    }
+
+    /** Metadata of a page. */
+    static final class Entry {
+
+        final String name;
+        final int version;
+        final long lastModified;
+        final String author;
+        final long size;
+        final String changeNote;
+
+        Entry( final Page page ) {
+            name = page.getName();
+            version = page.getVersion();
+            lastModified = page.getLastModified() != null ? page.getLastModified().getTime() : -1L;
+            author = page.getAuthor();
+            size = page.getSize();
+            changeNote = page.getAttribute( Page.CHANGENOTE );
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.cache.CacheCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ *  Writes and reads the version histories kept on the disk tier of the page history cache. Pages aren't serializable, so their name,
+ *  version, date, author, size and textual attributes, like the change note, are written instead.
+ *
+ *  @since 3.0.1
+ */
+final class PageHistoryCodec implements CacheCodec< List< Page > > {
+
+    private final Engine engine;
+
+    PageHistoryCodec( final Engine engine ) {
+        this.engine = engine;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write( final DataOutput out, final List< Page > history ) throws IOException {
+        out.writeInt( history.size() );
+        for( final Page page : history ) {
+            out.writeUTF( page.getName() );
+            out.writeInt( page.getVersion() );
+            out.writeLong( page.getLastModified() != null ? page.getLastModified().getTime() : -1L );
+            writeNullable( out, page.getAuthor() );
+            out.writeLong( page.getSize() );
+            final List< Map.Entry< String, Object > > attributes = new ArrayList<>();
+            for( final Map.Entry< String, Object > attribute : page.getAttributes().entrySet() ) {
+                if( attribute.getValue() instanceof String ) {
+                    attributes.add( attribute );
+                }
+            }
+            out.writeInt( attributes.size() );
+            for( final Map.Entry< String, Object > attribute : attributes ) {
+                out.writeUTF( attribute.getKey() );
+                out.writeUTF( ( String )attribute.getValue() );
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List< Page > read( final DataInput in ) throws IOException {
+        final int versions = in.readInt();
+        final List< Page > history = new ArrayList<>( versions );
+        for( int i = 0; i < versions; i++ ) {
+            final Page page = Wiki.contents().page( engine, in.readUTF() );
+            page.setVersion( in.readInt() );
+            final long lastModified = in.readLong();
+            page.setLastModified( lastModified != -1L ? new Date( lastModified ) : null );
+            page.setAuthor( readNullable( in ) );
+            page.setSize( in.readLong() );
+            final int attributes = in.readInt();
+            for( int j = 0; j < attributes; j++ ) {
+                page.setAttribute( in.readUTF(), in.readUTF() );
+            }
+            history.add( page );
+        }
+        return history;
+    }
+
+    private void writeNullable( final DataOutput out, final String value ) throws IOException {
+        out.writeBoolean( value != null );
+        if( value != null ) {
+            out.writeUTF( value );
+        }
+    }
+
+    private String readNullable( final DataInput in ) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
@@ -0,0 +1,878 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.WikiBackgroundThread;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.NoRequiredPropertyException;
+import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.providers.WikiProvider;
+import org.apache.wiki.api.search.QueryItem;
+import org.apache.wiki.api.search.SearchResult;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.search.SearchMatcher;
+import org.apache.wiki.search.SearchResultComparator;
+import org.apache.wiki.util.ClassUtil;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+
+/**
+ *  Keeps all the pages and their versions in a few large, append-only segment files instead of one file per version, so that big
+ *  wikis don't end up with millions of tiny files which are slow to back up and to list.
+ *  <P>
+ *  Every change is appended as a record to the newest segment, which is closed for good once it grows over
+ *  {@value #PROP_SEGMENT_SIZE} bytes. Saving a version appends its text together with its author, date, change note and custom
+ *  properties; deleting and renaming pages append small records telling so. An index of all the versions, with the position of their
+ *  texts, is built in memory by reading the segments on startup, so reading the text of any version takes a single positioned read,
+ *  and everything else is answered from memory. A record which was only partially written when the wiki stopped is dropped on startup.
+ *  <P>
+ *  The versions which are deleted or replaced leave garbage behind in the segments. A background thread compacts the segments every
+ *  {@value #PROP_COMPACTION_INTERVAL} seconds, once more than {@value #PROP_COMPACTION_THRESHOLD} percent of the closed segments is
+ *  garbage: the versions still in use in the oldest segment are appended again to the newest one, and the oldest segment is removed.
+ *  Always compacting the oldest segment first is what allows dropping its delete and rename records, as there are no older records
+ *  left for them to apply to.
+ *  <P>
+ *  The pages kept by another provider, usually a {@link VersioningFileProvider}, are copied into the store on startup when
+ *  {@value #PROP_IMPORT_FROM} names that provider; see {@link #importPages(PageProvider)}. A marker file is written on the segments
+ *  directory once the import is complete, and an import which was interrupted before that is resumed on the next startup.
+ *  <P>
+ *  Only one wiki may use the segments directory at a time.
+ *
+ *  @since 3.0.1
+ */
+public class SegmentedLogProvider implements PageProvider {
+
+    private static final Logger LOG = LogManager.getLogger( SegmentedLogProvider.class );
+
+    /** Directory holding the segments, a "segments" directory inside the page directory by default. Value is {@value}. */
+    public static final String PROP_DIRECTORY = "jspwiki.segmentedLogProvider.directory";
+
+    /** Size in bytes after which a new segment is started, 64 MB by default. Value is {@value}. */
+    public static final String PROP_SEGMENT_SIZE = "jspwiki.segmentedLogProvider.segmentSize";
+
+    /** Whether every change is forced to the storage device before returning, {@code true} by default. Value is {@value}. */
+    public static final String PROP_SYNC = "jspwiki.segmentedLogProvider.sync";
+
+    /** Seconds between compactions, 600 by default; 0 disables them. Value is {@value}. */
+    public static final String PROP_COMPACTION_INTERVAL = "jspwiki.segmentedLogProvider.compactionInterval";
+
+    /** Percentage of garbage in the closed segments above which they are compacted, 50 by default. Value is {@value}. */
+    public static final String PROP_COMPACTION_THRESHOLD = "jspwiki.segmentedLogProvider.compactionThreshold";
+
+    /** Provider whose pages are imported on startup, until an import completes, for instance {@code VersioningFileProvider}. Value is {@value}. */
+    public static final String PROP_IMPORT_FROM = "jspwiki.segmentedLogProvider.importFrom";
+
+    /** Name of the default segments directory, inside the page directory. */
+    static final String DEFAULT_DIRECTORY = "segments";
+
+    /** Name of the file written on the segments directory once the pages of {@value #PROP_IMPORT_FROM} are all imported. */
+    static final String IMPORT_MARKER = "import.complete";
+
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /** Record types. */
+    private static final byte PUT = 1;
+    private static final byte DELETE_VERSION = 2;
+    private static final byte DELETE_PAGE = 3;
+    private static final byte MOVE = 4;
+
+    /** Every record starts with the length and the checksum of the rest of it. */
+    private static final int HEADER = 8;
+
+    /** Guards the index and the segments; the texts are read while holding the read lock, so segments aren't removed meanwhile. */
+    private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+    private final Map< String, TreeMap< Integer, Version > > m_pages = new HashMap<>();
+    private final TreeMap< Integer, LogSegment > m_segments = new TreeMap<>();
+    private LogSegment m_active;
+
+    private Engine m_engine;
+    private Path m_directory;
+    private long m_segmentSize;
+    private boolean m_sync;
+    private int m_compactionThreshold;
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void initialize( final Engine engine, final Properties properties ) throws NoRequiredPropertyException, IOException {
+        m_engine = engine;
+        final String pageDir = TextUtil.getCanonicalFilePathProperty( properties, AbstractFileProvider.PROP_PAGEDIR,
+                                                                      System.getProperty( "user.home" ) + File.separator + "jspwiki-files" );
+        m_directory = Paths.get( TextUtil.getCanonicalFilePathProperty( properties, PROP_DIRECTORY, pageDir + File.separator + DEFAULT_DIRECTORY ) );
+        m_segmentSize = TextUtil.getIntegerProperty( properties, PROP_SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE );
+        m_sync = TextUtil.getBooleanProperty( properties, PROP_SYNC, true );
+        m_compactionThreshold = TextUtil.getIntegerProperty( properties, PROP_COMPACTION_THRESHOLD, 50 );
+        Files.createDirectories( m_directory );
+        recover();
+
+        final String importFrom = TextUtil.getStringProperty( properties, PROP_IMPORT_FROM, null );
+        final Path marker = m_directory.resolve( IMPORT_MARKER );
+        if( importFrom != null && !Files.exists( marker ) ) {
+            if( !m_pages.isEmpty() ) {
+                LOG.info( "Resuming the interrupted import of the pages from " + importFrom );
+            }
+            try {
+                final PageProvider source = ClassUtil.buildInstance( "org.apache.wiki.providers", importFrom );
+                source.initialize( engine, properties );
+                importPages( source );
+            } catch( final ReflectiveOperationException | ProviderException e ) {
+                throw new IOException( "Unable to import the pages from " + importFrom + ": " + e.getMessage(), e );
+            }
+            m_active.force(); // the imported versions must be on disk before the marker telling so
+            Files.write( marker, importFrom.getBytes( StandardCharsets.UTF_8 ) );
+        }
+
+        final int interval = TextUtil.getIntegerProperty( properties, PROP_COMPACTION_INTERVAL, 600 );
+        if( interval > 0 ) {
+            new Compactor( engine, interval ).start();
+        }
+        LOG.info( "Wikipages are read from the " + m_segments.size() + " segments on '" + m_directory + "'" );
+    }
+
+    /**
+     *  Rebuilds the index from the segments, in the order they were written.
+     */
+    private void recover() throws IOException {
+        final List< Integer > ids;
+        try( final Stream< Path > files = Files.list( m_directory ) ) {
+            ids = files.map( file -> LogSegment.idOf( file.getFileName().toString() ) )
+                       .filter( id -> id >= 0 )
+                       .sorted()
+                       .collect( Collectors.toList() );
+        }
+        for( final int id : ids ) {
+            final LogSegment segment = LogSegment.open( m_directory, id );
+            m_segments.put( id, segment );
+            replay( segment );
+        }
+        m_active = m_segments.isEmpty() ? newSegment( 1 ) : m_segments.lastEntry().getValue();
+    }
+
+    /**
+     *  Applies the records of the given segment to the index, cutting the segment at the first one which is incomplete or damaged.
+     */
+    private void replay( final LogSegment segment ) throws IOException {
+        long position = 0;
+        try( final DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( segment.path() ) ) ) ) {
+            while( segment.size() - position >= HEADER ) {
+                final int length = in.readInt();
+                final int checksum = in.readInt();
+                if( length <= 0 || length > segment.size() - position - HEADER ) {
+                    break;
+                }
+                final byte[] record = new byte[ length ];
+                in.readFully( record );
+                if( checksum( record ) != checksum ) {
+                    break;
+                }
+                apply( segment, position, record );
+                position += HEADER + length;
+            }
+        }
+        if( position < segment.size() ) {
+            LOG.warn( "Dropping " + ( segment.size() - position ) + " bytes of an incomplete record at the end of " + segment.path() );
+            segment.truncate( position );
+        }
+    }
+
+    private void apply( final LogSegment segment, final long position, final byte[] record ) throws IOException {
+        final DataInputStream in = new DataInputStream( new ByteArrayInputStream( record ) );
+        final byte type = in.readByte();
+        switch( type ) {
+        case PUT:
+            final String name = in.readUTF();
+            final int version = in.readInt();
+            final long lastModified = in.readLong();
+            final String author = in.readBoolean() ? in.readUTF() : null;
+            final int count = in.readInt();
+            final Map< String, String > attributes = new LinkedHashMap<>();
+            for( int i = 0; i < count; i++ ) {
+                attributes.put( in.readUTF(), in.readUTF() );
+            }
+            final int textLength = in.readInt();
+            final long textPosition = position + HEADER + record.length - textLength;
+            index( name, new Version( version, lastModified, author, attributes, segment, textPosition, textLength, HEADER + record.length ) );
+            break;
+        case DELETE_VERSION:
+            unindex( in.readUTF(), in.readInt() );
+            break;
+        case DELETE_PAGE:
+            forget( in.readUTF() );
+            break;
+        case MOVE:
+            rename( in.readUTF(), in.readUTF() );
+            break;
+        default:
+            throw new IOException( "Unknown record type " + type + " at " + position + " of " + segment.path() );
+        }
+    }
+
+    //  Changes to the index, shared by the replay on startup and the changes made while running. Must be called with the write lock held.
+
+    private void index( final String name, final Version version ) {
+        final Version replaced = m_pages.computeIfAbsent( name, k -> new TreeMap<>() ).put( version.version, version );
+        if( replaced != null ) {
+            replaced.segment.addLiveBytes( -replaced.recordLength );
+        }
+        version.segment.addLiveBytes( version.recordLength );
+    }
+
+    private void unindex( final String name, final int version ) {
+        final TreeMap< Integer, Version > versions = m_pages.get( name );
+        if( versions != null ) {
+            final Version removed = versions.remove( version );
+            if( removed != null ) {
+                removed.segment.addLiveBytes( -removed.recordLength );
+            }
+            if( versions.isEmpty() ) {
+                m_pages.remove( name );
+            }
+        }
+    }
+
+    private void forget( final String name ) {
+        final TreeMap< Integer, Version > versions = m_pages.remove( name );
+        if( versions != null ) {
+            for( final Version version : versions.values() ) {
+                version.segment.addLiveBytes( -version.recordLength );
+            }
+        }
+    }
+
+    private void rename( final String from, final String to ) {
+        if( !from.equals( to ) ) {
+            // the target goes away even if the source has nothing left, as its versions may have been compacted away already
+            forget( to );
+            final TreeMap< Integer, Version > versions = m_pages.remove( from );
+            if( versions != null ) {
+                m_pages.put( to, versions );
+            }
+        }
+    }
+
+    //  Writing records. Must be called with the write lock held.
+
+    private LogSegment newSegment( final int id ) throws IOException {
+        final LogSegment segment = LogSegment.open( m_directory, id );
+        m_segments.put( id, segment );
+        return segment;
+    }
+
+    /**
+     *  Appends a record to the newest segment, starting a new one first if it is full.
+     *
+     *  @return the position of the record on the newest segment.
+     */
+    private long append( final byte[] record ) throws IOException {
+        if( m_active.size() >= m_segmentSize ) {
+            m_active.force();
+            m_active = newSegment( m_active.id() + 1 );
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate( HEADER + record.length );
+        buffer.putInt( record.length ).putInt( checksum( record ) ).put( record ).flip();
+        final long position = m_active.append( buffer );
+        if( m_sync ) {
+            m_active.force();
+        }
+        return position;
+    }
+
+    private void put( final String name, final int version, final long lastModified, final String author,
+                      final Map< String, String > attributes, final byte[] text ) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream( text.length + 128 );
+        final DataOutputStream out = new DataOutputStream( bytes );
+        out.writeByte( PUT );
+        out.writeUTF( name );
+        out.writeInt( version );
+        out.writeLong( lastModified );
+        out.writeBoolean( author != null );
+        if( author != null ) {
+            out.writeUTF( author );
+        }
+        out.writeInt( attributes.size() );
+        for( final Map.Entry< String, String > attribute : attributes.entrySet() ) {
+            out.writeUTF( attribute.getKey() );
+            out.writeUTF( attribute.getValue() );
+        }
+        out.writeInt( text.length );
+        out.write( text );
+        final byte[] record = bytes.toByteArray();
+
+        final long position = append( record );
+        final long textPosition = position + HEADER + record.length - text.length;
+        index( name, new Version( version, lastModified, author, attributes, m_active, textPosition, text.length, HEADER + record.length ) );
+    }
+
+    private void appendRecord( final byte type, final String name, final String other, final int version ) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream( bytes );
+        out.writeByte( type );
+        out.writeUTF( name );
+        if( other != null ) {
+            out.writeUTF( other );
+        }
+        if( type == DELETE_VERSION ) {
+            out.writeInt( version );
+        }
+        append( bytes.toByteArray() );
+    }
+
+    private static int checksum( final byte[] record ) {
+        final CRC32 crc = new CRC32();
+        crc.update( record );
+        return ( int )crc.getValue();
+    }
+
+    /**
+     *  The change note and the custom properties of the page, which are kept with each version.
+     */
+    private static Map< String, String > attributesOf( final Page page ) {
+        final Map< String, String > attributes = new LinkedHashMap<>();
+        for( final Map.Entry< String, Object > attribute : page.getAttributes().entrySet() ) {
+            final String key = attribute.getKey();
+            if( attribute.getValue() != null && ( key.equals( Page.CHANGENOTE ) || key.startsWith( "@" ) ) ) {
+                attributes.put( key, attribute.getValue().toString() );
+            }
+        }
+        return attributes.isEmpty() ? Collections.emptyMap() : attributes;
+    }
+
+    //  Reading. Must be called with the read lock held.
+
+    private Version find( final String page, final int version ) {
+        final TreeMap< Integer, Version > versions = m_pages.get( page );
+        if( versions == null ) {
+            return null;
+        }
+        return version == WikiProvider.LATEST_VERSION ? versions.lastEntry().getValue() : versions.get( version );
+    }
+
+    private byte[] text( final Version version ) throws IOException {
+        final ByteBuffer text = ByteBuffer.allocate( version.textLength );
+        version.segment.read( version.textPosition, text );
+        return text.array();
+    }
+
+    private Page toPage( final String name, final Version version ) {
+        final Page page = Wiki.contents().page( m_engine, name );
+        page.setVersion( version.version );
+        page.setLastModified( new Date( version.lastModified ) );
+        page.setAuthor( version.author );
+        page.setSize( version.textLength );
+        version.attributes.forEach( page::setAttribute );
+        return page;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void putPageText( final Page page, final String text ) throws ProviderException {
+        final Map< String, String > attributes = attributesOf( page );
+        m_lock.writeLock().lock();
+        try {
+            final TreeMap< Integer, Version > versions = m_pages.get( page.getName() );
+            final int version = versions == null ? 1 : versions.lastKey() + 1;
+            put( page.getName(), version, System.currentTimeMillis(), page.getAuthor(), attributes, text.getBytes( StandardCharsets.UTF_8 ) );
+        } catch( final IOException e ) {
+            LOG.error( "Saving failed", e );
+            throw new ProviderException( "Could not save page text: " + e.getMessage() );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean pageExists( final String page ) {
+        m_lock.readLock().lock();
+        try {
+            return m_pages.containsKey( page );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean pageExists( final String page, final int version ) {
+        m_lock.readLock().lock();
+        try {
+            return find( page, version ) != null;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Iterates through the latest versions of all the pages, and matches them against the given query.
+     *
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< SearchResult > findPages( final QueryItem[] query ) {
+        final TreeSet< SearchResult > res = new TreeSet<>( new SearchResultComparator() );
+        final SearchMatcher matcher = new SearchMatcher( m_engine, query );
+        final List< String > names;
+        m_lock.readLock().lock();
+        try {
+            names = new ArrayList<>( m_pages.keySet() );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+
+        for( final String name : names ) {
+            try {
+                final String text = getPageText( name, WikiProvider.LATEST_VERSION );
+                if( text != null ) {
+                    final SearchResult comparison = matcher.matchPageContent( name, text );
+                    if( comparison != null ) {
+                        res.add( comparison );
+                    }
+                }
+            } catch( final ProviderException | IOException e ) {
+                LOG.error( "Failed to read " + name, e );
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Page getPageInfo( final String page, final int version ) throws ProviderException {
+        m_lock.readLock().lock();
+        try {
+            final Version found = find( page, version );
+            return found != null ? toPage( page, found ) : null;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< Page > getAllPages() throws ProviderException {
+        m_lock.readLock().lock();
+        try {
+            final List< Page > pages = new ArrayList<>( m_pages.size() );
+            for( final Map.Entry< String, TreeMap< Integer, Version > > page : m_pages.entrySet() ) {
+                pages.add( toPage( page.getKey(), page.getValue().lastEntry().getValue() ) );
+            }
+            return pages;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< Page > getAllChangedSince( final Date date ) {
+        m_lock.readLock().lock();
+        try {
+            final List< Page > pages = new ArrayList<>();
+            for( final Map.Entry< String, TreeMap< Integer, Version > > page : m_pages.entrySet() ) {
+                final Version latest = page.getValue().lastEntry().getValue();
+                if( latest.lastModified >= date.getTime() ) {
+                    pages.add( toPage( page.getKey(), latest ) );
+                }
+            }
+            return pages;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getPageCount() throws ProviderException {
+        m_lock.readLock().lock();
+        try {
+            return m_pages.size();
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public List< Page > getVersionHistory( final String page ) throws ProviderException {
+        m_lock.readLock().lock();
+        try {
+            final List< Page > history = new ArrayList<>();
+            final TreeMap< Integer, Version > versions = m_pages.get( page );
+            if( versions != null ) {
+                for( final Version version : versions.descendingMap().values() ) {
+                    history.add( toPage( page, version ) );
+                }
+            }
+            return history;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public String getPageText( final String page, final int version ) throws ProviderException {
+        m_lock.readLock().lock();
+        try {
+            final Version found = find( page, version );
+            if( found == null ) {
+                if( m_pages.containsKey( page ) ) {
+                    throw new NoSuchVersionException( "Page " + page + ", version " + version + ", does not exist." );
+                }
+                return null;
+            }
+            return new String( text( found ), StandardCharsets.UTF_8 );
+        } catch( final IOException e ) {
+            LOG.error( "Failed to read " + page + ", version " + version, e );
+            throw new ProviderException( "Could not read page text: " + e.getMessage() );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void deleteVersion( final String pageName, final int version ) throws ProviderException {
+        m_lock.writeLock().lock();
+        try {
+            final Version found = find( pageName, version );
+            if( found != null ) {
+                appendRecord( DELETE_VERSION, pageName, null, found.version );
+                unindex( pageName, found.version );
+            }
+        } catch( final IOException e ) {
+            LOG.error( "Unable to delete version " + version + " of " + pageName, e );
+            throw new ProviderException( "Could not delete page version: " + e.getMessage() );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void deletePage( final String pageName ) throws ProviderException {
+        m_lock.writeLock().lock();
+        try {
+            if( m_pages.containsKey( pageName ) ) {
+                appendRecord( DELETE_PAGE, pageName, null, 0 );
+                forget( pageName );
+            }
+        } catch( final IOException e ) {
+            LOG.error( "Unable to delete " + pageName, e );
+            throw new ProviderException( "Could not delete page: " + e.getMessage() );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void movePage( final String from, final String to ) throws ProviderException {
+        m_lock.writeLock().lock();
+        try {
+            if( m_pages.containsKey( from ) ) {
+                appendRecord( MOVE, from, to, 0 );
+                rename( from, to );
+            }
+        } catch( final IOException e ) {
+            LOG.error( "Unable to move " + from + " to " + to, e );
+            throw new ProviderException( "Could not move page: " + e.getMessage() );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public String getProviderInfo() {
+        return "";
+    }
+
+    /**
+     *  Copies into this store all the versions of the pages of the given provider, keeping their version numbers, dates, authors,
+     *  change notes and custom properties. The versions this store already has are skipped, so an import which was interrupted, even
+     *  halfway through the history of a page, may be run again to copy what is missing. This is how wikis move over from the one file
+     *  per version layout of the {@link VersioningFileProvider}.
+     *
+     *  @param source provider holding the pages to copy, already initialized.
+     *  @return the number of page versions copied.
+     *  @throws ProviderException if the pages can't be read from the source, or written to this store.
+     */
+    public int importPages( final PageProvider source ) throws ProviderException {
+        int imported = 0;
+        for( final Page page : source.getAllPages() ) {
+            final String name = page.getName();
+            final List< Page > history = new ArrayList<>( source.getVersionHistory( name ) );
+            if( history.isEmpty() ) {
+                history.add( page ); // not versioned yet
+            }
+            history.sort( Comparator.comparingInt( Page::getVersion ) );
+            for( final Page version : history ) {
+                final int number = Math.max( 1, version.getVersion() );
+                if( pageExists( name, number ) ) {
+                    continue;
+                }
+                final String text = source.getPageText( name, version.getVersion() );
+                if( text == null ) {
+                    continue;
+                }
+                final long lastModified = version.getLastModified() != null ? version.getLastModified().getTime() : System.currentTimeMillis();
+                m_lock.writeLock().lock();
+                try {
+                    put( name, number, lastModified, version.getAuthor(), attributesOf( version ),
+                         text.getBytes( StandardCharsets.UTF_8 ) );
+                    imported++;
+                } catch( final IOException e ) {
+                    LOG.error( "Importing " + name + " failed", e );
+                    throw new ProviderException( "Could not import page " + name + ": " + e.getMessage() );
+                } finally {
+                    m_lock.writeLock().unlock();
+                }
+            }
+        }
+        LOG.info( "Imported " + imported + " page versions from " + source.getClass().getName() );
+        return imported;
+    }
+
+    /**
+     *  Compacts the oldest closed segments for as long as there is more garbage on the closed segments than allowed.
+     *
+     *  @return the number of segments compacted.
+     *  @throws IOException if the versions can't be copied out of a segment.
+     */
+    int compact() throws IOException {
+        int compacted = 0;
+        int closed = -1;
+        while( true ) {
+            final LogSegment oldest;
+            m_lock.readLock().lock();
+            try {
+                long size = 0;
+                long live = 0;
+                for( final LogSegment segment : m_segments.values() ) {
+                    if( segment != m_active ) {
+                        size += segment.size();
+                        live += segment.liveBytes();
+                    }
+                }
+                // every closed segment is compacted at most once per run, as the copied versions may well fill new ones
+                if( closed < 0 ) {
+                    closed = m_segments.size() - 1;
+                }
+                if( size == 0 || ( size - live ) * 100 <= size * m_compactionThreshold || compacted >= closed ) {
+                    return compacted;
+                }
+                oldest = m_segments.firstEntry().getValue();
+            } finally {
+                m_lock.readLock().unlock();
+            }
+            compact( oldest );
+            compacted++;
+        }
+    }
+
+    /**
+     *  Appends the versions still in use of the given closed segment to the newest one, and removes the segment. The versions are
+     *  copied one by one, so reads and writes go on meanwhile.
+     */
+    private void compact( final LogSegment segment ) throws IOException {
+        final List< Map.Entry< String, Integer > > live = new ArrayList<>();
+        m_lock.readLock().lock();
+        try {
+            m_pages.forEach( ( name, versions ) -> versions.values().stream()
+                                                           .filter( version -> version.segment == segment )
+                                                           .forEach( version -> live.add( new AbstractMap.SimpleEntry<>( name, version.version ) ) ) );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+
+        for( final Map.Entry< String, Integer > version : live ) {
+            m_lock.writeLock().lock();
+            try {
+                copy( version.getKey(), find( version.getKey(), version.getValue() ), segment );
+            } finally {
+                m_lock.writeLock().unlock();
+            }
+        }
+
+        m_lock.writeLock().lock();
+        try {
+            // pages renamed while copying kept their versions on the segment under another name
+            for( final Map.Entry< String, TreeMap< Integer, Version > > page : new ArrayList<>( m_pages.entrySet() ) ) {
+                for( final Version version : new ArrayList<>( page.getValue().values() ) ) {
+                    copy( page.getKey(), version, segment );
+                }
+            }
+            m_active.force();
+            m_segments.remove( segment.id() );
+            segment.delete();
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+        LOG.info( "Compacted " + segment.path() );
+    }
+
+    private void copy( final String name, final Version version, final LogSegment from ) throws IOException {
+        if( version != null && version.segment == from ) {
+            put( name, version.version, version.lastModified, version.author, version.attributes, text( version ) );
+        }
+    }
+
+    /**
+     *  Closes the segments.
+     */
+    void close() {
+        m_lock.writeLock().lock();
+        try {
+            for( final LogSegment segment : m_segments.values() ) {
+                segment.close();
+            }
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to close the segments on " + m_directory, e );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  A version of a page, and where to find its text.
+     */
+    private static final class Version {
+        final int version;
+        final long lastModified;
+        final String author;
+        final Map< String, String > attributes;
+        final LogSegment segment;
+        final long textPosition;
+        final int textLength;
+        final int recordLength;
+
+        Version( final int version, final long lastModified, final String author, final Map< String, String > attributes,
+                 final LogSegment segment, final long textPosition, final int textLength, final int recordLength ) {
+            this.version = version;
+            this.lastModified = lastModified;
+            this.author = author;
+            this.attributes = attributes;
+            this.segment = segment;
+            this.textPosition = textPosition;
+            this.textLength = textLength;
+            this.recordLength = recordLength;
+        }
+    }
+
+    /**
+     *  Compacts the segments periodically, and closes them when the engine shuts down.
+     */
+    private final class Compactor extends WikiBackgroundThread {
+
+        Compactor( final Engine engine, final int interval ) {
+            super( engine, interval );
+            setName( "JSPWiki Segment Compactor" );
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void backgroundTask() {
+            try {
+                compact();
+            } catch( final IOException e ) {
+                LOG.error( "Unable to compact the segments on " + m_directory, e );
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void shutdownTask() {
+            close();
+        }
+
+    }
+
+}
@@ -29,19 +29,25 @@ import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.api.providers.WikiProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.util.FileUtil;
+import org.apache.wiki.util.TextUtil;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  *  Provides a simple directory based repository for Wiki pages.
@@ -67,6 +73,12 @@ import java.util.Properties;
  *  All files have ".txt" appended to make life easier for those
  *  who insist on using Windows or other software which makes assumptions
  *  on the files contents based on its name.
+ *  <P>
+ *  Reads and changes of a page are guarded by a read-write lock on that page only, so readers of a page never wait on
+ *  the writers of another one. Files are written through temporary files which then replace them atomically.
+ *  <P>
+ *  The parsed page properties of the most recently used pages are kept in memory (see {@link #PROP_PROPERTIES_CACHE_SIZE}),
+ *  and the version history of a page is built from a single read of them.
  *
  */
 public class VersioningFileProvider extends AbstractFileProvider {
@@ -79,7 +91,20 @@ public class VersioningFileProvider extends AbstractFileProvider {
     /** Name of the property file which stores the metadata. */
     public static final String PROPERTYFILE = "page.properties";
 
-    private CachedProperties m_cachedProperties;
+    /** Name of the property with the number of page property files kept parsed in memory, 100 by default. Value is {@value}. */
+    public static final String PROP_PROPERTIES_CACHE_SIZE = "jspwiki.versioningFileProvider.propertiesCacheSize";
+
+    /** Number of locks the pages are spread over; pages sharing a lock just contend a bit more. */
+    private static final int LOCK_STRIPES = 64;
+
+    private Map< String, CachedProperties > m_cachedProperties = newPropertiesCache( 100 );
+
+    private final ReadWriteLock[] m_locks = new ReadWriteLock[ LOCK_STRIPES ];
+    {
+        for( int i = 0; i < m_locks.length; i++ ) {
+            m_locks[ i ] = new ReentrantReadWriteLock();
+        }
+    }
 
     /**
      *  {@inheritDoc}
@@ -87,6 +112,7 @@ public class VersioningFileProvider extends AbstractFileProvider {
     @Override
     public void initialize( final Engine engine, final Properties properties ) throws NoRequiredPropertyException, IOException {
         super.initialize( engine, properties );
+        m_cachedProperties = newPropertiesCache( TextUtil.getIntegerProperty( properties, PROP_PROPERTIES_CACHE_SIZE, 100 ) );
         // some additional sanity checks :
         final File oldpages = new File( getPageDirectory(), PAGEDIR );
         if( !oldpages.exists() ) {
@@ -104,6 +130,33 @@ public class VersioningFileProvider extends AbstractFileProvider {
         LOG.info( "Using directory " + oldpages.getAbsolutePath() + " for storing old versions of pages" );
     }
 
+    /**
+     *  Creates the cache of parsed property files, keyed by path, which forgets the least recently used ones beyond the given size.
+     */
+    private static Map< String, CachedProperties > newPropertiesCache( final int size ) {
+        return Collections.synchronizedMap( new LinkedHashMap< String, CachedProperties >( 16, 0.75f, true ) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry< String, CachedProperties > eldest ) {
+                return size() > size;
+            }
+        } );
+    }
+
+    /**
+     *  Returns the lock guarding the files of a page, which is read-locked to read them and write-locked to change them, so readers
+     *  and writers of a page only wait on the readers and writers of the same page. Locks are keyed on the mangled name, lower-cased
+     *  so that names stored on the same file of a case-insensitive file system share it.
+     */
+    private ReadWriteLock lockFor( final String page ) {
+        return m_locks[ stripeOf( page ) ];
+    }
+
+    private int stripeOf( final String page ) {
+        return Math.floorMod( mangleName( page ).toLowerCase( Locale.ROOT ).hashCode(), m_locks.length );
+    }
+
     /**
      *  Returns the directory where the old versions of the pages
      *  are being kept.
@@ -161,34 +214,40 @@ public class VersioningFileProvider extends AbstractFileProvider {
     }
 */
     private int findLatestVersion( final String page ) {
-        int version = -1;
-
         try {
-            final Properties props = getPageProperties( page );
-
-            for( final Object o : props.keySet() ) {
-                final String key = ( String )o;
-                if( key.endsWith( ".author" ) ) {
-                    final int cutpoint = key.indexOf( '.' );
-                    if( cutpoint > 0 ) {
-                        final String pageNum = key.substring( 0, cutpoint );
-
-                        try {
-                            final int res = Integer.parseInt( pageNum );
-
-                            if( res > version ) {
-                                version = res;
-                            }
-                        } catch( final NumberFormatException e ) {
-                            LOG.debug(e.getMessage(), e);
-                        } // It's okay to skip these.
-                    }
-                }
-            }
+            return findLatestVersion( getPageProperties( page ) );
         } catch( final IOException e ) {
             LOG.error( "Unable to figure out latest version - dying...", e );
         }
 
+        return -1;
+    }
+
+    /**
+     *  Decides which version is the newest one from the page properties.
+     */
+    private int findLatestVersion( final Properties props ) {
+        int version = -1;
+        for( final Object o : props.keySet() ) {
+            final String key = ( String )o;
+            if( key.endsWith( ".author" ) ) {
+                final int cutpoint = key.indexOf( '.' );
+                if( cutpoint > 0 ) {
+                    final String pageNum = key.substring( 0, cutpoint );
+
+                    try {
+                        final int res = Integer.parseInt( pageNum );
+
+                        if( res > version ) {
+                            version = res;
+                        }
+                    } catch( final NumberFormatException e ) {
+                        LOG.debug(e.getMessage(), e);
+                    } // It's okay to skip these.
+                }
+            }
+        }
+
         return version;
     }
 
@@ -203,22 +262,18 @@ public class VersioningFileProvider extends AbstractFileProvider {
             //
             //   The profiler showed that when calling the history of a page the propertyfile
             //   was read just as much times as there were versions of that file. The loading
-            //   of a propertyfile is a cpu-intensive job. So now hold on to the last propertyfile
-            //   read because the next method will with a high probability ask for the same propertyfile.
-            //   The time it took to show a historypage with 267 versions dropped with 300%.
+            //   of a propertyfile is a cpu-intensive job. So now hold on to the propertyfiles
+            //   read, as they're likely to be read again before being modified.
             //
-
-            CachedProperties cp = m_cachedProperties;
-
-            if( cp != null && cp.m_page.equals( page ) && cp.m_lastModified == lastModified ) {
+            final CachedProperties cp = m_cachedProperties.get( propertyFile.getPath() );
+            if( cp != null && cp.m_lastModified == lastModified ) {
                 return cp.m_props;
             }
 
             try( final InputStream in = new BufferedInputStream( Files.newInputStream( propertyFile.toPath() ) ) ) {
                 final Properties props = new Properties();
                 props.load( in );
-                cp = new CachedProperties( page, props, lastModified );
-                m_cachedProperties = cp; // Atomic
+                m_cachedProperties.put( propertyFile.getPath(), new CachedProperties( page, props, lastModified ) );
 
                 return props;
             }
@@ -233,14 +288,12 @@ public class VersioningFileProvider extends AbstractFileProvider {
      */
     private void putPageProperties( final String page, final Properties properties ) throws IOException {
         final File propertyFile = new File( findOldPageDir(page), PROPERTYFILE );
-        try( final OutputStream out = Files.newOutputStream( propertyFile.toPath() ) ) {
-            properties.store( out, " JSPWiki page properties for "+page+". DO NOT MODIFY!" );
-        }
+        writeAtomically( propertyFile, out -> properties.store( out, " JSPWiki page properties for "+page+". DO NOT MODIFY!" ), -1L );
 
         // The profiler showed the probability was very high that when  calling for the history of
         // a page the propertyfile would be read as much times as there were versions of that file.
         // It is statistically likely the propertyfile will be examined many times before it is updated.
-        m_cachedProperties = new CachedProperties( page, properties, propertyFile.lastModified() ); // Atomic
+        m_cachedProperties.put( propertyFile.getPath(), new CachedProperties( page, properties, propertyFile.lastModified() ) );
     }
 
     /**
@@ -269,21 +322,27 @@ public class VersioningFileProvider extends AbstractFileProvider {
      *  {@inheritDoc}
      */
     @Override
-    public synchronized String getPageText( final String page, int version ) throws ProviderException {
-        final File dir = findOldPageDir( page );
+    public String getPageText( final String page, int version ) throws ProviderException {
+        final Lock lock = lockFor( page ).readLock();
+        lock.lock();
+        try {
+            final File dir = findOldPageDir( page );
 
-        version = realVersion( page, version );
-        if( version == -1 ) {
-            // We can let the FileSystemProvider take care of these requests.
-            return super.getPageText( page, PageProvider.LATEST_VERSION );
-        }
+            version = realVersion( page, version );
+            if( version == -1 ) {
+                // We can let the FileSystemProvider take care of these requests.
+                return super.getPageText( page, PageProvider.LATEST_VERSION );
+            }
 
-        final File pageFile = new File( dir, ""+version+FILE_EXT );
-        if( !pageFile.exists() ) {
-            throw new NoSuchVersionException("Version "+version+"does not exist.");
-        }
+            final File pageFile = new File( dir, ""+version+FILE_EXT );
+            if( !pageFile.exists() ) {
+                throw new NoSuchVersionException("Version "+version+"does not exist.");
+            }
 
-        return readFile( pageFile );
+            return readFile( pageFile );
+        } finally {
+            lock.unlock();
+        }
     }
 
 
@@ -326,7 +385,17 @@ public class VersioningFileProvider extends AbstractFileProvider {
      *  {@inheritDoc}
      */
     @Override
-    public synchronized void putPageText( final Page page, final String text ) throws ProviderException {
+    public void putPageText( final Page page, final String text ) throws ProviderException {
+        final Lock lock = lockFor( page.getName() ).writeLock();
+        lock.lock();
+        try {
+            savePageText( page, text );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void savePageText( final Page page, final String text ) throws ProviderException {
         // This is a bit complicated.  We'll first need to copy the old file to be the newest file.
         final int  latest  = findLatestVersion( page.getName() );
         final File pageDir = findOldPageDir( page.getName() );
@@ -346,16 +415,11 @@ public class VersioningFileProvider extends AbstractFileProvider {
 
             if( oldFile != null && oldFile.exists() ) {
                 final File pageFile = new File( pageDir, versionNumber + FILE_EXT );
-                try( final InputStream in = new BufferedInputStream( Files.newInputStream( oldFile.toPath() ) );
-                     final OutputStream out = new BufferedOutputStream( Files.newOutputStream( pageFile.toPath() ) ) ) {
-                    FileUtil.copyContents( in, out );
+                // We need also to set the date, since we rely on this.
+                writeAtomically( pageFile, out -> Files.copy( oldFile.toPath(), out ), oldFile.lastModified() );
 
-                    // We need also to set the date, since we rely on this.
-                    pageFile.setLastModified( oldFile.lastModified() );
-
-                    // Kludge to make the property code to work properly.
-                    versionNumber++;
-                }
+                // Kludge to make the property code to work properly.
+                versionNumber++;
             }
 
             //  Let superclass handler writing data to a new version.
@@ -363,7 +427,8 @@ public class VersioningFileProvider extends AbstractFileProvider {
 
             //  Finally, write page version data.
             // FIXME: No rollback available.
-            final Properties props = getPageProperties( page.getName() );
+            final Properties props = new Properties();
+            props.putAll( getPageProperties( page.getName() ) ); // cached ones are shared with readers
 
             String authorFirst = null;
             // if the following file exists, we are NOT migrating from FileSystemProvider
@@ -403,7 +468,32 @@ public class VersioningFileProvider extends AbstractFileProvider {
      */
     @Override
     public Page getPageInfo( final String page, final int version ) throws ProviderException {
-        final int latest = findLatestVersion( page );
+        final Lock lock = lockFor( page ).readLock();
+        lock.lock();
+        try {
+            final Properties props = readPageProperties( page );
+            return pageInfo( page, version, findLatestVersion( props ), props );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     *  Reads the page properties for building page infos, which can still be built without them.
+     */
+    private Properties readPageProperties( final String page ) {
+        try {
+            return getPageProperties( page );
+        } catch( final IOException e ) {
+            LOG.error( "Cannot get author for page" + page + ": ", e );
+            return new Properties();
+        }
+    }
+
+    /**
+     *  Builds the page info of a version from the already read page properties, must be called with the page lock held.
+     */
+    private Page pageInfo( final String page, final int version, final int latest, final Properties props ) throws ProviderException {
         final int realVersion;
 
         Page p = null;
@@ -441,28 +531,27 @@ public class VersioningFileProvider extends AbstractFileProvider {
 
         //  Get author and other metadata information (Modification date has already been set.)
         if( p != null ) {
-            try {
-                final Properties props = getPageProperties( page );
-                String author = props.getProperty( realVersion + ".author" );
-                if( author == null ) {
-                    // we might not have a versioned author because the old page was last maintained by FileSystemProvider
+            String author = props.getProperty( realVersion + ".author" );
+            if( author == null ) {
+                // we might not have a versioned author because the old page was last maintained by FileSystemProvider
+                try {
                     final Properties props2 = getHeritagePageProperties( page );
                     author = props2.getProperty( Page.AUTHOR );
+                } catch( final IOException e ) {
+                    LOG.error( "Cannot get author for page" + page + ": ", e );
                 }
-                if( author != null ) {
-                    p.setAuthor( author );
-                }
-
-                final String changenote = props.getProperty( realVersion + ".changenote" );
-                if( changenote != null ) {
-                    p.setAttribute( Page.CHANGENOTE, changenote );
-                }
+            }
+            if( author != null ) {
+                p.setAuthor( author );
+            }
 
-                // Set the props values to the page attributes
-                setCustomProperties( p, props );
-            } catch( final IOException e ) {
-                LOG.error( "Cannot get author for page" + page + ": ", e );
+            final String changenote = props.getProperty( realVersion + ".changenote" );
+            if( changenote != null ) {
+                p.setAttribute( Page.CHANGENOTE, changenote );
             }
+
+            // Set the props values to the page attributes
+            setCustomProperties( p, props );
         }
 
         return p;
@@ -491,16 +580,24 @@ public class VersioningFileProvider extends AbstractFileProvider {
      // FIXME: Does not get user information.
     @Override
     public List< Page > getVersionHistory( final String page ) throws ProviderException {
-        final ArrayList< Page > list = new ArrayList<>();
-        final int latest = findLatestVersion( page );
-        for( int i = latest; i > 0; i-- ) {
-            final Page info = getPageInfo( page, i );
-            if( info != null ) {
-                list.add( info );
+        final Lock lock = lockFor( page ).readLock();
+        lock.lock();
+        try {
+            // Parse the page properties once, instead of once per version.
+            final Properties props = readPageProperties( page );
+            final ArrayList< Page > list = new ArrayList<>();
+            final int latest = findLatestVersion( props );
+            for( int i = latest; i > 0; i-- ) {
+                final Page info = pageInfo( page, i, latest, props );
+                if( info != null ) {
+                    list.add( info );
+                }
             }
-        }
 
-        return list;
+            return list;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /*
@@ -512,8 +609,8 @@ public class VersioningFileProvider extends AbstractFileProvider {
         if ( propertyFile.exists() ) {
             final long lastModified = propertyFile.lastModified();
 
-            CachedProperties cp = m_cachedProperties;
-            if ( cp != null && cp.m_page.equals(page) && cp.m_lastModified == lastModified ) {
+            final CachedProperties cp = m_cachedProperties.get( propertyFile.getPath() );
+            if ( cp != null && cp.m_lastModified == lastModified ) {
                 return cp.m_props;
             }
 
@@ -529,8 +626,7 @@ public class VersioningFileProvider extends AbstractFileProvider {
                     // The profiler showed the probability was very high that when calling for the history of a page the
                     // propertyfile would be read as much times as there were versions of that file. It is statistically
                     // likely the propertyfile will be examined many times before it is updated.
-                    cp = new CachedProperties( page, props, propertyFile.lastModified() );
-                    m_cachedProperties = cp; // Atomic
+                    m_cachedProperties.put( propertyFile.getPath(), new CachedProperties( page, props, propertyFile.lastModified() ) );
                 }
 
                 return props;
@@ -549,24 +645,30 @@ public class VersioningFileProvider extends AbstractFileProvider {
      */
     @Override
     public void deletePage( final String page ) throws ProviderException {
-        super.deletePage( page );
-        final File dir = findOldPageDir( page );
-        if( dir.exists() && dir.isDirectory() ) {
-            final File[] files = dir.listFiles( new WikiFileFilter() );
-            for( final File file : files ) {
-                if (!file.delete()) {
-                    LOG.warn("Failed to delete " + file.getAbsolutePath());
+        final Lock lock = lockFor( page ).writeLock();
+        lock.lock();
+        try {
+            super.deletePage( page );
+            final File dir = findOldPageDir( page );
+            if( dir.exists() && dir.isDirectory() ) {
+                final File[] files = dir.listFiles( new WikiFileFilter() );
+                for( final File file : files ) {
+                    if (!file.delete()) {
+                        LOG.warn("Failed to delete " + file.getAbsolutePath());
+                    }
                 }
-            }
 
-            final File propfile = new File( dir, PROPERTYFILE );
-            if( propfile.exists() ) {
-                if (!propfile.delete()) {
-                    LOG.warn("Failed to delete " + propfile.getAbsolutePath());
+                final File propfile = new File( dir, PROPERTYFILE );
+                if( propfile.exists() ) {
+                    if (!propfile.delete()) {
+                        LOG.warn("Failed to delete " + propfile.getAbsolutePath());
+                    }
                 }
-            }
 
-            dir.delete();
+                dir.delete();
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -578,51 +680,54 @@ public class VersioningFileProvider extends AbstractFileProvider {
      */
     @Override
     public void deleteVersion( final String page, final int version ) throws ProviderException {
-        final File dir = findOldPageDir( page );
-        int latest = findLatestVersion( page );
-        if( version == PageProvider.LATEST_VERSION ||
-            version == latest ||
-            (version == 1 && latest == -1) ) {
-            //  Delete the properties
-            try {
-                final Properties props = getPageProperties( page );
-                props.remove( ((latest > 0) ? latest : 1)+".author" );
-                putPageProperties( page, props );
-            } catch( final IOException e ) {
-                LOG.error("Unable to modify page properties",e);
-                throw new ProviderException("Could not modify page properties: " + e.getMessage());
-            }
+        final Lock lock = lockFor( page ).writeLock();
+        lock.lock();
+        try {
+            final File dir = findOldPageDir( page );
+            int latest = findLatestVersion( page );
+            if( version == PageProvider.LATEST_VERSION ||
+                version == latest ||
+                (version == 1 && latest == -1) ) {
+                //  Delete the properties
+                try {
+                    final Properties props = new Properties();
+                    props.putAll( getPageProperties( page ) ); // cached ones are shared with readers
+                    props.remove( ((latest > 0) ? latest : 1)+".author" );
+                    putPageProperties( page, props );
+                } catch( final IOException e ) {
+                    LOG.error("Unable to modify page properties",e);
+                    throw new ProviderException("Could not modify page properties: " + e.getMessage());
+                }
 
-            // We can let the FileSystemProvider take care of the actual deletion
-            super.deleteVersion( page, PageProvider.LATEST_VERSION );
+                // We can let the FileSystemProvider take care of the actual deletion
+                super.deleteVersion( page, PageProvider.LATEST_VERSION );
 
-            //  Copy the old file to the new location
-            latest = findLatestVersion( page );
+                //  Copy the old file to the new location
+                latest = findLatestVersion( page );
 
-            final File pageDir = findOldPageDir( page );
-            final File previousFile = new File( pageDir, latest + FILE_EXT );
-            final File pageFile = findPage(page);
-            try( final InputStream in = new BufferedInputStream( Files.newInputStream( previousFile.toPath() ) );
-                 final OutputStream out = new BufferedOutputStream( Files.newOutputStream( pageFile.toPath() ) ) ) {
-                if( previousFile.exists() ) {
-                    FileUtil.copyContents( in, out );
+                final File pageDir = findOldPageDir( page );
+                final File previousFile = new File( pageDir, latest + FILE_EXT );
+                final File pageFile = findPage(page);
+                try {
                     // We need also to set the date, since we rely on this.
-                    pageFile.setLastModified( previousFile.lastModified() );
+                    writeAtomically( pageFile, out -> Files.copy( previousFile.toPath(), out ), previousFile.lastModified() );
+                } catch( final IOException e ) {
+                    LOG.fatal("Something wrong with the page directory - you may have just lost data!",e);
                 }
-            } catch( final IOException e ) {
-                LOG.fatal("Something wrong with the page directory - you may have just lost data!",e);
-            }
 
-            return;
-        }
+                return;
+            }
 
-        final File pageFile = new File( dir, ""+version+FILE_EXT );
-        if( pageFile.exists() ) {
-            if( !pageFile.delete() ) {
-                LOG.error("Unable to delete page." + pageFile.getPath() );
+            final File pageFile = new File( dir, ""+version+FILE_EXT );
+            if( pageFile.exists() ) {
+                if( !pageFile.delete() ) {
+                    LOG.error("Unable to delete page." + pageFile.getPath() );
+                }
+            } else {
+                throw new NoSuchVersionException("Page "+page+", version="+version);
             }
-        } else {
-            throw new NoSuchVersionException("Page "+page+", version="+version);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -656,24 +761,37 @@ public class VersioningFileProvider extends AbstractFileProvider {
      */
     @Override
     public void movePage( final String from, final String to ) {
-        // Move the file itself
-        final File fromFile = findPage( from );
-        final File toFile = findPage( to );
-        fromFile.renameTo( toFile );
-
-        // Move any old versions
-        final File fromOldDir = findOldPageDir( from );
-        final File toOldDir = findOldPageDir( to );
-        fromOldDir.renameTo( toOldDir );
+        // Lock both pages in the same order whoever moves them, so that moves in opposite directions don't deadlock
+        final int fromStripe = stripeOf( from );
+        final int toStripe = stripeOf( to );
+        final Lock first = m_locks[ Math.min( fromStripe, toStripe ) ].writeLock();
+        final Lock second = m_locks[ Math.max( fromStripe, toStripe ) ].writeLock();
+        first.lock();
+        second.lock();
+        try {
+            // Move the file itself
+            final File fromFile = findPage( from );
+            final File toFile = findPage( to );
+            fromFile.renameTo( toFile );
+
+            // Move any old versions
+            final File fromOldDir = findOldPageDir( from );
+            final File toOldDir = findOldPageDir( to );
+            fromOldDir.renameTo( toOldDir );
+            pageChanged( from, to );
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
     }
 
     /*
      * The profiler showed that when calling the history of a page, the propertyfile was read just as many
      * times as there were versions of that file. The loading of a propertyfile is a cpu-intensive job.
-     * This Class holds onto the last propertyfile read, because the probability is high that the next call
-     * will with ask for the same propertyfile. The time it took to show a historypage with 267 versions dropped
-     * by 300%. Although each propertyfile in a history could be cached, there is likely to be little performance
-     * gain over simply keeping the last one requested.
+     * The time it took to show a historypage with 267 versions dropped by 300% by holding on to the last
+     * propertyfile read. Several of them are now kept, so that pages read in turn by concurrent requests do not
+     * keep evicting each other; an entry is only used while its file has not been modified since. The held
+     * Properties are shared, so they must be copied before being changed.
      */
     private static class CachedProperties {
         String m_page;
@@ -27,13 +27,15 @@ import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.ContextEnum;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.core.Session;
 import org.apache.wiki.api.exceptions.FilterException;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.exceptions.WikiException;
-import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.cache.CacheInvalidation;
 import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.cache.ContentDigest;
 import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventListener;
 import org.apache.wiki.event.WikiEventManager;
@@ -43,7 +45,7 @@ import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.parser.JSPWikiMarkupParser;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
-import org.apache.wiki.references.ReferenceManager;
+import org.apache.wiki.preferences.Preferences;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.TextUtil;
 import org.apache.wiki.variables.VariableManager;
@@ -51,9 +53,14 @@ import org.apache.wiki.variables.VariableManager;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Constructor;
-import java.util.Collection;
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 /**
@@ -63,6 +70,13 @@ import java.util.Properties;
  *  This class also delegates to a rendering cache, i.e. documents are stored between calls. You may control the cache by
  *  tweaking the ehcache configuration file.
  *  <p>
+ *  If {@value #PROP_HTML_CACHE} is set, the HTML of viewed pages is also cached, so views don't run the renderer and plugins
+ *  again. Pages running plugins which aren't cacheable or showing wiki variables are not cached. The cached HTML varies with the
+ *  user's permissions and locale, see {@link #getCacheVariance(Context)}.
+ *  <p>
+ *  The pages and attachments a page is rendered using, like the pages it links to or inserts, are recorded while rendering it into the
+ *  caches. Once any of them is saved or deleted, the renderings of the page, and of the pages depending on it in turn, are flushed.
+ *  <p>
  *
  *  @since  2.4
  */
@@ -83,10 +97,16 @@ public class DefaultRenderingManager implements RenderingManager {
     /** If true, all titles will be cleaned. */
     private boolean m_beautifyTitle;
 
+    /** If true, the HTML of viewed pages is cached. */
+    private boolean m_useHtmlCache;
+
     private Constructor< ? > m_rendererConstructor;
     private Constructor< ? > m_rendererWysiwygConstructor;
     private String m_markupParserClass = DEFAULT_PARSER;
 
+    /** The pages and attachments the cached renderings of each page depend on. */
+    private final RenderDependencies m_dependencies = new RenderDependencies( this::isCached );
+
     /**
      *  {@inheritDoc}
      *
@@ -97,6 +117,7 @@ public class DefaultRenderingManager implements RenderingManager {
     public void initialize( final Engine engine, final Properties properties ) throws WikiException {
         m_engine = engine;
         cachingManager = m_engine.getManager( CachingManager.class );
+        cachingManager.addInvalidationListener( this::invalidated );
         m_markupParserClass = properties.getProperty( PROP_PARSER, DEFAULT_PARSER );
         if( !ClassUtil.assignable( m_markupParserClass, MarkupParser.class.getName() ) ) {
         	LOG.warn( "{} does not subclass {} reverting to default markup parser.", m_markupParserClass, MarkupParser.class.getName() );
@@ -105,6 +126,7 @@ public class DefaultRenderingManager implements RenderingManager {
         LOG.info( "Using {} as markup parser.", m_markupParserClass );
 
         m_beautifyTitle  = TextUtil.getBooleanProperty( properties, PROP_BEAUTIFYTITLE, m_beautifyTitle );
+        m_useHtmlCache = TextUtil.getBooleanProperty( properties, PROP_HTML_CACHE, m_useHtmlCache );
         final String renderImplName = properties.getProperty( PROP_RENDERER, DEFAULT_RENDERER );
         final String renderWysiwygImplName = properties.getProperty( PROP_WYSIWYG_RENDERER, DEFAULT_WYSIWYG_RENDERER );
 
@@ -115,6 +137,8 @@ public class DefaultRenderingManager implements RenderingManager {
         LOG.info( "Rendering content with {}.", renderImplName );
 
         WikiEventManager.addWikiEventListener( m_engine.getManager( FilterManager.class ),this );
+        WikiEventManager.addWikiEventListener( m_engine.getManager( PageManager.class ), this );
+        WikiEventManager.addWikiEventListener( m_engine.getManager( AttachmentManager.class ), this );
     }
 
     private Constructor< ? > initRenderer( final String renderImplName, final Class< ? >[] rendererParams ) throws WikiException {
@@ -188,6 +212,7 @@ public class DefaultRenderingManager implements RenderingManager {
     @Override
     // FIXME: The cache management policy is not very good: deleted/changed pages should be detected better.
     public WikiDocument getRenderedDocument( final Context context, final String pagedata ) {
+        final ContentDigest digest = ContentDigest.of( pagedata );
         final String pageid = context.getRealPage().getName() + VERSION_DELIMITER +
                               context.getRealPage().getVersion() + VERSION_DELIMITER +
                               context.getVariable( Context.VAR_EXECUTE_PLUGINS );
@@ -196,8 +221,7 @@ public class DefaultRenderingManager implements RenderingManager {
             final WikiDocument doc = cachingManager.get( CachingManager.CACHE_DOCUMENTS, pageid, () -> null );
             if ( doc != null ) {
                 //  This check is needed in case the different filters have actually changed the page data.
-                //  FIXME: Figure out a faster method
-                if( pagedata.equals( doc.getPageData() ) ) {
+                if( digest.equals( doc.getPageDigest() ) ) {
                     LOG.debug( "Using cached HTML for page {}", pageid );
                     return doc;
                 }
@@ -207,26 +231,145 @@ public class DefaultRenderingManager implements RenderingManager {
         }
 
         // Refresh the data content
+        final boolean useCache = useCache( context );
+        final long generation = m_dependencies.generation();
+        final Set< String > outerDependencies = useCache ? startCollectingDependencies( context ) : null;
         try {
             final MarkupParser parser = getParser( context, pagedata );
             final WikiDocument doc = parser.parse();
-            doc.setPageData( pagedata );
-            if( useCache( context ) ) {
-                cachingManager.put( CachingManager.CACHE_DOCUMENTS, pageid, doc );
+            doc.setPageDigest( digest );
+            if( useCache ) {
+                cache( context, generation, CachingManager.CACHE_DOCUMENTS, pageid, doc );
             }
             return doc;
         } catch( final IOException ex ) {
             LOG.error( "Unable to parse", ex );
+        } finally {
+            if( useCache ) {
+                stopCollectingDependencies( context, outerDependencies );
+            }
         }
 
         return null;
     }
 
+    /**
+     *  Starts collecting the dependencies of the page about to be rendered into the caches.
+     *
+     *  @param context the wiki context.
+     *  @return the dependencies being collected for the enclosing rendering, if any.
+     */
+    private Set< String > startCollectingDependencies( final Context context ) {
+        final Set< String > outerDependencies = context.getVariable( VAR_DEPENDENCIES );
+        context.setVariable( VAR_DEPENDENCIES, new HashSet<>() );
+        return outerDependencies;
+    }
+
+    /**
+     *  Hands the dependencies collected while rendering the page over to the enclosing rendering, if any.
+     *
+     *  @param context the wiki context.
+     *  @param outerDependencies the dependencies being collected for the enclosing rendering, if any.
+     */
+    private void stopCollectingDependencies( final Context context, final Set< String > outerDependencies ) {
+        final Set< String > dependencies = context.getVariable( VAR_DEPENDENCIES );
+        if( outerDependencies != null ) {
+            outerDependencies.addAll( dependencies );
+        }
+        context.setVariable( VAR_DEPENDENCIES, outerDependencies );
+    }
+
+    /**
+     *  Caches a rendering of the page along with the dependencies collected while rendering it, unless any page changed meanwhile,
+     *  as the rendering may then be stale.
+     *
+     *  @param context the wiki context.
+     *  @param generation the generation of the dependencies when the rendering started.
+     *  @param cacheName the cache holding the rendering.
+     *  @param key the key of the rendering.
+     *  @param rendering the rendering.
+     */
+    private void cache( final Context context, final long generation, final String cacheName, final String key, final Object rendering ) {
+        final Set< String > dependencies = context.getVariable( VAR_DEPENDENCIES );
+        if( !m_dependencies.cache( context.getRealPage().getName(), generation, dependencies, cacheName, key,
+                                   () -> cachingManager.put( cacheName, key, rendering ) ) ) {
+            LOG.debug( "Not caching {}, pages changed while rendering it", key );
+        }
+    }
+
     boolean useCache( final Context context ) {
         return cachingManager.enabled( CachingManager.CACHE_DOCUMENTS )
                && ContextEnum.PAGE_VIEW.getRequestContext().equals( context.getRequestContext() );
     }
 
+    /**
+     *  {@inheritDoc}
+     *
+     *  <p>Viewed pages are served from the HTML cache, if it's enabled. Pages are cached unless their rendering flags any content as
+     *  {@link #VAR_UNCACHEABLE uncacheable}.
+     */
+    @Override
+    public String getHTML( final Context context, final String pagedata ) {
+        if( !useHtmlCache( context ) ) {
+            return RenderingManager.super.getHTML( context, pagedata );
+        }
+
+        final String key = context.getRealPage().getName() + VERSION_DELIMITER +
+                           context.getRealPage().getVersion() + VERSION_DELIMITER +
+                           context.getVariable( Context.VAR_EXECUTE_PLUGINS ) + VERSION_DELIMITER +
+                           context.getVariable( Context.VAR_WYSIWYG_EDITOR_MODE ) + VERSION_DELIMITER +
+                           getCacheVariance( context );
+        final RenderedHtml cached = cachingManager.get( CachingManager.CACHE_HTML, key, () -> null );
+        final ContentDigest digest = ContentDigest.of( pagedata );
+        if( cached != null && digest.equals( cached.getPageDigest() ) ) {
+            LOG.debug( "Using cached HTML for {}", key );
+            return cached.getHtml();
+        }
+
+        // pages may be rendered inside other pages, so keep track of whether the outer page was already uncacheable
+        final boolean outerUncacheable = Boolean.TRUE.equals( context.getVariable( VAR_UNCACHEABLE ) );
+        context.setVariable( VAR_UNCACHEABLE, Boolean.FALSE );
+        final long generation = m_dependencies.generation();
+        final Set< String > outerDependencies = startCollectingDependencies( context );
+        final String html;
+        try {
+            html = RenderingManager.super.getHTML( context, pagedata );
+            final boolean uncacheable = Boolean.TRUE.equals( context.getVariable( VAR_UNCACHEABLE ) );
+            context.setVariable( VAR_UNCACHEABLE, outerUncacheable || uncacheable );
+
+            if( html != null && !uncacheable ) {
+                cache( context, generation, CachingManager.CACHE_HTML, key, new RenderedHtml( digest, html ) );
+            } else if( cached != null ) {
+                cachingManager.remove( CachingManager.CACHE_HTML, key );
+            }
+        } finally {
+            stopCollectingDependencies( context, outerDependencies );
+        }
+        return html;
+    }
+
+    boolean useHtmlCache( final Context context ) {
+        return m_useHtmlCache
+               && cachingManager.enabled( CachingManager.CACHE_HTML )
+               && ContextEnum.PAGE_VIEW.getRequestContext().equals( context.getRequestContext() );
+    }
+
+    /**
+     *  Returns the key telling apart the HTML of a page rendered for different users. Pages are rendered differently depending on
+     *  the user's permissions, which are given by their roles and groups and, once authenticated, by their name, and on their locale
+     *  and date preferences.
+     *
+     *  @param context the wiki context.
+     *  @return the key telling apart the HTML of a page rendered for different users.
+     */
+    protected String getCacheVariance( final Context context ) {
+        final Session session = context.getWikiSession();
+        final String roles = Arrays.stream( session.getRoles() ).map( Principal::getName ).sorted().collect( Collectors.joining( "," ) );
+        final String user = session.isAuthenticated() ? session.getLoginPrincipal().getName() : "";
+        return user + VERSION_DELIMITER + roles + VERSION_DELIMITER + Preferences.getLocale( context ) + VERSION_DELIMITER +
+               Preferences.getPreference( context, "DateFormat" ) + VERSION_DELIMITER + Preferences.getPreference( context, "TimeZone" );
+    }
+
     /**
      *  {@inheritDoc}
      */
@@ -391,36 +534,57 @@ public class DefaultRenderingManager implements RenderingManager {
     /**
      * {@inheritDoc}
      *
-     * <p>Flushes the document cache in response to a POST_SAVE_BEGIN event.
+     * <p>Flushes the document and HTML caches in response to a POST_SAVE_BEGIN or PAGE_DELETED event, for the changed page or attachment
+     * and for every page depending on it, as registered through {@link #addDependency(Context, String)} while rendering them.
      *
      * @see WikiEventListener#actionPerformed(WikiEvent)
      */
     @Override
     public void actionPerformed( final WikiEvent event ) {
         LOG.debug( "event received: {}", event.toString() );
-        if( isBeginningAWikiPagePostSaveEventAndDocumentCacheIsEnabled( event ) ) {
-            final String pageName = ( ( WikiPageEvent ) event ).getPageName();
-            cachingManager.remove( CachingManager.CACHE_DOCUMENTS, pageName );
-            final Collection< String > referringPages = m_engine.getManager( ReferenceManager.class ).findReferrers( pageName );
-
-            // Flush also those pages that refer to this page (if a nonexistent page
-            // appears, we need to flush the HTML that refers to the now-existent page)
-            if( referringPages != null ) {
-                for( final String page : referringPages ) {
-                    LOG.debug( "Flushing latest version of {}", page );
-                    // as there is a new version of the page expire both plugin and pluginless versions of the old page
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + Boolean.FALSE );
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + Boolean.TRUE );
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + null );
-                }
-            }
+        if( isPageChangeEvent( event ) ) {
+            invalidate( ( ( WikiPageEvent ) event ).getPageName() );
         }
     }
 
-    boolean isBeginningAWikiPagePostSaveEventAndDocumentCacheIsEnabled( final WikiEvent event ) {
+    /**
+     *  Flushes the renderings of the pages changed on a peer node, and of the pages depending on them.
+     *
+     *  @param invalidation the invalidation broadcast by the peer node.
+     */
+    void invalidated( final CacheInvalidation invalidation ) {
+        invalidate( invalidation.getName() );
+        if( invalidation.getNewName() != null ) {
+            invalidate( invalidation.getNewName() );
+        }
+    }
+
+    /**
+     *  Flushes the renderings of the given page, which has changed, and of the pages depending on it.
+     *
+     *  @param pageName the name of the changed page or attachment.
+     */
+    private void invalidate( final String pageName ) {
+        final Set< List< String > > staleKeys = m_dependencies.invalidate( pageName );
+        LOG.debug( "Flushing {} as {} changed", staleKeys, pageName );
+        for( final List< String > key : staleKeys ) {
+            cachingManager.remove( key.get( 0 ), key.get( 1 ) );
+        }
+    }
+
+    /**
+     *  Tells whether a rendering is still cached, only peeking at the cache, so the check doesn't count as a request of the rendering.
+     *
+     *  @param key the cache name and key of the rendering.
+     *  @return {@code true} if the rendering is still cached, {@code false} if it has been evicted or removed.
+     */
+    private boolean isCached( final List< String > key ) {
+        return cachingManager.peek( key.get( 0 ), key.get( 1 ) ) != null;
+    }
+
+    boolean isPageChangeEvent( final WikiEvent event ) {
         return event instanceof WikiPageEvent
-               && event.getType() == WikiPageEvent.POST_SAVE_BEGIN
-               && cachingManager.enabled( CachingManager.CACHE_DOCUMENTS );
+               && ( event.getType() == WikiPageEvent.POST_SAVE_BEGIN || event.getType() == WikiPageEvent.PAGE_DELETED );
     }
 
 }
@@ -0,0 +1,185 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.render;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+
+/**
+ *  The graph of the pages and attachments the cached renderings of each page depend on, as registered through
+ *  {@link RenderingManager#addDependency(org.apache.wiki.api.core.Context, String)} while rendering them, along with the keys of the
+ *  cached renderings of each page, so they're flushed without going through the whole caches.
+ *
+ *  @since 3.0.1
+ */
+final class RenderDependencies {
+
+    /** The pages rendered using each page or attachment. */
+    private final Map< String, Set< String > > m_dependents = new HashMap<>();
+
+    /** The pages and attachments each page was rendered using. */
+    private final Map< String, Set< String > > m_dependencies = new HashMap<>();
+
+    /** The cache names and keys of the cached renderings of each page. */
+    private final Map< String, CachedKeys > m_cachedKeys = new HashMap<>();
+
+    /** Number of invalidations so far, which tells renderings whether any page changed while they were rendered. */
+    private long m_generation;
+
+    /** Tells whether a cache name and key are still cached, so keys evicted from the caches are eventually dropped. */
+    private final Predicate< List< String > > m_stillCached;
+
+    /**
+     *  Creates an empty graph.
+     *
+     *  @param stillCached tells whether a cache name and key, as a list, are still cached.
+     */
+    RenderDependencies( final Predicate< List< String > > stillCached ) {
+        m_stillCached = stillCached;
+    }
+
+    /**
+     *  Records that the cached renderings of the given page depend on the given pages and attachments, on top of the ones already
+     *  recorded for it.
+     *
+     *  @param page the rendered page.
+     *  @param dependencies the pages and attachments it was rendered using.
+     */
+    synchronized void record( final String page, final Collection< String > dependencies ) {
+        for( final String dependency : dependencies ) {
+            if( !dependency.equals( page ) ) {
+                m_dependents.computeIfAbsent( dependency, k -> new HashSet<>() ).add( page );
+                m_dependencies.computeIfAbsent( page, k -> new HashSet<>() ).add( dependency );
+            }
+        }
+    }
+
+    /**
+     *  Returns the current generation of the graph, which changes on every invalidation. Renderings read it before starting, and hand
+     *  it over to {@link #cache(String, long, Collection, String, String, Runnable)} once done.
+     *
+     *  @return the current generation.
+     */
+    synchronized long generation() {
+        return m_generation;
+    }
+
+    /**
+     *  Caches a rendering of the given page, recording its dependencies and its key, unless any page has been invalidated since the
+     *  rendering started, in which case it may be stale and nothing is done. The rendering is put on the cache while holding the graph,
+     *  so an invalidation either happens before and the rendering isn't cached, or after and flushes it.
+     *
+     *  @param page the rendered page.
+     *  @param generation the generation of the graph when the rendering started.
+     *  @param dependencies the pages and attachments it was rendered using.
+     *  @param cacheName the cache holding the rendering.
+     *  @param key the key of the rendering.
+     *  @param put puts the rendering on the cache.
+     *  @return {@code true} if the rendering was cached, {@code false} otherwise.
+     */
+    synchronized boolean cache( final String page, final long generation, final Collection< String > dependencies,
+                                final String cacheName, final String key, final Runnable put ) {
+        if( generation != m_generation ) {
+            return false;
+        }
+        record( page, dependencies );
+        m_cachedKeys.computeIfAbsent( page, k -> new CachedKeys() ).add( List.of( cacheName, key ) );
+        put.run();
+        return true;
+    }
+
+    /**
+     *  Returns the cached renderings which are stale once the given page or attachment changes: the ones of the page itself, of the
+     *  pages depending on any page, and, transitively, of the pages depending on any of them. The dependencies of those pages are
+     *  forgotten, as their renderings are going to be flushed; they will be recorded again the next time they're rendered.
+     *
+     *  @param changed the changed page or attachment.
+     *  @return the cache names and keys of the renderings which must be flushed.
+     */
+    synchronized Set< List< String > > invalidate( final String changed ) {
+        m_generation++;
+        final Set< String > stale = new HashSet<>();
+        final Deque< String > pending = new ArrayDeque<>();
+        pending.add( changed );
+        pending.addAll( m_dependents.getOrDefault( RenderingManager.ANY_PAGE, Set.of() ) );
+        while( !pending.isEmpty() ) {
+            final String page = pending.poll();
+            if( stale.add( page ) ) {
+                pending.addAll( m_dependents.getOrDefault( page, Set.of() ) );
+            }
+        }
+        final Set< List< String > > staleKeys = new HashSet<>();
+        for( final String page : stale ) {
+            forget( page );
+            final CachedKeys keys = m_cachedKeys.remove( page );
+            if( keys != null ) {
+                staleKeys.addAll( keys.m_keys );
+            }
+        }
+        return staleKeys;
+    }
+
+    private void forget( final String page ) {
+        final Set< String > dependencies = m_dependencies.remove( page );
+        if( dependencies != null ) {
+            for( final String dependency : dependencies ) {
+                final Set< String > dependents = m_dependents.get( dependency );
+                if( dependents != null && dependents.remove( page ) && dependents.isEmpty() ) {
+                    m_dependents.remove( dependency );
+                }
+            }
+        }
+    }
+
+    /**
+     *  Returns the pages and attachments the cached renderings of the given page depend on.
+     *
+     *  @param page the rendered page.
+     *  @return the pages and attachments the page was rendered using.
+     */
+    synchronized Set< String > getDependencies( final String page ) {
+        return Set.copyOf( m_dependencies.getOrDefault( page, Set.of() ) );
+    }
+
+    /** The keys of the cached renderings of a page, from which the ones evicted from the caches are dropped as they pile up. */
+    private final class CachedKeys {
+
+        private static final int MIN_PRUNE_SIZE = 64;
+
+        private final Set< List< String > > m_keys = new HashSet<>();
+        private int m_pruneSize = MIN_PRUNE_SIZE;
+
+        void add( final List< String > key ) {
+            if( m_keys.add( key ) && m_keys.size() > m_pruneSize ) {
+                m_keys.removeIf( m_stillCached.negate() );
+                m_pruneSize = Math.max( MIN_PRUNE_SIZE, 2 * m_keys.size() );
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.render;
+
+import org.apache.wiki.cache.CacheWeigher;
+import org.apache.wiki.cache.ContentDigest;
+import org.apache.wiki.cache.Weighable;
+
+import java.io.Serializable;
+
+
+/**
+ *  The HTML of a rendered page, as kept on the HTML cache, along with the digest of the wikimarkup it was rendered from.
+ *
+ *  @since 3.0.1
+ */
+final class RenderedHtml implements Serializable, Weighable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ContentDigest m_pageDigest;
+    private final String m_html;
+
+    RenderedHtml( final ContentDigest pageDigest, final String html ) {
+        m_pageDigest = pageDigest;
+        m_html = html;
+    }
+
+    /**
+     *  Returns the digest of the wikimarkup the HTML was rendered from.
+     *
+     *  @return the digest of the wikimarkup the HTML was rendered from.
+     */
+    ContentDigest getPageDigest() {
+        return m_pageDigest;
+    }
+
+    /**
+     *  Returns the rendered HTML.
+     *
+     *  @return the rendered HTML.
+     */
+    String getHtml() {
+        return m_html;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getEstimatedSize() {
+        return CacheWeigher.estimate( m_pageDigest ) + CacheWeigher.estimate( m_html );
+    }
+
+}
@@ -31,6 +31,7 @@ import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
 
 import java.io.IOException;
+import java.util.Set;
 
 
 /**
@@ -56,6 +57,40 @@ public interface RenderingManager extends RenderApi, WikiEventListener, Internal
 
     String PROP_BEAUTIFYTITLE = "jspwiki.breakTitleWithSpaces";
 
+    /** Property enabling the cache of the HTML of viewed pages, on top of the rendering cache. Value is {@value}. */
+    String PROP_HTML_CACHE = "jspwiki.renderingManager.htmlCache";
+
+    /**
+     *  Variable set to {@code Boolean.TRUE} on the context by the contents which shouldn't be cached while rendering a page, like
+     *  plugins which aren't {@link org.apache.wiki.api.plugin.Plugin#isCacheable() cacheable} or wiki variables. Value is {@value}.
+     */
+    String VAR_UNCACHEABLE = "_RenderingManager.uncacheable";
+
+    /**
+     *  Variable holding, while a page is rendered into the caches, the {@code Set} of names of the pages and attachments the rendering
+     *  depends on. See {@link #addDependency(Context, String)}. Value is {@value}.
+     */
+    String VAR_DEPENDENCIES = "_RenderingManager.dependencies";
+
+    /** Dependency on every page and attachment, for contents listing pages, like recent changes. Value is {@value}. */
+    String ANY_PAGE = "*";
+
+    /**
+     *  Registers that the page being rendered depends on the given page or attachment, so its cached rendering is flushed whenever
+     *  the latter is saved or deleted. Dependencies are transitive, so a page inserting another one depends on every page the inserted
+     *  one depends on. Does nothing if the page isn't being rendered into the caches.
+     *
+     *  @param context the wiki context of the page being rendered.
+     *  @param name the name of the page or attachment, or {@link #ANY_PAGE}.
+     *  @since 3.0.1
+     */
+    static void addDependency( final Context context, final String name ) {
+        final Set< String > dependencies = context.getVariable( VAR_DEPENDENCIES );
+        if( dependencies != null && name != null ) {
+            dependencies.add( name );
+        }
+    }
+
     /**
      *  Beautifies the title of the page by appending spaces in suitable places, if the user has so decreed in the properties when
      *  constructing this Engine.  However, attachment names are only beautified by the name.
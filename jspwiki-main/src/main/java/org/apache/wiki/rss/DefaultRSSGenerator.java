@@ -38,6 +38,8 @@ import org.apache.wiki.util.TextUtil;
 import org.apache.wiki.variables.VariableManager;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
@@ -64,6 +66,12 @@ public class DefaultRSSGenerator implements RSSGenerator {
 
     private static final int MAX_CHARACTERS = Integer.MAX_VALUE-1;
 
+    /** Number of changes on the full wiki feed. */
+    private static final int MAX_ITEMS = 15;
+
+    /** How far back the changes of the full wiki feed are looked up first, before looking at all of them. */
+    private static final long RECENT_WINDOW = 7L * 24L * 60L * 60L * 1000L;
+
     /**
      *  Builds the RSS generator for a given Engine.
      *
@@ -229,19 +237,16 @@ public class DefaultRSSGenerator implements RSSGenerator {
         feed.setChannelLanguage( m_channelLanguage );
         feed.setChannelDescription( m_channelDescription );
 
-        final Set< Page > changed = m_engine.getManager( PageManager.class ).getRecentChanges();
-
+        final PageManager pageManager = m_engine.getManager( PageManager.class );
         final Session session = Wiki.session().guest( m_engine );
-        int items = 0;
-        for( final Iterator< Page > i = changed.iterator(); i.hasNext() && items < 15; items++ ) {
-            final Page page = i.next();
-
-            //  Check if the anonymous user has view access to this page.
-            if( !m_engine.getManager( AuthorizationManager.class ).checkPermission(session, new PagePermission(page,PagePermission.VIEW_ACTION) ) ) {
-                // No permission, skip to the next one.
-                continue;
-            }
+        final Date since = new Date( System.currentTimeMillis() - RECENT_WINDOW );
+        List< Page > viewable = viewableChanges( pageManager.getRecentChanges( since ), session );
+        if( viewable.size() < MAX_ITEMS ) {
+            // a quiet wiki, or one whose recent changes are mostly hidden from anonymous users, still shows its latest changes
+            viewable = viewableChanges( pageManager.getRecentChanges(), session );
+        }
 
+        for( final Page page : viewable ) {
             final String url;
             if( page instanceof Attachment ) {
                 url = m_engine.getURL( ContextEnum.PAGE_ATTACH.getRequestContext(), page.getName(),null );
@@ -262,6 +267,25 @@ public class DefaultRSSGenerator implements RSSGenerator {
         return feed.getString();
     }
 
+    /**
+     *  Picks the first {@link #MAX_ITEMS} of the given changes which the given session can view.
+     *
+     *  @param changed the changes, most recent first.
+     *  @param session the session the feed is generated for.
+     *  @return the changes to put on the feed.
+     */
+    private List< Page > viewableChanges( final Set< Page > changed, final Session session ) {
+        final AuthorizationManager authorizationManager = m_engine.getManager( AuthorizationManager.class );
+        final List< Page > viewable = new ArrayList<>( MAX_ITEMS );
+        for( final Iterator< Page > i = changed.iterator(); i.hasNext() && viewable.size() < MAX_ITEMS; ) {
+            final Page page = i.next();
+            if( authorizationManager.checkPermission( session, new PagePermission( page, PagePermission.VIEW_ACTION ) ) ) {
+                viewable.add( page );
+            }
+        }
+        return viewable;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String generateWikiPageRSS( final Context wikiContext, final List< Page > changed, final Feed feed ) {
@@ -34,9 +34,11 @@ import org.apache.wiki.api.exceptions.NoRequiredPropertyException;
 import org.apache.wiki.api.filters.BasePageFilter;
 import org.apache.wiki.api.search.SearchResult;
 import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.content.PageRenamer;
 import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.event.WikiPageRenameEvent;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.references.ReferenceManager;
@@ -47,16 +49,13 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 import org.apache.wiki.api.plugin.Plugin;
 import org.apache.wiki.plugin.PluginManager;
 import static org.apache.wiki.search.SearchManager.PLUGIN_SEARCH;
@@ -73,6 +72,9 @@ public class DefaultSearchManager extends BasePageFilter implements SearchManage
 
     private SearchProvider m_searchProvider;
 
+    /** Page names used for suggestions, loaded on first use and then kept up to date from page events. */
+    private volatile PageNameIndex m_pageNames;
+
     /**
      *  Creates a new SearchManager.
      *
@@ -211,7 +213,7 @@ public class DefaultSearchManager extends BasePageFilter implements SearchManage
 
         /**
          *  Provides a list of suggestions to use for a page name. Currently, the algorithm just looks into the value parameter,
-         *  and returns all page names from that.
+         *  and returns the page names starting with it, looked up on a sorted index of page names.
          *
          *  @param wikiName the page name
          *  @param maxLength maximum number of suggestions
@@ -226,23 +228,13 @@ public class DefaultSearchManager extends BasePageFilter implements SearchManage
                 String filename = "";
                 final int pos = wikiName.indexOf("/");
                 if( pos >= 0 ) {
-                    filename = wikiName.substring( pos ).toLowerCase();
+                    filename = wikiName.substring( pos ).toLowerCase( Locale.ROOT );
                     wikiName = wikiName.substring( 0, pos );
                 }
 
-                final String cleanWikiName = MarkupParser.cleanLink(wikiName).toLowerCase() + filename;
-                final String oldStyleName = MarkupParser.wikifyLink(wikiName).toLowerCase() + filename;
-                final Set< String > allPages = m_engine.getManager( ReferenceManager.class ).findCreated();
-               
-                int counter = 0;
-                for( final Iterator< String > i = allPages.iterator(); i.hasNext() && counter < maxLength; ) {
-                    final String p = i.next();
-                    final String pp = p.toLowerCase();
-                    if( pp.startsWith( cleanWikiName) || pp.startsWith( oldStyleName ) ) {
-                        list.add( p );
-                        counter++;
-                    }
-                }
+                final String cleanWikiName = MarkupParser.cleanLink(wikiName).toLowerCase( Locale.ROOT ) + filename;
+                final String oldStyleName = MarkupParser.wikifyLink(wikiName).toLowerCase( Locale.ROOT ) + filename;
+                list.addAll( getPageNameIndex().startingWith( maxLength, cleanWikiName, oldStyleName ) );
             }
 
             sw.stop();
@@ -264,16 +256,14 @@ public class DefaultSearchManager extends BasePageFilter implements SearchManage
             final List< Map< String, Object > > list = new ArrayList<>( maxLength );
             if( !searchString.isEmpty() ) {
                 try {
-                    final Collection< SearchResult > c;
+                    final SearchResultWindow c;
                     if( m_searchProvider instanceof LuceneSearchProvider ) {
-                        c = ( ( LuceneSearchProvider )m_searchProvider ).findPages( searchString, 0, wikiContext );
+                        c = ( ( LuceneSearchProvider )m_searchProvider ).findPages( searchString, 0, 0, maxLength, wikiContext );
                     } else {
-                        c = m_searchProvider.findPages( searchString, wikiContext );
+                        c = m_searchProvider.findPages( searchString, 0, maxLength, wikiContext );
                     }
 
-                    int count = 0;
-                    for( final Iterator< SearchResult > i = c.iterator(); i.hasNext() && count < maxLength; count++ ) {
-                        final SearchResult sr = i.next();
+                    for( final SearchResult sr : c ) {
                         final HashMap< String, Object > hm = new HashMap<>();
                         hm.put( "page", sr.getPage().getName() );
                         hm.put( "score", sr.getScore() );
@@ -301,6 +291,15 @@ public class DefaultSearchManager extends BasePageFilter implements SearchManage
             m_searchProvider.initialize( engine, properties );
         } catch( final NoRequiredPropertyException | IOException e ) {
             LOG.error( e.getMessage(), e );
+            if( !( m_searchProvider instanceof BasicSearchProvider ) ) {
+                LOG.warn( "Failed initializing {}, will use BasicSearchProvider.", m_searchProvider.getClass().getName() );
+                m_searchProvider = new BasicSearchProvider();
+                try {
+                    m_searchProvider.initialize( engine, properties );
+                } catch( final NoRequiredPropertyException | IOException ex ) {
+                    LOG.error( ex.getMessage(), ex );
+                }
+            }
         }
     }
 
@@ -327,11 +326,65 @@ public class DefaultSearchManager extends BasePageFilter implements SearchManage
         return m_searchProvider;
     }
 
+    /**
+     *  Returns the index of page names used for suggestions, loading it from the {@link ReferenceManager} on first use. From then
+     *  on, the index is kept up to date from the page events and the pages (re)indexed or removed through this SearchManager.
+     *
+     *  @return the index of page names.
+     */
+    PageNameIndex getPageNameIndex() {
+        PageNameIndex pageNames = m_pageNames;
+        if( pageNames == null ) {
+            synchronized( this ) {
+                pageNames = m_pageNames;
+                if( pageNames == null ) {
+                    final PageRenamer renamer = m_engine.getManager( PageRenamer.class );
+                    if( renamer != null ) {
+                        WikiEventManager.addWikiEventListener( renamer, this );
+                    }
+                    pageNames = new PageNameIndex( m_engine.getManager( ReferenceManager.class ).findCreated() );
+                    m_pageNames = pageNames;
+                    LOG.debug( "Loaded {} page names for suggestions", pageNames.size() );
+                }
+            }
+        }
+        return pageNames;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void pageRemoved( final Page page ) {
+        SearchManager.super.pageRemoved( page );
+        final PageNameIndex pageNames = m_pageNames;
+        if( pageNames != null ) {
+            pageNames.remove( page.getName() );
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void reindexPage( final Page page ) {
+        SearchManager.super.reindexPage( page );
+        final PageNameIndex pageNames = m_pageNames;
+        if( pageNames != null ) {
+            pageNames.add( page.getName() );
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void actionPerformed( final WikiEvent event ) {
-        if( event instanceof WikiPageEvent ) {
+        if( event instanceof WikiPageRenameEvent ) {
+            final PageNameIndex pageNames = m_pageNames;
+            if( pageNames != null ) {
+                pageNames.remove( ( ( WikiPageRenameEvent )event ).getOldPageName() );
+                pageNames.add( ( ( WikiPageRenameEvent )event ).getNewPageName() );
+            }
+        } else if( event instanceof WikiPageEvent ) {
             final String pageName = ( ( WikiPageEvent ) event ).getPageName();
+            if( event.getType() == WikiPageEvent.PAGE_DELETED && m_pageNames != null ) {
+                m_pageNames.remove( pageName );
+            }
             if( event.getType() == WikiPageEvent.PAGE_DELETE_REQUEST ) {
                 final Page p = m_engine.getManager( PageManager.class ).getPage( pageName );
                 if( p != null ) {
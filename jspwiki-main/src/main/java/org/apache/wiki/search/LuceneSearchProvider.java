@@ -22,17 +22,26 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.classic.ClassicAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexFormatTooNewException;
+import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiBits;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
@@ -41,15 +50,13 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.search.highlight.Highlighter;
-import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
-import org.apache.lucene.search.highlight.QueryScorer;
-import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
-import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.IOUtils;
 import org.apache.wiki.InternalWikiException;
 import org.apache.wiki.WatchDog;
 import org.apache.wiki.WikiBackgroundThread;
@@ -67,6 +74,8 @@ import org.apache.wiki.attachment.AttachmentManager;
 import org.apache.wiki.auth.AuthorizationManager;
 import org.apache.wiki.auth.permissions.PagePermission;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.ui.progress.ProgressItem;
+import org.apache.wiki.ui.progress.ProgressManager;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.FileUtil;
 import org.apache.wiki.util.TextUtil;
@@ -75,17 +84,24 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 
@@ -107,8 +123,15 @@ public class LuceneSearchProvider implements SearchProvider {
     public static final String PROP_LUCENE_ANALYZER      = "jspwiki.lucene.analyzer";
     private static final String PROP_LUCENE_INDEXDELAY   = "jspwiki.lucene.indexdelay";
     private static final String PROP_LUCENE_INITIALDELAY = "jspwiki.lucene.initialdelay";
+    private static final String PROP_LUCENE_REFRESHDELAY = "jspwiki.lucene.refreshdelay";
+    private static final String PROP_LUCENE_COMMITDELAY  = "jspwiki.lucene.commitdelay";
+    private static final String PROP_LUCENE_BATCHSIZE    = "jspwiki.lucene.batchsize";
+    private static final String PROP_LUCENE_REINDEXTHREADS = "jspwiki.lucene.reindexthreads";
+
+    private static final String PROGRESS_ID = "lucene.reindexer";
 
     private String m_analyzerClass = ClassicAnalyzer.class.getName();
+    private Analyzer m_analyzer;
 
     private static final String LUCENE_DIR = "lucene";
 
@@ -123,9 +146,38 @@ public class LuceneSearchProvider implements SearchProvider {
     protected static final String LUCENE_ATTACHMENTS   = "attachment";
     protected static final String LUCENE_PAGE_NAME     = "name";
     protected static final String LUCENE_PAGE_KEYWORDS = "keywords";
+    protected static final String LUCENE_PAGE_VERSION  = "version";
+    protected static final String LUCENE_LASTMODIFIED  = "lastmodified";
+
+    /** Page text is indexed along with its offsets, so search contexts can be highlighted without analyzing the text again. */
+    private static final FieldType CONTENTS_TYPE = new FieldType( TextField.TYPE_STORED );
+    static {
+        CONTENTS_TYPE.setIndexOptions( IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS );
+        CONTENTS_TYPE.freeze();
+    }
+
+    /** Stored fields read back from the index to find out which pages changed since they were indexed. */
+    private static final Set< String > MANIFEST_FIELDS = Set.of( LUCENE_ID, LUCENE_PAGE_VERSION, LUCENE_LASTMODIFIED );
+
+    /** Search hits only need the page name to be read back from the index. */
+    private static final Set< String > ID_FIELD = Set.of( LUCENE_ID );
 
     private String m_luceneDirectory;
-    protected final List< Object[] > m_updates = Collections.synchronizedList( new ArrayList<>() );
+    private Directory m_luceneDir;
+    private volatile IndexWriter m_writer;
+    private volatile SearcherManager m_searcherManager;
+    private final LuceneUpdateQueue m_updates = new LuceneUpdateQueue();
+    private int m_batchSize = LuceneUpdater.BATCH_SIZE;
+    private int m_reindexThreads = Runtime.getRuntime().availableProcessors();
+
+    /** While the whole index is being rebuilt, pending changes are neither committed nor made visible to searches. */
+    private volatile boolean m_rebuilding;
+
+    /** Updates and deletes applied while the index is being rebuilt, replayed if the rebuild fails and the index is rolled back. */
+    private final List< LuceneUpdateQueue.Update > m_rebuildChanges = new ArrayList<>();
+
+    /** Set when the existing index could not be opened, so it has to be rebuilt from scratch. */
+    private boolean m_rebuildNeeded;
 
     /** Maximum number of fragments from search matches. */
     private static final int MAX_FRAGMENTS = 3;
@@ -133,6 +185,9 @@ public class LuceneSearchProvider implements SearchProvider {
     /** The maximum number of hits to return from searches. */
     public static final int MAX_SEARCH_HITS = 99_999;
 
+    /** Smallest number of hits fetched at once while looking for the viewable hits of a window. */
+    private static final int SEARCH_BATCH = 100;
+
     private static final String PUNCTUATION_TO_SPACES = StringUtils.repeat( " ", TextUtil.PUNCTUATION_CHARS_ALLOWED.length() );
 
     /** {@inheritDoc} */
@@ -145,34 +200,138 @@ public class LuceneSearchProvider implements SearchProvider {
 
         final int initialDelay = TextUtil.getIntegerProperty( props, PROP_LUCENE_INITIALDELAY, LuceneUpdater.INITIAL_DELAY );
         final int indexDelay   = TextUtil.getIntegerProperty( props, PROP_LUCENE_INDEXDELAY, LuceneUpdater.INDEX_DELAY );
+        final int refreshDelay = TextUtil.getIntegerProperty( props, PROP_LUCENE_REFRESHDELAY, LuceneRefresher.REFRESH_DELAY );
+        final int commitDelay  = TextUtil.getIntegerProperty( props, PROP_LUCENE_COMMITDELAY, LuceneRefresher.COMMIT_DELAY );
+        m_batchSize = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_LUCENE_BATCHSIZE, LuceneUpdater.BATCH_SIZE ) );
+        m_reindexThreads = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_LUCENE_REINDEXTHREADS, m_reindexThreads ) );
 
         m_analyzerClass = TextUtil.getStringProperty( props, PROP_LUCENE_ANALYZER, m_analyzerClass );
+        try {
+            m_analyzer = ClassUtil.buildInstance( m_analyzerClass );
+        } catch( final Exception e ) {
+            LOG.error( "Could not get LuceneAnalyzer class {}, not using Lucene", m_analyzerClass, e );
+            throw new IOException( "Could not get LuceneAnalyzer class " + m_analyzerClass + ", reason: " + e.getMessage(), e );
+        }
         // FIXME: Just to be simple for now, we will do full reindex only if no files are in lucene directory.
 
         final File dir = new File( m_luceneDirectory );
         LOG.info( "Lucene enabled, cache will be in: {}", dir.getAbsolutePath() );
-        try {
-            if( !dir.exists() ) {
-                dir.mkdirs();
-            }
+        if( !dir.exists() ) {
+            dir.mkdirs();
+        }
 
-            if( !dir.exists() || !dir.canWrite() || !dir.canRead() ) {
-                LOG.error( "Cannot write to Lucene directory, disabling Lucene: {}", dir.getAbsolutePath() );
-                throw new IOException( "Invalid Lucene directory." );
-            }
+        if( !dir.exists() || !dir.canWrite() || !dir.canRead() ) {
+            LOG.error( "Cannot write to Lucene directory, disabling Lucene: {}", dir.getAbsolutePath() );
+            throw new IOException( "Invalid Lucene directory." );
+        }
 
-            final String[] filelist = dir.list();
-            if( filelist == null ) {
-                throw new IOException( "Invalid Lucene directory: cannot produce listing: " + dir.getAbsolutePath() );
-            }
+        final String[] filelist = dir.list();
+        if( filelist == null ) {
+            throw new IOException( "Invalid Lucene directory: cannot produce listing: " + dir.getAbsolutePath() );
+        }
+
+        // One writer is kept open for the whole life of the provider; searches are served by near-real-time readers obtained from it.
+        try {
+            openIndex( dir );
         } catch( final IOException e ) {
-            LOG.error( "Problem while creating Lucene index - not using Lucene.", e );
+            LOG.error( "Unable to open Lucene index at {}, disabling Lucene", dir.getAbsolutePath(), e );
+            closeIndex();
+            throw e;
         }
 
         // Start the Lucene update thread, which waits first for a little while before starting to go through
         // the Lucene "pages that need updating".
         final LuceneUpdater updater = new LuceneUpdater( m_engine, this, initialDelay, indexDelay );
         updater.start();
+
+        // Start the thread that keeps search readers current and periodically commits pending changes to disk.
+        final LuceneRefresher refresher = new LuceneRefresher( m_engine, this, refreshDelay, commitDelay );
+        refresher.start();
+    }
+
+    /**
+     * Opens the shared {@link IndexWriter} and the {@link SearcherManager} handing out searchers over it.
+     *
+     * @param dir Lucene index directory.
+     * @throws IOException if the index cannot be opened.
+     */
+    void openIndex( final File dir ) throws IOException {
+        m_luceneDir = new NIOFSDirectory( dir.toPath() );
+        try {
+            m_writer = getIndexWriter( m_luceneDir );
+        } catch( final CorruptIndexException | IndexFormatTooOldException | IndexFormatTooNewException e ) {
+            LOG.warn( "Lucene index at {} cannot be used, it will be rebuilt", dir.getAbsolutePath(), e );
+            final IndexWriterConfig writerConfig = new IndexWriterConfig( getLuceneAnalyzer() );
+            writerConfig.setOpenMode( OpenMode.CREATE );
+            m_writer = new IndexWriter( m_luceneDir, writerConfig );
+            m_rebuildNeeded = true;
+        }
+        if( !m_rebuildNeeded && !hasContentsOffsets() ) {
+            LOG.info( "Lucene index at {} was built without offsets for search contexts, it will be rebuilt", dir.getAbsolutePath() );
+            m_rebuildNeeded = true;
+        }
+        m_searcherManager = new SearcherManager( m_writer, new SearcherFactory() {
+
+            /** {@inheritDoc} */
+            @Override
+            public IndexSearcher newSearcher( final IndexReader reader, final IndexReader previousReader ) {
+                return new IndexSearcher( reader, searchExecutor );
+            }
+        } );
+    }
+
+    /**
+     * Checks that the page text of the existing index, if any, is indexed with offsets. Lucene doesn't allow to change how a field is
+     * indexed, so indexes built before offsets were stored need to be rebuilt.
+     *
+     * @return {@code true} if the index has no page text yet or if it is indexed with offsets.
+     * @throws IOException if the index cannot be read.
+     */
+    boolean hasContentsOffsets() throws IOException {
+        try( final DirectoryReader reader = DirectoryReader.open( m_writer ) ) {
+            final FieldInfo contents = FieldInfos.getMergedFieldInfos( reader ).fieldInfo( LUCENE_PAGE_CONTENTS );
+            return contents == null || contents.getIndexOptions() == CONTENTS_TYPE.indexOptions();
+        }
+    }
+
+    /**
+     * Makes changes done through the shared {@link IndexWriter} visible to subsequent searches, if there are any.
+     */
+    void refreshSearcher() {
+        final SearcherManager searcherManager = m_searcherManager;
+        if( m_rebuilding || searcherManager == null ) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch( final IOException e ) {
+            LOG.error( "Unable to refresh Lucene searcher", e );
+        }
+    }
+
+    /**
+     * Commits any pending changes of the shared {@link IndexWriter} to disk.
+     */
+    void commitIndex() {
+        try {
+            if( !m_rebuilding && m_writer != null && m_writer.hasUncommittedChanges() ) {
+                m_writer.commit();
+            }
+        } catch( final IOException e ) {
+            LOG.error( "Unable to commit Lucene index", e );
+        }
+    }
+
+    /**
+     * Commits pending changes and releases the shared {@link IndexWriter}, the {@link SearcherManager}, the index directory and the analyzer.
+     */
+    void closeIndex() {
+        commitIndex();
+        try {
+            IOUtils.close( m_searcherManager, m_writer, m_luceneDir, m_analyzer );
+        } catch( final IOException e ) {
+            LOG.error( "Unable to close Lucene index", e );
+        }
     }
 
     /**
@@ -185,59 +344,28 @@ public class LuceneSearchProvider implements SearchProvider {
     }
 
     /**
-     * Performs a full Lucene reindex, if necessary.
+     * Performs a full Lucene reindex, if necessary. If there is a usable index already, only the pages and attachments which were added,
+     * changed or deleted since they were indexed get updated.
      *
      * @throws IOException If there's a problem during indexing
      */
     protected void doFullLuceneReindex() throws IOException {
-        final File dir = new File( m_luceneDirectory );
-        final String[] filelist = dir.list();
-        if( filelist == null ) {
-            throw new IOException( "Invalid Lucene directory: cannot produce listing: " + dir.getAbsolutePath() );
-        }
-
         try {
-            if( filelist.length == 0 ) {
+            if( m_rebuildNeeded || !DirectoryReader.indexExists( m_luceneDir ) ) {
                 //
-                //  No files? Reindex!
+                //  No index committed yet? Reindex!
                 //
                 final Date start = new Date();
 
                 LOG.info( "Starting Lucene reindexing, this can take a couple of minutes..." );
-
-                final Directory luceneDir = new NIOFSDirectory( dir.toPath() );
-                try( final IndexWriter writer = getIndexWriter( luceneDir ) ) {
-                    long pagesIndexed = 0L;
-                    final Collection< Page > allPages = m_engine.getManager( PageManager.class ).getAllPages();
-                    for( final Page page : allPages ) {
-                        try {
-                            final String text = m_engine.getManager( PageManager.class ).getPageText( page.getName(), WikiProvider.LATEST_VERSION );
-                            luceneIndexPage( page, text, writer );
-                            pagesIndexed++;
-                        } catch( final IOException e ) {
-                            LOG.warn( "Unable to index page {}, continuing to next ", page.getName(), e );
-                        }
-                    }
-                    LOG.info( "Indexed {} pages", pagesIndexed );
-
-                    long attachmentsIndexed = 0L;
-                    final Collection< Attachment > allAttachments = m_engine.getManager( AttachmentManager.class ).getAllAttachments();
-                    for( final Attachment att : allAttachments ) {
-                        try {
-                            final String text = getAttachmentContent( att.getName(), WikiProvider.LATEST_VERSION );
-                            luceneIndexPage( att, text, writer );
-                            attachmentsIndexed++;
-                        } catch( final IOException e ) {
-                            LOG.warn( "Unable to index attachment {}, continuing to next", att.getName(), e );
-                        }
-                    }
-                    LOG.info( "Indexed {} attachments", attachmentsIndexed );
-                }
+                rebuildIndex();
 
                 final Date end = new Date();
                 LOG.info( "Full Lucene index finished in {} milliseconds.", end.getTime() - start.getTime() );
+                m_rebuildNeeded = false;
             } else {
-                LOG.info( "Files found in Lucene directory, not reindexing." );
+                LOG.info( "Lucene index found, reindexing only pages changed since they were last indexed." );
+                reindexChangedPages();
             }
         } catch( final IOException e ) {
             LOG.error( "Problem while creating Lucene index - not using Lucene.", e );
@@ -250,6 +378,261 @@ public class LuceneSearchProvider implements SearchProvider {
 
     }
 
+    /**
+     * Rebuilds the whole index from the pages and attachments of the wiki. Each page or attachment is loaded, turned into a document and
+     * added to the shared {@link IndexWriter} by a pool of {@code jspwiki.lucene.reindexthreads} workers, fed through a bounded queue,
+     * so loading and indexing run in parallel without holding the whole wiki in memory. Searches keep being served from the previously
+     * committed index until the new one is committed. If the rebuild fails, the index is rolled back to that previous commit.
+     *
+     * @throws IOException If there's a problem during indexing.
+     * @throws ProviderException If the pages or attachments cannot be listed.
+     */
+    void rebuildIndex() throws IOException, ProviderException {
+        final Collection< Page > allPages = m_engine.getManager( PageManager.class ).getAllPages();
+        final Collection< Attachment > allAttachments = m_engine.getManager( AttachmentManager.class ).getAllAttachments();
+        final int total = allPages.size() + allAttachments.size();
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicLong pagesIndexed = new AtomicLong();
+        final AtomicLong attachmentsIndexed = new AtomicLong();
+
+        final ProgressManager progressManager = m_engine.getManager( ProgressManager.class );
+        if( progressManager != null ) {
+            progressManager.startProgress( new ProgressItem() {
+
+                /** {@inheritDoc} */
+                @Override
+                public int getProgress() {
+                    return total == 0 ? 100 : 100 * processed.get() / total;
+                }
+            }, PROGRESS_ID );
+        }
+
+        // the caller runs the task when the queue is full, which keeps the producer from getting too far ahead of the workers
+        final ThreadPoolExecutor workers = new ThreadPoolExecutor( m_reindexThreads, m_reindexThreads, 0L, TimeUnit.MILLISECONDS,
+                                                                   new ArrayBlockingQueue<>( m_reindexThreads * 4 ),
+                                                                   new ThreadPoolExecutor.CallerRunsPolicy() );
+        final IndexWriter writer = m_writer;
+        boolean rebuilt = false;
+        boolean interrupted = false;
+        try {
+            // updates are either committed before the rebuild starts, or recorded to be replayed if it fails
+            synchronized( this ) {
+                m_rebuilding = true;
+                writer.commit(); // the point a failed rebuild rolls back to
+            }
+            writer.deleteAll();
+            for( final Page page : allPages ) {
+                workers.execute( () -> {
+                    try {
+                        final String text = m_engine.getManager( PageManager.class ).getPageText( page.getName(), WikiProvider.LATEST_VERSION );
+                        luceneIndexPage( page, text, writer );
+                        pagesIndexed.incrementAndGet();
+                    } catch( final IOException | ProviderException e ) {
+                        LOG.warn( "Unable to index page {}, continuing to next ", page.getName(), e );
+                    } finally {
+                        processed.incrementAndGet();
+                    }
+                } );
+            }
+            for( final Attachment att : allAttachments ) {
+                workers.execute( () -> {
+                    try {
+                        final String text = getAttachmentContent( att.getName(), WikiProvider.LATEST_VERSION );
+                        luceneIndexPage( att, text, writer );
+                        attachmentsIndexed.incrementAndGet();
+                    } catch( final IOException e ) {
+                        LOG.warn( "Unable to index attachment {}, continuing to next", att.getName(), e );
+                    } finally {
+                        processed.incrementAndGet();
+                    }
+                } );
+            }
+            workers.shutdown();
+            if( !workers.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS ) ) {
+                throw new IOException( "Lucene reindexing did not finish" );
+            }
+            LOG.info( "Indexed {} pages", pagesIndexed.get() );
+            LOG.info( "Indexed {} attachments", attachmentsIndexed.get() );
+
+            m_rebuilding = false;
+            writer.commit();
+            rebuilt = true;
+            forgetRebuildChanges();
+        } catch( final InterruptedException e ) {
+            interrupted = true;
+            throw new IOException( "Interrupted while reindexing", e );
+        } finally {
+            workers.shutdownNow();
+            if( !rebuilt ) {
+                interrupted |= abortRebuild( writer, workers );
+            }
+            m_rebuilding = false;
+            if( progressManager != null ) {
+                progressManager.stopProgress( PROGRESS_ID );
+            }
+            if( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        refreshSearcher();
+    }
+
+    /** Forgets the changes recorded while rebuilding, once they made it into the committed index. */
+    private synchronized void forgetRebuildChanges() {
+        m_rebuildChanges.clear();
+    }
+
+    /**
+     * Drops whatever a failed rebuild left on the given writer, which is the shared one, by rolling it back to its last commit, reopens
+     * the shared {@link IndexWriter} and {@link SearcherManager} over the index as it was before the rebuild started, and replays on them
+     * the updates and deletes applied while rebuilding, as the rollback discards them too. If the index cannot be reopened, the provider
+     * is left without writer nor searcher, so searches fail telling the index is not available and updates are skipped; the changes
+     * missed in the meantime are picked up by the next start, when the index is compared against the wiki.
+     *
+     * @param writer the shared writer the rebuild was indexing with.
+     * @param workers the workers of the rebuild, already shut down.
+     * @return {@code true} if the thread was interrupted, either before or while waiting for the workers to finish.
+     */
+    private synchronized boolean abortRebuild( final IndexWriter writer, final ThreadPoolExecutor workers ) {
+        LOG.warn( "Lucene reindexing failed, rolling the index back to its last commit" );
+        boolean interrupted = false;
+        try {
+            workers.awaitTermination( 10L, TimeUnit.SECONDS );
+        } catch( final InterruptedException e ) {
+            interrupted = true;
+        }
+        // a pending interrupt would close the channels of the index being reopened, it gets restored by the caller
+        interrupted |= Thread.interrupted();
+
+        final SearcherManager searcherManager = m_searcherManager;
+        final Directory luceneDir = m_luceneDir;
+        try {
+            writer.rollback();
+            openIndex( new File( m_luceneDirectory ) );
+            IOUtils.close( searcherManager, luceneDir );
+        } catch( final IOException e ) {
+            LOG.error( "Unable to reopen the Lucene index after a failed reindexing, the index won't be available until restarted", e );
+            final SearcherManager reopenedSearcherManager = m_searcherManager != searcherManager ? m_searcherManager : null;
+            final IndexWriter reopenedWriter = m_writer != writer ? m_writer : null;
+            final Directory reopenedDir = m_luceneDir != luceneDir ? m_luceneDir : null;
+            m_searcherManager = null;
+            m_writer = null;
+            m_luceneDir = null;
+            m_rebuildChanges.clear();
+            IOUtils.closeWhileHandlingException( reopenedSearcherManager, reopenedWriter, reopenedDir, searcherManager, luceneDir );
+            return interrupted;
+        }
+
+        m_rebuilding = false;
+        final List< LuceneUpdateQueue.Update > changes = new ArrayList<>( m_rebuildChanges );
+        m_rebuildChanges.clear();
+        if( !changes.isEmpty() ) {
+            LOG.info( "Replaying {} Lucene index changes made while reindexing", changes.size() );
+            updateLuceneIndex( changes );
+        }
+        return interrupted;
+    }
+
+    /**
+     * Compares the version and last modification date of every page and attachment of the wiki against the ones recorded in the index,
+     * reindexes the ones which were added or changed since they were indexed, and removes from the index the ones which no longer exist.
+     * The changed pages are indexed in batches of the indexer's batch size, their texts being loaded batch by batch, as every page of an
+     * index built before versions were recorded counts as changed.
+     *
+     * @throws IOException If the index cannot be read.
+     * @throws ProviderException If the pages or attachments cannot be listed.
+     */
+    void reindexChangedPages() throws IOException, ProviderException {
+        final Map< String, long[] > manifest = readManifest();
+        final List< Page > allPages = new ArrayList<>( m_engine.getManager( PageManager.class ).getAllPages() );
+        allPages.addAll( m_engine.getManager( AttachmentManager.class ).getAllAttachments() );
+
+        final List< Page > changed = new ArrayList<>();
+        for( final Page page : allPages ) {
+            final long[] indexed = manifest.remove( page.getName() );
+            if( indexed == null || indexed[ 0 ] != page.getVersion() || indexed[ 1 ] != lastModified( page ) ) {
+                changed.add( page );
+            }
+        }
+        for( final String deleted : manifest.keySet() ) {
+            m_writer.deleteDocuments( new Term( LUCENE_ID, deleted ) );
+        }
+
+        for( int from = 0; from < changed.size(); from += m_batchSize ) {
+            final List< LuceneUpdateQueue.Update > batch = new ArrayList<>( m_batchSize );
+            for( final Page page : changed.subList( from, Math.min( from + m_batchSize, changed.size() ) ) ) {
+                final String text = textOf( page );
+                if( text != null ) {
+                    batch.add( new LuceneUpdateQueue.Update( page, text, System.currentTimeMillis() ) );
+                }
+            }
+            updateLuceneIndex( batch );
+        }
+        if( changed.isEmpty() ) {
+            commitIndex();
+            refreshSearcher();
+        }
+        LOG.info( "{} pages reindexed, {} pages removed from the index", changed.size(), manifest.size() );
+    }
+
+    /**
+     * Reads, for every document in the index, the page version and last modification date it was indexed with.
+     *
+     * @return page version and last modification date (in this order) of each indexed page, keyed by page name.
+     * @throws IOException If the index cannot be read.
+     */
+    Map< String, long[] > readManifest() throws IOException {
+        final SearcherManager searcherManager = m_searcherManager;
+        if( searcherManager == null ) {
+            throw new IOException( "Lucene index is not available" );
+        }
+        final Map< String, long[] > manifest = new HashMap<>();
+        final IndexSearcher searcher = searcherManager.acquire();
+        try {
+            final IndexReader reader = searcher.getIndexReader();
+            final Bits liveDocs = MultiBits.getLiveDocs( reader );
+            final StoredFields storedFields = reader.storedFields();
+            for( int i = 0; i < reader.maxDoc(); i++ ) {
+                if( liveDocs == null || liveDocs.get( i ) ) {
+                    final Document doc = storedFields.document( i, MANIFEST_FIELDS );
+                    final IndexableField version = doc.getField( LUCENE_PAGE_VERSION );
+                    final IndexableField lastModified = doc.getField( LUCENE_LASTMODIFIED );
+                    // documents indexed without this information never match, so they get reindexed
+                    manifest.put( doc.get( LUCENE_ID ), new long[] { version != null ? version.numericValue().longValue() : Long.MIN_VALUE,
+                                                                     lastModified != null ? lastModified.numericValue().longValue() : Long.MIN_VALUE } );
+                }
+            }
+        } finally {
+            searcherManager.release( searcher );
+        }
+        return manifest;
+    }
+
+    /**
+     * Returns the page holding the version and last modification date to record in the index for the given page. Pages handed for
+     * reindexing after a save may only know they are the latest version, so in that case the current info is looked up.
+     *
+     * @param page page being indexed.
+     * @return the page itself, or its current info if the given one is not accurate enough.
+     */
+    Page indexedInfo( final Page page ) {
+        if( page.getVersion() != WikiProvider.LATEST_VERSION && page.getLastModified() != null ) {
+            return page;
+        }
+        try {
+            final Page current = page instanceof Attachment ? m_engine.getManager( AttachmentManager.class ).getAttachmentInfo( page.getName() )
+                                                            : m_engine.getManager( PageManager.class ).getPage( page.getName() );
+            return current != null ? current : page;
+        } catch( final ProviderException e ) {
+            LOG.warn( "Unable to read info of {}, indexing it as it is", page.getName(), e );
+            return page;
+        }
+    }
+
+    static long lastModified( final Page page ) {
+        return page.getLastModified() != null ? page.getLastModified().getTime() : 0L;
+    }
+
     /**
      * Fetches the attachment content from the repository.
      * Content is flat text that can be used for indexing/searching or display
@@ -305,33 +688,49 @@ public class LuceneSearchProvider implements SearchProvider {
      * @param page The WikiPage to check
      * @param text The page text to index.
      */
-    protected synchronized void updateLuceneIndex( final Page page, final String text ) {
-        LOG.debug( "Updating Lucene index for page '{}'...", page.getName() );
-        pageRemoved( page );
-
-        // Now add back the new version.
-        try( final Directory luceneDir = new NIOFSDirectory( new File( m_luceneDirectory ).toPath() );
-             final IndexWriter writer = getIndexWriter( luceneDir ) ) {
-            luceneIndexPage( page, text, writer );
-        } catch( final IOException e ) {
-            LOG.error( "Unable to update page '{}' from Lucene index", page.getName(), e );
-            // reindexPage( page );
-        } catch( final Exception e ) {
-            LOG.error( "Unexpected Lucene exception - please check configuration!", e );
-            // reindexPage( page );
+    protected void updateLuceneIndex( final Page page, final String text ) {
+        updateLuceneIndex( Collections.singletonList( new LuceneUpdateQueue.Update( page, text, System.currentTimeMillis() ) ) );
+    }
+
+    /**
+     * Updates the lucene index for a batch of pages, committing the changes once all of them have been written.
+     *
+     * @param updates the pages and their texts to index.
+     */
+    synchronized void updateLuceneIndex( final List< LuceneUpdateQueue.Update > updates ) {
+        if( m_writer == null ) {
+            LOG.warn( "Lucene index is not available, skipping the update of {} pages", updates.size() );
+            return;
+        }
+        if( m_rebuilding ) {
+            m_rebuildChanges.addAll( updates );
+        }
+        LOG.debug( "Updating Lucene index for {} pages...", updates.size() );
+        for( final LuceneUpdateQueue.Update update : updates ) {
+            final Page page = update.getPage();
+
+            // Replace the previous version, if any, in one step, so searches never see the page missing.
+            try {
+                final Term id = new Term( LUCENE_ID, page.getName() );
+                if( update.getText() == null ) {
+                    m_writer.deleteDocuments( id );
+                } else {
+                    m_writer.updateDocument( id, createDocument( page, update.getText() ) );
+                }
+            } catch( final IOException e ) {
+                LOG.error( "Unable to update page '{}' from Lucene index", page.getName(), e );
+            } catch( final Exception e ) {
+                LOG.error( "Unexpected Lucene exception - please check configuration!", e );
+            }
         }
 
-        LOG.debug( "Done updating Lucene index for page '{}'.", page.getName() );
+        commitIndex();
+        refreshSearcher();
+        LOG.debug( "Done updating Lucene index for {} pages.", updates.size() );
     }
 
-    private Analyzer getLuceneAnalyzer() throws ProviderException {
-        try {
-            return ClassUtil.buildInstance( m_analyzerClass );
-        } catch( final Exception e ) {
-            final String msg = "Could not get LuceneAnalyzer class " + m_analyzerClass + ", reason: ";
-            LOG.error( msg, e );
-            throw new ProviderException( msg + e );
-        }
+    private Analyzer getLuceneAnalyzer() {
+        return m_analyzer;
     }
 
     /**
@@ -345,12 +744,26 @@ public class LuceneSearchProvider implements SearchProvider {
      */
     protected Document luceneIndexPage( final Page page, final String text, final IndexWriter writer ) throws IOException {
         LOG.debug( "Indexing {}...", page.getName() );
+        if( text == null ) {
+            return new Document();
+        }
+
+        final Document doc = createDocument( page, text );
+        writer.addDocument( doc );
+
+        return doc;
+    }
 
+    /**
+     * Creates the index Document for the given page.
+     *
+     * @param page WikiPage
+     * @param text Page text to index
+     * @return the index Document
+     */
+    protected Document createDocument( final Page page, final String text ) {
         // make a new, empty document
         final Document doc = new Document();
-        if( text == null ) {
-            return doc;
-        }
 
         final String indexedText = text.replace( "__", " " ); // be nice to Language Analyzers - cfr. JSPWIKI-893
 
@@ -358,8 +771,13 @@ public class LuceneSearchProvider implements SearchProvider {
         Field field = new Field( LUCENE_ID, page.getName(), StringField.TYPE_STORED );
         doc.add( field );
 
+        // Version and last modification date, used to find out at startup which pages changed since they were indexed.
+        final Page info = indexedInfo( page );
+        doc.add( new StoredField( LUCENE_PAGE_VERSION, info.getVersion() ) );
+        doc.add( new StoredField( LUCENE_LASTMODIFIED, lastModified( info ) ) );
+
         // Body text.  It is stored in the doc for search contexts.
-        field = new Field( LUCENE_PAGE_CONTENTS, indexedText, TextField.TYPE_STORED );
+        field = new Field( LUCENE_PAGE_CONTENTS, indexedText, CONTENTS_TYPE );
         doc.add( field );
 
         // Allow searching by page name. Both beautified and raw
@@ -391,9 +809,6 @@ public class LuceneSearchProvider implements SearchProvider {
             field = new Field( LUCENE_PAGE_KEYWORDS, page.getAttribute( "keywords" ).toString(), TextField.TYPE_STORED );
             doc.add( field );
         }
-        synchronized( writer ) {
-            writer.addDocument( doc );
-        }
 
         return doc;
     }
@@ -403,16 +818,21 @@ public class LuceneSearchProvider implements SearchProvider {
      */
     @Override
     public synchronized void pageRemoved( final Page page ) {
-        try( final Directory luceneDir = new NIOFSDirectory( new File( m_luceneDirectory ).toPath() );
-             final IndexWriter writer = getIndexWriter( luceneDir ) ) {
-            final Query query = new TermQuery( new Term( LUCENE_ID, page.getName() ) );
-            writer.deleteDocuments( query );
+        if( m_writer == null ) {
+            LOG.warn( "Lucene index is not available, skipping the removal of page '{}'", page.getName() );
+            return;
+        }
+        if( m_rebuilding ) {
+            m_rebuildChanges.add( new LuceneUpdateQueue.Update( page, null, System.currentTimeMillis() ) );
+        }
+        try {
+            m_writer.deleteDocuments( new Term( LUCENE_ID, page.getName() ) );
         } catch( final Exception e ) {
             LOG.error( "Unable to remove page '{}' from Lucene index", page.getName(), e );
         }
     }
 
-    IndexWriter getIndexWriter( final Directory luceneDir ) throws IOException, ProviderException {
+    IndexWriter getIndexWriter( final Directory luceneDir ) throws IOException {
         final IndexWriterConfig writerConfig = new IndexWriterConfig( getLuceneAnalyzer() );
         writerConfig.setOpenMode( OpenMode.CREATE_OR_APPEND );
         return new IndexWriter( luceneDir, writerConfig );
@@ -426,26 +846,44 @@ public class LuceneSearchProvider implements SearchProvider {
     @Override
     public void reindexPage( final Page page ) {
         if( page != null ) {
-            final String text;
-
             // TODO: Think if this was better done in the thread itself?
-            if( page instanceof Attachment ) {
-                text = getAttachmentContent( ( Attachment ) page );
-            } else {
-                text = m_engine.getManager( PageManager.class ).getPureText( page );
-            }
-
+            final String text = textOf( page );
             if( text != null ) {
-                // Add work item to m_updates queue.
-                final Object[] pair = new Object[ 2 ];
-                pair[ 0 ] = page;
-                pair[ 1 ] = text;
-                m_updates.add( pair );
+                // Add work item to m_updates queue, replacing any pending update of the same page.
+                m_updates.add( page, text );
                 LOG.debug( "Scheduling page {} for index update", page.getName() );
             }
         }
     }
 
+    /**
+     * The text to index for the given page or attachment.
+     */
+    private String textOf( final Page page ) {
+        if( page instanceof Attachment ) {
+            return getAttachmentContent( ( Attachment ) page );
+        }
+        return m_engine.getManager( PageManager.class ).getPureText( page );
+    }
+
+    /**
+     * Returns the number of pages waiting in the update queue to be indexed.
+     *
+     * @return the number of pages waiting to be indexed.
+     */
+    public int getUpdateQueueSize() {
+        return m_updates.size();
+    }
+
+    /**
+     * Returns how long, in milliseconds, the oldest page in the update queue has been waiting to be indexed.
+     *
+     * @return the indexing lag, {@code 0} if there are no pages waiting to be indexed.
+     */
+    public long getIndexingLag() {
+        return m_updates.getLag();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Collection< SearchResult > findPages( final String query, final Context wikiContext ) throws ProviderException {
@@ -464,64 +902,112 @@ public class LuceneSearchProvider implements SearchProvider {
      * @throws ProviderException if there is a problem with the backend
      */
     public Collection< SearchResult > findPages( final String query, final int flags, final Context wikiContext ) throws ProviderException {
-        ArrayList< SearchResult > list = null;
-        Highlighter highlighter = null;
+        try {
+            return new ArrayList<>( findPages( query, flags, 0, MAX_SEARCH_HITS, wikiContext ).getResults() );
+        } catch( final IOException e ) {
+            LOG.error( "Failed during lucene search", e );
+            return null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SearchResultWindow findPages( final String query, final int offset, final int limit, final Context wikiContext ) throws ProviderException, IOException {
+        return findPages( query, FLAG_CONTEXTS, offset, limit, wikiContext );
+    }
+
+    /**
+     * Searches pages using a particular combination of flags, returning only the viewable hits ranked at positions
+     * {@code [offset, offset + limit)}. The ranked hits are fetched in batches and checked for permissions until one more viewable
+     * hit than the end of the window is found, which tells whether there are more; only the hits inside the window are highlighted.
+     * The hits the user is not allowed to view are never counted, so the total of the window is a lower bound whenever there are more.
+     *
+     * @param query The query to perform in Lucene query language
+     * @param flags A set of flags
+     * @param offset position of the first hit to return
+     * @param limit maximum number of hits to return
+     * @param wikiContext the context within which to run the search
+     * @return the requested window of results
+     * @throws ProviderException if there is a problem with the backend
+     * @throws IOException if the index cannot be read
+     * @since 3.0.1
+     */
+    public SearchResultWindow findPages( final String query, final int flags, final int offset, final int limit, final Context wikiContext )
+            throws ProviderException, IOException {
+        if( m_searcherManager == null ) {
+            throw new ProviderException( "Lucene index is not available, check the logs for the reason" );
+        }
 
-        try( final Directory luceneDir = new NIOFSDirectory( new File( m_luceneDirectory ).toPath() );
-             final IndexReader reader = DirectoryReader.open( luceneDir ) ) {
+        final Query luceneQuery;
+        try {
             final String[] queryfields = { LUCENE_PAGE_CONTENTS, LUCENE_PAGE_NAME, LUCENE_AUTHOR, LUCENE_ATTACHMENTS, LUCENE_PAGE_KEYWORDS };
             final QueryParser qp = new MultiFieldQueryParser( queryfields, getLuceneAnalyzer() );
-            final Query luceneQuery = qp.parse( query );
-            final IndexSearcher searcher = new IndexSearcher( reader, searchExecutor );
-
-            if( ( flags & FLAG_CONTEXTS ) != 0 ) {
-                highlighter = new Highlighter( new SimpleHTMLFormatter( "<span class=\"searchmatch\">", "</span>" ),
-                                               new SimpleHTMLEncoder(),
-                                               new QueryScorer( luceneQuery ) );
-            }
+            luceneQuery = qp.parse( query );
+        } catch( final ParseException e ) {
+            LOG.error( "Broken query; cannot parse query: {}", query, e );
+            throw new ProviderException( "You have entered a query Lucene cannot process [" + query + "]: " + e.getMessage() );
+        }
 
+        final IndexSearcher searcher = m_searcherManager.acquire();
+        try {
             final AuthorizationManager mgr = m_engine.getManager( AuthorizationManager.class );
-            final TopDocs hits = searcher.search( luceneQuery, MAX_SEARCH_HITS );
-            final StoredFields storedFields = reader.storedFields();
-
-            list = new ArrayList<>( hits.scoreDocs.length );
-            for( final ScoreDoc hit : hits.scoreDocs ) {
-                final Document doc = storedFields.document( hit.doc );
-                final String pageName = doc.get( LUCENE_ID );
-                final Page page = m_engine.getManager( PageManager.class ).getPage( pageName, PageProvider.LATEST_VERSION );
-
-                if( page != null ) {
-                    final PagePermission pp = new PagePermission( page, PagePermission.VIEW_ACTION );
-                    if( mgr.checkPermission( wikiContext.getWikiSession(), pp ) ) {
-                        final int score = ( int ) ( hit.score * 100 );
-
-                        // Get highlighted search contexts
-                        final String text = doc.get( LUCENE_PAGE_CONTENTS );
-
-                        String[] fragments = new String[ 0 ];
-                        if( text != null && highlighter != null ) {
-                            final TokenStream tokenStream = getLuceneAnalyzer().tokenStream( LUCENE_PAGE_CONTENTS, new StringReader( text ) );
-                            fragments = highlighter.getBestFragments( tokenStream, text, MAX_FRAGMENTS );
+            final StoredFields storedFields = searcher.getIndexReader().storedFields();
+            final long windowEnd = ( long )offset + limit;
+            final long wanted = windowEnd + 1; // one more viewable hit tells whether there are more
+
+            // First find out which hits inside the window can be shown, then build the search contexts of those only.
+            final List< Page > pages = new ArrayList<>();
+            final List< ScoreDoc > viewable = new ArrayList<>();
+            int viewableHits = 0;
+            boolean exhausted = false;
+            ScoreDoc after = null;
+            while( viewableHits < wanted && !exhausted ) {
+                final int batch = ( int )Math.min( Math.max( wanted - viewableHits, SEARCH_BATCH ), MAX_SEARCH_HITS );
+                final TopDocs hits = after == null ? searcher.search( luceneQuery, batch ) : searcher.searchAfter( after, luceneQuery, batch );
+                exhausted = hits.scoreDocs.length < batch;
+                for( final ScoreDoc hit : hits.scoreDocs ) {
+                    after = hit;
+                    final String pageName = storedFields.document( hit.doc, ID_FIELD ).get( LUCENE_ID );
+                    final Page page = m_engine.getManager( PageManager.class ).getPage( pageName, PageProvider.LATEST_VERSION );
+
+                    if( page != null ) {
+                        final PagePermission pp = new PagePermission( page, PagePermission.VIEW_ACTION );
+                        if( mgr.checkPermission( wikiContext.getWikiSession(), pp ) ) {
+                            if( viewableHits >= offset && viewableHits < windowEnd ) {
+                                pages.add( page );
+                                viewable.add( hit );
+                            }
+                            if( ++viewableHits >= wanted ) {
+                                break;
+                            }
                         }
-
-                        final SearchResult result = new SearchResultImpl( page, score, fragments );
-                        list.add( result );
+                    } else {
+                        LOG.error( "Lucene found a result page '{}' that could not be loaded, removing from Lucene cache",  pageName );
+                        pageRemoved( Wiki.contents().page( m_engine, pageName ) );
                     }
-                } else {
-                    LOG.error( "Lucene found a result page '{}' that could not be loaded, removing from Lucene cache",  pageName );
-                    pageRemoved( Wiki.contents().page( m_engine, pageName ) );
                 }
             }
-        } catch( final IOException e ) {
-            LOG.error( "Failed during lucene search", e );
-        } catch( final ParseException e ) {
-            LOG.error( "Broken query; cannot parse query: {}", query, e );
-            throw new ProviderException( "You have entered a query Lucene cannot process [" + query + "]: " + e.getMessage() );
-        } catch( final InvalidTokenOffsetsException e ) {
-            LOG.error( "Tokens are incompatible with provided text ", e );
-        }
 
-        return list;
+            // Get highlighted search contexts
+            String[][] contexts = null;
+            if( ( flags & FLAG_CONTEXTS ) != 0 && !viewable.isEmpty() ) {
+                final SearchContextHighlighter highlighter = new SearchContextHighlighter( searcher, getLuceneAnalyzer(), LUCENE_PAGE_CONTENTS, MAX_FRAGMENTS );
+                contexts = highlighter.getContexts( luceneQuery, viewable.stream().mapToInt( hit -> hit.doc ).toArray() );
+            }
+
+            final List< SearchResult > list = new ArrayList<>( viewable.size() );
+            for( int i = 0; i < viewable.size(); i++ ) {
+                final int score = ( int ) ( viewable.get( i ).score * 100 );
+                list.add( new SearchResultImpl( pages.get( i ), score, contexts != null ? contexts[ i ] : new String[ 0 ] ) );
+            }
+            return new SearchResultWindow( list, offset, limit, viewableHits, viewableHits < wanted );
+        } finally {
+            try {
+                m_searcherManager.release( searcher );
+            } catch( final IOException e ) {
+                LOG.error( "Unable to release Lucene searcher", e );
+            }
+        }
     }
 
     /** {@inheritDoc} */
@@ -536,6 +1022,7 @@ public class LuceneSearchProvider implements SearchProvider {
     private static final class LuceneUpdater extends WikiBackgroundThread {
         static final int INDEX_DELAY    = 5;
         static final int INITIAL_DELAY = 60;
+        static final int BATCH_SIZE = 100;
         private final LuceneSearchProvider m_provider;
 
         private final int m_initialDelay;
@@ -570,13 +1057,10 @@ public class LuceneSearchProvider implements SearchProvider {
         public void backgroundTask() {
             m_watchdog.enterState( "Emptying index queue", 60 );
 
-            synchronized( m_provider.m_updates ) {
-                while(!m_provider.m_updates.isEmpty()) {
-                    final Object[] pair = m_provider.m_updates.remove( 0 );
-                    final Page page = ( Page )pair[ 0 ];
-                    final String text = ( String )pair[ 1 ];
-                    m_provider.updateLuceneIndex( page, text );
-                }
+            List< LuceneUpdateQueue.Update > batch = m_provider.m_updates.drain( m_provider.m_batchSize );
+            while( !batch.isEmpty() ) {
+                m_provider.updateLuceneIndex( batch );
+                batch = m_provider.m_updates.drain( m_provider.m_batchSize );
             }
 
             m_watchdog.exitState();
@@ -584,6 +1068,41 @@ public class LuceneSearchProvider implements SearchProvider {
 
     }
 
+    /**
+     * Background thread that keeps the searchers handed out by the {@link SearcherManager} current, and commits the
+     * shared {@link IndexWriter} periodically and on shutdown.
+     */
+    private static final class LuceneRefresher extends WikiBackgroundThread {
+        static final int REFRESH_DELAY = 1;
+        static final int COMMIT_DELAY = 60;
+        private final LuceneSearchProvider m_provider;
+        private final long m_commitDelay;
+        private long m_lastCommit;
+
+        private LuceneRefresher( final Engine engine, final LuceneSearchProvider provider, final int refreshDelay, final int commitDelay ) {
+            super( engine, refreshDelay );
+            m_provider = provider;
+            m_commitDelay = commitDelay * 1_000L;
+            m_lastCommit = System.currentTimeMillis();
+            setName( "JSPWiki Lucene Refresher" );
+        }
+
+        @Override
+        public void backgroundTask() {
+            m_provider.refreshSearcher();
+            if( System.currentTimeMillis() - m_lastCommit >= m_commitDelay ) {
+                m_provider.commitIndex();
+                m_lastCommit = System.currentTimeMillis();
+            }
+        }
+
+        @Override
+        public void shutdownTask() {
+            m_provider.closeIndex();
+        }
+
+    }
+
     // FIXME: This class is dumb; needs to have a better implementation
     private static class SearchResultImpl implements SearchResult {
 
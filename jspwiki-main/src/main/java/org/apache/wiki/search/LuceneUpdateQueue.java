@@ -0,0 +1,117 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.apache.wiki.api.core.Page;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ *  Queue of pending Lucene index updates, keyed by page name. Adding a page which is already queued replaces its text, so the latest
+ *  text wins, while the page keeps its place in the queue and the time it was first queued. This class is thread-safe.
+ *
+ *  @since 3.0.1
+ */
+final class LuceneUpdateQueue {
+
+    private final Map< String, Update > m_updates = new LinkedHashMap<>();
+
+    /**
+     *  Queues the given page for indexing, replacing the text of any pending update for the same page.
+     *
+     *  @param page page to index.
+     *  @param text text to index.
+     */
+    synchronized void add( final Page page, final String text ) {
+        final Update pending = m_updates.get( page.getName() );
+        final long queued = pending != null ? pending.getQueued() : System.currentTimeMillis();
+        m_updates.put( page.getName(), new Update( page, text, queued ) );
+    }
+
+    /**
+     *  Removes and returns up to {@code max} pending updates, oldest first.
+     *
+     *  @param max maximum number of updates to return.
+     *  @return the removed updates, empty if there are none.
+     */
+    synchronized List< Update > drain( final int max ) {
+        final List< Update > batch = new ArrayList<>( Math.min( max, m_updates.size() ) );
+        for( final Iterator< Update > it = m_updates.values().iterator(); it.hasNext() && batch.size() < max; ) {
+            batch.add( it.next() );
+            it.remove();
+        }
+        return batch;
+    }
+
+    /**
+     *  Returns the number of pages waiting to be indexed.
+     *
+     *  @return the number of pages waiting to be indexed.
+     */
+    synchronized int size() {
+        return m_updates.size();
+    }
+
+    /**
+     *  Returns how long, in milliseconds, the oldest pending update has been waiting to be indexed.
+     *
+     *  @return the age of the oldest pending update, {@code 0} if there are none.
+     */
+    synchronized long getLag() {
+        if( m_updates.isEmpty() ) {
+            return 0L;
+        }
+        return System.currentTimeMillis() - m_updates.values().iterator().next().getQueued();
+    }
+
+    /**
+     *  A pending index update.
+     */
+    static final class Update {
+
+        private final Page m_page;
+        private final String m_text;
+        private final long m_queued;
+
+        Update( final Page page, final String text, final long queued ) {
+            m_page = page;
+            m_text = text;
+            m_queued = queued;
+        }
+
+        Page getPage() {
+            return m_page;
+        }
+
+        String getText() {
+            return m_text;
+        }
+
+        long getQueued() {
+            return m_queued;
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+
+/**
+ *  Sorted index of page names, used to look up the names starting with a given prefix without scanning and lower-casing all of
+ *  them. Names are kept sorted by their lower-cased form, so all the names starting with a prefix are a contiguous range of the
+ *  index, found by binary search. This class is thread-safe, lookups don't block updates and vice versa.
+ *
+ *  @since 3.0.1
+ */
+final class PageNameIndex {
+
+    /** Separates the lower-cased name from the actual one on the index keys, so names differing only in case don't collide. */
+    private static final char SEPARATOR = '\u0000';
+
+    private final NavigableMap< String, String > m_names = new ConcurrentSkipListMap<>();
+
+    /**
+     *  Creates an index holding the given page names.
+     *
+     *  @param names initial page names.
+     */
+    PageNameIndex( final Collection< String > names ) {
+        names.forEach( this::add );
+    }
+
+    /**
+     *  Adds a page name to the index. Adding a name already on the index has no effect.
+     *
+     *  @param name page name.
+     */
+    void add( final String name ) {
+        m_names.put( key( name ), name );
+    }
+
+    /**
+     *  Removes a page name from the index.
+     *
+     *  @param name page name.
+     */
+    void remove( final String name ) {
+        m_names.remove( key( name ) );
+    }
+
+    /**
+     *  Returns the number of page names on the index.
+     *
+     *  @return the number of page names on the index.
+     */
+    int size() {
+        return m_names.size();
+    }
+
+    /**
+     *  Returns the page names starting with any of the given prefixes, ignoring case. Names matching the first prefix come first,
+     *  each group sorted alphabetically ignoring case.
+     *
+     *  @param max maximum number of names to return.
+     *  @param prefixes lower-cased prefixes to look for.
+     *  @return up to {@code max} page names starting with the given prefixes, without duplicates.
+     */
+    Set< String > startingWith( final int max, final String... prefixes ) {
+        final Set< String > found = new LinkedHashSet<>();
+        for( final String prefix : prefixes ) {
+            final Iterator< String > it = m_names.subMap( prefix, true, prefix + Character.MAX_VALUE, false ).values().iterator();
+            while( it.hasNext() && found.size() < max ) {
+                found.add( it.next() );
+            }
+        }
+        return found;
+    }
+
+    static String key( final String name ) {
+        return name.toLowerCase( Locale.ROOT ) + SEPARATOR + name;
+    }
+
+}
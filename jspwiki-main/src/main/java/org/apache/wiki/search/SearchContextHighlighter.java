@@ -0,0 +1,104 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.util.Locale;
+
+
+/**
+ *  Builds the search contexts (highlighted fragments of the page text) shown next to each search result. Relies on the offsets stored
+ *  in the index, so the page text doesn't need to be analyzed again for each hit.
+ *
+ *  @since 3.0.1
+ */
+final class SearchContextHighlighter extends UnifiedHighlighter {
+
+    private static final String[] NO_CONTEXTS = new String[ 0 ];
+
+    /** Approximate length of each fragment, in characters. */
+    private static final int FRAGMENT_LENGTH = 100;
+
+    private final String m_field;
+    private final int m_maxFragments;
+
+    /**
+     *  Creates a new highlighter.
+     *
+     *  @param searcher searcher used to run the query.
+     *  @param analyzer analyzer used to index the field, only needed if the field has no offsets stored.
+     *  @param field field to highlight.
+     *  @param maxFragments maximum number of fragments to return per document.
+     */
+    SearchContextHighlighter( final IndexSearcher searcher, final Analyzer analyzer, final String field, final int maxFragments ) {
+        super( builder( searcher, analyzer ).withFormatter( new FragmentsFormatter() )
+                                            .withMaxNoHighlightPassages( 0 )
+                                            .withBreakIterator( () -> LengthGoalBreakIterator.createClosestToLength( BreakIterator.getWordInstance( Locale.ROOT ),
+                                                                                                                    FRAGMENT_LENGTH, 0.5f ) ) );
+        m_field = field;
+        m_maxFragments = maxFragments;
+    }
+
+    /**
+     *  Returns the highlighted fragments of each of the given documents.
+     *
+     *  @param query query whose terms are highlighted.
+     *  @param docIds documents to highlight.
+     *  @return for each document, in the same order as {@code docIds}, its highlighted fragments.
+     *  @throws IOException if the index cannot be read.
+     */
+    String[][] getContexts( final Query query, final int[] docIds ) throws IOException {
+        final Object[] highlights = highlightFieldsAsObjects( new String[] { m_field }, query, docIds, new int[] { m_maxFragments } ).get( m_field );
+        final String[][] contexts = new String[ docIds.length ][];
+        for( int i = 0; i < docIds.length; i++ ) {
+            contexts[ i ] = highlights != null && highlights[ i ] != null ? ( String[] )highlights[ i ] : NO_CONTEXTS;
+        }
+        return contexts;
+    }
+
+    /**
+     *  Formats each passage as a separate, HTML-escaped, fragment.
+     */
+    private static final class FragmentsFormatter extends PassageFormatter {
+
+        private final DefaultPassageFormatter m_formatter = new DefaultPassageFormatter( "<span class=\"searchmatch\">", "</span>", "", true );
+
+        /** {@inheritDoc} */
+        @Override
+        public Object format( final Passage[] passages, final String content ) {
+            final String[] fragments = new String[ passages.length ];
+            for( int i = 0; i < passages.length; i++ ) {
+                fragments[ i ] = m_formatter.format( new Passage[] { passages[ i ] }, content );
+            }
+            return fragments;
+        }
+
+    }
+
+}
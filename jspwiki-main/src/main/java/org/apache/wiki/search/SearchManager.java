@@ -71,6 +71,24 @@ public interface SearchManager extends PageFilter, InternalModule, WikiEventList
         return getSearchEngine().findPages( query, wikiContext );
     }
 
+    /**
+     *  Sends a search to the current search provider, returning only the results ranked at positions {@code [offset, offset + limit)}.
+     *  Use this method when only a page of results is going to be shown, as the search provider may then skip loading, authorizing
+     *  and highlighting the hits outside of it.
+     *
+     * @param query The query.  Null is safe, and is interpreted as an empty query.
+     * @param offset position of the first hit to return, negative values are interpreted as {@code 0}.
+     * @param limit maximum number of hits to return.
+     * @param wikiContext the context within which to run the search
+     * @return the requested window of results, along with the total number of hits.
+     * @throws ProviderException If the provider fails and a search cannot be completed.
+     * @throws IOException If something else goes wrong.
+     * @since 3.0.1
+     */
+    default SearchResultWindow findPages( final String query, final int offset, final int limit, final Context wikiContext ) throws ProviderException, IOException {
+        return getSearchEngine().findPages( query != null ? query : "", Math.max( offset, 0 ), Math.max( limit, 0 ), wikiContext );
+    }
+
     /**
      *  Removes the page from the search cache (if any).
      *
@@ -60,4 +60,22 @@ public interface SearchProvider extends WikiProvider {
      */
     Collection< SearchResult > findPages( String query, Context wikiContext ) throws ProviderException, IOException;
 
+    /**
+     * Search for pages matching a search query, returning only the results ranked at positions {@code [offset, offset + limit)}.
+     * Providers able to do so should override this method, so only the hits inside the window are loaded, authorized and
+     * highlighted; by default, all the matching pages are searched and the window is taken from them.
+     *
+     * @param query query to search for
+     * @param offset position of the first hit to return, starting at {@code 0}
+     * @param limit maximum number of hits to return
+     * @param wikiContext the context within which to run the search
+     * @return the requested window of results, along with the total number of hits
+     * @throws ProviderException if the search provider failed.
+     * @throws IOException if for some reason the query could not be executed.
+     * @since 3.0.1
+     */
+    default SearchResultWindow findPages( final String query, final int offset, final int limit, final Context wikiContext ) throws ProviderException, IOException {
+        return SearchResultWindow.of( findPages( query, wikiContext ), offset, limit );
+    }
+
 }
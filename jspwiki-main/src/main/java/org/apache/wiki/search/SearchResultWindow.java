@@ -0,0 +1,161 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.apache.wiki.api.search.SearchResult;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ *  A window over the results of a search, holding only the results found at positions {@code [offset, offset + limit)} of the
+ *  hits the user is allowed to view, in rank order.
+ *  <p>
+ *  The total number of hits only counts the hits the user is allowed to view. Search providers may stop counting them a little after
+ *  the end of the window, so as not to check the permissions of every hit; the total is then a lower bound, as told by
+ *  {@link #isTotalExact()}, but still large enough for {@link #hasMore()} to tell whether there are hits after the window.
+ *
+ *  @since 3.0.1
+ */
+public final class SearchResultWindow extends AbstractCollection< SearchResult > {
+
+    private final List< SearchResult > m_results;
+    private final int m_offset;
+    private final int m_limit;
+    private final int m_totalHits;
+    private final boolean m_totalExact;
+
+    /**
+     *  Creates a new window, knowing the total number of hits of the search.
+     *
+     *  @param results the results inside the window, in rank order.
+     *  @param offset position of the first hit of the window.
+     *  @param limit maximum number of hits of the window.
+     *  @param totalHits total number of hits of the search.
+     */
+    public SearchResultWindow( final List< SearchResult > results, final int offset, final int limit, final int totalHits ) {
+        this( results, offset, limit, totalHits, true );
+    }
+
+    /**
+     *  Creates a new window.
+     *
+     *  @param results the results inside the window, in rank order.
+     *  @param offset position of the first hit of the window.
+     *  @param limit maximum number of hits of the window.
+     *  @param totalHits number of hits of the search counted, all of them if {@code totalExact}.
+     *  @param totalExact whether all the hits of the search were counted.
+     */
+    public SearchResultWindow( final List< SearchResult > results, final int offset, final int limit, final int totalHits,
+                               final boolean totalExact ) {
+        m_results = Collections.unmodifiableList( results );
+        m_offset = offset;
+        m_limit = limit;
+        m_totalHits = totalHits;
+        m_totalExact = totalExact;
+    }
+
+    /**
+     *  Builds a window from a fully materialized collection of results, as returned by {@link SearchProvider#findPages(String,
+     *  org.apache.wiki.api.core.Context)}.
+     *
+     *  @param results all the results of the search, may be {@code null}.
+     *  @param offset position of the first result of the window.
+     *  @param limit maximum number of results of the window.
+     *  @return the requested window.
+     */
+    public static SearchResultWindow of( final Collection< SearchResult > results, final int offset, final int limit ) {
+        if( results == null || results.isEmpty() ) {
+            return new SearchResultWindow( Collections.emptyList(), offset, limit, 0 );
+        }
+        return new SearchResultWindow( results.stream().skip( offset ).limit( limit ).toList(), offset, limit, results.size() );
+    }
+
+    /**
+     *  Returns the results inside the window.
+     *
+     *  @return the results inside the window, in rank order.
+     */
+    public List< SearchResult > getResults() {
+        return m_results;
+    }
+
+    /**
+     *  Returns the position of the first hit of the window.
+     *
+     *  @return the position of the first hit of the window.
+     */
+    public int getOffset() {
+        return m_offset;
+    }
+
+    /**
+     *  Returns the maximum number of hits of the window.
+     *
+     *  @return the maximum number of hits of the window.
+     */
+    public int getLimit() {
+        return m_limit;
+    }
+
+    /**
+     *  Returns the total number of hits of the search, not only those inside the window. Unless {@link #isTotalExact()}, there may be
+     *  more hits than that.
+     *
+     *  @return the total number of hits of the search.
+     */
+    public int getTotalHits() {
+        return m_totalHits;
+    }
+
+    /**
+     *  Tells whether {@link #getTotalHits()} counts all the hits of the search, rather than those up to a little after the window.
+     *
+     *  @return {@code true} if all the hits of the search were counted.
+     */
+    public boolean isTotalExact() {
+        return m_totalExact;
+    }
+
+    /**
+     *  Tells whether there are hits after this window. If so, the next window starts at {@code getOffset() + getLimit()}.
+     *
+     *  @return {@code true} if there are hits after this window, {@code false} otherwise.
+     */
+    public boolean hasMore() {
+        return ( long )m_offset + m_limit < m_totalHits;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator< SearchResult > iterator() {
+        return m_results.iterator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return m_results.size();
+    }
+
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.wiki.tags;
 
+import org.apache.wiki.search.SearchResultWindow;
+
 import java.io.IOException;
 import java.util.Collection;
 import jakarta.servlet.jsp.PageContext;
@@ -34,7 +36,7 @@ public class IfNoSearchResultsTag extends WikiTagBase {
     @Override
     public final int doWikiStartTag() throws IOException {
         final Collection< ? > list = (Collection< ? >)pageContext.getAttribute( "searchresults", PageContext.REQUEST_SCOPE );
-        if( list == null || list.isEmpty()) {
+        if( list == null || list.isEmpty() && !( list instanceof SearchResultWindow && ( ( SearchResultWindow )list ).getTotalHits() > 0 ) ) {
             return EVAL_BODY_INCLUDE;
         }
 
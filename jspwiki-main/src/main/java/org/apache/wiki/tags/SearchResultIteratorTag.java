@@ -25,6 +25,7 @@ import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.search.SearchResult;
 import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.search.SearchResultWindow;
 import org.apache.wiki.ui.PageCommand;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -79,8 +80,9 @@ public class SearchResultIteratorTag extends IteratorTag {
             final Collection< ? > searchresults = (Collection< ? >)pageContext.getAttribute( "searchresults", PageContext.REQUEST_SCOPE );
             setList( searchresults );
             
-            int skip = 0;
-            
+            // A window of search results already starts at its offset, so only the results between it and the requested start are skipped.
+            int skip = searchresults instanceof SearchResultWindow ? ( ( SearchResultWindow )searchresults ).getOffset() : 0;
+
             //  Skip the first few ones...
             m_iterator = searchresults.iterator();
             while( m_iterator.hasNext() && (skip++ < m_start) ) {
@@ -18,13 +18,17 @@
  */
 package org.apache.wiki.tags;
 
+import org.apache.wiki.search.SearchResultWindow;
+
 import java.io.IOException;
 import java.util.Collection;
 import jakarta.servlet.jsp.PageContext;
 
 /**
  *  Outputs the size of the search results list, if it contains any items.
- *  Otherwise outputs an empty string.
+ *  Otherwise outputs an empty string. If the search results are a
+ *  {@link SearchResultWindow}, outputs the total number of hits instead,
+ *  followed by a "+" when there may be more hits than counted.
  *
  *  @since 2.0
  */
@@ -36,7 +40,10 @@ public class SearchResultsSizeTag
     @Override
     public final int doWikiStartTag() throws IOException {
         final Collection< ? > list = ( Collection< ? > )pageContext.getAttribute( "searchresults", PageContext.REQUEST_SCOPE );
-        if( list != null ) {
+        if( list instanceof SearchResultWindow ) {
+            final SearchResultWindow window = ( SearchResultWindow )list;
+            pageContext.getOut().print( window.getTotalHits() + ( window.isTotalExact() ? "" : "+" ) );
+        } else if( list != null ) {
             pageContext.getOut().print( list.size() );
         }
 
@@ -20,6 +20,7 @@ package org.apache.wiki.ui.admin.beans;
 
 import org.apache.wiki.api.Release;
 import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.ui.admin.SimpleAdminBean;
 
@@ -31,7 +32,7 @@ import javax.management.NotCompliantMBeanException;
  */
 public class CoreBean extends SimpleAdminBean {
 
-    private static final String[] ATTRIBUTES = { "pages", "version" };
+    private static final String[] ATTRIBUTES = { "pages", "version", "asyncEventsPending", "asyncEventsDelivered", "asyncEventsDropped" };
     private static final String[] METHODS = { };
 
     public CoreBean( final Engine engine ) throws NotCompliantMBeanException {
@@ -59,6 +60,30 @@ public class CoreBean extends SimpleAdminBean {
         return "The JSPWiki engine version";
     }
 
+    public long getAsyncEventsPending() {
+        return WikiEventManager.getAsyncEventsPending();
+    }
+
+    public String getAsyncEventsPendingDescription() {
+        return "The number of events waiting to be delivered to asynchronous listeners";
+    }
+
+    public long getAsyncEventsDelivered() {
+        return WikiEventManager.getAsyncEventsDelivered();
+    }
+
+    public String getAsyncEventsDeliveredDescription() {
+        return "The number of events delivered to asynchronous listeners";
+    }
+
+    public long getAsyncEventsDropped() {
+        return WikiEventManager.getAsyncEventsDropped();
+    }
+
+    public String getAsyncEventsDroppedDescription() {
+        return "The number of events dropped because the queue of an asynchronous listener was full";
+    }
+
     @Override
     public String getTitle() {
         return "Core bean";
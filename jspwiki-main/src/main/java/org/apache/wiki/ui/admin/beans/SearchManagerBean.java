@@ -23,7 +23,9 @@ import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.search.LuceneSearchProvider;
 import org.apache.wiki.search.SearchManager;
+import org.apache.wiki.search.SearchProvider;
 import org.apache.wiki.ui.admin.SimpleAdminBean;
 import org.apache.wiki.ui.progress.ProgressItem;
 import org.apache.wiki.ui.progress.ProgressManager;
@@ -40,6 +42,7 @@ import java.util.Collection;
 public class SearchManagerBean extends SimpleAdminBean {
 
     private static final String PROGRESS_ID = "searchmanagerbean.reindexer";
+    private static final String[] ATTRIBUTES = { "updateQueueSize", "indexingLag" };
     private static final String[] METHODS = { "reload" };
 
     // private static Logger log = LogManager.getLogger( SearchManagerBean.class );
@@ -54,7 +57,35 @@ public class SearchManagerBean extends SimpleAdminBean {
     @Override
     public String[] getAttributeNames()
     {
-        return new String[0];
+        return ATTRIBUTES;
+    }
+
+    /**
+     *  Returns the number of pages waiting to be indexed, if the search provider queues them.
+     *
+     *  @return the number of pages waiting to be indexed.
+     */
+    public int getUpdateQueueSize() {
+        final SearchProvider provider = m_engine.getManager( SearchManager.class ).getSearchEngine();
+        return provider instanceof LuceneSearchProvider ? ( ( LuceneSearchProvider )provider ).getUpdateQueueSize() : 0;
+    }
+
+    public String getUpdateQueueSizeDescription() {
+        return "The number of pages waiting to be indexed";
+    }
+
+    /**
+     *  Returns how long, in milliseconds, the oldest page waiting to be indexed has been waiting, if the search provider queues them.
+     *
+     *  @return the indexing lag, in milliseconds.
+     */
+    public long getIndexingLag() {
+        final SearchProvider provider = m_engine.getManager( SearchManager.class ).getSearchEngine();
+        return provider instanceof LuceneSearchProvider ? ( ( LuceneSearchProvider )provider ).getIndexingLag() : 0L;
+    }
+
+    public String getIndexingLagDescription() {
+        return "How long, in milliseconds, the oldest page waiting to be indexed has been waiting";
     }
 
     @Override
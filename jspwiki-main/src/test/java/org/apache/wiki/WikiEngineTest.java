@@ -329,6 +329,19 @@ class WikiEngineTest {
         Assertions.assertEquals( 4, m_engine.getManagers( ModuleManager.class ).size() );
     }
 
+    @Test
+    void testGetManagersAfterRegisteringNewManager() {
+        Assertions.assertNull( m_engine.getManager( StringBuilder.class ) );
+        Assertions.assertEquals( 0, m_engine.getManagers( CharSequence.class ).size() );
+
+        final StringBuilder manager = new StringBuilder();
+        m_engine.registerManager( StringBuilder.class, manager );
+        Assertions.assertSame( manager, m_engine.getManager( StringBuilder.class ) );
+        Assertions.assertSame( manager, m_engine.getManager( CharSequence.class ) );
+        Assertions.assertEquals( 1, m_engine.getManagers( CharSequence.class ).size() );
+        Assertions.assertSame( m_engine.getManager( PageManager.class ), m_engine.getManager( PageManager.class ) );
+    }
+
     @Test
     void testCheckWorkingDirectory() {
         Assertions.assertDoesNotThrow( () -> m_engine.checkWorkingDirectory( false, "boo" ) );
@@ -0,0 +1,96 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.pages;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.cache.CachingManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.wiki.TestEngine.with;
+
+class CacheWarmerTest {
+
+    TestEngine engine = TestEngine.build( with( CachingManager.PROP_HOT_KEYS, "2" ), with( CacheWarmer.PROP_WARMUP_DOCUMENTS, "true" ) );
+
+    @AfterEach
+    void tearDown() {
+        engine.deleteTestPage( "HotPage" );
+        engine.deleteTestPage( "WarmPage" );
+        engine.deleteTestPage( "ColdPage" );
+        engine.stop();
+    }
+
+    @Test
+    void testRecordsMostRequestedPages() throws Exception {
+        engine.saveText( "HotPage", "hot" );
+        engine.saveText( "WarmPage", "warm" );
+        engine.saveText( "ColdPage", "cold" );
+        final PageManager pageManager = engine.getManager( PageManager.class );
+        for( int i = 0; i < 5; i++ ) {
+            pageManager.getPureText( "HotPage", PageProvider.LATEST_VERSION );
+        }
+        for( int i = 0; i < 3; i++ ) {
+            pageManager.getPureText( "WarmPage", PageProvider.LATEST_VERSION );
+        }
+        pageManager.getPureText( "ColdPage", PageProvider.LATEST_VERSION );
+
+        final CacheWarmer warmer = new CacheWarmer( engine, engine.getWikiProperties() );
+        warmer.writeHotPages();
+        Assertions.assertEquals( List.of( "HotPage", "WarmPage" ), warmer.readHotPages() );
+    }
+
+    @Test
+    void testListingPagesDoesNotMakeThemHot() throws Exception {
+        engine.saveText( "HotPage", "hot" );
+        engine.saveText( "ColdPage", "cold" );
+        final CachingManager cachingManager = engine.getManager( CachingManager.class );
+        for( int i = 0; i < 64 && !cachingManager.hotKeys( CachingManager.CACHE_PAGES ).isEmpty(); i++ ) {
+            // let the requests made while saving decay
+        }
+
+        final PageManager pageManager = engine.getManager( PageManager.class );
+        for( int i = 0; i < 5; i++ ) {
+            pageManager.getAllPages();
+        }
+        Assertions.assertEquals( Collections.emptyList(), cachingManager.hotKeys( CachingManager.CACHE_PAGES ) );
+    }
+
+    @Test
+    void testWarmUp() throws Exception {
+        engine.saveText( "HotPage", "hot" );
+        final CachingManager cachingManager = engine.getManager( CachingManager.class );
+        cachingManager.remove( CachingManager.CACHE_PAGES_TEXT, "HotPage" );
+        for( final String key : cachingManager.< String >keys( CachingManager.CACHE_DOCUMENTS ) ) {
+            cachingManager.remove( CachingManager.CACHE_DOCUMENTS, key );
+        }
+
+        final CacheWarmer warmer = new CacheWarmer( engine, engine.getWikiProperties() );
+        Assertions.assertEquals( 0, warmer.warmUp( Collections.emptyList() ) );
+        Assertions.assertEquals( 1, warmer.warmUp( List.of( "HotPage", "NonExistentPage" ) ) );
+        Assertions.assertNotNull( cachingManager.get( CachingManager.CACHE_PAGES_TEXT, "HotPage", () -> null ) );
+        Assertions.assertTrue( cachingManager.< String >keys( CachingManager.CACHE_DOCUMENTS ).stream().anyMatch( key -> key.startsWith( "HotPage" ) ) );
+    }
+
+}
@@ -39,7 +39,12 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.Properties;
+import java.util.Set;
+
+import static org.apache.wiki.TestEngine.with;
 
 public class DefaultPageManagerTest {
 
@@ -121,6 +126,36 @@ public class DefaultPageManagerTest {
         Assertions.assertFalse( attfile.exists(), "Attachment has not been removed" );
     }
 
+    @Test
+    public void testRecentChangesSince() throws Exception {
+        engine.saveText( NAME1, "Old" );
+        final Attachment old = Wiki.contents().attachment( engine, NAME1, "Old.txt" );
+        engine.getManager( AttachmentManager.class ).storeAttachment( old, engine.makeAttachmentFile() );
+        Thread.sleep( 1100L ); // file dates may have a resolution of a second
+        final Date since = new Date();
+        Thread.sleep( 1100L );
+        engine.saveText( "Test2", "New" );
+        Thread.sleep( 1100L );
+        final Attachment att = Wiki.contents().attachment( engine, "Test2", "New.txt" );
+        engine.getManager( AttachmentManager.class ).storeAttachment( att, engine.makeAttachmentFile() );
+
+        final Set< Page > changes = engine.getManager( PageManager.class ).getRecentChanges( since );
+        Assertions.assertEquals( 2, changes.size() );
+        final Iterator< Page > i = changes.iterator();
+        Assertions.assertEquals( "Test2/New.txt", i.next().getName() );
+        Assertions.assertEquals( "Test2", i.next().getName() );
+    }
+
+    @Test
+    public void testRecentChangesSinceWithoutChangeTracking() {
+        engine.stop();
+        engine = TestEngine.build( with( "jspwiki.pageProvider", "org.apache.wiki.providers.CounterProvider" ) );
+        final PageManager pageManager = engine.getManager( PageManager.class );
+
+        Assertions.assertEquals( 4, pageManager.getRecentChanges( new Date( 0L ) ).size() );
+        Assertions.assertTrue( pageManager.getRecentChanges( new Date( 1L ) ).isEmpty() );
+    }
+
     @Test
     public void testDeletePageAndAttachments2() throws Exception {
         engine.saveText( NAME1, "Test" );
@@ -96,6 +96,15 @@ class JSPWikiMarkupParserTest {
         return conv.getString();
     }
 
+    @Test
+    public void testDocumentEstimatedSize() throws Exception {
+        final WikiContext context = new WikiContext( testEngine, Wiki.contents().page( testEngine, PAGE_NAME ) );
+        final WikiDocument small = new JSPWikiMarkupParser( context, new StringReader( "Hello" ) ).parse();
+        final WikiDocument big = new JSPWikiMarkupParser( context, new StringReader( "__Hello__ world\n".repeat( 1_000 ) ) ).parse();
+        Assertions.assertTrue( small.getEstimatedSize() > 0 );
+        Assertions.assertTrue( big.getEstimatedSize() > 2 * "Hello world".length() * 1_000L );
+    }
+
     @Test
     public void testEmptyLink() throws Exception {
         newPage( "Hyperlink" );
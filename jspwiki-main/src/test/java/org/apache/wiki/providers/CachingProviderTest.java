@@ -23,7 +23,10 @@ import net.sf.ehcache.CacheManager;
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.cache.CaffeineCachingManager;
+import org.apache.wiki.cache.FileInvalidationTransport;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.render.RenderingManager;
 import org.apache.wiki.util.FileUtil;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.AfterEach;
@@ -35,7 +38,15 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class CachingProviderTest {
 
@@ -72,6 +83,34 @@ class CachingProviderTest {
         Assertions.assertEquals( 0, p.m_pageExistsCalls, "pageExists2" );
     }
 
+    @Test
+    void testAllPagesAreListedFromTheCatalog() throws Exception {
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( CachingManager.PROP_CACHE_MANAGER_IMPL, CaffeineCachingManager.class.getName() );
+        props.setProperty( "jspwiki.cache.caffeine.maxElements." + CachingManager.CACHE_PAGES, "2" ); // can't hold all pages
+        props.setProperty( "jspwiki.pageProvider", "org.apache.wiki.providers.CounterProvider" );
+        engine = TestEngine.build( props );
+        final CachingProvider cachingProvider = ( CachingProvider )engine.getManager( PageManager.class ).getProvider();
+        final CounterProvider p = ( CounterProvider )cachingProvider.getRealProvider();
+        final int getAllPagesCalls = p.m_getAllPagesCalls;
+
+        for( int i = 0; i < 3; i++ ) {
+            final Collection< Page > all = cachingProvider.getAllPages();
+            Assertions.assertEquals( 4, all.size() );
+            for( final Page page : all ) {
+                Assertions.assertEquals( "Unknown", page.getAuthor() );
+                Assertions.assertEquals( 1, page.getVersion() );
+                Assertions.assertEquals( 0L, page.getLastModified().getTime() );
+            }
+        }
+        Assertions.assertEquals( 4, cachingProvider.getPageCount() );
+        Assertions.assertEquals( getAllPagesCalls, p.m_getAllPagesCalls, "getAllPages" );
+
+        cachingProvider.deletePage( "Foo" );
+        Assertions.assertEquals( 3, cachingProvider.getAllPages().size() );
+        Assertions.assertEquals( getAllPagesCalls, p.m_getAllPagesCalls, "getAllPages" );
+    }
+
     @Test
     void testSneakyAdd() throws Exception {
         engine = TestEngine.build();
@@ -116,4 +155,99 @@ class CachingProviderTest {
         Assertions.assertEquals( 4, engine.getManager( PageManager.class ).getAllPages().size() );
     }
 
+    @Test
+    void testDiskTierKeepsPagesAcrossRestarts() throws Exception {
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( CachingManager.PROP_CACHE_ENABLE, "true" );
+        props.setProperty( CachingManager.PROP_DISK_TIER, new File( "target/disk-tier-" + System.nanoTime() ).getAbsolutePath() );
+        props.setProperty( CachingManager.PROP_DISK_TIER_COMPRESS, "true" );
+
+        engine = TestEngine.build( props );
+        // the restarted wiki keeps the same page repository and work directory
+        final Properties restartProps = new Properties();
+        restartProps.putAll( engine.getWikiProperties() );
+        restartProps.setProperty( "jspwiki.test.disable-clean-props", "true" );
+        engine.saveText( "Tiered", "first version" );
+        engine.saveText( "Tiered", "second version" );
+        final List< Page > history = engine.getManager( PageManager.class ).getVersionHistory( "Tiered" );
+        final String text = engine.getManager( PageManager.class ).getPureText( "Tiered", -1 );
+        stopKeepingPages();
+
+        engine = TestEngine.build( restartProps );
+        final CachingManager cachingManager = engine.getManager( CachingManager.class );
+        Assertions.assertEquals( text, cachingManager.get( CachingManager.CACHE_PAGES_TEXT, "Tiered", () -> null ) );
+        final List< Page > tiered = cachingManager.get( CachingManager.CACHE_PAGES_HISTORY, "Tiered", () -> null );
+        Assertions.assertEquals( history.size(), tiered.size() );
+        for( int i = 0; i < history.size(); i++ ) {
+            Assertions.assertEquals( history.get( i ).getName(), tiered.get( i ).getName() );
+            Assertions.assertEquals( history.get( i ).getVersion(), tiered.get( i ).getVersion() );
+            Assertions.assertEquals( history.get( i ).getLastModified(), tiered.get( i ).getLastModified() );
+            Assertions.assertEquals( history.get( i ).getAuthor(), tiered.get( i ).getAuthor() );
+            Assertions.assertEquals( history.get( i ).getSize(), tiered.get( i ).getSize() );
+        }
+        stopKeepingPages();
+
+        // the page is changed while the wiki is stopped
+        final File page = new File( engine.getWikiProperties().getProperty( FileSystemProvider.PROP_PAGEDIR ), "Tiered.txt" );
+        try( final PrintWriter out = new PrintWriter( new FileWriter( page ) ) ) {
+            out.print( "changed behind the back of the cache" );
+        }
+        Assertions.assertTrue( page.setLastModified( page.lastModified() + 10_000L ) );
+        engine = TestEngine.build( restartProps );
+        Assertions.assertEquals( "changed behind the back of the cache", engine.getManager( PageManager.class ).getPureText( "Tiered", -1 ) );
+        Assertions.assertEquals( "changed behind the back of the cache",
+                                 engine.getManager( CachingManager.class ).get( CachingManager.CACHE_PAGES_TEXT, "Tiered", () -> null ) );
+    }
+
+    /** Stops the engine, keeping its pages, which are otherwise deleted when a test engine stops. */
+    void stopKeepingPages() throws Exception {
+        final Path pageDir = Paths.get( engine.getWikiProperties().getProperty( FileSystemProvider.PROP_PAGEDIR ) );
+        final Path kept = Files.createTempDirectory( pageDir.getParent(), "kept" );
+        copyFiles( pageDir, kept );
+        engine.stop();
+        Files.createDirectories( pageDir );
+        copyFiles( kept, pageDir );
+    }
+
+    void copyFiles( final Path from, final Path to ) throws Exception {
+        try( final Stream< Path > files = Files.list( from ) ) {
+            for( final Path file : files.filter( Files::isRegularFile ).collect( Collectors.toList() ) ) {
+                Files.copy( file, to.resolve( file.getFileName() ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES );
+            }
+        }
+    }
+
+    @Test
+    void testPeerNodesInvalidateEachOther() throws Exception {
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( CachingManager.PROP_CACHE_MANAGER_IMPL, CaffeineCachingManager.class.getName() ); // not shared by the nodes
+        props.setProperty( CachingManager.PROP_INVALIDATION_TRANSPORT, FileInvalidationTransport.class.getName() );
+        props.setProperty( FileInvalidationTransport.PROP_DIRECTORY, "invalidations" );
+        props.setProperty( FileInvalidationTransport.PROP_POLL_INTERVAL, "50" );
+        engine = TestEngine.build( props );
+
+        // the peer node shares the page repository and the work directory
+        final Properties peerProps = new Properties();
+        peerProps.putAll( engine.getWikiProperties() );
+        peerProps.setProperty( "jspwiki.test.disable-clean-props", "true" );
+        final TestEngine peer = TestEngine.build( peerProps );
+        try {
+            final PageManager peerPages = peer.getManager( PageManager.class );
+            final RenderingManager peerRenderer = peer.getManager( RenderingManager.class );
+            engine.saveText( "Shared", "first version" );
+            engine.saveText( "Includer", "[{InsertPage page='Shared'}]" );
+            Assertions.assertTrue( peerPages.getPureText( "Shared", -1 ).startsWith( "first version" ) );
+            Assertions.assertTrue( peerRenderer.getHTML( "Includer" ).contains( "first version" ) );
+
+            engine.saveText( "Shared", "second version" );
+            Awaitility.await( "text" ).until( () -> peerPages.getPureText( "Shared", -1 ).startsWith( "second version" ) );
+            Awaitility.await( "rendering" ).until( () -> peerRenderer.getHTML( "Includer" ).contains( "second version" ) );
+
+            engine.getManager( PageManager.class ).deletePage( "Shared" );
+            Awaitility.await( "deletion" ).until( () -> !peerPages.wikiPageExists( "Shared" ) );
+        } finally {
+            peer.stop();
+        }
+    }
+
 }
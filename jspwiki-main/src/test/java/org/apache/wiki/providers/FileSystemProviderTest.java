@@ -34,7 +34,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 import static org.apache.wiki.TestEngine.with;
 
@@ -301,4 +307,46 @@ public class FileSystemProviderTest {
         Assertions.assertFalse( file.exists() );
     }
 
+    @Test
+    public void testGetAllChangedSince() throws Exception {
+        m_provider.putPageText( new WikiPage( m_engine, "Old" ), "old" );
+        m_provider.putPageText( new WikiPage( m_engine, "Moved" ), "moved" );
+        m_provider.putPageText( new WikiPage( m_engine, "Deleted" ), "deleted" );
+        Thread.sleep( 50L );
+        final Date since = new Date();
+        Thread.sleep( 50L );
+        m_provider.putPageText( new WikiPage( m_engine, "New Page" ), "new" );
+        m_provider.movePage( "Moved", "Renamed" );
+        m_provider.deletePage( "Deleted" );
+
+        final List< String > changed = m_provider.getAllChangedSince( since ).stream().map( Page::getName ).collect( Collectors.toList() );
+        Assertions.assertEquals( Arrays.asList( "Renamed", "New Page" ), changed );
+        Assertions.assertEquals( 3, m_provider.getAllChangedSince( new Date( 0L ) ).size() );
+    }
+
+    @Test
+    public void testChangeJournalIsRebuilt() throws Exception {
+        m_provider.putPageText( new WikiPage( m_engine, "Test1" ), "test" );
+        m_provider.putPageText( new WikiPage( m_engine, "Test2" ), "test" );
+        final File journal = new File( props.getProperty( FileSystemProvider.PROP_PAGEDIR ), ChangeJournal.FILE_NAME );
+        Assertions.assertTrue( journal.delete() );
+
+        final FileSystemProvider provider = new FileSystemProvider();
+        provider.initialize( m_engine, props );
+        Assertions.assertTrue( journal.exists() );
+        Assertions.assertEquals( 2, provider.getAllChangedSince( new Date( 0L ) ).size() );
+    }
+
+    @Test
+    public void testIncompleteJournalLineIsDropped() throws Exception {
+        m_provider.putPageText( new WikiPage( m_engine, "Test1" ), "test" );
+        final File journal = new File( props.getProperty( FileSystemProvider.PROP_PAGEDIR ), ChangeJournal.FILE_NAME );
+        Files.write( journal.toPath(), "99999 Te".getBytes( StandardCharsets.US_ASCII ), StandardOpenOption.APPEND );
+
+        final FileSystemProvider provider = new FileSystemProvider();
+        provider.initialize( m_engine, props );
+        provider.putPageText( new WikiPage( m_engine, "Test2" ), "test" );
+        Assertions.assertEquals( 2, provider.getAllChangedSince( new Date( 0L ) ).size() );
+    }
+
 }
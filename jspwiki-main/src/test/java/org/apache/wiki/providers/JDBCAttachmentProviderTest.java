@@ -0,0 +1,199 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.wiki.HsqlDbUtils;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.TestJDBCDataSource;
+import org.apache.wiki.TestJNDIContext;
+import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.WikiProvider;
+import org.apache.wiki.api.spi.Wiki;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NameAlreadyBoundException;
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+
+class JDBCAttachmentProviderTest {
+
+    private final HsqlDbUtils m_hu = new HsqlDbUtils();
+
+    TestEngine engine;
+    JDBCAttachmentProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        m_hu.setUp();
+        // Set up the mock JNDI initial context
+        TestJNDIContext.initialize();
+        final Context initCtx = new InitialContext();
+        try {
+            initCtx.bind( "java:comp/env", new TestJNDIContext() );
+        } catch( final NameAlreadyBoundException e ) {
+            // ignore
+        }
+        final Context ctx = ( Context )initCtx.lookup( "java:comp/env" );
+        ctx.bind( JDBCAttachmentProvider.DEFAULT_DB_JNDI_NAME,
+                  new TestJDBCDataSource( new File( "target/test-classes/jspwiki-custom.properties" ), m_hu.getDriverUrl() ) );
+
+        engine = TestEngine.build();
+        provider = new JDBCAttachmentProvider();
+        provider.initialize( engine, engine.getWikiProperties() );
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+        m_hu.tearDown();
+    }
+
+    Attachment put( final String page, final String name, final byte[] data ) throws Exception {
+        final Attachment att = Wiki.contents().attachment( engine, page, name );
+        att.setAuthor( "Alice" );
+        provider.putAttachmentData( att, new ByteArrayInputStream( data ) );
+        return att;
+    }
+
+    byte[] read( final Attachment att ) throws Exception {
+        try( final InputStream in = provider.getAttachmentData( att ) ) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testDataIsStreamedBack() throws Exception {
+        final byte[] data = new byte[ 1024 * 1024 ];
+        new Random( 42L ).nextBytes( data );
+        put( "TestPage", "big.bin", data );
+        put( "TestPage", "big.bin", new byte[] { 1, 2, 3 } );
+
+        final Attachment latest = provider.getAttachmentInfo( Wiki.contents().page( engine, "TestPage" ), "big.bin", WikiProvider.LATEST_VERSION );
+        Assertions.assertEquals( 2, latest.getVersion() );
+        Assertions.assertEquals( 3, latest.getSize() );
+        Assertions.assertEquals( "Alice", latest.getAuthor() );
+        Assertions.assertArrayEquals( new byte[] { 1, 2, 3 }, read( latest ) );
+
+        final Attachment first = provider.getAttachmentInfo( Wiki.contents().page( engine, "TestPage" ), "big.bin", 1 );
+        Assertions.assertEquals( data.length, first.getSize() );
+        Assertions.assertArrayEquals( data, read( first ) );
+        Assertions.assertNull( provider.getAttachmentInfo( Wiki.contents().page( engine, "TestPage" ), "big.bin", 3 ) );
+    }
+
+    @Test
+    void testListings() throws Exception {
+        put( "TestPage", "a.txt", "a1".getBytes() );
+        put( "TestPage", "a.txt", "a2".getBytes() );
+        put( "TestPage", "b.txt", "b1".getBytes() );
+        Thread.sleep( 50L );
+        final Date since = new Date();
+        Thread.sleep( 50L );
+        put( "OtherPage", "c.txt", "c1".getBytes() );
+
+        final List< Attachment > attachments = provider.listAttachments( Wiki.contents().page( engine, "TestPage" ) );
+        Assertions.assertEquals( 2, attachments.size() );
+        final List< Attachment > changed = provider.listAllChanged( since );
+        Assertions.assertEquals( 1, changed.size() );
+        Assertions.assertEquals( "OtherPage/c.txt", changed.get( 0 ).getName() );
+        Assertions.assertEquals( 3, provider.listAllChanged( new Date( 0L ) ).size() );
+
+        final List< Attachment > history = provider.getVersionHistory( Wiki.contents().attachment( engine, "TestPage", "a.txt" ) );
+        Assertions.assertEquals( 2, history.size() );
+        Assertions.assertEquals( 2, history.get( 0 ).getVersion() );
+    }
+
+    @Test
+    void testDeletesAndMoves() throws Exception {
+        put( "TestPage", "a.txt", "a1".getBytes() );
+        put( "TestPage", "a.txt", "a2".getBytes() );
+        put( "TestPage", "b.txt", "b1".getBytes() );
+        final Page page = Wiki.contents().page( engine, "TestPage" );
+
+        provider.deleteVersion( provider.getAttachmentInfo( page, "a.txt", 2 ) );
+        Assertions.assertEquals( 1, provider.getAttachmentInfo( page, "a.txt", WikiProvider.LATEST_VERSION ).getVersion() );
+        provider.deleteAttachment( Wiki.contents().attachment( engine, "TestPage", "b.txt" ) );
+        Assertions.assertNull( provider.getAttachmentInfo( page, "b.txt", WikiProvider.LATEST_VERSION ) );
+
+        provider.moveAttachmentsForPage( "TestPage", "NewPage" );
+        Assertions.assertTrue( provider.listAttachments( page ).isEmpty() );
+        final Attachment moved = provider.getAttachmentInfo( Wiki.contents().page( engine, "NewPage" ), "a.txt", WikiProvider.LATEST_VERSION );
+        Assertions.assertEquals( "NewPage", moved.getParentName() );
+        Assertions.assertArrayEquals( "a1".getBytes(), read( moved ) );
+    }
+
+    @Test
+    void testPooledConnectionsKeepTheirAutoCommit() throws Exception {
+        // a pool of a single connection, which is handed out again once closed
+        final DataSource ds = new TestJDBCDataSource( new File( "target/test-classes/jspwiki-custom.properties" ), m_hu.getDriverUrl() );
+        final Connection conn = ds.getConnection();
+        final Connection pooled = ( Connection )Proxy.newProxyInstance( getClass().getClassLoader(), new Class< ? >[] { Connection.class },
+                ( proxy, method, args ) -> "close".equals( method.getName() ) ? null : method.invoke( conn, args ) );
+        final Context ctx = ( Context )new InitialContext().lookup( "java:comp/env" );
+        ctx.bind( JDBCAttachmentProvider.DEFAULT_DB_JNDI_NAME, Proxy.newProxyInstance( getClass().getClassLoader(), new Class< ? >[] { DataSource.class },
+                ( proxy, method, args ) -> "getConnection".equals( method.getName() ) ? pooled : method.invoke( ds, args ) ) );
+        try {
+            provider = new JDBCAttachmentProvider();
+            provider.initialize( engine, engine.getWikiProperties() );
+            final Attachment att = put( "TestPage", "a.txt", "a1".getBytes() );
+            put( "TestPage", "a.txt", "a2".getBytes() );
+            Assertions.assertTrue( conn.getAutoCommit() );
+            Assertions.assertArrayEquals( "a2".getBytes(), read( att ) );
+            Assertions.assertTrue( conn.getAutoCommit() );
+
+            provider.deleteVersion( provider.getAttachmentInfo( Wiki.contents().page( engine, "TestPage" ), "a.txt", 2 ) );
+            provider.deleteAttachment( att );
+            Assertions.assertTrue( conn.getAutoCommit() );
+            conn.rollback(); // nothing left uncommitted to roll back
+            Assertions.assertNull( provider.getAttachmentInfo( Wiki.contents().page( engine, "TestPage" ), "a.txt", WikiProvider.LATEST_VERSION ) );
+        } finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    void testImportFromBasicAttachmentProvider() throws Exception {
+        final BasicAttachmentProvider source = new BasicAttachmentProvider();
+        source.initialize( engine, engine.getWikiProperties() );
+        engine.saveText( "TestPage", "page with attachments" );
+        final Attachment att = Wiki.contents().attachment( engine, "TestPage", "a.txt" );
+        source.putAttachmentData( att, new ByteArrayInputStream( "a1".getBytes() ) );
+        source.putAttachmentData( att, new ByteArrayInputStream( "a2".getBytes() ) );
+
+        Assertions.assertEquals( 2, provider.importAttachments( source ) );
+        final Page page = Wiki.contents().page( engine, "TestPage" );
+        Assertions.assertArrayEquals( "a1".getBytes(), read( provider.getAttachmentInfo( page, "a.txt", 1 ) ) );
+        Assertions.assertArrayEquals( "a2".getBytes(), read( provider.getAttachmentInfo( page, "a.txt", 2 ) ) );
+        Assertions.assertEquals( 0, provider.importAttachments( source ), "already imported" );
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.wiki.HsqlDbUtils;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.TestJDBCDataSource;
+import org.apache.wiki.TestJNDIContext;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.pages.PageManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NameAlreadyBoundException;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.wiki.TestEngine.with;
+
+
+class JDBCPageProviderTest {
+
+    private final HsqlDbUtils m_hu = new HsqlDbUtils();
+
+    TestEngine engine;
+    JDBCPageProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        m_hu.setUp();
+        // Set up the mock JNDI initial context
+        TestJNDIContext.initialize();
+        final Context initCtx = new InitialContext();
+        try {
+            initCtx.bind( "java:comp/env", new TestJNDIContext() );
+        } catch( final NameAlreadyBoundException e ) {
+            // ignore
+        }
+        final Context ctx = ( Context )initCtx.lookup( "java:comp/env" );
+        ctx.bind( JDBCPageProvider.DEFAULT_DB_JNDI_NAME,
+                  new TestJDBCDataSource( new File( "target/test-classes/jspwiki-custom.properties" ), m_hu.getDriverUrl() ) );
+
+        engine = TestEngine.build();
+        provider = new JDBCPageProvider();
+        provider.initialize( engine, engine.getWikiProperties() );
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+        m_hu.tearDown();
+    }
+
+    void save( final PageProvider provider, final String name, final String text, final String author, final String changeNote ) throws Exception {
+        final Page page = Wiki.contents().page( engine, name );
+        page.setAuthor( author );
+        if( changeNote != null ) {
+            page.setAttribute( Page.CHANGENOTE, changeNote );
+        }
+        provider.putPageText( page, text );
+    }
+
+    @Test
+    void testVersions() throws Exception {
+        save( provider, "Test1", "first", "Alice", "created" );
+        save( provider, "Test1", "second\nline", "Bob", null );
+        save( provider, "Test2", "other", "Alice", null );
+
+        Assertions.assertEquals( 2, provider.getPageCount() );
+        Assertions.assertEquals( 2, provider.getAllPages().size() );
+        Assertions.assertEquals( "second\nline", provider.getPageText( "Test1", PageProvider.LATEST_VERSION ) );
+        Assertions.assertEquals( "first", provider.getPageText( "Test1", 1 ) );
+        Assertions.assertEquals( 11, provider.getPageInfo( "Test1", PageProvider.LATEST_VERSION ).getSize() );
+        final List< Page > history = provider.getVersionHistory( "Test1" );
+        Assertions.assertEquals( 2, history.size() );
+        Assertions.assertEquals( 2, history.get( 0 ).getVersion() );
+        Assertions.assertEquals( "Bob", history.get( 0 ).getAuthor() );
+        Assertions.assertEquals( "created", history.get( 1 ).getAttribute( Page.CHANGENOTE ) );
+        Assertions.assertNull( provider.getPageText( "Missing", PageProvider.LATEST_VERSION ) );
+        Assertions.assertNull( provider.getPageInfo( "Missing", PageProvider.LATEST_VERSION ) );
+        Assertions.assertThrows( NoSuchVersionException.class, () -> provider.getPageText( "Test1", 3 ) );
+    }
+
+    @Test
+    void testCustomProperties() throws Exception {
+        final Page page = Wiki.contents().page( engine, "Test1" );
+        page.setAttribute( "@color", "blue" );
+        provider.putPageText( page, "text" );
+
+        Assertions.assertEquals( "blue", provider.getPageInfo( "Test1", 1 ).getAttribute( "@color" ) );
+    }
+
+    @Test
+    void testAllChangedSince() throws Exception {
+        save( provider, "Test1", "old", "Alice", null );
+        Thread.sleep( 50L );
+        final Date since = new Date();
+        Thread.sleep( 50L );
+        save( provider, "Test2", "new", "Alice", null );
+        save( provider, "Test2", "newer", "Alice", null );
+
+        final Collection< Page > changed = provider.getAllChangedSince( since );
+        Assertions.assertEquals( 1, changed.size() );
+        final Page page = changed.iterator().next();
+        Assertions.assertEquals( "Test2", page.getName() );
+        Assertions.assertEquals( 2, page.getVersion() );
+        Assertions.assertEquals( 2, provider.getAllChangedSince( new Date( 0L ) ).size() );
+    }
+
+    @Test
+    void testDeletesAndMoves() throws Exception {
+        save( provider, "Test1", "v1", "Alice", null );
+        save( provider, "Test1", "v2", "Alice", null );
+        save( provider, "Test2", "gone", "Alice", null );
+        save( provider, "Test3", "moved", "Alice", null );
+        provider.deleteVersion( "Test1", PageProvider.LATEST_VERSION );
+        provider.deletePage( "Test2" );
+        provider.movePage( "Test3", "Test4" );
+
+        Assertions.assertEquals( "v1", provider.getPageText( "Test1", PageProvider.LATEST_VERSION ) );
+        Assertions.assertFalse( provider.pageExists( "Test1", 2 ) );
+        Assertions.assertFalse( provider.pageExists( "Test2" ) );
+        Assertions.assertFalse( provider.pageExists( "Test3" ) );
+        Assertions.assertEquals( "moved", provider.getPageText( "Test4", 1 ) );
+        Assertions.assertEquals( 2, provider.getPageCount() );
+        save( provider, "Test1", "v2 again", "Alice", null );
+        Assertions.assertEquals( 2, provider.getPageInfo( "Test1", PageProvider.LATEST_VERSION ).getVersion() );
+    }
+
+    @Test
+    void testVersionTakenByAConcurrentSaveIsRetried() throws Exception {
+        save( provider, "Test1", "v1", "Alice", null );
+        final TestJDBCDataSource ds = new TestJDBCDataSource( new File( "target/test-classes/jspwiki-custom.properties" ), m_hu.getDriverUrl() );
+        try( final Connection conn = ds.getConnection() ) {
+            conn.setAutoCommit( false );
+            final AtomicInteger lookups = new AtomicInteger();
+            final int version = JDBCStore.insertNextVersion( conn, c -> {
+                if( lookups.incrementAndGet() == 1 ) {
+                    return 0; // read before the concurrent save of version 1 was committed
+                }
+                try( final PreparedStatement ps = c.prepareStatement( "SELECT MAX(version) FROM pages WHERE name='Test1'" );
+                     final ResultSet rs = ps.executeQuery() ) {
+                    return rs.next() ? rs.getInt( 1 ) : -1;
+                }
+            }, ( c, v ) -> {
+                try( final PreparedStatement ps = c.prepareStatement( "INSERT INTO pages (name, version, modified, content) VALUES (?,?,?,?)" ) ) {
+                    ps.setString( 1, "Test1" );
+                    ps.setInt( 2, v );
+                    ps.setTimestamp( 3, new Timestamp( System.currentTimeMillis() ) );
+                    ps.setString( 4, "v2" );
+                    ps.executeUpdate();
+                }
+            } );
+            conn.commit();
+            Assertions.assertEquals( 2, version );
+            Assertions.assertEquals( 2, lookups.get() );
+        }
+        Assertions.assertEquals( "v1", provider.getPageText( "Test1", 1 ) );
+        Assertions.assertEquals( "v2", provider.getPageText( "Test1", PageProvider.LATEST_VERSION ) );
+    }
+
+    @Test
+    void testImportFromVersioningFileProvider() throws Exception {
+        engine.stop();
+        engine = TestEngine.build( with( "jspwiki.pageProvider", "VersioningFileProvider" ) );
+        final Page page = Wiki.contents().page( engine, "Test1" );
+        page.setAttribute( Page.CHANGENOTE, "first note" );
+        engine.getManager( PageManager.class ).saveText( Wiki.context().create( engine, page ), "v1" );
+        engine.saveText( "Test1", "v2" );
+        engine.saveText( "Test2", "other" );
+
+        final PageProvider source = engine.getManager( PageManager.class ).getProvider();
+        Assertions.assertEquals( 3, provider.importPages( source ) );
+        Assertions.assertEquals( 2, provider.getPageCount() );
+        Assertions.assertEquals( 2, provider.getVersionHistory( "Test1" ).size() );
+        Assertions.assertEquals( "v1", provider.getPageText( "Test1", 1 ).trim() );
+        Assertions.assertEquals( "v2", provider.getPageText( "Test1", 2 ).trim() );
+        Assertions.assertEquals( "first note", provider.getPageInfo( "Test1", 1 ).getAttribute( Page.CHANGENOTE ) );
+        Assertions.assertEquals( 0, provider.importPages( source ), "already imported" );
+    }
+
+    @Test
+    void testWikiRunsOnTheProvider() throws Exception {
+        engine.stop();
+        engine = TestEngine.build( with( "jspwiki.pageProvider", "JDBCPageProvider" ) );
+        engine.saveText( "Test1", "This is a test." );
+        engine.saveText( "Test1", "This is a second test." );
+
+        final PageManager pageManager = engine.getManager( PageManager.class );
+        Assertions.assertEquals( "This is a second test.", pageManager.getPureText( "Test1", PageProvider.LATEST_VERSION ).trim() );
+        Assertions.assertEquals( "This is a test.", pageManager.getPureText( "Test1", 1 ).trim() );
+        Assertions.assertEquals( 2, pageManager.getVersionHistory( "Test1" ).size() );
+        pageManager.deletePage( "Test1" );
+        Assertions.assertFalse( pageManager.wikiPageExists( "Test1" ) );
+    }
+
+}
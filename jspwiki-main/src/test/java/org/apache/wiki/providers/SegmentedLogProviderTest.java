@@ -0,0 +1,261 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.pages.PageManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.apache.wiki.TestEngine.with;
+
+
+class SegmentedLogProviderTest {
+
+    TestEngine engine = TestEngine.build();
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    SegmentedLogProvider open( final String... settings ) throws Exception {
+        final Properties props = new Properties();
+        props.putAll( engine.getWikiProperties() );
+        props.setProperty( SegmentedLogProvider.PROP_COMPACTION_INTERVAL, "0" );
+        props.setProperty( SegmentedLogProvider.PROP_SYNC, "false" );
+        for( int i = 0; i < settings.length; i += 2 ) {
+            props.setProperty( settings[ i ], settings[ i + 1 ] );
+        }
+        final SegmentedLogProvider provider = new SegmentedLogProvider();
+        provider.initialize( engine, props );
+        return provider;
+    }
+
+    Path segments() {
+        return new File( engine.getWikiProperties().getProperty( AbstractFileProvider.PROP_PAGEDIR ), SegmentedLogProvider.DEFAULT_DIRECTORY ).toPath();
+    }
+
+    void save( final PageProvider provider, final String name, final String text, final String author, final String changeNote ) throws Exception {
+        final Page page = Wiki.contents().page( engine, name );
+        page.setAuthor( author );
+        if( changeNote != null ) {
+            page.setAttribute( Page.CHANGENOTE, changeNote );
+        }
+        provider.putPageText( page, text );
+    }
+
+    @Test
+    void testVersionsSurviveRestart() throws Exception {
+        final SegmentedLogProvider provider = open();
+        save( provider, "Test1", "first", "Alice", "created" );
+        save( provider, "Test1", "second\nline", "Bob", null );
+        save( provider, "Test2", "other", "Alice", null );
+        provider.close();
+
+        final SegmentedLogProvider reopened = open();
+        Assertions.assertEquals( 2, reopened.getPageCount() );
+        Assertions.assertEquals( "second\nline", reopened.getPageText( "Test1", PageProvider.LATEST_VERSION ) );
+        Assertions.assertEquals( "first", reopened.getPageText( "Test1", 1 ) );
+        final List< Page > history = reopened.getVersionHistory( "Test1" );
+        Assertions.assertEquals( 2, history.size() );
+        Assertions.assertEquals( 2, history.get( 0 ).getVersion() );
+        Assertions.assertEquals( "Bob", history.get( 0 ).getAuthor() );
+        Assertions.assertEquals( "created", history.get( 1 ).getAttribute( Page.CHANGENOTE ) );
+        Assertions.assertNull( reopened.getPageText( "Missing", PageProvider.LATEST_VERSION ) );
+        Assertions.assertThrows( NoSuchVersionException.class, () -> reopened.getPageText( "Test1", 3 ) );
+        reopened.close();
+    }
+
+    @Test
+    void testDeletesAndMovesSurviveRestart() throws Exception {
+        SegmentedLogProvider provider = open();
+        save( provider, "Test1", "v1", "Alice", null );
+        save( provider, "Test1", "v2", "Alice", null );
+        save( provider, "Test2", "gone", "Alice", null );
+        save( provider, "Test3", "moved", "Alice", null );
+        provider.deleteVersion( "Test1", PageProvider.LATEST_VERSION );
+        provider.deletePage( "Test2" );
+        provider.movePage( "Test3", "Test4" );
+        provider.close();
+
+        provider = open();
+        Assertions.assertEquals( "v1", provider.getPageText( "Test1", PageProvider.LATEST_VERSION ) );
+        Assertions.assertFalse( provider.pageExists( "Test1", 2 ) );
+        Assertions.assertFalse( provider.pageExists( "Test2" ) );
+        Assertions.assertFalse( provider.pageExists( "Test3" ) );
+        Assertions.assertEquals( "moved", provider.getPageText( "Test4", 1 ) );
+        Assertions.assertEquals( 2, provider.getPageCount() );
+        provider.close();
+    }
+
+    @Test
+    void testIncompleteRecordIsDropped() throws Exception {
+        SegmentedLogProvider provider = open();
+        save( provider, "Test1", "kept", "Alice", null );
+        provider.close();
+        final Path segment = segments().resolve( LogSegment.fileName( 1 ) );
+        final long size = Files.size( segment );
+        Files.write( segment, new byte[] { 0, 0, 1, 0, 42, 42 }, StandardOpenOption.APPEND );
+
+        provider = open();
+        Assertions.assertEquals( size, Files.size( segment ) );
+        Assertions.assertEquals( "kept", provider.getPageText( "Test1", 1 ) );
+        save( provider, "Test1", "appended", "Alice", null );
+        provider.close();
+
+        provider = open();
+        Assertions.assertEquals( "appended", provider.getPageText( "Test1", 2 ) );
+        provider.close();
+    }
+
+    @Test
+    void testInterruptedReaderDoesNotBreakTheSegment() throws Exception {
+        final SegmentedLogProvider provider = open();
+        save( provider, "Test1", "kept", "Alice", null );
+
+        final Exception[] failure = new Exception[ 1 ];
+        final Thread reader = new Thread( () -> {
+            Thread.currentThread().interrupt(); // as done by CacheWarmer running out of time, which closes the channel
+            try {
+                provider.getPageText( "Test1", 1 );
+            } catch( final Exception e ) {
+                failure[ 0 ] = e;
+            }
+        } );
+        reader.start();
+        reader.join();
+
+        Assertions.assertNotNull( failure[ 0 ], "the interrupted read fails" );
+        Assertions.assertEquals( "kept", provider.getPageText( "Test1", 1 ) );
+        save( provider, "Test1", "appended", "Alice", null );
+        Assertions.assertEquals( "appended", provider.getPageText( "Test1", 2 ) );
+        provider.close();
+    }
+
+    @Test
+    void testCompactionKeepsTheVersionsInUse() throws Exception {
+        final String[] settings = { SegmentedLogProvider.PROP_SEGMENT_SIZE, "256", SegmentedLogProvider.PROP_COMPACTION_THRESHOLD, "20" };
+        SegmentedLogProvider provider = open( settings );
+        for( int i = 1; i <= 20; i++ ) {
+            save( provider, "Kept", "kept text " + i, "Alice", "note " + i );
+            save( provider, "Deleted", "deleted text " + i, "Bob", null );
+        }
+        provider.movePage( "Kept", "Renamed" );
+        provider.deletePage( "Deleted" );
+        save( provider, "Deleted", "recreated", "Bob", null );
+        final long before;
+        try( final Stream< Path > files = Files.list( segments() ) ) {
+            before = files.count();
+        }
+
+        Assertions.assertTrue( provider.compact() > 0 );
+        final long after;
+        try( final Stream< Path > files = Files.list( segments() ) ) {
+            after = files.count();
+        }
+        Assertions.assertTrue( after < before, before + " segments before, " + after + " after" );
+        provider.close();
+
+        provider = open( settings );
+        Assertions.assertEquals( 20, provider.getVersionHistory( "Renamed" ).size() );
+        Assertions.assertEquals( "kept text 7", provider.getPageText( "Renamed", 7 ) );
+        Assertions.assertEquals( "note 7", provider.getPageInfo( "Renamed", 7 ).getAttribute( Page.CHANGENOTE ) );
+        Assertions.assertFalse( provider.pageExists( "Kept" ) );
+        Assertions.assertEquals( 1, provider.getVersionHistory( "Deleted" ).size() );
+        Assertions.assertEquals( "recreated", provider.getPageText( "Deleted", PageProvider.LATEST_VERSION ) );
+        provider.close();
+    }
+
+    @Test
+    void testImportFromVersioningFileProvider() throws Exception {
+        engine.stop();
+        engine = TestEngine.build( with( "jspwiki.pageProvider", "VersioningFileProvider" ) );
+        final Page page = Wiki.contents().page( engine, "Test1" );
+        page.setAttribute( Page.CHANGENOTE, "first note" );
+        engine.getManager( PageManager.class ).saveText( Wiki.context().create( engine, page ), "v1" );
+        engine.saveText( "Test1", "v2" );
+        engine.saveText( "Test2", "other" );
+
+        final SegmentedLogProvider provider = open( SegmentedLogProvider.PROP_IMPORT_FROM, "VersioningFileProvider" );
+        Assertions.assertEquals( 2, provider.getPageCount() );
+        Assertions.assertEquals( 2, provider.getVersionHistory( "Test1" ).size() );
+        Assertions.assertEquals( "v1", provider.getPageText( "Test1", 1 ).trim() );
+        Assertions.assertEquals( "v2", provider.getPageText( "Test1", 2 ).trim() );
+        Assertions.assertEquals( "first note", provider.getPageInfo( "Test1", 1 ).getAttribute( Page.CHANGENOTE ) );
+        Assertions.assertEquals( 0, provider.importPages( engine.getManager( PageManager.class ).getProvider() ), "already imported" );
+        provider.close();
+    }
+
+    @Test
+    void testInterruptedImportIsResumed() throws Exception {
+        engine.stop();
+        engine = TestEngine.build( with( "jspwiki.pageProvider", "VersioningFileProvider" ) );
+        engine.saveText( "Test1", "v1" );
+        engine.saveText( "Test1", "v2" );
+        engine.saveText( "Test2", "other" );
+
+        // the import stopped after the first version of the first page
+        SegmentedLogProvider provider = open();
+        save( provider, "Test1", "v1", "Admin", null );
+        provider.close();
+
+        provider = open( SegmentedLogProvider.PROP_IMPORT_FROM, "VersioningFileProvider" );
+        Assertions.assertTrue( Files.exists( segments().resolve( SegmentedLogProvider.IMPORT_MARKER ) ) );
+        Assertions.assertEquals( 2, provider.getPageCount() );
+        Assertions.assertEquals( 2, provider.getVersionHistory( "Test1" ).size() );
+        Assertions.assertEquals( "v2", provider.getPageText( "Test1", 2 ).trim() );
+        Assertions.assertEquals( "other", provider.getPageText( "Test2", PageProvider.LATEST_VERSION ).trim() );
+        provider.deletePage( "Test2" );
+        provider.close();
+
+        provider = open( SegmentedLogProvider.PROP_IMPORT_FROM, "VersioningFileProvider" );
+        Assertions.assertFalse( provider.pageExists( "Test2" ), "a completed import is not run again" );
+        provider.close();
+    }
+
+    @Test
+    void testWikiRunsOnTheProvider() throws Exception {
+        engine.stop();
+        engine = TestEngine.build( with( "jspwiki.pageProvider", "SegmentedLogProvider" ),
+                                   with( SegmentedLogProvider.PROP_COMPACTION_INTERVAL, "0" ) );
+        engine.saveText( "Test1", "This is a test." );
+        engine.saveText( "Test1", "This is a second test." );
+
+        final PageManager pageManager = engine.getManager( PageManager.class );
+        Assertions.assertEquals( "This is a second test.", pageManager.getPureText( "Test1", PageProvider.LATEST_VERSION ).trim() );
+        Assertions.assertEquals( "This is a test.", pageManager.getPureText( "Test1", 1 ).trim() );
+        Assertions.assertEquals( 2, pageManager.getVersionHistory( "Test1" ).size() );
+        pageManager.deletePage( "Test1" );
+        Assertions.assertFalse( pageManager.wikiPageExists( "Test1" ) );
+    }
+
+}
@@ -36,8 +36,11 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.Writer;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
@@ -495,6 +498,50 @@ public class VersioningFileProviderTest {
         Assertions.assertNull( p3.getAttribute( Page.CHANGENOTE ) );
     }
 
+    @Test
+    public void testHistoriesOfInterleavedPages() throws Exception {
+        final String name2 = NAME1 + "Other";
+        final Page p = Wiki.contents().page( engine, NAME1 );
+        final Context context = Wiki.context().create( engine, p );
+        for( int i = 1; i <= 3; i++ ) {
+            context.getPage().setAttribute( Page.CHANGENOTE, "Change " + i );
+            engine.getManager( PageManager.class ).saveText( context, "text" + i );
+        }
+        engine.saveText( name2, "other1" );
+        engine.saveText( name2, "other2" );
+
+        final Properties props = new Properties();
+        props.putAll( engine.getWikiProperties() );
+        props.setProperty( VersioningFileProvider.PROP_PROPERTIES_CACHE_SIZE, "1" );
+        final VersioningFileProvider provider = new VersioningFileProvider();
+        provider.initialize( engine, props );
+
+        for( int round = 0; round < 2; round++ ) {
+            final List< Page > history = provider.getVersionHistory( NAME1 );
+            Assertions.assertEquals( 3, history.size(), "size" );
+            for( final Page version : history ) {
+                Assertions.assertEquals( "Change " + version.getVersion(), version.getAttribute( Page.CHANGENOTE ) );
+            }
+            Assertions.assertEquals( 2, provider.getVersionHistory( name2 ).size(), "other size" );
+            Assertions.assertNull( provider.getPageInfo( name2, 1 ).getAttribute( Page.CHANGENOTE ) );
+        }
+
+        // changes made behind the provider's back are noticed, too
+        final File propertyFile = new File( new File( new File( files, VersioningFileProvider.PAGEDIR ), NAME1 ), VersioningFileProvider.PROPERTYFILE );
+        final long lastModified = propertyFile.lastModified();
+        final Properties stored = new Properties();
+        try( final InputStream in = Files.newInputStream( propertyFile.toPath() ) ) {
+            stored.load( in );
+        }
+        stored.setProperty( "1.changenote", "Edited" );
+        try( final OutputStream out = Files.newOutputStream( propertyFile.toPath() ) ) {
+            stored.store( out, null );
+        }
+        Assertions.assertTrue( propertyFile.setLastModified( lastModified + 2_000 ) );
+        Assertions.assertEquals( "Edited", provider.getPageInfo( NAME1, 1 ).getAttribute( Page.CHANGENOTE ) );
+        engine.deleteTestPage( name2 );
+    }
+
     /**
      * Creates a file of the given name in the wiki page directory, containing the data provided.
      */
@@ -0,0 +1,86 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.render;
+
+import org.apache.wiki.cache.CachingManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+class RenderDependenciesTest {
+
+    final Set< List< String > > cache = new HashSet<>();
+    final RenderDependencies dependencies = new RenderDependencies( cache::contains );
+
+    boolean cache( final String page, final long generation, final String key ) {
+        return dependencies.cache( page, generation, List.of(), CachingManager.CACHE_HTML, key,
+                                   () -> cache.add( List.of( CachingManager.CACHE_HTML, key ) ) );
+    }
+
+    void cache( final String page, final String key ) {
+        Assertions.assertTrue( cache( page, dependencies.generation(), key ) );
+    }
+
+    @Test
+    void testInvalidateReturnsTheKeysOfTheStalePages() {
+        dependencies.record( "Top", List.of( "Middle" ) );
+        dependencies.record( "Middle", List.of( "Leaf" ) );
+        cache( "Top", "Top::1" );
+        cache( "Middle", "Middle::1" );
+        cache( "Middle", "Middle::2" );
+        cache( "Leaf", "Leaf::1" );
+        cache( "Unrelated", "Unrelated::1" );
+
+        Assertions.assertEquals( Set.of( List.of( CachingManager.CACHE_HTML, "Top::1" ),
+                                         List.of( CachingManager.CACHE_HTML, "Middle::1" ),
+                                         List.of( CachingManager.CACHE_HTML, "Middle::2" ) ),
+                                 dependencies.invalidate( "Middle" ) );
+        Assertions.assertTrue( dependencies.getDependencies( "Middle" ).isEmpty() );
+        Assertions.assertTrue( dependencies.invalidate( "Middle" ).isEmpty() );
+        Assertions.assertEquals( Set.of( List.of( CachingManager.CACHE_HTML, "Leaf::1" ) ), dependencies.invalidate( "Leaf" ) );
+    }
+
+    @Test
+    void testRenderingsRacingWithInvalidationsAreNotCached() {
+        final long generation = dependencies.generation();
+        dependencies.invalidate( "Other" );
+        Assertions.assertFalse( dependencies.cache( "Page", generation, List.of( "Leaf" ), CachingManager.CACHE_HTML, "Page::1",
+                                                    () -> Assertions.fail( "stale rendering cached" ) ) );
+        Assertions.assertTrue( dependencies.getDependencies( "Page" ).isEmpty() );
+        Assertions.assertTrue( dependencies.invalidate( "Page" ).isEmpty() );
+
+        Assertions.assertTrue( cache( "Page", dependencies.generation(), "Page::1" ) );
+        Assertions.assertTrue( cache.contains( List.of( CachingManager.CACHE_HTML, "Page::1" ) ) );
+    }
+
+    @Test
+    void testEvictedKeysAreDropped() {
+        for( int i = 0; i < 1_000; i++ ) {
+            cache( "Page", "Page::" + i );
+            cache.clear(); // evicted straight away
+        }
+        cache( "Page", "Page::last" );
+        Assertions.assertTrue( dependencies.invalidate( "Page" ).size() <= 65 );
+    }
+
+}
@@ -21,8 +21,12 @@ package org.apache.wiki.render;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.ContextEnum;
+import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.cache.ContentDigest;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
@@ -30,6 +34,11 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.apache.wiki.TestEngine.with;
+
 public class RenderingManagerTest {
 
     TestEngine       m_engine = TestEngine.build();
@@ -95,6 +104,96 @@ public class RenderingManagerTest {
         Assertions.assertEquals( "<i>Foobar.</i>\n", data );
     }
 
+    @Test
+    public void testHtmlCache() throws Exception {
+        final TestEngine engine = TestEngine.build( with( RenderingManager.PROP_HTML_CACHE, "true" ) );
+        final CachingManager cachingManager = engine.getManager( CachingManager.class );
+        try {
+            engine.saveText( "Cached", "''Foobar.'' [{Note Cacheable}]" );
+            engine.saveText( "Referrer", "See [Cached]" );
+            engine.saveText( "Uncacheable", "[{CurrentTimePlugin}]" );
+            engine.saveText( "WithVariables", "This is [{$pagename}]" );
+
+            Assertions.assertEquals( viewHTML( engine, "Cached" ), viewHTML( engine, "Cached" ) );
+            Assertions.assertEquals( viewHTML( engine, "Referrer" ), viewHTML( engine, "Referrer" ) );
+            viewHTML( engine, "Uncacheable" );
+            viewHTML( engine, "WithVariables" );
+            final List< String > keys = cachingManager.keys( CachingManager.CACHE_HTML );
+            Assertions.assertEquals( 2, keys.size(), keys.toString() );
+            Assertions.assertTrue( keys.stream().anyMatch( key -> key.startsWith( "Cached::" ) ) );
+            Assertions.assertTrue( keys.stream().anyMatch( key -> key.startsWith( "Referrer::" ) ) );
+
+            // other pages are not rendered from the cache
+            final Page page = engine.getManager( PageManager.class ).getPage( "Cached" );
+            final Context edit = Wiki.context().create( engine, page );
+            edit.setRequestContext( ContextEnum.PAGE_EDIT.getRequestContext() );
+            engine.getManager( RenderingManager.class ).getHTML( edit, "''Edited.''" );
+            Assertions.assertEquals( 2, cachingManager.keys( CachingManager.CACHE_HTML ).size() );
+
+            // saving a page flushes it along with the pages referring to it
+            engine.saveText( "Cached", "''Changed.''" );
+            Assertions.assertTrue( cachingManager.keys( CachingManager.CACHE_HTML ).isEmpty() );
+            Assertions.assertEquals( "<i>Changed.</i>\n", viewHTML( engine, "Cached" ) );
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    public void testDependencyTrackedInvalidation() throws Exception {
+        final TestEngine engine = TestEngine.build( with( RenderingManager.PROP_HTML_CACHE, "true" ) );
+        final CachingManager cachingManager = engine.getManager( CachingManager.class );
+        try {
+            engine.saveText( "Leaf", "''Leaf.''" );
+            engine.saveText( "Middle", "[{InsertPage page='Leaf'}]" );
+            engine.saveText( "Top", "[{InsertPage page='Middle'}]" );
+            engine.saveText( "Referrers", "[{ReferringPagesPlugin page='Unrelated'}]" );
+            engine.saveText( "Changes", "[{RecentChangesPlugin}]" );
+            engine.saveText( "Linking", "See [NotYet]" );
+            engine.saveText( "Unrelated", "''Unrelated.''" );
+            final List< String > pages = List.of( "Leaf", "Middle", "Top", "Referrers", "Linking", "Unrelated" );
+            pages.forEach( page -> viewHTML( engine, page ) );
+            viewHTML( engine, "Changes" ); // depends on the current time, so it's never cached
+            Assertions.assertEquals( pages.stream().sorted().collect( Collectors.toList() ), cachedPages( cachingManager ) );
+
+            // saving a page flushes, transitively, the pages inserting it and the ones listing every page
+            engine.saveText( "Leaf", "''Changed leaf.''" );
+            Assertions.assertEquals( List.of( "Linking", "Unrelated" ), cachedPages( cachingManager ) );
+
+            // creating a page flushes the pages linking to it
+            engine.saveText( "NotYet", "Created." );
+            Assertions.assertEquals( List.of( "Unrelated" ), cachedPages( cachingManager ) );
+            Assertions.assertTrue( viewHTML( engine, "Top" ).contains( "<i>Changed leaf.</i>" ) );
+        } finally {
+            engine.stop();
+        }
+    }
+
+    List< String > cachedPages( final CachingManager cachingManager ) {
+        return cachingManager.< String >keys( CachingManager.CACHE_HTML ).stream()
+                                                                            .map( key -> key.substring( 0, key.indexOf( "::" ) ) )
+                                                                            .distinct()
+                                                                            .sorted()
+                                                                            .collect( Collectors.toList() );
+    }
+
+    @Test
+    public void testRenderedDocumentsAreValidatedByDigest() throws Exception {
+        m_engine.saveText( "Digested", "''Foobar.''" );
+        final Context context = Wiki.context().create( m_engine, m_engine.getManager( PageManager.class ).getPage( "Digested" ) );
+        final WikiDocument doc = m_manager.getRenderedDocument( context, "''Foobar.''" );
+        Assertions.assertNull( doc.getPageData() );
+        Assertions.assertEquals( ContentDigest.of( "''Foobar.''" ), doc.getPageDigest() );
+        Assertions.assertSame( doc, m_manager.getRenderedDocument( context, new String( "''Foobar.''".toCharArray() ) ) );
+        Assertions.assertNotSame( doc, m_manager.getRenderedDocument( context, "''Filtered.''" ) );
+    }
+
+    String viewHTML( final Engine engine, final String name ) {
+        final Page page = engine.getManager( PageManager.class ).getPage( name );
+        final String pagedata = engine.getManager( PageManager.class ).getPureText( page );
+        return engine.getManager( RenderingManager.class ).getHTML( Wiki.context().create( engine, page ), pagedata );
+    }
+
     /**
      * Tests the relative speed of the DOM cache with respect to page being parsed every single time.
      */
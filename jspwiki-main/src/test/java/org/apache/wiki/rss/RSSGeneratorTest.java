@@ -39,6 +39,7 @@ import java.util.Properties;
 import java.util.UUID;
 import org.apache.commons.io.FileUtils;
 
+import static org.apache.wiki.TestEngine.with;
 import static org.apache.wiki.auth.UserManager.PROP_DATABASE;
 import org.apache.wiki.auth.authorize.XMLGroupDatabase;
 import org.apache.wiki.auth.user.XMLUserDatabase;
@@ -79,4 +80,22 @@ public class RSSGeneratorTest {
         
         
     }
+
+    @Test
+    public void testFullWikiRSSSkipsHiddenRecentChanges() throws Exception {
+        final TestEngine engine = TestEngine.build( with( RSSGenerator.PROP_GENERATE_RSS, "true" ) );
+        engine.saveText( "VisiblePage", "Seen by everyone" );
+        Thread.sleep( 1100L ); // file dates may have a resolution of a second
+        for( int i = 0; i < 15; i++ ) {
+            engine.saveText( "HiddenPage" + i, "[{ALLOW view Admin}]\nSeen by the admins only" );
+        }
+
+        final RSSGenerator gen = engine.getManager( RSSGenerator.class );
+        final Context context = Wiki.context().create( engine, engine.getManager( PageManager.class ).getPage( "VisiblePage" ) );
+        final String rss = gen.generateFullWikiRSS( context, new RSS10Feed( context ) );
+        engine.shutdown();
+        // the last week of changes has fewer viewable ones than the feed holds, so the feed carries on with older changes
+        Assertions.assertTrue( rss.contains( "VisiblePage" ) );
+        Assertions.assertFalse( rss.contains( "HiddenPage" ) );
+    }
 }
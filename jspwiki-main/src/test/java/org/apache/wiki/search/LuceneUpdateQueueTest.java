@@ -0,0 +1,85 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+
+class LuceneUpdateQueueTest {
+
+    TestEngine engine = TestEngine.build();
+    LuceneUpdateQueue queue = new LuceneUpdateQueue();
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    Page page( final String name ) {
+        return Wiki.contents().page( engine, name );
+    }
+
+    @Test
+    void testLatestTextWins() {
+        queue.add( page( "PageA" ), "first" );
+        queue.add( page( "PageB" ), "other" );
+        queue.add( page( "PageA" ), "second" );
+        Assertions.assertEquals( 2, queue.size() );
+
+        final List< LuceneUpdateQueue.Update > batch = queue.drain( 10 );
+        Assertions.assertEquals( 2, batch.size() );
+        Assertions.assertEquals( "PageA", batch.get( 0 ).getPage().getName() );
+        Assertions.assertEquals( "second", batch.get( 0 ).getText() );
+        Assertions.assertEquals( "PageB", batch.get( 1 ).getPage().getName() );
+        Assertions.assertEquals( 0, queue.size() );
+    }
+
+    @Test
+    void testDrainInBatches() {
+        for( int i = 0; i < 5; i++ ) {
+            queue.add( page( "Page" + i ), "text" + i );
+        }
+
+        Assertions.assertEquals( 2, queue.drain( 2 ).size() );
+        Assertions.assertEquals( 2, queue.drain( 2 ).size() );
+        final List< LuceneUpdateQueue.Update > last = queue.drain( 2 );
+        Assertions.assertEquals( 1, last.size() );
+        Assertions.assertEquals( "Page4", last.get( 0 ).getPage().getName() );
+        Assertions.assertTrue( queue.drain( 2 ).isEmpty() );
+    }
+
+    @Test
+    void testLag() throws Exception {
+        Assertions.assertEquals( 0L, queue.getLag() );
+        queue.add( page( "PageA" ), "first" );
+        Thread.sleep( 20L );
+        queue.add( page( "PageA" ), "second" );
+        Assertions.assertTrue( queue.getLag() >= 20L, "lag should be measured from the first time the page was queued" );
+        queue.drain( 1 );
+        Assertions.assertEquals( 0L, queue.getLag() );
+    }
+
+}
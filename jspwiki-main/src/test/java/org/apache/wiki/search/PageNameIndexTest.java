@@ -0,0 +1,62 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+
+class PageNameIndexTest {
+
+    PageNameIndex index = new PageNameIndex( List.of( "TestPage", "testpage2", "TestPage/attachment.txt", "Other", "Test", "Tester" ) );
+
+    @Test
+    void testStartingWith() {
+        Assertions.assertEquals( List.of( "Test", "Tester", "TestPage", "TestPage/attachment.txt", "testpage2" ),
+                                 List.copyOf( index.startingWith( 10, "test" ) ) );
+        Assertions.assertEquals( List.of( "TestPage/attachment.txt" ), List.copyOf( index.startingWith( 10, "testpage/" ) ) );
+        Assertions.assertEquals( List.of( "Test", "Tester" ), List.copyOf( index.startingWith( 2, "test" ) ) );
+        Assertions.assertTrue( index.startingWith( 10, "nothing" ).isEmpty() );
+    }
+
+    @Test
+    void testSeveralPrefixes() {
+        Assertions.assertEquals( List.of( "Other", "Test", "Tester" ), List.copyOf( index.startingWith( 3, "oth", "test" ) ) );
+        Assertions.assertEquals( Set.of( "Test", "TestPage", "TestPage/attachment.txt", "testpage2", "Tester" ),
+                                 index.startingWith( 10, "test", "testpage" ) );
+    }
+
+    @Test
+    void testAddAndRemove() {
+        index.add( "TEST3" );
+        index.add( "TestPage" );
+        Assertions.assertEquals( 7, index.size() );
+        Assertions.assertTrue( index.startingWith( 10, "test3" ).contains( "TEST3" ) );
+
+        index.remove( "TestPage" );
+        index.remove( "NotIndexed" );
+        Assertions.assertEquals( 6, index.size() );
+        Assertions.assertFalse( index.startingWith( 10, "test" ).contains( "TestPage" ) );
+        Assertions.assertTrue( index.startingWith( 10, "test" ).contains( "testpage2" ) );
+    }
+
+}
@@ -20,15 +20,22 @@ package org.apache.wiki.search;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import static java.lang.System.out;
 import org.apache.wiki.HttpMockFactory;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.ContextEnum;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.search.SearchResult;
 import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.content.PageRenamer;
 import org.apache.wiki.pages.PageManager;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.AfterEach;
@@ -39,7 +46,9 @@ import org.mockito.Mockito;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import static org.apache.wiki.search.DefaultSearchManager.PluginSearch.AJAX_ACTION_PLUGINS;
 import static org.mockito.Mockito.when;
@@ -53,18 +62,22 @@ class SearchManagerTest {
 
     @BeforeEach
     void setUp() {
+        m_engine = build( "LuceneSearchProvider" );
+        m_mgr = m_engine.getManager( SearchManager.class );
+    }
+
+    TestEngine build( final String searchProvider ) {
         final Properties props = TestEngine.getTestProperties();
         final String workDir = props.getProperty( "jspwiki.workDir" );
         final String workRepo = props.getProperty( "jspwiki.fileSystemProvider.pageDir" );
 
-        props.setProperty( SearchManager.PROP_SEARCHPROVIDER, "LuceneSearchProvider" );
+        props.setProperty( SearchManager.PROP_SEARCHPROVIDER, searchProvider );
         props.setProperty( "jspwiki.lucene.indexdelay", "0" );
         props.setProperty( "jspwiki.lucene.initialdelay", "0" );
         props.setProperty( "jspwiki.workDir", workDir + System.currentTimeMillis() );
         props.setProperty( "jspwiki.fileSystemProvider.pageDir", workRepo + System.currentTimeMillis() );
 
-        m_engine = TestEngine.build( props );
-        m_mgr = m_engine.getManager( SearchManager.class );
+        return TestEngine.build( props );
     }
 
     @AfterEach
@@ -77,6 +90,14 @@ class SearchManagerTest {
         Assertions.assertEquals( "org.apache.wiki.search.LuceneSearchProvider", m_mgr.getSearchEngine().getClass().getName() );
     }
 
+    @Test
+    void testFallsBackWhenIndexCannotBeOpened() throws Exception {
+        // the index of the engine's search manager is still open, so its write lock can't be obtained
+        final SearchManager other = new DefaultSearchManager( m_engine, m_engine.getWikiProperties() );
+        Assertions.assertEquals( BasicSearchProvider.class, other.getSearchEngine().getClass() );
+        Assertions.assertNotNull( other.findPages( "mankind", Wiki.context().create( m_engine, Wiki.contents().page( m_engine, "Search" ) ) ) );
+    }
+
     void debugSearchResults( final Collection< SearchResult > res ) {
         res.forEach( next -> {
             System.out.println( "page: " + next.getPage() );
@@ -113,6 +134,22 @@ class SearchManagerTest {
         m_engine.deleteTestPage("TestPage");
     }
 
+    @Test
+    void testSearchContexts() throws Exception {
+        final String txt = "It was the dawn of the third age of mankind, ten years after the Earth-Minbari War. <b>Mankind</b> was there.";
+        m_engine.saveText( "TestPage", txt );
+
+        final Collection< SearchResult > res = new ArrayList<>();
+        Awaitility.await( "testSearchContexts" ).until( findsResultsFor( res, "mankind" ) );
+
+        final String[] contexts = res.iterator().next().getContexts();
+        Assertions.assertTrue( contexts.length > 0, "no contexts" );
+        final String allContexts = String.join( " ", contexts );
+        Assertions.assertTrue( allContexts.contains( "<span class=\"searchmatch\">mankind</span>" ), allContexts );
+        Assertions.assertFalse( allContexts.contains( "<b>" ), "contexts should be HTML-escaped: " + allContexts );
+        m_engine.deleteTestPage( "TestPage" );
+    }
+
     @Test
     void testSimpleSearch2() throws Exception {
         final String txt = "It was the dawn of the third age of mankind, ten years after the Earth-Minbari War.";
@@ -197,6 +234,211 @@ class SearchManagerTest {
         m_engine.deleteTestPage("TestPage");
     }
 
+    @Test
+    void testRebuildIndex() throws Exception {
+        m_engine.saveText( "TestPage", "It was the dawn of the third age of mankind" );
+        m_engine.saveText( "TestPage2", "ten years after the Earth-Minbari War, mankind" );
+
+        final Collection< SearchResult > res = new ArrayList<>();
+        Awaitility.await( "testRebuildIndex" ).until( () -> {
+            res.clear();
+            return findsResultsFor( res, "mankind" ).call() && res.size() == 2;
+        } );
+
+        ( ( LuceneSearchProvider )m_mgr.getSearchEngine() ).rebuildIndex();
+
+        final Context ctx = Wiki.context().create( m_engine, HttpMockFactory.createHttpRequest(), ContextEnum.PAGE_VIEW.getRequestContext() );
+        Assertions.assertEquals( 2, m_mgr.findPages( "mankind", ctx ).size() );
+        m_engine.deleteTestPage( "TestPage" );
+        m_engine.deleteTestPage( "TestPage2" );
+    }
+
+    @Test
+    void testFailedRebuildKeepsTheIndex() throws Exception {
+        m_engine.stop();
+        m_engine = build( InterruptingLuceneSearchProvider.class.getName() );
+        m_mgr = m_engine.getManager( SearchManager.class );
+        m_engine.saveText( "TestPage", "It was the dawn of the third age of mankind" );
+        m_engine.saveText( "TestPage2", "ten years after the Earth-Minbari War, mankind" );
+
+        final Collection< SearchResult > res = new ArrayList<>();
+        Awaitility.await( "testFailedRebuildKeepsTheIndex" ).until( () -> {
+            res.clear();
+            return findsResultsFor( res, "mankind" ).call() && res.size() == 2;
+        } );
+
+        final InterruptingLuceneSearchProvider lsp = ( InterruptingLuceneSearchProvider )m_mgr.getSearchEngine();
+        lsp.m_rebuilder = Thread.currentThread();
+        Assertions.assertThrows( IOException.class, lsp::rebuildIndex );
+        Assertions.assertTrue( Thread.interrupted() );
+
+        // what the refresher does next must not persist, nor show, a half rebuilt index
+        lsp.commitIndex();
+        lsp.refreshSearcher();
+        final Context ctx = Wiki.context().create( m_engine, HttpMockFactory.createHttpRequest(), ContextEnum.PAGE_VIEW.getRequestContext() );
+        Assertions.assertEquals( 2, m_mgr.findPages( "mankind", ctx ).size() );
+        Assertions.assertEquals( Set.of( "TestPage", "TestPage2" ), lsp.readManifest().keySet() );
+
+        m_engine.saveText( "TestPage3", "the last best hope for mankind" );
+        Awaitility.await( "testFailedRebuildKeepsTheIndex" ).until( () -> m_mgr.findPages( "mankind", ctx ).size() == 3 );
+        m_engine.deleteTestPage( "TestPage" );
+        m_engine.deleteTestPage( "TestPage2" );
+        m_engine.deleteTestPage( "TestPage3" );
+    }
+
+    @Test
+    void testFailedRebuildKeepsTheChangesMadeWhileRebuilding() throws Exception {
+        final InterruptingLuceneSearchProvider lsp = startFailingRebuild();
+        lsp.m_duringRebuild = () -> {
+            lsp.updateLuceneIndex( Wiki.contents().page( m_engine, "TestPage3" ), "the last best hope for mankind" );
+            lsp.pageRemoved( Wiki.contents().page( m_engine, "TestPage2" ) );
+        };
+        lsp.m_rebuilder = Thread.currentThread();
+        Assertions.assertThrows( IOException.class, lsp::rebuildIndex );
+        Assertions.assertTrue( Thread.interrupted() );
+
+        // the rollback discards the changes made while rebuilding, so they must have been replayed on the reopened index
+        Assertions.assertEquals( Set.of( "TestPage", "TestPage3" ), lsp.readManifest().keySet() );
+        m_engine.deleteTestPage( "TestPage" );
+        m_engine.deleteTestPage( "TestPage2" );
+    }
+
+    @Test
+    void testFailedRebuildLeavesTheIndexUnavailableIfItCannotBeReopened() throws Exception {
+        final InterruptingLuceneSearchProvider lsp = startFailingRebuild();
+        lsp.m_failReopen = true;
+        lsp.m_rebuilder = Thread.currentThread();
+        Assertions.assertThrows( IOException.class, lsp::rebuildIndex );
+        Assertions.assertTrue( Thread.interrupted() );
+
+        final Context ctx = Wiki.context().create( m_engine, HttpMockFactory.createHttpRequest(), ContextEnum.PAGE_VIEW.getRequestContext() );
+        Assertions.assertThrows( ProviderException.class, () -> lsp.findPages( "mankind", ctx ) );
+        Assertions.assertThrows( IOException.class, lsp::readManifest );
+        Assertions.assertDoesNotThrow( () -> lsp.updateLuceneIndex( Wiki.contents().page( m_engine, "TestPage3" ), "mankind" ) );
+        Assertions.assertDoesNotThrow( () -> lsp.pageRemoved( Wiki.contents().page( m_engine, "TestPage2" ) ) );
+        m_engine.deleteTestPage( "TestPage" );
+        m_engine.deleteTestPage( "TestPage2" );
+    }
+
+    private InterruptingLuceneSearchProvider startFailingRebuild() throws Exception {
+        m_engine.stop();
+        m_engine = build( InterruptingLuceneSearchProvider.class.getName() );
+        m_mgr = m_engine.getManager( SearchManager.class );
+        m_engine.saveText( "TestPage", "It was the dawn of the third age of mankind" );
+        m_engine.saveText( "TestPage2", "ten years after the Earth-Minbari War, mankind" );
+
+        final Collection< SearchResult > res = new ArrayList<>();
+        Awaitility.await( "startFailingRebuild" ).until( () -> {
+            res.clear();
+            return findsResultsFor( res, "mankind" ).call() && res.size() == 2;
+        } );
+        return ( InterruptingLuceneSearchProvider )m_mgr.getSearchEngine();
+    }
+
+    @Test
+    void testReindexChangedPages() throws Exception {
+        m_engine.saveText( "TestPage", "It was the dawn of the third age of mankind" );
+        m_engine.saveText( "TestPage2", "ten years after the Earth-Minbari War, mankind" );
+
+        final Collection< SearchResult > res = new ArrayList<>();
+        Awaitility.await( "testReindexChangedPages" ).until( () -> {
+            res.clear();
+            return findsResultsFor( res, "mankind" ).call() && res.size() == 2;
+        } );
+
+        // index gets out of sync: one page missing, one page which no longer exists
+        final LuceneSearchProvider lsp = ( LuceneSearchProvider )m_mgr.getSearchEngine();
+        lsp.pageRemoved( m_engine.getManager( PageManager.class ).getPage( "TestPage2" ) );
+        lsp.updateLuceneIndex( Wiki.contents().page( m_engine, "GhostPage" ), "boo" );
+        Assertions.assertEquals( Set.of( "TestPage", "GhostPage" ), lsp.readManifest().keySet() );
+
+        lsp.reindexChangedPages();
+        Assertions.assertEquals( 0, lsp.getUpdateQueueSize(), "changed pages are indexed right away, not queued" );
+        Assertions.assertEquals( Set.of( "TestPage", "TestPage2" ), lsp.readManifest().keySet() );
+        m_engine.deleteTestPage( "TestPage" );
+        m_engine.deleteTestPage( "TestPage2" );
+    }
+
+    @Test
+    void testSearchWindow() throws Exception {
+        final String txt = "It was the dawn of the third age of mankind, ten years after the Earth-Minbari War.";
+        for( int i = 1; i <= 5; i++ ) {
+            m_engine.saveText( "TestPage" + i, txt );
+        }
+
+        final HttpServletRequest request = HttpMockFactory.createHttpRequest();
+        final Context ctx = Wiki.context().create( m_engine, request, ContextEnum.PAGE_EDIT.getRequestContext() );
+        Awaitility.await( "testSearchWindow" ).until( () -> m_mgr.findPages( "mankind", 0, 10, ctx ).getTotalHits() == 5 );
+
+        final Collection< SearchResult > all = m_mgr.findPages( "mankind", ctx );
+        final SearchResultWindow first = m_mgr.findPages( "mankind", 0, 2, ctx );
+        final SearchResultWindow last = m_mgr.findPages( "mankind", 4, 2, ctx );
+        final SearchResultWindow beyond = m_mgr.findPages( "mankind", 10, 2, ctx );
+
+        Assertions.assertEquals( 2, first.size() );
+        Assertions.assertTrue( first.hasMore() );
+        Assertions.assertFalse( first.isTotalExact() );
+        Assertions.assertEquals( new ArrayList<>( all ).subList( 0, 2 ).stream().map( sr -> sr.getPage().getName() ).toList(),
+                                 first.stream().map( sr -> sr.getPage().getName() ).toList() );
+        Assertions.assertTrue( first.iterator().next().getContexts().length > 0, "contexts" );
+        Assertions.assertEquals( 1, last.size() );
+        Assertions.assertFalse( last.hasMore() );
+        Assertions.assertTrue( beyond.isEmpty() );
+        Assertions.assertEquals( 5, beyond.getTotalHits() );
+        Assertions.assertTrue( beyond.isTotalExact() );
+        for( int i = 1; i <= 5; i++ ) {
+            m_engine.deleteTestPage( "TestPage" + i );
+        }
+    }
+
+    @Test
+    void testSearchWindowSkipsHiddenHits() throws Exception {
+        final String txt = "It was the dawn of the third age of mankind, ten years after the Earth-Minbari War.";
+        for( int i = 1; i <= 5; i++ ) {
+            m_engine.saveText( "TestPage" + i, ( i % 2 == 0 ? "[{ALLOW view Admin}] " : "" ) + txt );
+        }
+
+        final Context ctx = Wiki.context().create( m_engine, Wiki.contents().page( m_engine, "TestPage1" ) ); // a guest
+        Awaitility.await( "testSearchWindowSkipsHiddenHits" ).until( () -> m_mgr.findPages( "mankind", 0, 10, ctx ).getTotalHits() == 3 );
+
+        final SearchResultWindow all = m_mgr.findPages( "mankind", 0, 10, ctx );
+        Assertions.assertEquals( 3, all.size() );
+        Assertions.assertTrue( all.isTotalExact() );
+        Assertions.assertFalse( all.hasMore() );
+        final SearchResultWindow first = m_mgr.findPages( "mankind", 0, 2, ctx );
+        Assertions.assertEquals( 2, first.size() );
+        Assertions.assertTrue( first.hasMore() );
+        final SearchResultWindow last = m_mgr.findPages( "mankind", 2, 2, ctx );
+        Assertions.assertEquals( 1, last.size() );
+        Assertions.assertFalse( last.hasMore() );
+        Assertions.assertEquals( 3, last.getTotalHits() );
+        for( final SearchResult result : m_mgr.findPages( "mankind", 0, 10, ctx ) ) {
+            Assertions.assertFalse( result.getPage().getName().matches( "TestPage[24]" ), result.getPage().getName() );
+        }
+        for( int i = 1; i <= 5; i++ ) {
+            m_engine.deleteTestPage( "TestPage" + i );
+        }
+    }
+
+    @Test
+    void testSuggestions() throws Exception {
+        m_engine.saveText( "TestPage", "It was the dawn of the third age of mankind." );
+        final DefaultSearchManager.JSONSearch search = ( ( DefaultSearchManager )m_mgr ).new JSONSearch();
+        Assertions.assertEquals( List.of( "TestPage" ), search.getSuggestions( "testp", 10 ) );
+
+        m_engine.saveText( "TestPage2", "ten years after the Earth-Minbari War." );
+        Assertions.assertEquals( List.of( "TestPage", "TestPage2" ), search.getSuggestions( "testp", 10 ) );
+
+        final Context context = Wiki.context().create( m_engine, m_engine.getManager( PageManager.class ).getPage( "TestPage2" ) );
+        m_engine.getManager( PageRenamer.class ).renamePage( context, "TestPage2", "FooTest", false );
+        Assertions.assertEquals( List.of( "TestPage" ), search.getSuggestions( "testp", 10 ) );
+        Assertions.assertEquals( List.of( "FooTest" ), search.getSuggestions( "foo", 10 ) );
+
+        m_engine.getManager( PageManager.class ).deletePage( "TestPage" );
+        Assertions.assertTrue( search.getSuggestions( "testp", 10 ).isEmpty() );
+        m_engine.deleteTestPage( "FooTest" );
+    }
+
     @Test
     void testKeywordsSearch() throws Exception {
         final String txt = "[{SET keywords=perry,mason,attorney,law}] Nonsensical content that should not match";
@@ -227,4 +469,38 @@ class SearchManagerTest {
         
     }
 
+    /**
+     * Interrupts the thread rebuilding the index once the rebuild has started indexing pages, after running the given changes, if any,
+     * and optionally fails to reopen the index afterwards.
+     */
+    public static class InterruptingLuceneSearchProvider extends LuceneSearchProvider {
+
+        volatile Thread m_rebuilder;
+        volatile Runnable m_duringRebuild;
+        volatile boolean m_failReopen;
+
+        @Override
+        protected Document luceneIndexPage( final Page page, final String text, final IndexWriter writer ) throws IOException {
+            final Thread rebuilder = m_rebuilder;
+            if( rebuilder != null ) {
+                m_rebuilder = null;
+                final Runnable duringRebuild = m_duringRebuild;
+                if( duringRebuild != null ) {
+                    duringRebuild.run();
+                }
+                rebuilder.interrupt();
+            }
+            return super.luceneIndexPage( page, text, writer );
+        }
+
+        @Override
+        IndexWriter getIndexWriter( final Directory luceneDir ) throws IOException {
+            if( m_failReopen ) {
+                throw new IOException( "no index for you" );
+            }
+            return super.getIndexWriter( luceneDir );
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.stress;
+
+import org.apache.wiki.api.engine.Initializable;
+import org.apache.wiki.cache.CacheInfo;
+import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.cache.CaffeineCachingManager;
+import org.apache.wiki.cache.EhcacheCachingManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Compares the throughput and hit ratio of the {@link CachingManager} implementations under a skewed, Zipf-distributed workload, as
+ * usually seen on wiki page requests. Excluded from the default test run, launch it with
+ * {@code mvn test -Dtest=StressTestCachingManagers}.
+ */
+public class StressTestCachingManagers {
+
+    private static final int KEYS = 100_000;
+    private static final double SKEW = 0.99;
+    private static final int LOOKUPS_PER_THREAD = 500_000;
+    private static final int[] THREADS = { 1, 4, 8 };
+
+    final double[] cdf = zipfCdf( KEYS, SKEW );
+
+    @Test
+    public void testZipfWorkload() throws Exception {
+        for( final int threads : THREADS ) {
+            run( "ehcache", new EhcacheCachingManager(), threads );
+            run( "caffeine", new CaffeineCachingManager(), threads );
+        }
+    }
+
+    void run( final String name, final CachingManager cachingManager, final int threads ) throws Exception {
+        ( ( Initializable )cachingManager ).initialize( null, new Properties() );
+        try {
+            lookups( cachingManager, threads, LOOKUPS_PER_THREAD / 10 ); // warm up
+
+            final CacheInfo before = cachingManager.info( CachingManager.CACHE_PAGES_TEXT );
+            final long hits = before.getHits(), misses = before.getMisses();
+            final Benchmark mark = new Benchmark();
+            mark.start();
+            lookups( cachingManager, threads, LOOKUPS_PER_THREAD );
+            mark.stop();
+
+            final CacheInfo after = cachingManager.info( CachingManager.CACHE_PAGES_TEXT );
+            final double hitRatio = ( double )( after.getHits() - hits ) / ( after.getHits() - hits + after.getMisses() - misses );
+            System.out.printf( "%d thread(s), %s: %s lookups/second, hit ratio %.3f, %d evictions%n",
+                               threads, name, mark.toString( threads * LOOKUPS_PER_THREAD ), hitRatio, after.getEvictions() );
+        } finally {
+            cachingManager.shutdown();
+        }
+    }
+
+    void lookups( final CachingManager cachingManager, final int threads, final int lookups ) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List< Thread > workers = new ArrayList<>();
+        for( int t = 0; t < threads; t++ ) {
+            final Thread worker = new Thread( () -> {
+                try {
+                    start.await();
+                } catch( final InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                for( int i = 0; i < lookups; i++ ) {
+                    final String key = "Page" + nextKey( random );
+                    cachingManager.get( CachingManager.CACHE_PAGES_TEXT, key, () -> key );
+                }
+            } );
+            worker.start();
+            workers.add( worker );
+        }
+        start.countDown();
+        for( final Thread worker : workers ) {
+            worker.join();
+        }
+    }
+
+    int nextKey( final ThreadLocalRandom random ) {
+        final int idx = Arrays.binarySearch( cdf, random.nextDouble() );
+        return idx >= 0 ? idx : Math.min( -idx - 1, cdf.length - 1 );
+    }
+
+    static double[] zipfCdf( final int keys, final double skew ) {
+        final double[] cdf = new double[ keys ];
+        double sum = 0;
+        for( int i = 0; i < keys; i++ ) {
+            sum += 1 / Math.pow( i + 1, skew );
+            cdf[ i ] = sum;
+        }
+        for( int i = 0; i < keys; i++ ) {
+            cdf[ i ] /= sum;
+        }
+        return cdf;
+    }
+
+}
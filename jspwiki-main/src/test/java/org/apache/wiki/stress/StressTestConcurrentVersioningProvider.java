@@ -0,0 +1,129 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.stress;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.providers.CachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Measures the throughput of concurrent reads of old page versions and saves of unrelated pages on the
+ * {@link org.apache.wiki.providers.VersioningFileProvider}, bypassing the page caches. Excluded from the default test run, launch it
+ * with {@code mvn test -Dtest=StressTestConcurrentVersioningProvider}.
+ */
+public class StressTestConcurrentVersioningProvider {
+
+    private static final int PAGES = 50;
+    private static final int VERSIONS = 10;
+    private static final int READS_PER_THREAD = 5_000;
+    private static final int WRITES_PER_THREAD = 200;
+    private static final int[] READERS = { 1, 4, 8 };
+    private static final int WRITERS = 2;
+
+    Properties props = TestEngine.getTestProperties( "/jspwiki-vers-custom.properties" );
+    TestEngine engine = TestEngine.build( props );
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws Exception {
+        final PageProvider provider = ( ( CachingProvider )engine.getManager( PageManager.class ).getProvider() ).getRealProvider();
+        for( int p = 0; p < PAGES; p++ ) {
+            for( int v = 1; v <= VERSIONS; v++ ) {
+                provider.putPageText( page( "Read" + p ), "Version " + v + " of page " + p );
+            }
+        }
+
+        for( final int readers : READERS ) {
+            final AtomicReference< Throwable > failure = new AtomicReference<>();
+            final CountDownLatch start = new CountDownLatch( 1 );
+            final List< Thread > threads = new ArrayList<>();
+            for( int r = 0; r < readers; r++ ) {
+                threads.add( worker( start, failure, () -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for( int i = 0; i < READS_PER_THREAD; i++ ) {
+                        final int p = random.nextInt( PAGES );
+                        final int v = 1 + random.nextInt( VERSIONS - 1 );
+                        Assertions.assertEquals( "Version " + v + " of page " + p, provider.getPageText( "Read" + p, v ).trim() );
+                    }
+                } ) );
+            }
+            for( int w = 0; w < WRITERS; w++ ) {
+                final String name = "Write" + readers + "x" + w;
+                threads.add( worker( start, failure, () -> {
+                    for( int i = 0; i < WRITES_PER_THREAD; i++ ) {
+                        provider.putPageText( page( name ), "Version " + i );
+                    }
+                } ) );
+            }
+
+            final Benchmark mark = new Benchmark();
+            mark.start();
+            start.countDown();
+            for( final Thread thread : threads ) {
+                thread.join();
+            }
+            mark.stop();
+            Assertions.assertNull( failure.get(), () -> "worker failed: " + failure.get() );
+            System.out.printf( "%d reader(s), %d writer(s): %s reads/second, %s writes/second%n", readers, WRITERS,
+                               mark.toString( readers * READS_PER_THREAD ), mark.toString( WRITERS * WRITES_PER_THREAD ) );
+        }
+    }
+
+    Page page( final String name ) {
+        final Page page = Wiki.contents().page( engine, name );
+        page.setAuthor( "Stress" );
+        return page;
+    }
+
+    Thread worker( final CountDownLatch start, final AtomicReference< Throwable > failure, final Work work ) {
+        final Thread thread = new Thread( () -> {
+            try {
+                start.await();
+                work.run();
+            } catch( final Throwable t ) {
+                failure.compareAndSet( null, t );
+            }
+        } );
+        thread.start();
+        return thread;
+    }
+
+    interface Work {
+        void run() throws Exception;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.stress;
+
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventListener;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+
+/**
+ * Measures the throughput of {@link WikiEventManager#fireEvent(Object, WikiEvent)} with several threads firing events from the same
+ * source, against the previous dispatch, which held a lock on the listener list while notifying the listeners. Excluded from the
+ * default test run, launch it with {@code mvn test -Dtest=StressTestEventDispatch}.
+ */
+public class StressTestEventDispatch {
+
+    private static final int EVENTS_PER_THREAD = 1_000_000;
+    private static final int LISTENERS = 5;
+    private static final int[] THREADS = { 1, 2, 4, 8 };
+
+    final LongAdder received = new LongAdder();
+    final List< WikiEventListener > listeners = new ArrayList<>();
+
+    @Test
+    public void testFireEvent() throws Exception {
+        final Object client = new Object();
+        final LockingDispatch locking = new LockingDispatch();
+        for( int i = 0; i < LISTENERS; i++ ) {
+            final WikiEventListener listener = event -> received.increment();
+            listeners.add( listener );
+            WikiEventManager.addWikiEventListener( client, listener );
+            locking.add( listener );
+        }
+        final WikiEvent event = new WikiPageEvent( client, WikiPageEvent.PAGE_REQUESTED, "Main" );
+
+        for( final int threads : THREADS ) {
+            run( threads, EVENTS_PER_THREAD / 10, locking::fireEvent, event );
+            run( threads, EVENTS_PER_THREAD / 10, e -> WikiEventManager.fireEvent( client, e ), event );
+
+            final Benchmark mark = new Benchmark();
+            mark.start();
+            run( threads, EVENTS_PER_THREAD, locking::fireEvent, event );
+            mark.stop();
+            System.out.println( threads + " thread(s), locking dispatch: " + mark.toString( threads * EVENTS_PER_THREAD ) + " events/second" );
+
+            received.reset();
+            mark.reset();
+            mark.start();
+            run( threads, EVENTS_PER_THREAD, e -> WikiEventManager.fireEvent( client, e ), event );
+            mark.stop();
+            System.out.println( threads + " thread(s), lock-free dispatch: " + mark.toString( threads * EVENTS_PER_THREAD ) + " events/second" );
+
+            Assertions.assertEquals( ( long )threads * EVENTS_PER_THREAD * LISTENERS, received.sum() );
+        }
+
+        listeners.forEach( WikiEventManager::removeWikiEventListener );
+    }
+
+    void run( final int threads, final int events, final Consumer< WikiEvent > fire, final WikiEvent event ) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List< Thread > workers = new ArrayList<>();
+        for( int t = 0; t < threads; t++ ) {
+            final Thread worker = new Thread( () -> {
+                try {
+                    start.await();
+                } catch( final InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for( int i = 0; i < events; i++ ) {
+                    fire.accept( event );
+                }
+            } );
+            worker.start();
+            workers.add( worker );
+        }
+        start.countDown();
+        for( final Thread worker : workers ) {
+            worker.join();
+        }
+    }
+
+    /** The previous dispatch, notifying the listeners while holding the lock on the listener list. */
+    static final class LockingDispatch {
+
+        private final ArrayList< WeakReference< WikiEventListener > > m_listenerList = new ArrayList<>();
+
+        void add( final WikiEventListener listener ) {
+            synchronized( m_listenerList ) {
+                m_listenerList.add( new WeakReference<>( listener ) );
+            }
+        }
+
+        void fireEvent( final WikiEvent event ) {
+            synchronized( m_listenerList ) {
+                for( final WeakReference< WikiEventListener > ref : m_listenerList ) {
+                    final WikiEventListener listener = ref.get();
+                    if( listener != null ) {
+                        listener.actionPerformed( event );
+                    }
+                }
+            }
+        }
+
+    }
+
+}
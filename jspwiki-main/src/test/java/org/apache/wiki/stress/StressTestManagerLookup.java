@@ -0,0 +1,116 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.stress;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.engine.RenderApi;
+import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.auth.AuthorizationManager;
+import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.plugin.PluginManager;
+import org.apache.wiki.references.ReferenceManager;
+import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.search.SearchManager;
+import org.apache.wiki.variables.VariableManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Compares the per-lookup cost of {@code Engine#getManager(Class)} against the previous implementation, which scanned all the
+ * registered managers on every call. Excluded from the default test run, launch it with
+ * {@code mvn test -Dtest=StressTestManagerLookup}.
+ */
+public class StressTestManagerLookup {
+
+    private static final int LOOKUPS = 5_000_000;
+    private static final Class< ? >[] REQUESTED = { PageManager.class, RenderingManager.class, ReferenceManager.class, SearchManager.class,
+                                                   AttachmentManager.class, AuthorizationManager.class, PluginManager.class,
+                                                   VariableManager.class, CachingManager.class, RenderApi.class };
+
+    TestEngine engine = TestEngine.build();
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testManagerLookup() {
+        // same set of managers the engine holds, scanned the way getManager used to do it
+        final Map< Class< ? >, Object > managers = new LinkedHashMap<>();
+        for( final Object manager : engine.getManagers( Object.class ) ) {
+            managers.put( manager.getClass(), manager );
+        }
+        System.out.println( "Engine holds " + managers.size() + " managers" );
+
+        for( int warmup = 0; warmup < 3; warmup++ ) {
+            scan( managers, LOOKUPS / 10 );
+            lookup( LOOKUPS / 10 );
+        }
+
+        final Benchmark mark = new Benchmark();
+        mark.start();
+        final int scanned = scan( managers, LOOKUPS );
+        mark.stop();
+        System.out.println( "Scanning lookup: " + mark.toString( LOOKUPS ) + " lookups/second, " + nanosPerLookup( mark ) + " ns/lookup" );
+
+        mark.reset();
+        mark.start();
+        final int resolved = lookup( LOOKUPS );
+        mark.stop();
+        System.out.println( "Resolved lookup: " + mark.toString( LOOKUPS ) + " lookups/second, " + nanosPerLookup( mark ) + " ns/lookup" );
+
+        Assertions.assertEquals( scanned, resolved );
+    }
+
+    int scan( final Map< Class< ? >, Object > managers, final int lookups ) {
+        int found = 0;
+        for( int i = 0; i < lookups; i++ ) {
+            final Class< ? > requested = REQUESTED[ i % REQUESTED.length ];
+            if( managers.entrySet().stream()
+                                   .filter( e -> requested.isAssignableFrom( e.getKey() ) )
+                                   .map( Map.Entry::getValue )
+                                   .findFirst().orElse( null ) != null ) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    int lookup( final int lookups ) {
+        int found = 0;
+        for( int i = 0; i < lookups; i++ ) {
+            if( engine.getManager( REQUESTED[ i % REQUESTED.length ] ) != null ) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    double nanosPerLookup( final Benchmark mark ) {
+        return mark.getNanoTime() / ( double )LOOKUPS;
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.stress;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.classic.ClassicAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+
+
+/**
+ * Compares building search contexts by analyzing again the stored page text of each hit with the legacy {@code Highlighter} against
+ * using the {@code UnifiedHighlighter} on offsets stored in the index. Excluded from the default test run, launch it with
+ * {@code mvn test -Dtest=StressTestSearchHighlighting}.
+ */
+public class StressTestSearchHighlighting {
+
+    private static final String FIELD = "contents";
+    private static final int DOCS = 200;
+    private static final int WORDS_PER_DOC = 20_000;
+    private static final int QUERIES = 20;
+    private static final String[] WORDS = { "babylon", "minbari", "narn", "centauri", "vorlon", "shadow", "ranger", "station", "war",
+                                            "dawn", "age", "mankind", "dream", "given", "form", "place", "peace", "alien", "human" };
+
+    @Test
+    public void testHighlighting() throws Exception {
+        final Analyzer analyzer = new ClassicAnalyzer();
+        try( final Directory legacyDir = buildIndex( analyzer, TextField.TYPE_STORED );
+             final Directory offsetsDir = buildIndex( analyzer, offsetsType() );
+             final DirectoryReader legacyReader = DirectoryReader.open( legacyDir );
+             final DirectoryReader offsetsReader = DirectoryReader.open( offsetsDir ) ) {
+            final Query query = new QueryParser( FIELD, analyzer ).parse( "mankind" );
+            final IndexSearcher legacySearcher = new IndexSearcher( legacyReader );
+            final IndexSearcher offsetsSearcher = new IndexSearcher( offsetsReader );
+
+            legacy( legacySearcher, analyzer, query );
+            unified( offsetsSearcher, analyzer, query );
+
+            final Benchmark mark = new Benchmark();
+            mark.start();
+            int fragments = 0;
+            for( int i = 0; i < QUERIES; i++ ) {
+                fragments += legacy( legacySearcher, analyzer, query );
+            }
+            mark.stop();
+            System.out.println( "Re-analyzing highlighter: " + mark.toString( QUERIES ) + " queries/second (" + DOCS + " hits each)" );
+
+            mark.reset();
+            mark.start();
+            int offsetsFragments = 0;
+            for( int i = 0; i < QUERIES; i++ ) {
+                offsetsFragments += unified( offsetsSearcher, analyzer, query );
+            }
+            mark.stop();
+            System.out.println( "Offsets highlighter: " + mark.toString( QUERIES ) + " queries/second (" + DOCS + " hits each)" );
+
+            Assertions.assertTrue( fragments > 0 );
+            Assertions.assertTrue( offsetsFragments > 0 );
+        }
+    }
+
+    int legacy( final IndexSearcher searcher, final Analyzer analyzer, final Query query ) throws Exception {
+        final Highlighter highlighter = new Highlighter( new SimpleHTMLFormatter( "<span class=\"searchmatch\">", "</span>" ),
+                                                         new SimpleHTMLEncoder(),
+                                                         new QueryScorer( query ) );
+        final TopDocs hits = searcher.search( query, DOCS );
+        final StoredFields storedFields = searcher.getIndexReader().storedFields();
+        int fragments = 0;
+        for( final ScoreDoc hit : hits.scoreDocs ) {
+            final String text = storedFields.document( hit.doc ).get( FIELD );
+            final TokenStream tokenStream = analyzer.tokenStream( FIELD, new StringReader( text ) );
+            fragments += highlighter.getBestFragments( tokenStream, text, 3 ).length;
+        }
+        return fragments;
+    }
+
+    int unified( final IndexSearcher searcher, final Analyzer analyzer, final Query query ) throws Exception {
+        final UnifiedHighlighter highlighter = UnifiedHighlighter.builder( searcher, analyzer ).withMaxNoHighlightPassages( 0 ).build();
+        final TopDocs hits = searcher.search( query, DOCS );
+        int fragments = 0;
+        for( final String highlight : highlighter.highlight( FIELD, query, hits, 3 ) ) {
+            if( highlight != null ) {
+                fragments++;
+            }
+        }
+        return fragments;
+    }
+
+    Directory buildIndex( final Analyzer analyzer, final FieldType type ) throws Exception {
+        final Random random = new Random( 42L );
+        final Directory dir = new ByteBuffersDirectory();
+        try( final IndexWriter writer = new IndexWriter( dir, new IndexWriterConfig( analyzer ) ) ) {
+            for( int i = 0; i < DOCS; i++ ) {
+                final StringBuilder text = new StringBuilder();
+                for( int w = 0; w < WORDS_PER_DOC; w++ ) {
+                    text.append( WORDS[ random.nextInt( WORDS.length ) ] ).append( w % 12 == 11 ? ". " : " " );
+                }
+                final Document doc = new Document();
+                doc.add( new Field( FIELD, text.toString(), type ) );
+                writer.addDocument( doc );
+            }
+        }
+        return dir;
+    }
+
+    FieldType offsetsType() {
+        final FieldType type = new FieldType( TextField.TYPE_STORED );
+        type.setIndexOptions( IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS );
+        type.freeze();
+        return type;
+    }
+
+}
@@ -52,7 +52,9 @@
         log.info("Searching for string "+query);
 
         try {
-            list = wiki.getManager( SearchManager.class ).findPages( query, wikiContext );
+            int start = TextUtil.parseIntParameter( request.getParameter( "start" ), 0 );
+            list = ( start == -1 ) ? wiki.getManager( SearchManager.class ).findPages( query, 0, Integer.MAX_VALUE, wikiContext )
+                                   : wiki.getManager( SearchManager.class ).findPages( query, start, 20, wikiContext );
             pageContext.setAttribute( "searchresults", list, PageContext.REQUEST_SCOPE );
         } catch( Exception e ) {
             wikiContext.getWikiSession().addMessage( e.getMessage() );
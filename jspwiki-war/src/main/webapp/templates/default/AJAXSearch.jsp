@@ -32,6 +32,7 @@
 <%@ page import="org.apache.wiki.auth.permissions.*" %>
 <%@ page import="org.apache.wiki.preferences.Preferences" %>
 <%@ page import="org.apache.wiki.search.SearchManager" %>
+<%@ page import="org.apache.wiki.search.SearchResultWindow" %>
 <%@ page import="org.apache.wiki.ui.*" %>
 <%@ taglib prefix="c" uri="jakarta.tags.core" %>
 <%@ taglib prefix="fmt" uri="jakarta.tags.fmt" %>
@@ -55,34 +56,25 @@
 
   String query = request.getParameter( "query");
 
+  int startitem = 0; // first item to show
+  int maxitems = 20; // number of items to show in result
+
+  String parm_start    = request.getParameter( "start");
+  if( parm_start != null ) startitem = Integer.parseInt( parm_start ) ;
+
+  int total = 0;
   if( (query != null) && ( !query.trim().equals("") ) )
   {
     try
     {
-      Collection< SearchResult > list = wiki.getManager( SearchManager.class ).findPages( query, wikiContext );
-
-      //  Filter down to only those that we actually have a permission to view
-      AuthorizationManager mgr = wiki.getManager( AuthorizationManager.class );
-
-      ArrayList< SearchResult > items = new ArrayList<>();
-
-      for( Iterator< SearchResult > i = list.iterator(); i.hasNext(); )
-      {
-        SearchResult r = i.next();
-
-        Page p = r.getPage();
-
-        PagePermission pp = new PagePermission( p, PagePermission.VIEW_ACTION );
-
-        try
-        {
-          if( mgr.checkPermission( wikiContext.getWikiSession(), pp ) )
-          {
-            items.add( r );
-          }
-        }
-        catch( Exception e ) { log.error( "Searching for page "+p, e ); }
-      }
+      //  Only the requested page of results is fetched; the search provider takes care of filtering down to those
+      //  that we actually have a permission to view. The total only counts those too, and may stop a little after
+      //  the requested page, which is still enough for the pagination to link to the next one
+      SearchResultWindow items = ( startitem == -1 ) //show all
+                               ? wiki.getManager( SearchManager.class ).findPages( query, 0, Integer.MAX_VALUE, wikiContext )
+                               : wiki.getManager( SearchManager.class ).findPages( query, startitem, maxitems, wikiContext );
+      total = items.getTotalHits();
+      if( startitem == -1 ) maxitems = total;
 
       pageContext.setAttribute( "searchresults", items, PageContext.REQUEST_SCOPE );
     }
@@ -92,16 +84,6 @@
     }
   }
 %>
-<%
-  int startitem = 0; // first item to show
-  int maxitems = 20; // number of items to show in result
-
-  String parm_start    = request.getParameter( "start");
-  if( parm_start != null ) startitem = Integer.parseInt( parm_start ) ;
-
-  Collection list = (Collection)pageContext.getAttribute( "searchresults", PageContext.REQUEST_SCOPE );
-  if( startitem == -1 ) maxitems = list.size(); //show all
-%>
 
 <wiki:SearchResults>
 
@@ -120,7 +102,7 @@
        target="_blank">Wikipedia</a>
   </p>
 
-  <wiki:SetPagination start="${param.start}" total="<%=list.size()%>" pagesize="20" maxlinks="9"
+  <wiki:SetPagination start="${param.start}" total="<%=total%>" pagesize="20" maxlinks="9"
                      fmtkey="info.pagination"
                     onclick="$('start').value=%s; SearchBox.runfullsearch();" />
 